@@ -0,0 +1,252 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A histogram of latencies with a fixed relative precision, in the spirit of HdrHistogram.
+ * <p>
+ * Values up to 63 are counted exactly. Above that each power of two is split into 32 linear
+ * buckets, so a value is reported within about 3% of what was recorded. Values above
+ * {@link #MAX_VALUE} are counted in the last bucket; with values in microseconds that is more
+ * than twelve days.
+ * <p>
+ * Recording is a couple of shifts and an atomic increment. Concurrent recorders are spread over
+ * stripes picked by thread id, and a stripe is only allocated the first time a thread records
+ * on it, so idle histograms stay small. A {@link Snapshot} merges the stripes; it is not atomic
+ * with respect to concurrent recording, which is fine for monitoring.
+ */
+public final class LatencyHistogram
+{
+   private static final int SUB_BUCKET_BITS = 6;
+
+   private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+   private static final int HALF_SUB_BUCKETS = SUB_BUCKETS >> 1;
+
+   public static final long MAX_VALUE = (1L << 40) - 1;
+
+   private static final int BUCKETS = bucketIndex(MAX_VALUE) + 1;
+
+   // each stripe holds the bucket counts followed by the sum and the maximum of the recorded values
+   private static final int SUM = BUCKETS;
+
+   private static final int MAX = BUCKETS + 1;
+
+   private final AtomicReferenceArray<AtomicLongArray> stripes;
+
+   private final int stripeMask;
+
+   /**
+    * @param stripes the number of stripes, rounded up to a power of two
+    */
+   public LatencyHistogram(final int stripes)
+   {
+      int size = 1;
+      while (size < stripes)
+      {
+         size <<= 1;
+      }
+      this.stripes = new AtomicReferenceArray<AtomicLongArray>(size);
+      stripeMask = size - 1;
+   }
+
+   public void record(final long value)
+   {
+      long v = value < 0 ? 0 : value > MAX_VALUE ? MAX_VALUE : value;
+
+      AtomicLongArray stripe = stripe();
+
+      stripe.incrementAndGet(bucketIndex(v));
+      stripe.addAndGet(SUM, v);
+
+      long max;
+      while (v > (max = stripe.get(MAX)))
+      {
+         if (stripe.compareAndSet(MAX, max, v))
+         {
+            break;
+         }
+      }
+   }
+
+   /**
+    * Records the time elapsed since {@code startNanos}, a value of {@link System#nanoTime()}, in
+    * microseconds.
+    */
+   public void recordSince(final long startNanos)
+   {
+      record((System.nanoTime() - startNanos) / 1000);
+   }
+
+   public Snapshot snapshot()
+   {
+      long[] counts = new long[BUCKETS];
+      long count = 0;
+      long sum = 0;
+      long max = 0;
+
+      for (int i = 0; i < stripes.length(); i++)
+      {
+         AtomicLongArray stripe = stripes.get(i);
+         if (stripe == null)
+         {
+            continue;
+         }
+         for (int bucket = 0; bucket < BUCKETS; bucket++)
+         {
+            long n = stripe.get(bucket);
+            counts[bucket] += n;
+            count += n;
+         }
+         sum += stripe.get(SUM);
+         max = Math.max(max, stripe.get(MAX));
+      }
+
+      return new Snapshot(counts, count, sum, max);
+   }
+
+   /**
+    * Forgets everything recorded so far. Values recorded concurrently may be partially lost.
+    */
+   public void reset()
+   {
+      for (int i = 0; i < stripes.length(); i++)
+      {
+         stripes.set(i, null);
+      }
+   }
+
+   private AtomicLongArray stripe()
+   {
+      int index = (int)Thread.currentThread().getId() & stripeMask;
+
+      AtomicLongArray stripe = stripes.get(index);
+      if (stripe == null)
+      {
+         stripes.compareAndSet(index, null, new AtomicLongArray(BUCKETS + 2));
+         stripe = stripes.get(index);
+      }
+      return stripe;
+   }
+
+   static int bucketIndex(final long value)
+   {
+      if (value < SUB_BUCKETS)
+      {
+         return (int)value;
+      }
+
+      // shift the value so that it keeps SUB_BUCKET_BITS - 1 significant bits
+      int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+
+      return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int)(value >>> shift) - HALF_SUB_BUCKETS;
+   }
+
+   /**
+    * @return the highest value counted in the given bucket
+    */
+   static long highestValue(final int bucket)
+   {
+      if (bucket < SUB_BUCKETS)
+      {
+         return bucket;
+      }
+
+      int shift = (bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+      long mantissa = (bucket - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+
+      return ((mantissa + 1) << shift) - 1;
+   }
+
+   /**
+    * The merged content of a histogram at some point in time.
+    */
+   public static final class Snapshot
+   {
+      private final long[] counts;
+
+      private final long count;
+
+      private final long sum;
+
+      private final long max;
+
+      private Snapshot(final long[] counts, final long count, final long sum, final long max)
+      {
+         this.counts = counts;
+         this.count = count;
+         this.sum = sum;
+         this.max = max;
+      }
+
+      public long getCount()
+      {
+         return count;
+      }
+
+      public long getSum()
+      {
+         return sum;
+      }
+
+      public long getMax()
+      {
+         return max;
+      }
+
+      public double getMean()
+      {
+         return count == 0 ? 0 : (double)sum / count;
+      }
+
+      /**
+       * @param percentile between 0 and 100
+       * @return a value such that {@code percentile}% of the recorded values are lower than or
+       *         equivalent to it, or 0 if nothing was recorded
+       */
+      public long getValueAtPercentile(final double percentile)
+      {
+         if (count == 0)
+         {
+            return 0;
+         }
+
+         long target = Math.max(1, (long)Math.ceil(count * Math.min(100, percentile) / 100));
+
+         long seen = 0;
+         for (int bucket = 0; bucket < counts.length; bucket++)
+         {
+            seen += counts[bucket];
+            if (seen >= target)
+            {
+               return Math.min(highestValue(bucket), max);
+            }
+         }
+         return max;
+      }
+
+      @Override
+      public String toString()
+      {
+         return "Snapshot[count=" + count +
+            ", mean=" + getMean() +
+            ", p50=" + getValueAtPercentile(50) +
+            ", p99=" + getValueAtPercentile(99) +
+            ", max=" + max +
+            "]";
+      }
+   }
+}
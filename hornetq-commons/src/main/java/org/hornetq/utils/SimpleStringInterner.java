@@ -0,0 +1,131 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.SimpleString;
+
+/**
+ * A bounded pool of canonical {@link SimpleString}s, for the strings decoded over and over such
+ * as addresses and property names. A string read from a buffer is looked up by the hash of its
+ * bytes before anything is allocated, so a string already pooled costs neither a copy nor a hash
+ * computation, and the instances returned compare by identity.
+ * <p>
+ * The pool is a fixed table indexed by hash: a string replaces the one in its slot, so the pool
+ * never grows and the strings in use keep their place. Lookups take no lock.
+ */
+public final class SimpleStringInterner
+{
+   private final AtomicReferenceArray<SimpleString> entries;
+
+   private final int mask;
+
+   private final int maxLength;
+
+   /**
+    * @param capacity  the number of slots, rounded up to a power of two
+    * @param maxLength the length in bytes above which strings are not pooled
+    */
+   public SimpleStringInterner(final int capacity, final int maxLength)
+   {
+      int size = 1;
+      while (size < capacity)
+      {
+         size <<= 1;
+      }
+      entries = new AtomicReferenceArray<SimpleString>(size);
+      mask = size - 1;
+      this.maxLength = maxLength;
+   }
+
+   /**
+    * Reads a string of {@code length} bytes from the buffer.
+    *
+    * @return the pooled string with these bytes, or a new one which is pooled in turn
+    */
+   public SimpleString intern(final HornetQBuffer buffer, final int length)
+   {
+      if (length > maxLength)
+      {
+         return read(buffer, length);
+      }
+
+      int start = buffer.readerIndex();
+      int hash = 0;
+      for (int i = 0; i < length; i++)
+      {
+         // the hash of SimpleString
+         hash = (hash << 5) - hash + buffer.getByte(start + i);
+      }
+
+      int index = hash & mask;
+      SimpleString pooled = entries.get(index);
+      if (pooled != null && pooled.hashCode() == hash && matches(pooled.getData(), buffer, start, length))
+      {
+         buffer.skipBytes(length);
+         return pooled;
+      }
+
+      SimpleString string = read(buffer, length);
+      // computes the hash once and for all, before the string is shared
+      string.hashCode();
+      entries.lazySet(index, string);
+      return string;
+   }
+
+   /**
+    * @return the pooled string equal to the one given, which is pooled if there is none
+    */
+   public SimpleString intern(final SimpleString string)
+   {
+      byte[] data = string.getData();
+      if (data.length > maxLength)
+      {
+         return string;
+      }
+
+      int index = string.hashCode() & mask;
+      SimpleString pooled = entries.get(index);
+      if (pooled == string || pooled != null && pooled.equals(string))
+      {
+         return pooled;
+      }
+      entries.lazySet(index, string);
+      return string;
+   }
+
+   private static SimpleString read(final HornetQBuffer buffer, final int length)
+   {
+      byte[] data = new byte[length];
+      buffer.readBytes(data);
+      return new SimpleString(data);
+   }
+
+   private static boolean matches(final byte[] data, final HornetQBuffer buffer, final int start, final int length)
+   {
+      if (data.length != length)
+      {
+         return false;
+      }
+      for (int i = 0; i < length; i++)
+      {
+         if (data[i] != buffer.getByte(start + i))
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter which threads update on separate cache lines, picked by thread id, so that
+ * frequent increments from many threads don't contend on a single value. Reading sums the
+ * stripes.
+ */
+public final class StripedCounter
+{
+   // longs per cache line, so neighbouring stripes are not falsely shared
+   private static final int PADDING = 8;
+
+   private final AtomicLongArray cells;
+
+   private final int stripeMask;
+
+   /**
+    * @param stripes the number of stripes, rounded up to a power of two
+    */
+   public StripedCounter(final int stripes)
+   {
+      int size = 1;
+      while (size < stripes)
+      {
+         size <<= 1;
+      }
+      cells = new AtomicLongArray(size * PADDING);
+      stripeMask = size - 1;
+   }
+
+   public void add(final long delta)
+   {
+      cells.addAndGet(((int)Thread.currentThread().getId() & stripeMask) * PADDING, delta);
+   }
+
+   public void increment()
+   {
+      add(1);
+   }
+
+   public long get()
+   {
+      long sum = 0;
+      for (int i = 0; i < cells.length(); i += PADDING)
+      {
+         sum += cells.get(i);
+      }
+      return sum;
+   }
+
+   public void reset()
+   {
+      for (int i = 0; i < cells.length(); i += PADDING)
+      {
+         cells.set(i, 0);
+      }
+   }
+}
@@ -31,6 +31,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQPropertyConversionException;
 import org.hornetq.api.core.SimpleString;
 
@@ -41,6 +42,10 @@ import org.hornetq.api.core.SimpleString;
  * This implementation follows section 3.5.4 of the <i>Java Message Service<i> specification
  * (Version 1.1 April 12, 2002).
  * <p>
+ * Decoded properties stay in their encoded form until they are changed or listed: a single
+ * property is looked up in the encoded bytes, and unchanged properties are encoded again by copying
+ * these bytes.
+ * <p>
  * TODO - should have typed property getters and do conversions herein
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  * @author <a href="mailto:clebert.suconic@jboss.com">Clebert Suconic</a>
@@ -50,8 +55,23 @@ public final class TypedProperties
 
    private static final SimpleString HQ_PROPNAME = new SimpleString("_HQ_");
 
+   // the decoded property names, the same few names being on most messages
+   private static final SimpleStringInterner KEYS = new SimpleStringInterner(1024, 256);
+
    private Map<SimpleString, PropertyValue> properties;
 
+   /**
+    * The decoded properties not put in {@link #properties} yet, copied from the buffer they were
+    * decoded from as that buffer is written over when its message is encoded again. Never modified,
+    * so copies share it.
+    */
+   private byte[] encoded;
+
+   private int encodedCount;
+
+   // reads the values of encoded, created on the first one read
+   private HornetQBuffer encodedBuffer;
+
    private volatile int size;
 
    private boolean internalProperties;
@@ -66,13 +86,22 @@ public final class TypedProperties
       // Note we don't include the attributes or anything else since they already included in the memory estimate
       // of the ServerMessage
 
+      if (encoded != null)
+      {
+         return size + 2 * DataConstants.SIZE_INT * encodedCount;
+      }
       return properties == null ? 0 : size + 2 * DataConstants.SIZE_INT * properties.size();
    }
 
    public TypedProperties(final TypedProperties other)
    {
-      properties = other.properties == null ? null : new HashMap<SimpleString, PropertyValue>(other.properties);
-      size = other.size;
+      synchronized (other)
+      {
+         properties = other.properties == null ? null : new HashMap<SimpleString, PropertyValue>(other.properties);
+         encoded = other.encoded;
+         encodedCount = other.encodedCount;
+         size = other.size;
+      }
    }
 
    public boolean hasInternalProperties()
@@ -148,7 +177,12 @@ public final class TypedProperties
 
    public void putTypedProperties(final TypedProperties otherProps)
    {
-      if (otherProps == null || otherProps.properties == null)
+      if (otherProps == null)
+      {
+         return;
+      }
+      otherProps.materialize();
+      if (otherProps.properties == null)
       {
          return;
       }
@@ -433,12 +467,20 @@ public final class TypedProperties
       }
       else
       {
-         return properties.containsKey(key);
+         synchronized (this)
+         {
+            if (encoded != null)
+            {
+               return findEncoded(key) >= 0;
+            }
+            return properties.containsKey(key);
+         }
       }
    }
 
    public Set<SimpleString> getPropertyNames()
    {
+      materialize();
       if (size == 0)
       {
          return Collections.emptySet();
@@ -449,112 +491,55 @@ public final class TypedProperties
       }
    }
 
+   /**
+    * Copies the encoded properties, only reading the length and type of each one to find their end.
+    */
    public synchronized void decode(final HornetQBuffer buffer)
    {
       byte b = buffer.readByte();
 
-      if (b == DataConstants.NULL)
-      {
-         properties = null;
-      }
-      else
+      properties = null;
+      encoded = null;
+      encodedBuffer = null;
+      size = 0;
+
+      if (b != DataConstants.NULL)
       {
          int numHeaders = buffer.readInt();
 
-         properties = new HashMap<SimpleString, PropertyValue>(numHeaders);
-         size = 0;
-
+         int start = buffer.readerIndex();
+         int pos = start;
          for (int i = 0; i < numHeaders; i++)
          {
-            int len = buffer.readInt();
-            byte[] data = new byte[len];
-            buffer.readBytes(data);
-            SimpleString key = new SimpleString(data);
-
-            byte type = buffer.readByte();
-
-            PropertyValue val;
-
-            switch (type)
+            int len = buffer.getInt(pos);
+            pos += DataConstants.SIZE_INT;
+            if (!internalProperties && isInternal(buffer, pos, len))
             {
-               case NULL:
-               {
-                  val = new NullValue();
-                  doPutValue(key, val);
-                  break;
-               }
-               case CHAR:
-               {
-                  val = new CharValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BOOLEAN:
-               {
-                  val = new BooleanValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BYTE:
-               {
-                  val = new ByteValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BYTES:
-               {
-                  val = new BytesValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case SHORT:
-               {
-                  val = new ShortValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case INT:
-               {
-                  val = new IntValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case LONG:
-               {
-                  val = new LongValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case FLOAT:
-               {
-                  val = new FloatValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case DOUBLE:
-               {
-                  val = new DoubleValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case STRING:
-               {
-                  val = new StringValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               default:
-               {
-                  throw HornetQUtilBundle.BUNDLE.invalidType(type);
-               }
+               internalProperties = true;
             }
+            pos += len;
+
+            byte type = buffer.getByte(pos);
+            pos += DataConstants.SIZE_BYTE;
+            pos += sizeOfValue(type, hasLength(type) ? buffer.getInt(pos) : 0);
          }
+
+         encoded = new byte[pos - start];
+         buffer.readBytes(encoded);
+         encodedCount = numHeaders;
+         size = encoded.length;
       }
    }
 
    public synchronized void encode(final HornetQBuffer buffer)
    {
-      if (properties == null)
+      if (encoded != null)
+      {
+         buffer.writeByte(DataConstants.NOT_NULL);
+         buffer.writeInt(encodedCount);
+         buffer.writeBytes(encoded);
+      }
+      else if (properties == null)
       {
          buffer.writeByte(DataConstants.NULL);
       }
@@ -576,9 +561,9 @@ public final class TypedProperties
       }
    }
 
-   public int getEncodeSize()
+   public synchronized int getEncodeSize()
    {
-      if (properties == null)
+      if (properties == null && encoded == null)
       {
          return DataConstants.SIZE_BYTE;
       }
@@ -588,17 +573,25 @@ public final class TypedProperties
       }
    }
 
-   public void clear()
+   public synchronized void clear()
    {
-      if (properties != null)
+      if (encoded != null)
+      {
+         // the map is created by the next put, pooled messages are cleared on each delivery
+         encoded = null;
+         encodedBuffer = null;
+      }
+      else if (properties != null)
       {
          properties.clear();
       }
+      size = 0;
    }
 
    @Override
    public String toString()
    {
+      materialize();
       return "TypedProperties[" + properties + "]";
    }
 
@@ -606,6 +599,7 @@ public final class TypedProperties
 
    private void checkCreateProperties()
    {
+      materialize();
       if (properties == null)
       {
          properties = new HashMap<SimpleString, PropertyValue>();
@@ -632,6 +626,15 @@ public final class TypedProperties
 
    private synchronized Object doRemoveProperty(final SimpleString key)
    {
+      if (encoded != null)
+      {
+         if (findEncoded(key) < 0)
+         {
+            return null;
+         }
+         materialize();
+      }
+
       if (properties == null)
       {
          return null;
@@ -651,13 +654,28 @@ public final class TypedProperties
       }
    }
 
-   private synchronized Object doGetProperty(final Object key)
+   private synchronized Object doGetProperty(final SimpleString key)
    {
       if (size == 0)
       {
          return null;
       }
 
+      if (encoded != null)
+      {
+         int pos = findEncoded(key);
+         if (pos < 0)
+         {
+            return null;
+         }
+         if (encodedBuffer == null)
+         {
+            encodedBuffer = HornetQBuffers.wrappedBuffer(encoded);
+         }
+         encodedBuffer.readerIndex(pos + DataConstants.SIZE_BYTE);
+         return readValue(encoded[pos], encodedBuffer).getValue();
+      }
+
       PropertyValue val = properties.get(key);
 
       if (val == null)
@@ -670,6 +688,153 @@ public final class TypedProperties
       }
    }
 
+   /**
+    * Puts the encoded properties in the map, before it is changed or listed.
+    */
+   private synchronized void materialize()
+   {
+      if (encoded == null)
+      {
+         return;
+      }
+
+      HornetQBuffer buffer = encodedBuffer == null ? HornetQBuffers.wrappedBuffer(encoded) : encodedBuffer;
+      buffer.readerIndex(0);
+      encoded = null;
+      encodedBuffer = null;
+      properties = new HashMap<SimpleString, PropertyValue>(encodedCount);
+      size = 0;
+
+      for (int i = 0; i < encodedCount; i++)
+      {
+         SimpleString key = KEYS.intern(buffer, buffer.readInt());
+
+         byte type = buffer.readByte();
+         doPutValue(key, readValue(type, buffer));
+      }
+   }
+
+   /**
+    * @return the position of the type of the encoded property, -1 if there is none with that key
+    */
+   private int findEncoded(final SimpleString key)
+   {
+      byte[] data = key.getData();
+      int pos = 0;
+      for (int i = 0; i < encodedCount; i++)
+      {
+         int len = getInt(encoded, pos);
+         pos += DataConstants.SIZE_INT;
+         boolean found = len == data.length;
+         for (int j = 0; found && j < len; j++)
+         {
+            found = encoded[pos + j] == data[j];
+         }
+         pos += len;
+         if (found)
+         {
+            return pos;
+         }
+
+         byte type = encoded[pos];
+         pos += DataConstants.SIZE_BYTE;
+         pos += sizeOfValue(type, hasLength(type) ? getInt(encoded, pos) : 0);
+      }
+      return -1;
+   }
+
+   private static int getInt(final byte[] data, final int pos)
+   {
+      return (data[pos] & 0xFF) << 24 | (data[pos + 1] & 0xFF) << 16 | (data[pos + 2] & 0xFF) << 8 | data[pos + 3] & 0xFF;
+   }
+
+   private static boolean isInternal(final HornetQBuffer buffer, final int pos, final int len)
+   {
+      byte[] prefix = HQ_PROPNAME.getData();
+      if (len < prefix.length)
+      {
+         return false;
+      }
+      for (int i = 0; i < prefix.length; i++)
+      {
+         if (buffer.getByte(pos + i) != prefix[i])
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static boolean hasLength(final byte type)
+   {
+      return type == BYTES || type == STRING;
+   }
+
+   /**
+    * @param length the length written after the type, for the types having one
+    * @return the size of a value after its type
+    */
+   private static int sizeOfValue(final byte type, final int length)
+   {
+      switch (type)
+      {
+         case NULL:
+            return 0;
+         case BOOLEAN:
+            return DataConstants.SIZE_BOOLEAN;
+         case BYTE:
+            return DataConstants.SIZE_BYTE;
+         case BYTES:
+         case STRING:
+            return DataConstants.SIZE_INT + length;
+         case SHORT:
+            return DataConstants.SIZE_SHORT;
+         case CHAR:
+            return DataConstants.SIZE_CHAR;
+         case INT:
+            return DataConstants.SIZE_INT;
+         case LONG:
+            return DataConstants.SIZE_LONG;
+         case FLOAT:
+            return DataConstants.SIZE_FLOAT;
+         case DOUBLE:
+            return DataConstants.SIZE_DOUBLE;
+         default:
+            throw HornetQUtilBundle.BUNDLE.invalidType(type);
+      }
+   }
+
+   private static PropertyValue readValue(final byte type, final HornetQBuffer buffer)
+   {
+      switch (type)
+      {
+         case NULL:
+            return new NullValue();
+         case CHAR:
+            return new CharValue(buffer);
+         case BOOLEAN:
+            return new BooleanValue(buffer);
+         case BYTE:
+            return new ByteValue(buffer);
+         case BYTES:
+            return new BytesValue(buffer);
+         case SHORT:
+            return new ShortValue(buffer);
+         case INT:
+            return new IntValue(buffer);
+         case LONG:
+            return new LongValue(buffer);
+         case FLOAT:
+            return new FloatValue(buffer);
+         case DOUBLE:
+            return new DoubleValue(buffer);
+         case STRING:
+            return new StringValue(buffer);
+         default:
+            throw HornetQUtilBundle.BUNDLE.invalidType(type);
+      }
+   }
+
    // Inner classes ------------------------------------------------------------------------------
 
    private static abstract class PropertyValue
@@ -1059,14 +1224,23 @@ public final class TypedProperties
       }
    }
 
-   public boolean isEmpty()
+   public synchronized boolean isEmpty()
    {
-      return properties.isEmpty();
+      if (encoded != null)
+      {
+         return encodedCount == 0;
+      }
+      return properties == null || properties.isEmpty();
    }
 
    public Map<String, Object> getMap()
    {
+      materialize();
       Map<String, Object> m = new HashMap<String, Object>();
+      if (properties == null)
+      {
+         return m;
+      }
       for (Entry<SimpleString,PropertyValue> entry:properties.entrySet()) {
          Object val = entry.getValue().getValue();
          if (val instanceof SimpleString)
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest extends Assert
+{
+   @Test
+   public void testBuckets()
+   {
+      int previous = -1;
+      for (long value = 0; value < 1000000; value++)
+      {
+         int bucket = LatencyHistogram.bucketIndex(value);
+         assertTrue(bucket == previous || bucket == previous + 1);
+         assertTrue(value <= LatencyHistogram.highestValue(bucket));
+         if (bucket > 0)
+         {
+            assertTrue(value > LatencyHistogram.highestValue(bucket - 1));
+         }
+         previous = bucket;
+      }
+
+      for (long value = 1; value <= LatencyHistogram.MAX_VALUE; value = value * 3 + 1)
+      {
+         long highest = LatencyHistogram.highestValue(LatencyHistogram.bucketIndex(value));
+         assertTrue(value + " reported as " + highest, highest - value <= value / 32);
+      }
+   }
+
+   @Test
+   public void testPercentiles()
+   {
+      LatencyHistogram histogram = new LatencyHistogram(4);
+
+      assertEquals(0, histogram.snapshot().getValueAtPercentile(99));
+
+      for (int i = 1; i <= 10000; i++)
+      {
+         histogram.record(i);
+      }
+
+      LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+      assertEquals(10000, snapshot.getCount());
+      assertEquals(10000, snapshot.getMax());
+      assertEquals(5000.5, snapshot.getMean(), 0.001);
+      assertEquals(5000, snapshot.getValueAtPercentile(50), 5000 / 32);
+      assertEquals(9900, snapshot.getValueAtPercentile(99), 9900 / 32);
+      assertEquals(10000, snapshot.getValueAtPercentile(100));
+
+      histogram.record(-5);
+      histogram.record(Long.MAX_VALUE);
+      snapshot = histogram.snapshot();
+      assertEquals(10002, snapshot.getCount());
+      assertEquals(LatencyHistogram.MAX_VALUE, snapshot.getMax());
+
+      histogram.reset();
+      assertEquals(0, histogram.snapshot().getCount());
+   }
+
+   @Test
+   public void testConcurrentRecording() throws Exception
+   {
+      final LatencyHistogram histogram = new LatencyHistogram(4);
+      final StripedCounter counter = new StripedCounter(4);
+      final CountDownLatch start = new CountDownLatch(1);
+
+      Thread[] threads = new Thread[8];
+      for (int i = 0; i < threads.length; i++)
+      {
+         threads[i] = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  start.await();
+               }
+               catch (InterruptedException e)
+               {
+                  return;
+               }
+               for (int j = 0; j < 100000; j++)
+               {
+                  histogram.record(j);
+                  counter.increment();
+               }
+            }
+         };
+         threads[i].start();
+      }
+
+      start.countDown();
+      for (Thread thread : threads)
+      {
+         thread.join();
+      }
+
+      assertEquals(800000, histogram.snapshot().getCount());
+      assertEquals(99999, histogram.snapshot().getMax());
+      assertEquals(800000, counter.get());
+   }
+}
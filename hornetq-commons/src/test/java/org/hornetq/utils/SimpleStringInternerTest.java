@@ -0,0 +1,73 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.api.core.SimpleString;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SimpleStringInternerTest extends Assert
+{
+   @Test
+   public void testInternFromBuffer()
+   {
+      SimpleStringInterner interner = new SimpleStringInterner(16, 100);
+      SimpleString address = new SimpleString("jms.queue.orders");
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(100);
+      buffer.writeSimpleString(address);
+      buffer.writeSimpleString(address);
+      buffer.writeInt(42);
+
+      SimpleString first = interner.intern(buffer, buffer.readInt());
+      SimpleString second = interner.intern(buffer, buffer.readInt());
+
+      assertEquals(address, first);
+      assertSame(first, second);
+      assertEquals(42, buffer.readInt());
+      assertSame(first, interner.intern(new SimpleString("jms.queue.orders")));
+   }
+
+   @Test
+   public void testDifferentStringsInSameSlot()
+   {
+      // a single slot, every string collides
+      SimpleStringInterner interner = new SimpleStringInterner(1, 100);
+      SimpleString a = interner.intern(new SimpleString("a"));
+      SimpleString b = interner.intern(new SimpleString("b"));
+
+      assertEquals(new SimpleString("a"), a);
+      assertEquals(new SimpleString("b"), b);
+      assertSame(b, interner.intern(new SimpleString("b")));
+      assertNotSame(a, interner.intern(new SimpleString("a")));
+   }
+
+   @Test
+   public void testLongStringsNotPooled()
+   {
+      SimpleStringInterner interner = new SimpleStringInterner(16, 4);
+      SimpleString string = new SimpleString("too long to be pooled");
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(100);
+      buffer.writeSimpleString(string);
+      buffer.writeSimpleString(string);
+
+      SimpleString first = interner.intern(buffer, buffer.readInt());
+      SimpleString second = interner.intern(buffer, buffer.readInt());
+      assertEquals(string, first);
+      assertEquals(string, second);
+      assertNotSame(first, second);
+   }
+}
@@ -66,6 +66,11 @@ public interface Message
 
    public static final SimpleString HDR_LARGE_COMPRESSED = new SimpleString("_HQ_LARGE_COMPRESSED");
 
+   /**
+    * the name of the codec which compressed a message flagged with {@link #HDR_LARGE_COMPRESSED}, zlib when absent
+    */
+   public static final SimpleString HDR_LARGE_COMPRESSION_CODEC = new SimpleString("_HQ_LARGE_CODEC");
+
    public static final SimpleString HDR_LARGE_BODY_SIZE = new SimpleString("_HQ_LARGE_SIZE");
 
    public static final SimpleString HDR_SCHEDULED_DELIVERY_TIME = new SimpleString("_HQ_SCHED_DELIVERY");
@@ -63,6 +63,16 @@ public interface ClientMessage extends Message
     */
    void individualAcknowledge() throws HornetQException;
 
+   /**
+    * Returns this message to the consumer message pool.
+    * <p>
+    * This only has an effect when the message was received through a {@link ServerLocator}
+    * configured with a positive {@link ServerLocator#getConsumerMessagePoolSize() consumer message
+    * pool size}, otherwise it does nothing. Pooled messages are also released when they are
+    * acknowledged. The message must not be used after it has been released.
+    */
+   void release();
+
    /**
     * This can be optionally used to verify if the entire message has been received.
     * It won't have any effect on regular messages but it may be helpful on large messages.
@@ -42,10 +42,14 @@ public final class HornetQClient
 
    public static final boolean DEFAULT_COMPRESS_LARGE_MESSAGES = false;
 
+   public static final String DEFAULT_COMPRESSION_CODEC = "zlib";
+
    public static final int DEFAULT_CONSUMER_WINDOW_SIZE = 1024 * 1024;
 
    public static final int DEFAULT_CONSUMER_MAX_RATE = -1;
 
+   public static final int DEFAULT_CONSUMER_MESSAGE_POOL_SIZE = 0;
+
    public static final int DEFAULT_CONFIRMATION_WINDOW_SIZE = -1;
 
    public static final int DEFAULT_PRODUCER_WINDOW_SIZE = 64 * 1024;
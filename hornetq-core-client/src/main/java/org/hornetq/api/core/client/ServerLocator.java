@@ -245,6 +245,27 @@ public interface ServerLocator extends AutoCloseable
     */
    void setConsumerMaxRate(int consumerMaxRate);
 
+   /**
+    * Returns the number of received messages that are kept for reuse by consumers created through this factory.
+    * <p>
+    * Value is 0 (to disable) or a positive integer. When enabled, regular (non large) messages are decoded into
+    * pooled instances which return to the pool when they are acknowledged or {@link ClientMessage#release() released},
+    * so the application must not keep a reference to a message after that.
+    * Default value is {@link HornetQClient#DEFAULT_CONSUMER_MESSAGE_POOL_SIZE}.
+    *
+    * @return the consumer message pool size
+    */
+   int getConsumerMessagePoolSize();
+
+   /**
+    * Sets the number of received messages that are kept for reuse by consumers created through this factory.
+    * <p>
+    * Value must be 0 (to disable) or a positive integer.
+    *
+    * @param consumerMessagePoolSize maximum number of pooled messages
+    */
+   void setConsumerMessagePoolSize(int consumerMessagePoolSize);
+
    /**
     * Returns the size for the confirmation window of clients using this factory.
     * <p>
@@ -729,6 +750,28 @@ public interface ServerLocator extends AutoCloseable
     */
    void setCompressLargeMessage(boolean compressLargeMessages);
 
+   /**
+    * Returns the codec used to compress large messages when {@link #isCompressLargeMessage()} is {@code true}.
+    * <p>
+    * Default value is {@link HornetQClient#DEFAULT_COMPRESSION_CODEC}.
+    *
+    * @return the name of the compression codec
+    */
+   String getCompressionCodec();
+
+   /**
+    * Sets the codec used to compress large messages.
+    * <p>
+    * Value is {@code zlib}, {@code lz} (faster, compresses less) or the class name of an
+    * {@link org.hornetq.utils.CompressionCodec} implementation. Consumers decode messages with the
+    * codec which compressed them, whatever codec their own locator is configured with, provided it
+    * is built in or was configured on a locator of theirs. The server must be configured with the
+    * codec as well, it rejects messages compressed with a codec it doesn't know.
+    *
+    * @param compressionCodec the name of the compression codec
+    */
+   void setCompressionCodec(String compressionCodec);
+
    // XXX No javadocs
    void addClusterTopologyListener(ClusterTopologyListener listener);
 
@@ -31,6 +31,16 @@ public interface HornetQServerControl
     */
    int getConnectionCount();
 
+   /**
+    * Returns the number of XA transactions, active or prepared, currently held by this server.
+    */
+   int getXATransactionCount();
+
+   /**
+    * Returns the number of XA transactions this server rolled back because they timed out.
+    */
+   long getTimedOutXATransactionCount();
+
    /**
     * Return whether this server is started.
     */
@@ -417,6 +427,26 @@ public interface HornetQServerControl
    @Operation(desc = "Reset all message counters history", impact = MBeanOperationInfo.ACTION)
    void resetAllMessageCounterHistories() throws Exception;
 
+   /**
+    * Returns whether latency metrics are recorded by this server.
+    */
+   boolean isMetricsEnabled();
+
+   /**
+    * Lists the latency histograms and counters recorded by this server using JSON serialization.
+    * <br>
+    * Each histogram gives its count, mean, p50, p90, p99, p999 and max, in microseconds. The lists
+    * are empty when metrics are disabled.
+    */
+   @Operation(desc = "List the latency histograms (in microseconds) and counters of the server in JSON format", impact = MBeanOperationInfo.INFO)
+   String listMetricsAsJSON() throws Exception;
+
+   /**
+    * Resets the latency histograms and counters.
+    */
+   @Operation(desc = "Reset the latency histograms and counters", impact = MBeanOperationInfo.ACTION)
+   void resetMetrics() throws Exception;
+
    /**
     * List all the prepared transaction, sorted by date, oldest first.
     * <br>
@@ -62,6 +62,10 @@ public final class ManagementHelper
 
    public static final SimpleString HDR_CONSUMER_COUNT = new SimpleString("_HQ_ConsumerCount");
 
+   public static final SimpleString HDR_MESSAGE_COUNT = new SimpleString("_HQ_MessageCount");
+
+   public static final SimpleString HDR_CONSUME_RATE = new SimpleString("_HQ_ConsumeRate");
+
    public static final SimpleString HDR_USER = new SimpleString("_HQ_User");
 
    public static final SimpleString HDR_CHECK_TYPE = new SimpleString("_HQ_CheckType");
@@ -76,6 +80,10 @@ public final class ManagementHelper
 
    public static final SimpleString HDR_PROPOSAL_ALT_VALUE = new SimpleString("_JBM_ProposalAltValue");
 
+   public static final SimpleString HDR_PROPOSAL_BATCH = new SimpleString("_HQ_ProposalBatch");
+
+   public static final SimpleString HDR_PROPOSAL_BATCH_SUPPORTED = new SimpleString("_HQ_ProposalBatchSupported");
+
    // Attributes ----------------------------------------------------
 
    // Static --------------------------------------------------------
@@ -44,7 +44,8 @@ public enum NotificationType
    ACCEPTOR_STOPPED(17),
    PROPOSAL(18),
    PROPOSAL_RESPONSE(19),
-   UNPROPOSAL(20);
+   UNPROPOSAL(20),
+   QUEUE_LOAD(21);
 
    private final int value;
 
@@ -156,14 +156,64 @@ public interface QueueControl
    @Operation(desc = "List all the messages in the queue matching the given filter and returns them using JSON", impact = MBeanOperationInfo.INFO)
    String listMessagesAsJSON(@Parameter(name = "filter", desc = "A message filter (can be empty)") String filter) throws Exception;
 
+   /**
+    * Lists a page of the messages in this queue matching the specified filter, using JSON serialization.
+    * <br>
+    * Messages are listed in message ID order, starting after {@code fromMessageID}. The result is a JSON object
+    * with the listed messages under {@code messages} and, under {@code next}, the message ID to pass
+    * to the following call or {@code -1} when there are no more messages to list.
+    * <br>
+    * Unlike {@link #listMessagesAsJSON(String)}, the memory used does not depend on the number of messages
+    * in the queue, which makes it suitable for queues too large to be listed at once. The time taken does:
+    * the queue is not kept in message ID order, so every call goes through all of its messages to find the
+    * page, and listing a whole queue takes as many such passes as there are pages. Use a large {@code limit}
+    * to list a large queue.
+    * <br>
+    * Using {@code null} or an empty filter will list <em>all</em> messages from this queue.
+    */
+   @Operation(desc = "List a page of the messages in the queue matching the given filter, in message ID order and using JSON", impact = MBeanOperationInfo.INFO)
+   String browse(@Parameter(name = "filter", desc = "A message filter (can be empty)") String filter,
+                 @Parameter(name = "fromMessageID", desc = "Only messages with a greater ID are listed (-1 to start from the beginning)") long fromMessageID,
+                 @Parameter(name = "limit", desc = "The maximum number of messages listed") int limit) throws Exception;
+
    /**
     * Counts the number of messages in this queue matching the specified filter.
     * <br>
     * Using {@code null} or an empty filter will count <em>all</em> messages from this queue.
+    * <br>
+    * The count of a filter registered with {@link #addCountingFilter(String)} is read without going through the queue.
     */
    @Operation(desc = "Returns the number of the messages in the queue matching the given filter", impact = MBeanOperationInfo.INFO)
    long countMessages(@Parameter(name = "filter", desc = "A message filter (can be empty)") String filter) throws Exception;
 
+   /**
+    * Returns the filters whose matching messages are counted as they enter and leave this queue.
+    */
+   @Operation(desc = "List the counting filters registered on this queue", impact = MBeanOperationInfo.INFO)
+   String[] listCountingFilters() throws Exception;
+
+   /**
+    * Registers a counting filter on this queue.
+    * <br>
+    * The messages matching a counting filter are counted as they are added to the queue, acknowledged,
+    * expired or removed, so that {@link #countMessages(String)} with that filter returns the count without
+    * going through the queue. As with {@link #getMessageCount()}, the count includes the messages being delivered.
+    * Messages still held in page files are only counted once they are depaged:
+    * while the queue is paging, {@link #countMessages(String)} goes through the queue.
+    *
+    * @return {@code true} if the filter was registered, {@code false} if it already was
+    */
+   @Operation(desc = "Register a filter whose matching messages are counted as they enter and leave the queue", impact = MBeanOperationInfo.ACTION)
+   boolean addCountingFilter(@Parameter(name = "filter", desc = "A message filter") String filter) throws Exception;
+
+   /**
+    * Unregisters a counting filter from this queue.
+    *
+    * @return {@code true} if the filter was unregistered, {@code false} if it was not registered
+    */
+   @Operation(desc = "Unregister a counting filter", impact = MBeanOperationInfo.ACTION)
+   boolean removeCountingFilter(@Parameter(name = "filter", desc = "A message filter") String filter) throws Exception;
+
    /**
     * Removes the message corresponding to the specified message ID.
     *
@@ -301,6 +351,76 @@ public interface QueueControl
    int changeMessagesPriority(@Parameter(name = "filter", desc = "A message filter (can be empty)") String filter,
                               @Parameter(name = "newPriority", desc = "the new priority (between 0 and 9)") int newPriority) throws Exception;
 
+   /**
+    * Starts removing all the message corresponding to the specified filter in the background.
+    * <br>
+    * The messages are removed {@code flushLimit} at a time and the queue keeps delivering its
+    * messages in between. Using {@code null} or an empty filter will remove <em>all</em> messages
+    * from this queue.
+    *
+    * @return the ID of the bulk operation
+    * @see #listBulkOperationsAsJSON()
+    */
+   @Operation(desc = "Start removing the messages corresponding to the given filter in the background (and returns the ID of the operation)", impact = MBeanOperationInfo.ACTION)
+   long removeMessagesInBackground(@Parameter(name = "flushLimit", desc = "The number of messages removed in each transaction") int flushLimit,
+                                   @Parameter(name = "filter", desc = "A message filter (can be empty)") String filter) throws Exception;
+
+   /**
+    * Starts expiring all the message corresponding to the specified filter in the background.
+    *
+    * @return the ID of the bulk operation
+    * @see #removeMessagesInBackground(int, String)
+    */
+   @Operation(desc = "Start expiring the messages corresponding to the given filter in the background (and returns the ID of the operation)", impact = MBeanOperationInfo.ACTION)
+   long expireMessagesInBackground(@Parameter(name = "flushLimit", desc = "The number of messages expired in each transaction") int flushLimit,
+                                   @Parameter(name = "filter", desc = "A message filter (can be empty)") String filter) throws Exception;
+
+   /**
+    * Starts moving all the message corresponding to the specified filter to the specified other
+    * queue in the background.
+    *
+    * @return the ID of the bulk operation
+    * @see #removeMessagesInBackground(int, String)
+    */
+   @Operation(desc = "Start moving the messages corresponding to the given filter in the background (and returns the ID of the operation)", impact = MBeanOperationInfo.ACTION)
+   long moveMessagesInBackground(@Parameter(name = "flushLimit", desc = "The number of messages moved in each transaction") int flushLimit,
+                                 @Parameter(name = "filter", desc = "A message filter (can be empty)") String filter,
+                                 @Parameter(name = "otherQueueName", desc = "The name of the queue to move the messages to") String otherQueueName,
+                                 @Parameter(name = "rejectDuplicates", desc = "Reject messages identified as duplicate by the duplicate message") boolean rejectDuplicates) throws Exception;
+
+   /**
+    * Starts changing the priority of all the message corresponding to the specified filter in the
+    * background.
+    *
+    * @return the ID of the bulk operation
+    * @see #removeMessagesInBackground(int, String)
+    */
+   @Operation(desc = "Start changing the priority of the messages corresponding to the given filter in the background (and returns the ID of the operation)", impact = MBeanOperationInfo.ACTION)
+   long changeMessagesPriorityInBackground(@Parameter(name = "flushLimit", desc = "The number of messages changed while holding the queue lock") int flushLimit,
+                                           @Parameter(name = "filter", desc = "A message filter (can be empty)") String filter,
+                                           @Parameter(name = "newPriority", desc = "the new priority (between 0 and 9)") int newPriority) throws Exception;
+
+   /**
+    * Lists the bulk operations started in the background on this queue, running or recently
+    * finished, using JSON.
+    * <br>
+    * Each operation has an {@code id}, a {@code type} ({@code remove}, {@code move}, {@code expire}
+    * or {@code change-priority}), its {@code filter}, {@code startTime}, the {@code count} of
+    * messages processed so far, whether it is {@code done} or {@code cancelled} and the
+    * {@code error} which stopped it, if any.
+    */
+   @Operation(desc = "List the bulk operations started in the background on this queue using JSON", impact = MBeanOperationInfo.INFO)
+   String listBulkOperationsAsJSON() throws Exception;
+
+   /**
+    * Cancels a bulk operation started in the background. The messages already processed stay
+    * processed.
+    *
+    * @return {@code true} if the operation was running, {@code false} else
+    */
+   @Operation(desc = "Cancel a bulk operation started in the background", impact = MBeanOperationInfo.ACTION)
+   boolean cancelBulkOperation(@Parameter(name = "operationID", desc = "The ID of the bulk operation") long operationID) throws Exception;
+
    /**
     * Lists the message counter for this queue.
     */
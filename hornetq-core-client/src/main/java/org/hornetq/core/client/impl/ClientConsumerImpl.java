@@ -39,9 +39,9 @@ import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveLargeMessage
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveMessage;
 import org.hornetq.core.client.HornetQClientLogger;
 import org.hornetq.core.client.HornetQClientMessageBundle;
+import org.hornetq.utils.ConcurrentPriorityLinkedListImpl;
 import org.hornetq.utils.FutureLatch;
 import org.hornetq.utils.PriorityLinkedList;
-import org.hornetq.utils.PriorityLinkedListImpl;
 import org.hornetq.utils.ReusableLatch;
 import org.hornetq.utils.TokenBucketLimiter;
 
@@ -97,7 +97,7 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
 
    private final int ackBatchSize;
 
-   private final PriorityLinkedList<ClientMessageInternal> buffer = new PriorityLinkedListImpl<ClientMessageInternal>(ClientConsumerImpl.NUM_PRIORITIES);
+   private final PriorityLinkedList<ClientMessageInternal> buffer = new ConcurrentPriorityLinkedListImpl<ClientMessageInternal>(ClientConsumerImpl.NUM_PRIORITIES);
 
    private final Runner runner = new Runner();
 
@@ -679,7 +679,8 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
       int bytesToRead = qbuff.writerIndex() - qbuff.readerIndex();
       final byte[] body = qbuff.readBytes(bytesToRead).toByteBuffer().array();
 
-      largeMessage.setLargeMessageController(new CompressedLargeMessageControllerImpl(currentLargeMessageController));
+      largeMessage.setLargeMessageController(new CompressedLargeMessageControllerImpl(currentLargeMessageController,
+                                                                                      clMessage.getCompressionCodec()));
       SessionReceiveContinuationMessage packet = new SessionReceiveContinuationMessage(this.getID(), body, false, false, body.length);
       currentLargeMessageController.addPacket(packet);
 
@@ -718,7 +719,8 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
 
       if (currentChunkMessage.isCompressed())
       {
-         currentChunkMessage.setLargeMessageController(new CompressedLargeMessageControllerImpl(currentLargeMessageController));
+         currentChunkMessage.setLargeMessageController(new CompressedLargeMessageControllerImpl(currentLargeMessageController,
+                                                                                                currentChunkMessage.getCompressionCodec()));
       }
       else
       {
@@ -829,11 +831,20 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
 
          if (ackBytes >= ackBatchSize)
          {
+            ClientMessageInternal previous = lastAckedMessage;
+
             doAck(cmi);
+
+            releasePooled(previous);
          }
          else
          {
+            ClientMessageInternal previous = lastAckedMessage;
+
             lastAckedMessage = cmi;
+
+            // the previous message is covered by the ack of the new one, so it won't be needed anymore
+            releasePooled(previous);
          }
       }
    }
@@ -846,6 +857,8 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
       }
 
       session.individualAcknowledge(id, message.getMessageID());
+
+      releasePooled((ClientMessageInternal)message);
    }
 
    public void flushAcks() throws HornetQException
@@ -1237,6 +1250,19 @@ public final class ClientConsumerImpl implements ClientConsumerInternal
       lastAckedMessage = null;
 
       session.acknowledge(id, message.getMessageID());
+
+      releasePooled(message);
+   }
+
+   /**
+    * Messages decoded from a {@link ClientMessagePool} go back to the pool once they were acked
+    */
+   private void releasePooled(final ClientMessageInternal message)
+   {
+      if (message != null && message.isPooled() && message != lastAckedMessage)
+      {
+         message.release();
+      }
    }
 
    // Inner classes
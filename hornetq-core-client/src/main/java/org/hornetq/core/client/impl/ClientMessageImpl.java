@@ -48,6 +48,9 @@ public class ClientMessageImpl extends MessageImpl implements ClientMessageInter
    /** Used on LargeMessages only */
    private InputStream bodyInputStream;
 
+   /** Only set on messages borrowed from a {@link ClientMessagePool} */
+   private volatile ClientMessagePool pool;
+
    /*
     * Constructor for when reading from remoting
     */
@@ -104,6 +107,42 @@ public class ClientMessageImpl extends MessageImpl implements ClientMessageInter
       }
    }
 
+   public void release()
+   {
+      ClientMessagePool messagePool;
+
+      synchronized (this)
+      {
+         messagePool = pool;
+         pool = null;
+      }
+
+      if (messagePool != null)
+      {
+         messagePool.release(this);
+      }
+   }
+
+   public boolean isPooled()
+   {
+      return pool != null;
+   }
+
+   void setPool(final ClientMessagePool pool)
+   {
+      this.pool = pool;
+   }
+
+   @Override
+   protected synchronized void resetForReuse()
+   {
+      super.resetForReuse();
+      deliveryCount = 0;
+      consumer = null;
+      flowControlSize = -1;
+      bodyInputStream = null;
+   }
+
    public int getFlowControlSize()
    {
       if (flowControlSize < 0)
@@ -131,6 +170,12 @@ public class ClientMessageImpl extends MessageImpl implements ClientMessageInter
       return properties.getBooleanProperty(Message.HDR_LARGE_COMPRESSED);
    }
 
+   public String getCompressionCodec()
+   {
+      SimpleString codec = properties.getSimpleStringProperty(Message.HDR_LARGE_COMPRESSION_CODEC);
+      return codec == null ? null : codec.toString();
+   }
+
    public int getBodySize()
    {
       return buffer.writerIndex() - buffer.readerIndex();
@@ -36,4 +36,15 @@ public interface ClientMessageInternal extends ClientMessage, MessageInternal
    void discardBody();
 
    boolean isCompressed();
+
+   /**
+    * @return the name of the codec to decompress the body with when {@link #isCompressed()},
+    *         {@code null} for {@link org.hornetq.utils.CompressionCodecs#ZLIB}
+    */
+   String getCompressionCodec();
+
+   /**
+    * @return true if this message was borrowed from a {@link ClientMessagePool} and has not been released yet
+    */
+   boolean isPooled();
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.client.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded pool of {@link ClientMessageImpl} instances used to decode incoming regular messages.
+ * <p>
+ * Messages borrowed from the pool go back to it when they are acknowledged, or when the
+ * application calls {@link org.hornetq.api.core.client.ClientMessage#release()}. Once released a
+ * message must not be touched again as it may already be carrying another delivery.
+ * <p>
+ * When the pool is empty a new instance is created, and instances released over the pool size are
+ * simply left to the garbage collector, so the pool never blocks. The pool is a bounded array, so
+ * that borrowing and releasing do not allocate anything themselves.
+ */
+public class ClientMessagePool
+{
+   private final ArrayBlockingQueue<ClientMessageImpl> messages;
+
+   private final int maxSize;
+
+   public ClientMessagePool(final int maxSize)
+   {
+      this.maxSize = maxSize;
+      messages = new ArrayBlockingQueue<ClientMessageImpl>(maxSize);
+   }
+
+   public ClientMessageImpl borrow()
+   {
+      ClientMessageImpl message = messages.poll();
+
+      if (message == null)
+      {
+         message = new ClientMessageImpl();
+      }
+
+      message.setPool(this);
+
+      return message;
+   }
+
+   public void release(final ClientMessageImpl message)
+   {
+      message.resetForReuse();
+
+      // dropped when the pool is full
+      messages.offer(message);
+   }
+
+   public int getMaxSize()
+   {
+      return maxSize;
+   }
+
+   public int size()
+   {
+      return messages.size();
+   }
+}
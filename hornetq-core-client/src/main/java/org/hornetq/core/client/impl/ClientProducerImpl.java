@@ -31,7 +31,8 @@ import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendMessage;
-import org.hornetq.utils.DeflaterReader;
+import org.hornetq.utils.CompressionCodec;
+import org.hornetq.utils.CompressionCodecs;
 import org.hornetq.utils.HornetQBufferInputStream;
 import org.hornetq.utils.TokenBucketLimiter;
 import org.hornetq.utils.UUIDGenerator;
@@ -510,13 +511,16 @@ public class ClientProducerImpl implements ClientProducerInternal
       // This counter will be passed to the deflater to be updated for every byte read
       AtomicLong messageSize = new AtomicLong();
 
-      DeflaterReader deflaterReader = null;
-
       if (session.isCompressLargeMessages())
       {
+         CompressionCodec codec = session.getCompressionCodec();
          msgI.putBooleanProperty(Message.HDR_LARGE_COMPRESSED, true);
-         deflaterReader = new DeflaterReader(inputStreamParameter, messageSize);
-         input = deflaterReader;
+         // zlib compressed messages don't carry the codec, so older consumers can still read them
+         if (!CompressionCodecs.ZLIB.equals(codec.getName()))
+         {
+            msgI.putStringProperty(Message.HDR_LARGE_COMPRESSION_CODEC, new SimpleString(codec.getName()));
+         }
+         input = codec.compressingReader(inputStreamParameter, messageSize);
       }
 
       long totalSize = 0;
@@ -578,7 +582,7 @@ public class ClientProducerImpl implements ClientProducerInternal
             {
                msgI.getBodyBuffer().resetReaderIndex();
                msgI.getBodyBuffer().resetWriterIndex();
-               msgI.putLongProperty(Message.HDR_LARGE_BODY_SIZE, deflaterReader.getTotalSize());
+               msgI.putLongProperty(Message.HDR_LARGE_BODY_SIZE, messageSize.get());
 
                msgI.getBodyBuffer().writeBytes(buff, 0, pos);
                sendRegularMessage(msgI, sendBlocking, credits, handler);
@@ -90,6 +90,8 @@ import org.hornetq.core.protocol.core.impl.wireformat.SessionXAStartMessage;
 import org.hornetq.core.remoting.FailureListener;
 import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.spi.core.remoting.Connection;
+import org.hornetq.utils.CompressionCodec;
+import org.hornetq.utils.CompressionCodecs;
 import org.hornetq.utils.ConfirmationWindowWarning;
 import org.hornetq.utils.IDGenerator;
 import org.hornetq.utils.SimpleIDGenerator;
@@ -160,6 +162,8 @@ public final class ClientSessionImpl implements ClientSessionInternal, FailureLi
 
    private final boolean compressLargeMessages;
 
+   private final CompressionCodec compressionCodec;
+
    private volatile int initialMessagePacketSize;
 
    private final boolean cacheLargeMessageClient;
@@ -282,6 +286,9 @@ public final class ClientSessionImpl implements ClientSessionInternal, FailureLi
 
       this.compressLargeMessages = compressLargeMessages;
 
+      this.compressionCodec = compressLargeMessages ? CompressionCodecs.register(sessionFactory.getServerLocator()
+                                                                                   .getCompressionCodec()) : null;
+
       this.initialMessagePacketSize = initialMessagePacketSize;
 
       this.groupID = groupID;
@@ -812,6 +819,11 @@ public final class ClientSessionImpl implements ClientSessionInternal, FailureLi
       return compressLargeMessages;
    }
 
+   public CompressionCodec getCompressionCodec()
+   {
+      return compressionCodec;
+   }
+
    /**
     * @return the cacheLargeMessageClient
     */
@@ -23,6 +23,7 @@ import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveContinuation
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveMessage;
 import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.utils.CompressionCodec;
 
 /**
  * A ClientSessionInternal
@@ -43,6 +44,11 @@ public interface ClientSessionInternal extends ClientSession
 
    boolean isCompressLargeMessages();
 
+   /**
+    * @return the codec compressing the large messages sent by this session, {@code null} if they aren't compressed
+    */
+   CompressionCodec getCompressionCodec();
+
    void expire(long consumerID, long messageID) throws HornetQException;
 
    void addConsumer(ClientConsumerInternal consumer);
@@ -24,10 +24,10 @@ import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.client.HornetQClientLogger;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveContinuationMessage;
+import org.hornetq.utils.CompressionCodec;
+import org.hornetq.utils.CompressionCodecs;
 import org.hornetq.utils.DataConstants;
 import org.hornetq.utils.HornetQBufferInputStream;
-import org.hornetq.utils.InflaterReader;
-import org.hornetq.utils.InflaterWriter;
 import org.hornetq.utils.UTF8Util;
 
 /**
@@ -39,9 +39,16 @@ final class CompressedLargeMessageControllerImpl implements LargeMessageControll
 
    private final LargeMessageController bufferDelegate;
 
-   public CompressedLargeMessageControllerImpl(final LargeMessageController bufferDelegate)
+   private final String codecName;
+
+   /**
+    * @param codecName the codec the message was compressed with, only resolved once the body is
+    *                  read so that a codec unknown here fails the reading rather than the delivery
+    */
+   public CompressedLargeMessageControllerImpl(final LargeMessageController bufferDelegate, final String codecName)
    {
       this.bufferDelegate = bufferDelegate;
+      this.codecName = codecName;
    }
 
    /**
@@ -73,7 +80,7 @@ final class CompressedLargeMessageControllerImpl implements LargeMessageControll
 
    public void setOutputStream(final OutputStream output) throws HornetQException
    {
-      bufferDelegate.setOutputStream(new InflaterWriter(output));
+      bufferDelegate.setOutputStream(getCodec().decompressingWriter(output));
    }
 
    public synchronized void saveBuffer(final OutputStream output) throws HornetQException
@@ -107,7 +114,7 @@ final class CompressedLargeMessageControllerImpl implements LargeMessageControll
          {
             InputStream input = new HornetQBufferInputStream(bufferDelegate);
 
-            dataInput = new DataInputStream(new InflaterReader(input));
+            dataInput = new DataInputStream(getCodec().decompressingReader(input));
          }
          catch (Exception e)
          {
@@ -118,6 +125,11 @@ final class CompressedLargeMessageControllerImpl implements LargeMessageControll
       return dataInput;
    }
 
+   private CompressionCodec getCodec()
+   {
+      return CompressionCodecs.getCodec(codecName);
+   }
+
    private void positioningNotSupported()
    {
       throw new IllegalStateException("Position not supported over compressed large messages");
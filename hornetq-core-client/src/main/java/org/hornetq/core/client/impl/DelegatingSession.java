@@ -34,6 +34,7 @@ import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveContinuation
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveMessage;
 import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.utils.CompressionCodec;
 import org.hornetq.utils.ConcurrentHashSet;
 
 /**
@@ -612,6 +613,11 @@ public class DelegatingSession implements ClientSessionInternal
       return session.isCompressLargeMessages();
    }
 
+   public CompressionCodec getCompressionCodec()
+   {
+      return session.getCompressionCodec();
+   }
+
    @Override
    public String toString()
    {
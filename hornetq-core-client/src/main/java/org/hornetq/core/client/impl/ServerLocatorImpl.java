@@ -58,6 +58,7 @@ import org.hornetq.core.protocol.core.impl.PacketDecoder;
 import org.hornetq.core.remoting.FailureListener;
 import org.hornetq.spi.core.remoting.Connector;
 import org.hornetq.utils.ClassloadingUtil;
+import org.hornetq.utils.CompressionCodecs;
 import org.hornetq.utils.HornetQThreadFactory;
 import org.hornetq.utils.UUIDGenerator;
 
@@ -110,6 +111,8 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
 
    private boolean compressLargeMessage;
 
+   private String compressionCodec;
+
    // if the system should shutdown the pool when shutting down
    private transient boolean shutdownPool;
 
@@ -139,6 +142,8 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
 
    private int consumerMaxRate;
 
+   private int consumerMessagePoolSize;
+
    private int confirmationWindowSize;
 
    private int producerWindowSize;
@@ -375,6 +380,11 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
 
          instantiateLoadBalancingPolicy();
 
+         if (consumerMessagePoolSize > 0 && packetDecoder == ClientPacketDecoder.INSTANCE)
+         {
+            packetDecoder = new ClientPacketDecoder(new ClientMessagePool(consumerMessagePoolSize));
+         }
+
          if (discoveryGroupConfiguration != null)
          {
             discoveryGroup = createDiscoveryGroup(nodeID, discoveryGroupConfiguration);
@@ -430,6 +440,8 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
 
       consumerMaxRate = HornetQClient.DEFAULT_CONSUMER_MAX_RATE;
 
+      consumerMessagePoolSize = HornetQClient.DEFAULT_CONSUMER_MESSAGE_POOL_SIZE;
+
       confirmationWindowSize = HornetQClient.DEFAULT_CONFIRMATION_WINDOW_SIZE;
 
       producerWindowSize = HornetQClient.DEFAULT_PRODUCER_WINDOW_SIZE;
@@ -476,6 +488,8 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
 
       compressLargeMessage = HornetQClient.DEFAULT_COMPRESS_LARGE_MESSAGES;
 
+      compressionCodec = HornetQClient.DEFAULT_COMPRESSION_CODEC;
+
       clusterConnection = false;
    }
 
@@ -552,6 +566,7 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
       topologyArray = locator.topologyArray;
       receivedTopology = locator.receivedTopology;
       compressLargeMessage = locator.compressLargeMessage;
+      compressionCodec = locator.compressionCodec;
       cacheLargeMessagesClient = locator.cacheLargeMessagesClient;
       clientFailureCheckPeriod = locator.clientFailureCheckPeriod;
       connectionTTL = locator.connectionTTL;
@@ -560,6 +575,7 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
       minLargeMessageSize = locator.minLargeMessageSize;
       consumerWindowSize = locator.consumerWindowSize;
       consumerMaxRate = locator.consumerMaxRate;
+      consumerMessagePoolSize = locator.consumerMessagePoolSize;
       confirmationWindowSize = locator.confirmationWindowSize;
       producerWindowSize = locator.producerWindowSize;
       producerMaxRate = locator.producerMaxRate;
@@ -1045,6 +1061,17 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
       this.consumerMaxRate = consumerMaxRate;
    }
 
+   public int getConsumerMessagePoolSize()
+   {
+      return consumerMessagePoolSize;
+   }
+
+   public void setConsumerMessagePoolSize(final int consumerMessagePoolSize)
+   {
+      checkWrite();
+      this.consumerMessagePoolSize = consumerMessagePoolSize;
+   }
+
    public int getConfirmationWindowSize()
    {
       return confirmationWindowSize;
@@ -1331,6 +1358,19 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
       this.compressLargeMessage = avoid;
    }
 
+   public String getCompressionCodec()
+   {
+      return compressionCodec;
+   }
+
+   public void setCompressionCodec(final String compressionCodec)
+   {
+      checkWrite();
+      // fail here rather than on the first large message sent
+      CompressionCodecs.register(compressionCodec);
+      this.compressionCodec = compressionCodec;
+   }
+
    private void checkWrite()
    {
       synchronized (stateGuard)
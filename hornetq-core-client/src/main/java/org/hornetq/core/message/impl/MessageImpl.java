@@ -27,6 +27,7 @@ import org.hornetq.core.buffers.impl.ResetLimitWrappedHornetQBuffer;
 import org.hornetq.core.message.BodyEncoder;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.utils.DataConstants;
+import org.hornetq.utils.SimpleStringInterner;
 import org.hornetq.utils.TypedProperties;
 import org.hornetq.utils.UUID;
 
@@ -54,6 +55,9 @@ public abstract class MessageImpl implements MessageInternal
 
    public static final int BODY_OFFSET = BUFFER_HEADER_SPACE + DataConstants.SIZE_INT;
 
+   // the decoded addresses, so that every message sent to an address shares one instance of it
+   private static final SimpleStringInterner ADDRESSES = new SimpleStringInterner(1024, 512);
+
    protected long messageID;
 
    protected SimpleString address;
@@ -220,10 +224,19 @@ public abstract class MessageImpl implements MessageInternal
       properties.encode(buffer);
    }
 
+   /**
+    * @return the instance of the address shared by the messages decoded with it, for the maps
+    *         looked up by message address to find it by identity
+    */
+   public static SimpleString internAddress(final SimpleString address)
+   {
+      return ADDRESSES.intern(address);
+   }
+
    public void decodeHeadersAndProperties(final HornetQBuffer buffer)
    {
       messageID = buffer.readLong();
-      address = buffer.readNullableSimpleString();
+      address = buffer.readByte() == DataConstants.NULL ? null : ADDRESSES.intern(buffer, buffer.readInt());
       if (buffer.readByte() == DataConstants.NOT_NULL)
       {
          byte[] bytes = new byte[16];
@@ -460,6 +473,25 @@ public abstract class MessageImpl implements MessageInternal
       copied = false;
    }
 
+   /**
+    * Drops any state left by a previous decode, so this instance can be used to decode another
+    * message. The {@link TypedProperties} instance is kept and reused.
+    */
+   protected synchronized void resetForReuse()
+   {
+      messageID = 0;
+      address = null;
+      userID = null;
+      properties.clear();
+      buffer = null;
+      bodyBuffer = null;
+      bufferValid = false;
+      endOfBodyPosition = -1;
+      endOfMessagePosition = 0;
+      copied = true;
+      bufferUsed = false;
+   }
+
    public int getEndOfMessagePosition()
    {
       return endOfMessagePosition;
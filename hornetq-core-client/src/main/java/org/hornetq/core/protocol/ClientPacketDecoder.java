@@ -19,6 +19,7 @@ import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_RECEIVE_MSG;
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.core.client.impl.ClientLargeMessageImpl;
 import org.hornetq.core.client.impl.ClientMessageImpl;
+import org.hornetq.core.client.impl.ClientMessagePool;
 import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.core.protocol.core.impl.PacketDecoder;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveClientLargeMessage;
@@ -32,6 +33,21 @@ public class ClientPacketDecoder extends PacketDecoder
    private static final long serialVersionUID = 6952614096979334582L;
    public static final ClientPacketDecoder INSTANCE = new ClientPacketDecoder();
 
+   private final transient ClientMessagePool messagePool;
+
+   public ClientPacketDecoder()
+   {
+      this(null);
+   }
+
+   /**
+    * @param messagePool pool used to decode regular messages, or {@code null} to allocate a new message for each delivery
+    */
+   public ClientPacketDecoder(final ClientMessagePool messagePool)
+   {
+      this.messagePool = messagePool;
+   }
+
    @Override
    public  Packet decode(final HornetQBuffer in)
    {
@@ -43,7 +59,7 @@ public class ClientPacketDecoder extends PacketDecoder
       {
          case SESS_RECEIVE_MSG:
          {
-            packet = new SessionReceiveMessage(new ClientMessageImpl());
+            packet = new SessionReceiveMessage(messagePool == null ? new ClientMessageImpl() : messagePool.borrow());
             break;
          }
          case SESS_RECEIVE_LARGE_MSG:
@@ -216,6 +216,8 @@ public class PacketImpl implements Packet
    public static final byte REPLICATION_START_FINISH_SYNC = 120;
    public static final byte REPLICATION_SCHEDULED_FAILOVER = 121;
 
+   public static final byte REPLICATION_BATCH = 122;
+
    // Static --------------------------------------------------------
 
    public PacketImpl(final byte type)
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A streaming codec used to compress the body of large messages.
+ * <p>
+ * The name of the codec travels with every compressed message so consumers can decode it whatever
+ * codec their own session is configured with. Implementations must be stateless, the streams they
+ * return are not meant for concurrent use.
+ *
+ * @see CompressionCodecs
+ */
+public interface CompressionCodec
+{
+   /**
+    * @return the name this codec is registered with
+    */
+   String getName();
+
+   /**
+    * Returns a stream reading the compressed form of {@code input}.
+    *
+    * @param input     the uncompressed data
+    * @param bytesRead updated with the number of uncompressed bytes read from {@code input}
+    */
+   InputStream compressingReader(InputStream input, AtomicLong bytesRead);
+
+   /**
+    * Returns a stream reading the uncompressed form of the compressed data in {@code input}.
+    */
+   InputStream decompressingReader(InputStream input);
+
+   /**
+    * Returns a stream to which compressed data is written and which writes it uncompressed to {@code output}.
+    * Closing the returned stream closes {@code output}.
+    */
+   OutputStream decompressingWriter(OutputStream output);
+}
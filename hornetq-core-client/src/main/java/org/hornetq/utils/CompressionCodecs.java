@@ -0,0 +1,160 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lookup of the {@link CompressionCodec}s available to compress large messages.
+ * <p>
+ * {@link #ZLIB} and {@link #LZ} are built in. Other codecs are loaded by {@link #register(String)}
+ * from the configuration of a server locator or of the server. The codec names carried by
+ * messages are only ever looked up, never loaded.
+ */
+public final class CompressionCodecs
+{
+   /** Deflate, the codec used by compressed messages which don't carry a codec name */
+   public static final String ZLIB = "zlib";
+
+   /** A byte oriented LZ77 codec, faster than zlib at the price of a lower compression ratio */
+   public static final String LZ = "lz";
+
+   private static final CompressionCodec ZLIB_CODEC = new CompressionCodec()
+   {
+      public String getName()
+      {
+         return ZLIB;
+      }
+
+      public InputStream compressingReader(final InputStream input, final AtomicLong bytesRead)
+      {
+         return new DeflaterReader(input, bytesRead);
+      }
+
+      public InputStream decompressingReader(final InputStream input)
+      {
+         return new InflaterReader(input);
+      }
+
+      public OutputStream decompressingWriter(final OutputStream output)
+      {
+         return new InflaterWriter(output);
+      }
+   };
+
+   /** by codec name */
+   private static final ConcurrentMap<String, CompressionCodec> codecs = new ConcurrentHashMap<String, CompressionCodec>();
+
+   /** by the class name they were registered with */
+   private static final ConcurrentMap<String, CompressionCodec> loadedCodecs = new ConcurrentHashMap<String, CompressionCodec>();
+
+   static
+   {
+      codecs.put(ZLIB, ZLIB_CODEC);
+      codecs.put(LZ, new LZCompressionCodec());
+   }
+
+   private CompressionCodecs()
+   {
+   }
+
+   /**
+    * @param name the name of a built in or registered codec, {@code null} meaning {@link #ZLIB}
+    * @throws IllegalArgumentException if no codec is known with that name
+    */
+   public static CompressionCodec getCodec(final String name)
+   {
+      if (name == null)
+      {
+         return ZLIB_CODEC;
+      }
+
+      CompressionCodec codec = codecs.get(name);
+
+      if (codec == null)
+      {
+         throw new IllegalArgumentException("Unknown compression codec " + name + ", known codecs are " +
+                                               codecs.keySet());
+      }
+
+      return codec;
+   }
+
+   /**
+    * @return {@code true} if {@link #getCodec(String)} knows a codec with that name
+    */
+   public static boolean isKnown(final String name)
+   {
+      return name == null || codecs.containsKey(name);
+   }
+
+   /**
+    * Resolves a codec from configuration, loading it if needed. A codec loaded by its class name is
+    * then known by its {@link CompressionCodec#getName() name}. This must never be given a name
+    * read from a message.
+    *
+    * @param name a codec name, or the class name of a {@link CompressionCodec} implementation with
+    *             a public no-argument constructor, {@code null} meaning {@link #ZLIB}
+    * @throws IllegalArgumentException if the codec can't be loaded
+    */
+   public static CompressionCodec register(final String name)
+   {
+      if (name == null)
+      {
+         return ZLIB_CODEC;
+      }
+
+      CompressionCodec codec = codecs.get(name);
+
+      if (codec == null)
+      {
+         codec = loadedCodecs.get(name);
+      }
+
+      if (codec == null)
+      {
+         codec = AccessController.doPrivileged(new PrivilegedAction<CompressionCodec>()
+         {
+            public CompressionCodec run()
+            {
+               try
+               {
+                  return (CompressionCodec)ClassloadingUtil.newInstanceFromClassLoader(name);
+               }
+               catch (RuntimeException e)
+               {
+                  throw new IllegalArgumentException("Unknown compression codec " + name, e);
+               }
+            }
+         });
+
+         // a codec named like one already known doesn't replace it
+         CompressionCodec existing = codecs.putIfAbsent(codec.getName(), codec);
+
+         if (existing != null)
+         {
+            codec = existing;
+         }
+
+         loadedCodecs.put(name, codec);
+      }
+
+      return codec;
+   }
+}
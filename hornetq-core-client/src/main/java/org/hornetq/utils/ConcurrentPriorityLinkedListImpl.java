@@ -0,0 +1,560 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A priority linked list which can be added to without locking, from any thread. Each priority is
+ * a singly linked list appended to by compare-and-set, as a
+ * {@link java.util.concurrent.ConcurrentLinkedQueue} is.
+ * <p>
+ * Elements are removed by a single consumer: {@link #poll()}, {@link #clear()},
+ * {@link #addHead(Object, int)} and the removals through the iterators must not run concurrently
+ * with one another. {@link #addTail(Object, int)}, {@link #size()} and {@link #isEmpty()} can be
+ * called from any thread at any time, and so can the iterators which do not remove.
+ * <p>
+ * A removed node is marked by clearing its element before it is unlinked, so the iterators are
+ * weakly consistent: they never fail because of a concurrent change, and they see the elements
+ * added after they were created, like the iterators of {@link PriorityLinkedListImpl}. Unlike
+ * those they are not registered with the list, closing them is not needed.
+ */
+public class ConcurrentPriorityLinkedListImpl<T> implements PriorityLinkedList<T>
+{
+   @SuppressWarnings("rawtypes")
+   private static final AtomicReferenceFieldUpdater<Node, Object> ITEM =
+      AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "item");
+
+   @SuppressWarnings("rawtypes")
+   private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+      AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+   @SuppressWarnings("rawtypes")
+   private static final AtomicReferenceFieldUpdater<Level, Node> TAIL =
+      AtomicReferenceFieldUpdater.newUpdater(Level.class, Node.class, "tail");
+
+   private final Level<T>[] levels;
+
+   // counted before an element is linked and after it is unlinked, so it is never too low
+   private final AtomicInteger size = new AtomicInteger();
+
+   @SuppressWarnings("unchecked")
+   public ConcurrentPriorityLinkedListImpl(final int priorities)
+   {
+      levels = new Level[priorities];
+
+      for (int i = 0; i < priorities; i++)
+      {
+         levels[i] = new Level<T>();
+      }
+   }
+
+   public void addHead(final T t, final int priority)
+   {
+      size.incrementAndGet();
+
+      levels[priority].addHead(t);
+   }
+
+   public void addTail(final T t, final int priority)
+   {
+      size.incrementAndGet();
+
+      levels[priority].addTail(t);
+   }
+
+   public T poll()
+   {
+      // Highest priority refs always get returned first, as with PriorityLinkedListImpl
+      for (int i = levels.length - 1; i >= 0; i--)
+      {
+         T t = levels[i].poll();
+
+         if (t != null)
+         {
+            size.decrementAndGet();
+
+            return t;
+         }
+      }
+
+      return null;
+   }
+
+   public void clear()
+   {
+      for (Level<T> level : levels)
+      {
+         size.addAndGet(-level.clear());
+      }
+   }
+
+   public int size()
+   {
+      return size.get();
+   }
+
+   public boolean isEmpty()
+   {
+      return size.get() == 0;
+   }
+
+   public LinkedListIterator<T> iterator()
+   {
+      return new PriorityIterator();
+   }
+
+   private static final class Node<T>
+   {
+      volatile T item;
+
+      volatile Node<T> next;
+
+      Node(final T item)
+      {
+         this.item = item;
+      }
+
+      /**
+       * @return the element, or null if it was removed already
+       */
+      @SuppressWarnings("unchecked")
+      T remove()
+      {
+         T t = item;
+
+         if (t != null && ITEM.compareAndSet(this, t, null))
+         {
+            return t;
+         }
+
+         return null;
+      }
+   }
+
+   /**
+    * The elements of a priority.
+    * <p>
+    * Only the consumer changes the next node of a node which has one, so it unlinks without
+    * compare-and-set: producers only set the next node of the last node. A node unlinked from
+    * the head is linked to itself, so that it does not hold the nodes after it once it becomes
+    * garbage (https://jira.jboss.org/browse/HORNETQ-469); an iterator finding such a node starts
+    * again from the head, as all the nodes before it were removed too.
+    */
+   private static final class Level<T>
+   {
+      // never removed, its next node is the first one
+      final Node<T> head = new Node<T>(null);
+
+      // the last node or one before it, from which the producers look for the last node
+      volatile Node<T> tail = head;
+
+      void addTail(final T t)
+      {
+         Node<T> node = new Node<T>(t);
+
+         Node<T> last = tail;
+
+         Node<T> p = last;
+
+         while (true)
+         {
+            Node<T> next = p.next;
+
+            if (next == null)
+            {
+               if (NEXT.compareAndSet(p, null, node))
+               {
+                  // another producer may have moved it on already
+                  TAIL.compareAndSet(this, last, node);
+
+                  return;
+               }
+            }
+            else if (next == p)
+            {
+               // unlinked by the consumer, start again from the tail unless it is stale too
+               Node<T> newLast = tail;
+
+               p = newLast != last ? (last = newLast) : head;
+            }
+            else
+            {
+               p = next;
+            }
+         }
+      }
+
+      void addHead(final T t)
+      {
+         Node<T> node = new Node<T>(t);
+
+         while (true)
+         {
+            Node<T> first = head.next;
+
+            node.next = first;
+
+            // a producer adds after the head too when there is no node
+            if (NEXT.compareAndSet(head, first, node))
+            {
+               return;
+            }
+         }
+      }
+
+      T poll()
+      {
+         Node<T> p = head.next;
+
+         while (p != null)
+         {
+            Node<T> next = p.next;
+
+            T t = p.remove();
+
+            // p is the first node, the ones before it were unlinked as they were removed
+            unlinkFirst(p);
+
+            if (t != null)
+            {
+               return t;
+            }
+
+            p = next;
+         }
+
+         return null;
+      }
+
+      int clear()
+      {
+         int removed = 0;
+
+         for (Node<T> p = head.next; p != null; p = p.next)
+         {
+            if (p.remove() != null)
+            {
+               removed++;
+            }
+         }
+
+         sweep(head, null);
+
+         return removed;
+      }
+
+      /**
+       * Unlinks a node just removed, and the removed nodes before it up to its predecessor, unless
+       * it is the last one: a producer may be adding after it.
+       *
+       * @param predecessor the last node before it holding its element when it was reached, or the
+       *                    head
+       */
+      void unlink(final Node<T> predecessor, final Node<T> node)
+      {
+         // a node still holding its element is still linked, the nodes after it can be reached
+         // from it. One removed since may have been unlinked, the head is the only safe start then
+         if (predecessor != head && predecessor.item == null)
+         {
+            sweep(head, node);
+         }
+         else
+         {
+            sweep(predecessor, node);
+         }
+      }
+
+      private void unlinkFirst(final Node<T> node)
+      {
+         Node<T> next = node.next;
+
+         if (head.next == node && next != null)
+         {
+            head.next = next;
+
+            NEXT.lazySet(node, node);
+         }
+      }
+
+      /**
+       * Unlinks the removed nodes after a linked node up to the node given, all of them if it is
+       * null.
+       */
+      private void sweep(final Node<T> from, final Node<T> until)
+      {
+         Node<T> predecessor = from;
+
+         Node<T> p = from.next;
+
+         while (p != null)
+         {
+            Node<T> next = p.next;
+
+            if (p.item == null && next != null)
+            {
+               if (predecessor == head)
+               {
+                  unlinkFirst(p);
+               }
+               else
+               {
+                  predecessor.next = next;
+               }
+            }
+            else
+            {
+               predecessor = p;
+            }
+
+            if (p == until)
+            {
+               return;
+            }
+
+            p = next;
+         }
+      }
+   }
+
+   /**
+    * Iterates over the elements of a priority, from the node it returned last so that it keeps
+    * seeing the elements added after it reached the end.
+    */
+   private static final class Cursor<T>
+   {
+      private final Level<T> level;
+
+      // the node returned last, the head before the first one
+      private Node<T> position;
+
+      // the last node before the position holding its element when the position was reached, or
+      // the head, so that removing a run of elements doesn't look for their predecessor again
+      private Node<T> predecessor;
+
+      // the node found by hasNext, with its element at that time
+      private Node<T> nextNode;
+
+      private Node<T> nextPredecessor;
+
+      private T nextItem;
+
+      private boolean repeat;
+
+      private boolean removable;
+
+      Cursor(final Level<T> level)
+      {
+         this.level = level;
+         position = level.head;
+      }
+
+      void repeat()
+      {
+         repeat = true;
+      }
+
+      boolean hasNext()
+      {
+         if (repeat && position.item != null || nextNode != null && nextNode.item != null)
+         {
+            return true;
+         }
+
+         nextNode = null;
+         nextPredecessor = null;
+         nextItem = null;
+
+         Node<T> pred = position;
+
+         // the position may have been removed, by this cursor or not
+         Node<T> live = position == level.head || position.item != null ? position : predecessor;
+
+         Node<T> p = pred.next;
+
+         while (p != null)
+         {
+            if (p == pred)
+            {
+               // unlinked from the head meanwhile, the nodes after it are the first ones now
+               pred = live = level.head;
+
+               p = pred.next;
+
+               continue;
+            }
+
+            T t = p.item;
+
+            if (t != null)
+            {
+               nextNode = p;
+               nextPredecessor = live;
+               nextItem = t;
+
+               return true;
+            }
+
+            pred = p;
+
+            p = p.next;
+         }
+
+         return false;
+      }
+
+      T next()
+      {
+         if (repeat)
+         {
+            repeat = false;
+
+            T t = position.item;
+
+            if (t != null)
+            {
+               removable = true;
+
+               return t;
+            }
+         }
+
+         if (!hasNext())
+         {
+            throw new NoSuchElementException();
+         }
+
+         T t = nextItem;
+
+         position = nextNode;
+         predecessor = nextPredecessor;
+
+         nextNode = null;
+         nextPredecessor = null;
+         nextItem = null;
+
+         removable = true;
+
+         return t;
+      }
+
+      /**
+       * @return false if the element was removed already, by another iterator or by a poll
+       */
+      boolean remove()
+      {
+         if (!removable)
+         {
+            throw new NoSuchElementException();
+         }
+
+         removable = false;
+
+         if (position.remove() == null)
+         {
+            return false;
+         }
+
+         level.unlink(predecessor, position);
+
+         if (nextPredecessor == position)
+         {
+            nextPredecessor = predecessor;
+         }
+
+         return true;
+      }
+   }
+
+   private final class PriorityIterator implements LinkedListIterator<T>
+   {
+      private final Cursor<T>[] cursors;
+
+      // the cursor of the element found last
+      private Cursor<T> last;
+
+      @SuppressWarnings("unchecked")
+      PriorityIterator()
+      {
+         cursors = new Cursor[levels.length];
+      }
+
+      public void repeat()
+      {
+         if (last == null)
+         {
+            throw new NoSuchElementException();
+         }
+
+         last.repeat();
+      }
+
+      public void close()
+      {
+      }
+
+      public boolean hasNext()
+      {
+         // from the highest priority each time, so that the higher priority elements added
+         // meanwhile come first
+         for (int i = cursors.length - 1; i >= 0; i--)
+         {
+            Cursor<T> cursor = cursors[i];
+
+            if (cursor == null)
+            {
+               if (levels[i].head.next == null)
+               {
+                  continue;
+               }
+
+               cursor = cursors[i] = new Cursor<T>(levels[i]);
+            }
+
+            if (cursor.hasNext())
+            {
+               last = cursor;
+
+               return true;
+            }
+         }
+
+         return false;
+      }
+
+      public T next()
+      {
+         if (!hasNext())
+         {
+            throw new NoSuchElementException();
+         }
+
+         return last.next();
+      }
+
+      public void remove()
+      {
+         if (last == null)
+         {
+            throw new NoSuchElementException();
+         }
+
+         if (last.remove())
+         {
+            size.decrementAndGet();
+         }
+      }
+   }
+}
@@ -0,0 +1,565 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pure Java LZ77 codec in the spirit of LZ4: a single hash probe per position, no entropy coding.
+ * <p>
+ * The data is cut into blocks of at most {@link #BLOCK_SIZE} bytes, each written as a frame made of
+ * the uncompressed length, the stored length and the stored bytes. A block which doesn't get smaller
+ * is stored as it is, which is recognised by both lengths being equal.
+ * <p>
+ * Inside a block every sequence starts with a token holding the number of literals in its high
+ * nibble and the match length minus {@link #MIN_MATCH} in its low nibble, a nibble of 15 being
+ * followed by bytes to add until one is lower than 255. The literals come next, then the match
+ * offset as two little endian bytes. The last sequence of a block only has literals.
+ */
+public final class LZCompressionCodec implements CompressionCodec
+{
+   static final int BLOCK_SIZE = 64 * 1024;
+
+   private static final int FRAME_HEADER_SIZE = 8;
+
+   private static final int MIN_MATCH = 4;
+
+   private static final int MAX_OFFSET = 0xFFFF;
+
+   private static final int HASH_LOG = 13;
+
+   public String getName()
+   {
+      return CompressionCodecs.LZ;
+   }
+
+   public InputStream compressingReader(final InputStream input, final AtomicLong bytesRead)
+   {
+      return new CompressingReader(input, bytesRead);
+   }
+
+   public InputStream decompressingReader(final InputStream input)
+   {
+      return new DecompressingReader(input);
+   }
+
+   public OutputStream decompressingWriter(final OutputStream output)
+   {
+      return new DecompressingWriter(output);
+   }
+
+   static int maxCompressedLength(final int length)
+   {
+      return length + length / 255 + 16;
+   }
+
+   /**
+    * Compresses {@code length} bytes of {@code src} into {@code dest}, which must have room for
+    * {@link #maxCompressedLength(int)} bytes.
+    *
+    * @return the number of bytes written to {@code dest}
+    */
+   static int compress(final byte[] src, final int srcOffset, final int length, final byte[] dest, final int destOffset)
+   {
+      int[] table = new int[1 << HASH_LOG];
+
+      int end = srcOffset + length;
+      int limit = end - MIN_MATCH;
+      int position = srcOffset;
+      int anchor = srcOffset;
+      int out = destOffset;
+
+      while (position <= limit)
+      {
+         int sequence = readInt(src, position);
+         int hash = (sequence * -1640531535) >>> (32 - HASH_LOG);
+
+         // positions are stored plus one so the zeroed table means no candidate
+         int candidate = table[hash] - 1;
+         table[hash] = position + 1;
+
+         if (candidate < 0 || position - candidate > MAX_OFFSET || readInt(src, candidate) != sequence)
+         {
+            position++;
+            continue;
+         }
+
+         int matchLength = MIN_MATCH;
+         while (position + matchLength < end && src[candidate + matchLength] == src[position + matchLength])
+         {
+            matchLength++;
+         }
+
+         int literals = position - anchor;
+         int matchExtra = matchLength - MIN_MATCH;
+
+         dest[out++] = (byte)((Math.min(literals, 15) << 4) | Math.min(matchExtra, 15));
+         out = writeLength(dest, out, literals);
+         System.arraycopy(src, anchor, dest, out, literals);
+         out += literals;
+
+         int offset = position - candidate;
+         dest[out++] = (byte)offset;
+         dest[out++] = (byte)(offset >>> 8);
+         out = writeLength(dest, out, matchExtra);
+
+         position += matchLength;
+         anchor = position;
+      }
+
+      int literals = end - anchor;
+      dest[out++] = (byte)(Math.min(literals, 15) << 4);
+      out = writeLength(dest, out, literals);
+      System.arraycopy(src, anchor, dest, out, literals);
+      out += literals;
+
+      return out - destOffset;
+   }
+
+   /**
+    * Decompresses a block produced by {@link #compress(byte[], int, int, byte[], int)} into {@code dest}.
+    *
+    * @return the number of bytes written to {@code dest}
+    */
+   static int decompress(final byte[] src,
+                         final int srcOffset,
+                         final int length,
+                         final byte[] dest,
+                         final int destOffset,
+                         final int destLength) throws IOException
+   {
+      int end = srcOffset + length;
+      int destEnd = destOffset + destLength;
+      int position = srcOffset;
+      int out = destOffset;
+
+      try
+      {
+         while (true)
+         {
+            int token = src[position++] & 0xFF;
+
+            int literals = token >>> 4;
+            if (literals == 15)
+            {
+               int b;
+               do
+               {
+                  b = src[position++] & 0xFF;
+                  literals += b;
+               }
+               while (b == 255);
+            }
+
+            if (position + literals > end || out + literals > destEnd)
+            {
+               throw new IOException("Corrupted compressed block, literals overflow");
+            }
+            System.arraycopy(src, position, dest, out, literals);
+            position += literals;
+            out += literals;
+
+            if (position == end)
+            {
+               return out - destOffset;
+            }
+
+            int offset = (src[position++] & 0xFF) | ((src[position++] & 0xFF) << 8);
+
+            int matchLength = token & 0x0F;
+            if (matchLength == 15)
+            {
+               int b;
+               do
+               {
+                  b = src[position++] & 0xFF;
+                  matchLength += b;
+               }
+               while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+
+            int match = out - offset;
+            if (offset == 0 || match < destOffset || out + matchLength > destEnd)
+            {
+               throw new IOException("Corrupted compressed block, invalid match");
+            }
+
+            // the match may overlap the bytes being written, so it is copied one byte at a time
+            for (int i = 0; i < matchLength; i++)
+            {
+               dest[out++] = dest[match++];
+            }
+         }
+      }
+      catch (ArrayIndexOutOfBoundsException e)
+      {
+         IOException ie = new IOException("Corrupted compressed block, truncated");
+         ie.initCause(e);
+         throw ie;
+      }
+   }
+
+   private static int writeLength(final byte[] dest, int out, final int length)
+   {
+      if (length >= 15)
+      {
+         int remaining = length - 15;
+         while (remaining >= 255)
+         {
+            dest[out++] = (byte)255;
+            remaining -= 255;
+         }
+         dest[out++] = (byte)remaining;
+      }
+      return out;
+   }
+
+   private static int readInt(final byte[] buffer, final int position)
+   {
+      return (buffer[position] & 0xFF) | (buffer[position + 1] & 0xFF) << 8 |
+         (buffer[position + 2] & 0xFF) << 16 |
+         (buffer[position + 3] & 0xFF) << 24;
+   }
+
+   private static void writeInt(final byte[] buffer, final int position, final int value)
+   {
+      buffer[position] = (byte)(value >>> 24);
+      buffer[position + 1] = (byte)(value >>> 16);
+      buffer[position + 2] = (byte)(value >>> 8);
+      buffer[position + 3] = (byte)value;
+   }
+
+   private static int readFrameInt(final byte[] buffer, final int position)
+   {
+      return (buffer[position] & 0xFF) << 24 | (buffer[position + 1] & 0xFF) << 16 |
+         (buffer[position + 2] & 0xFF) << 8 |
+         (buffer[position + 3] & 0xFF);
+   }
+
+   private static void checkFrame(final int rawLength, final int storedLength) throws IOException
+   {
+      if (rawLength <= 0 || rawLength > BLOCK_SIZE || storedLength <= 0 || storedLength > maxCompressedLength(rawLength))
+      {
+         throw new IOException("Corrupted compressed stream, invalid frame " + rawLength + "/" + storedLength);
+      }
+   }
+
+   private static void decodeFrame(final byte[] stored, final int storedLength, final byte[] block, final int rawLength) throws IOException
+   {
+      if (storedLength == rawLength)
+      {
+         System.arraycopy(stored, 0, block, 0, rawLength);
+      }
+      else if (decompress(stored, 0, storedLength, block, 0, rawLength) != rawLength)
+      {
+         throw new IOException("Corrupted compressed stream, block shorter than announced");
+      }
+   }
+
+   /**
+    * Reads its input one block at a time and hands out the resulting frames.
+    */
+   private static final class CompressingReader extends InputStream
+   {
+      private final InputStream input;
+
+      private final AtomicLong bytesRead;
+
+      private final byte[] block = new byte[BLOCK_SIZE];
+
+      private final byte[] frame = new byte[FRAME_HEADER_SIZE + maxCompressedLength(BLOCK_SIZE)];
+
+      private int framePosition;
+
+      private int frameLength;
+
+      private boolean inputDone;
+
+      CompressingReader(final InputStream input, final AtomicLong bytesRead)
+      {
+         this.input = input;
+         this.bytesRead = bytesRead;
+      }
+
+      @Override
+      public int read() throws IOException
+      {
+         if (!fill())
+         {
+            return -1;
+         }
+         return frame[framePosition++] & 0xFF;
+      }
+
+      @Override
+      public int read(final byte[] buffer, final int offset, final int len) throws IOException
+      {
+         if (len == 0)
+         {
+            return 0;
+         }
+
+         int read = 0;
+
+         while (read < len && fill())
+         {
+            int n = Math.min(len - read, frameLength - framePosition);
+            System.arraycopy(frame, framePosition, buffer, offset + read, n);
+            framePosition += n;
+            read += n;
+         }
+
+         return read == 0 ? -1 : read;
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         input.close();
+      }
+
+      private boolean fill() throws IOException
+      {
+         if (framePosition < frameLength)
+         {
+            return true;
+         }
+
+         if (inputDone)
+         {
+            return false;
+         }
+
+         int length = 0;
+         while (length < BLOCK_SIZE)
+         {
+            int n = input.read(block, length, BLOCK_SIZE - length);
+            if (n == -1)
+            {
+               inputDone = true;
+               break;
+            }
+            length += n;
+         }
+
+         if (length == 0)
+         {
+            return false;
+         }
+
+         if (bytesRead != null)
+         {
+            bytesRead.addAndGet(length);
+         }
+
+         int storedLength = compress(block, 0, length, frame, FRAME_HEADER_SIZE);
+
+         if (storedLength >= length)
+         {
+            System.arraycopy(block, 0, frame, FRAME_HEADER_SIZE, length);
+            storedLength = length;
+         }
+
+         writeInt(frame, 0, length);
+         writeInt(frame, 4, storedLength);
+
+         framePosition = 0;
+         frameLength = FRAME_HEADER_SIZE + storedLength;
+
+         return true;
+      }
+   }
+
+   /**
+    * Reads frames from its input and hands out the uncompressed blocks.
+    */
+   private static final class DecompressingReader extends InputStream
+   {
+      private final DataInputStream input;
+
+      private final byte[] stored = new byte[maxCompressedLength(BLOCK_SIZE)];
+
+      private final byte[] block = new byte[BLOCK_SIZE];
+
+      private int blockPosition;
+
+      private int blockLength;
+
+      DecompressingReader(final InputStream input)
+      {
+         this.input = new DataInputStream(input);
+      }
+
+      @Override
+      public int read() throws IOException
+      {
+         if (!fill())
+         {
+            return -1;
+         }
+         return block[blockPosition++] & 0xFF;
+      }
+
+      @Override
+      public int read(final byte[] buffer, final int offset, final int len) throws IOException
+      {
+         if (len == 0)
+         {
+            return 0;
+         }
+
+         if (!fill())
+         {
+            return -1;
+         }
+
+         int n = Math.min(len, blockLength - blockPosition);
+         System.arraycopy(block, blockPosition, buffer, offset, n);
+         blockPosition += n;
+         return n;
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         input.close();
+      }
+
+      private boolean fill() throws IOException
+      {
+         if (blockPosition < blockLength)
+         {
+            return true;
+         }
+
+         int first = input.read();
+         if (first == -1)
+         {
+            return false;
+         }
+
+         int rawLength = first << 24 | (input.readUnsignedByte() << 16) | (input.readUnsignedByte() << 8) |
+            input.readUnsignedByte();
+         int storedLength = input.readInt();
+
+         checkFrame(rawLength, storedLength);
+
+         input.readFully(stored, 0, storedLength);
+         decodeFrame(stored, storedLength, block, rawLength);
+
+         blockPosition = 0;
+         blockLength = rawLength;
+
+         return true;
+      }
+   }
+
+   /**
+    * Accumulates written frames and writes each uncompressed block as soon as its frame is complete.
+    */
+   private static final class DecompressingWriter extends OutputStream
+   {
+      private final OutputStream output;
+
+      private final byte[] frame = new byte[FRAME_HEADER_SIZE + maxCompressedLength(BLOCK_SIZE)];
+
+      private final byte[] block = new byte[BLOCK_SIZE];
+
+      private int framePosition;
+
+      // the size of the frame being accumulated, known once its header is complete
+      private int frameLength = -1;
+
+      DecompressingWriter(final OutputStream output)
+      {
+         this.output = output;
+      }
+
+      @Override
+      public void write(final int b) throws IOException
+      {
+         frame[framePosition++] = (byte)b;
+         frameWritten();
+      }
+
+      @Override
+      public void write(final byte[] buffer, int offset, int len) throws IOException
+      {
+         while (len > 0)
+         {
+            int wanted = (frameLength == -1 ? FRAME_HEADER_SIZE : frameLength) - framePosition;
+            int n = Math.min(len, wanted);
+            System.arraycopy(buffer, offset, frame, framePosition, n);
+            framePosition += n;
+            offset += n;
+            len -= n;
+            frameWritten();
+         }
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         try
+         {
+            if (framePosition > 0)
+            {
+               throw new EOFException("Compressed stream ended in the middle of a frame");
+            }
+         }
+         finally
+         {
+            output.close();
+         }
+      }
+
+      private void frameWritten() throws IOException
+      {
+         if (frameLength == -1)
+         {
+            if (framePosition == FRAME_HEADER_SIZE)
+            {
+               checkFrame(readFrameInt(frame, 0), readFrameInt(frame, 4));
+               frameLength = FRAME_HEADER_SIZE + readFrameInt(frame, 4);
+            }
+         }
+         else if (framePosition == frameLength)
+         {
+            int rawLength = readFrameInt(frame, 0);
+            int storedLength = frameLength - FRAME_HEADER_SIZE;
+
+            if (storedLength == rawLength)
+            {
+               output.write(frame, FRAME_HEADER_SIZE, rawLength);
+            }
+            else
+            {
+               if (decompress(frame, FRAME_HEADER_SIZE, storedLength, block, 0, rawLength) != rawLength)
+               {
+                  throw new IOException("Corrupted compressed stream, block shorter than announced");
+               }
+               output.write(block, 0, rawLength);
+            }
+
+            framePosition = 0;
+            frameLength = -1;
+         }
+      }
+   }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hornetq.utils.CompressionCodec;
+import org.hornetq.utils.CompressionCodecs;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompressionCodecTest extends Assert
+{
+   private final Random random = new Random(4);
+
+   @Test
+   public void testZlibRoundTrip() throws Exception
+   {
+      roundTrips(CompressionCodecs.getCodec(CompressionCodecs.ZLIB));
+   }
+
+   @Test
+   public void testLZRoundTrip() throws Exception
+   {
+      roundTrips(CompressionCodecs.getCodec(CompressionCodecs.LZ));
+   }
+
+   @Test
+   public void testLZCompressesRepetitiveData() throws Exception
+   {
+      byte[] data = text(300 * 1024);
+
+      byte[] compressed = compress(CompressionCodecs.getCodec(CompressionCodecs.LZ), data, new AtomicLong());
+
+      assertTrue("compressed to " + compressed.length, compressed.length < data.length / 2);
+   }
+
+   @Test
+   public void testLZDetectsTruncatedData() throws Exception
+   {
+      CompressionCodec codec = CompressionCodecs.getCodec(CompressionCodecs.LZ);
+
+      byte[] compressed = compress(codec, text(100 * 1024), new AtomicLong());
+      byte[] truncated = new byte[compressed.length - 10];
+      System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+
+      try
+      {
+         readFully(codec.decompressingReader(new ByteArrayInputStream(truncated)));
+         fail("truncated data should not be decompressed");
+      }
+      catch (IOException expected)
+      {
+      }
+
+      try
+      {
+         OutputStream writer = codec.decompressingWriter(new ByteArrayOutputStream());
+         writer.write(truncated);
+         writer.close();
+         fail("truncated data should not be decompressed");
+      }
+      catch (IOException expected)
+      {
+      }
+   }
+
+   @Test
+   public void testCodecRegisteredByClassName() throws Exception
+   {
+      String name = IdentityCodec.class.getName();
+
+      assertFalse(CompressionCodecs.isKnown(IdentityCodec.NAME));
+      // a name read from a message is never loaded
+      try
+      {
+         CompressionCodecs.getCodec(name);
+         fail("the codec should not be loaded");
+      }
+      catch (IllegalArgumentException e)
+      {
+      }
+
+      CompressionCodec codec = CompressionCodecs.register(name);
+      assertEquals(IdentityCodec.NAME, codec.getName());
+      assertSame(codec, CompressionCodecs.register(name));
+      assertSame(codec, CompressionCodecs.getCodec(IdentityCodec.NAME));
+      assertTrue(CompressionCodecs.isKnown(IdentityCodec.NAME));
+
+      // still only known by its name
+      assertFalse(CompressionCodecs.isKnown(name));
+      assertEquals(CompressionCodecs.ZLIB, CompressionCodecs.getCodec(null).getName());
+   }
+
+   @Test
+   public void testCodecNamedAsBuiltInDoesNotReplaceIt() throws Exception
+   {
+      CompressionCodec lz = CompressionCodecs.getCodec(CompressionCodecs.LZ);
+
+      assertSame(lz, CompressionCodecs.register(lz.getClass().getName()));
+      assertSame(lz, CompressionCodecs.getCodec(CompressionCodecs.LZ));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testUnknownCodec() throws Exception
+   {
+      CompressionCodecs.getCodec("no.such.Codec");
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testUnknownCodecClass() throws Exception
+   {
+      CompressionCodecs.register("no.such.Codec");
+   }
+
+   private void roundTrips(final CompressionCodec codec) throws Exception
+   {
+      roundTrip(codec, new byte[0]);
+      roundTrip(codec, new byte[]{1});
+      roundTrip(codec, text(10));
+      roundTrip(codec, text(1024 * 1024 + 17));
+      roundTrip(codec, new byte[200 * 1024]);
+
+      byte[] noise = new byte[150 * 1024];
+      random.nextBytes(noise);
+      roundTrip(codec, noise);
+   }
+
+   private void roundTrip(final CompressionCodec codec, final byte[] data) throws Exception
+   {
+      AtomicLong bytesRead = new AtomicLong();
+      byte[] compressed = compress(codec, data, bytesRead);
+
+      assertEquals(data.length, bytesRead.get());
+
+      assertArrayEquals(data, readFully(codec.decompressingReader(new ByteArrayInputStream(compressed))));
+
+      // chunks of odd sizes, as the large message packets written by the consumer
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      OutputStream writer = codec.decompressingWriter(output);
+      int position = 0;
+      while (position < compressed.length)
+      {
+         int n = Math.min(compressed.length - position, 1 + random.nextInt(3000));
+         if (n == 1)
+         {
+            writer.write(compressed[position]);
+         }
+         else
+         {
+            writer.write(compressed, position, n);
+         }
+         position += n;
+      }
+      writer.close();
+
+      assertArrayEquals(data, output.toByteArray());
+   }
+
+   private static byte[] compress(final CompressionCodec codec, final byte[] data, final AtomicLong bytesRead) throws Exception
+   {
+      return readFully(codec.compressingReader(new ByteArrayInputStream(data), bytesRead));
+   }
+
+   private static byte[] readFully(final InputStream input) throws IOException
+   {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1000];
+      int n;
+      while ((n = input.read(buffer)) != -1)
+      {
+         output.write(buffer, 0, n);
+      }
+      return output.toByteArray();
+   }
+
+   private byte[] text(final int size)
+   {
+      String[] words = {"hornetq ", "message ", "queue ", "large ", "body ", "compression ", "\n"};
+      byte[] data = new byte[size];
+      int position = 0;
+      while (position < size)
+      {
+         byte[] word = words[random.nextInt(words.length)].getBytes();
+         int n = Math.min(word.length, size - position);
+         System.arraycopy(word, 0, data, position, n);
+         position += n;
+      }
+      return data;
+   }
+
+   /**
+    * Leaves the data as it is, only registered by the tests.
+    */
+   public static final class IdentityCodec implements CompressionCodec
+   {
+      static final String NAME = "identity";
+
+      public String getName()
+      {
+         return NAME;
+      }
+
+      public InputStream compressingReader(final InputStream input, final AtomicLong bytesRead)
+      {
+         return input;
+      }
+
+      public InputStream decompressingReader(final InputStream input)
+      {
+         return input;
+      }
+
+      public OutputStream decompressingWriter(final OutputStream output)
+      {
+         return output;
+      }
+   }
+}
@@ -223,6 +223,82 @@ public class TypedPropertiesTest
       Assert.assertEquals(props.getEncodeSize(), buffer.writerIndex());
    }
 
+   @Test
+   public void testDecodedPropertiesReadBeforeChange() throws Exception
+   {
+      SimpleString intKey = RandomUtil.randomSimpleString();
+      SimpleString stringKey = RandomUtil.randomSimpleString();
+      SimpleString bytesKey = RandomUtil.randomSimpleString();
+      SimpleString stringValue = RandomUtil.randomSimpleString();
+      byte[] bytesValue = RandomUtil.randomBytes();
+      props.putBytesProperty(bytesKey, bytesValue);
+      props.putIntProperty(intKey, 10);
+      props.putSimpleStringProperty(stringKey, stringValue);
+      props.putCharProperty(RandomUtil.randomSimpleString(), RandomUtil.randomChar());
+      props.putNullValue(RandomUtil.randomSimpleString());
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(1024);
+      props.encode(buffer);
+      buffer.writeInt(1234);
+
+      TypedProperties decodedProps = new TypedProperties();
+      decodedProps.decode(buffer);
+      Assert.assertEquals(1234, buffer.readInt());
+
+      Assert.assertTrue(decodedProps.containsProperty(intKey));
+      Assert.assertFalse(decodedProps.containsProperty(RandomUtil.randomSimpleString()));
+      Assert.assertEquals(10, (int) decodedProps.getIntProperty(intKey));
+      Assert.assertEquals(stringValue, decodedProps.getSimpleStringProperty(stringKey));
+      Assert.assertArrayEquals(bytesValue, decodedProps.getBytesProperty(bytesKey));
+      Assert.assertNull(decodedProps.removeProperty(RandomUtil.randomSimpleString()));
+      Assert.assertEquals(props.getEncodeSize(), decodedProps.getEncodeSize());
+
+      // the unchanged properties are encoded again as they were decoded
+      HornetQBuffer reencoded = HornetQBuffers.dynamicBuffer(1024);
+      decodedProps.encode(reencoded);
+      Assert.assertEquals(props.getEncodeSize(), reencoded.writerIndex());
+      TypedProperties copy = new TypedProperties(decodedProps);
+      TypedPropertiesTest.assertEqualsTypeProperties(props, decodedProps);
+
+      // changing a property after it was decoded
+      copy.putIntProperty(intKey, 20);
+      Assert.assertEquals(20, (int) copy.getIntProperty(intKey));
+      Assert.assertEquals(10, (int) decodedProps.getIntProperty(intKey));
+      Assert.assertEquals(props.getEncodeSize(), copy.getEncodeSize());
+      Assert.assertEquals(stringValue, copy.removeProperty(stringKey));
+      Assert.assertFalse(copy.containsProperty(stringKey));
+      Assert.assertEquals(props.getPropertyNames().size() - 1, copy.getPropertyNames().size());
+   }
+
+   @Test
+   public void testDecodedPropertiesCleared() throws Exception
+   {
+      SimpleString intKey = RandomUtil.randomSimpleString();
+      props.putIntProperty(intKey, 10);
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(1024);
+      props.encode(buffer);
+
+      TypedProperties decodedProps = new TypedProperties();
+      decodedProps.decode(buffer);
+
+      // the map is only created again by the next put
+      decodedProps.clear();
+      Assert.assertTrue(decodedProps.isEmpty());
+      Assert.assertFalse(decodedProps.containsProperty(intKey));
+      Assert.assertNull(decodedProps.getProperty(intKey));
+      Assert.assertTrue(decodedProps.getPropertyNames().isEmpty());
+      Assert.assertTrue(decodedProps.getMap().isEmpty());
+
+      HornetQBuffer reencoded = HornetQBuffers.dynamicBuffer(1024);
+      decodedProps.encode(reencoded);
+      Assert.assertEquals(decodedProps.getEncodeSize(), reencoded.writerIndex());
+
+      decodedProps.putIntProperty(intKey, 20);
+      Assert.assertFalse(decodedProps.isEmpty());
+      Assert.assertEquals(20, (int) decodedProps.getIntProperty(intKey));
+   }
+
    @Test
    public void testEncodeDecodeEmpty() throws Exception
    {
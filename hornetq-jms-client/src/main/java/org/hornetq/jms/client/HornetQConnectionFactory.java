@@ -636,6 +636,16 @@ public class HornetQConnectionFactory implements Serializable, Referenceable, Co
       serverLocator.setCompressLargeMessage(avoidLargeMessages);
    }
 
+   public String getCompressionCodec()
+   {
+      return serverLocator.getCompressionCodec();
+   }
+
+   public void setCompressionCodec(final String compressionCodec)
+   {
+      serverLocator.setCompressionCodec(compressionCodec);
+   }
+
    public void close()
    {
       ServerLocator locator0 = serverLocator;
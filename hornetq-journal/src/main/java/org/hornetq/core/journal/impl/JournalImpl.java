@@ -66,6 +66,7 @@ import org.hornetq.journal.HornetQJournalBundle;
 import org.hornetq.journal.HornetQJournalLogger;
 import org.hornetq.utils.ConcurrentHashSet;
 import org.hornetq.utils.DataConstants;
+import org.hornetq.utils.LatencyHistogram;
 
 /**
  *
@@ -216,6 +217,11 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
    private final Reclaimer reclaimer = new Reclaimer();
 
+   // only set when the server records metrics
+   private volatile LatencyHistogram appendLatency;
+
+   private volatile LatencyHistogram syncLatency;
+
    // Constructors --------------------------------------------------
 
    public JournalImpl(final int fileSize,
@@ -2173,6 +2179,16 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       });
    }
 
+   /**
+    * Records, in microseconds, how long each append takes to write its record to the current file
+    * and, for synced appends, how long until the record is on disk.
+    */
+   public void setLatencyHistograms(final LatencyHistogram appendLatency, final LatencyHistogram syncLatency)
+   {
+      this.syncLatency = syncLatency;
+      this.appendLatency = appendLatency;
+   }
+
    // TestableJournal implementation
    // --------------------------------------------------------------
 
@@ -2760,7 +2776,11 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
    {
       checkJournalIsLoaded();
 
-      final IOAsyncTask callback;
+      final LatencyHistogram appendLatency = this.appendLatency;
+
+      final long start = appendLatency == null ? 0 : System.nanoTime();
+
+      IOAsyncTask callback;
 
       final int size = encoder.getEncodeSize();
 
@@ -2801,6 +2821,11 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       // Adding fileID
       encoder.setFileID(currentFile.getRecordID());
 
+      if (appendLatency != null && sync && callback != null)
+      {
+         callback = new SyncTimer(callback, start, syncLatency);
+      }
+
       if (callback != null)
       {
          currentFile.getFile().write(encoder, sync, callback);
@@ -2810,6 +2835,12 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
          currentFile.getFile().write(encoder, sync);
       }
 
+      if (appendLatency != null)
+      {
+         // without a callback a synced write only returns once it is on disk
+         (sync && callback == null ? syncLatency : appendLatency).recordSince(start);
+      }
+
       return currentFile;
    }
 
@@ -2977,6 +3008,36 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
    }
 
+   /**
+    * Records the time a synced append waited for its record to reach the disk.
+    */
+   private static final class SyncTimer implements IOAsyncTask
+   {
+      private final IOAsyncTask delegate;
+
+      private final long start;
+
+      private final LatencyHistogram histogram;
+
+      SyncTimer(final IOAsyncTask delegate, final long start, final LatencyHistogram histogram)
+      {
+         this.delegate = delegate;
+         this.start = start;
+         this.histogram = histogram;
+      }
+
+      public void done()
+      {
+         histogram.recordSince(start);
+         delegate.done();
+      }
+
+      public void onError(final int errorCode, final String errorMessage)
+      {
+         delegate.onError(errorCode, errorMessage);
+      }
+   }
+
    private static final class JournalFileComparator implements Comparator<JournalFile>, Serializable
    {
       private static final long serialVersionUID = -6264728973604070321L;
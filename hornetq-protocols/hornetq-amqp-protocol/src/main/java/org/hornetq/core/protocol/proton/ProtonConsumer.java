@@ -168,9 +168,12 @@ public class ProtonConsumer implements ProtonDeliveryHandler
    }
 
    /*
-   * handle an out going message from HornetQ, send via the Proton Sender
+   * handle an out going message from HornetQ, send via the Proton Sender.
+   *
+   * This is called by the delivery of the queue, so the message is encoded here and only its sending is queued to the
+   * executor of the connection
    * */
-   public synchronized int handleDelivery(ServerMessage message, int deliveryCount)
+   public synchronized int handleDelivery(final ServerMessage message, int deliveryCount)
    {
       if (closed)
       {
@@ -180,7 +183,14 @@ public class ProtonConsumer implements ProtonDeliveryHandler
       {
          if(forcingDelivery)
          {
-            sender.drained();
+            connection.execute(new Runnable()
+            {
+               public void run()
+               {
+                  sender.drained();
+                  connection.write();
+               }
+            });
          }
          else
          {
@@ -195,13 +205,19 @@ public class ProtonConsumer implements ProtonDeliveryHandler
          forcingDelivery = false;
       }
       //presettle means we can ack the message on the proton side before we send it, i.e. for browsers
-      boolean preSettle = sender.getRemoteSenderSettleMode() == SenderSettleMode.SETTLED;
+      final boolean preSettle = sender.getRemoteSenderSettleMode() == SenderSettleMode.SETTLED;
       //we only need a tag if we are going to ack later
-      byte[] tag = preSettle ? new byte[0] : protonSession.getTag();
+      final byte[] tag = preSettle ? new byte[0] : protonSession.getTag();
       //encode the message
-      EncodedMessage encodedMessage = ProtonUtils.OUTBOUND.transform(message, deliveryCount);
+      final EncodedMessage encodedMessage = ProtonUtils.OUTBOUND.transform(message, deliveryCount);
       //now handle the delivery
-      protonProtocolManager.handleDelivery(sender, tag, encodedMessage, message, connection, preSettle);
+      connection.execute(new Runnable()
+      {
+         public void run()
+         {
+            protonProtocolManager.handleDelivery(sender, tag, encodedMessage, message, connection, preSettle);
+         }
+      });
 
       return encodedMessage.getLength();
    }
@@ -257,10 +273,7 @@ public class ProtonConsumer implements ProtonDeliveryHandler
             }
          }
 
-         synchronized (connection.getDeliveryLock())
-         {
-            delivery.settle();
-         }
+         delivery.settle();
          //todo add tag caching
          if (!preSettle)
          {
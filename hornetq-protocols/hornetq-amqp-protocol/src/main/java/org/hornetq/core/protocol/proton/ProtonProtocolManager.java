@@ -80,7 +80,7 @@ public class ProtonProtocolManager implements ProtocolManager, NotificationListe
    @Override
    public ConnectionEntry createConnectionEntry(Acceptor acceptorUsed, Connection connection)
    {
-      ProtonRemotingConnection conn = new ProtonRemotingConnection(acceptorUsed, connection, this);
+      ProtonRemotingConnection conn = new ProtonRemotingConnection(acceptorUsed, connection, this, server.getExecutorFactory().getExecutor());
       //todo do we have a ttl?
       return new ConnectionEntry(conn, null, System.currentTimeMillis(), 1 * 60 * 1000);
    }
@@ -93,12 +93,7 @@ public class ProtonProtocolManager implements ProtocolManager, NotificationListe
    @Override
    public void handleBuffer(RemotingConnection connection, HornetQBuffer buffer)
    {
-      ProtonRemotingConnection protonRemotingConnection = (ProtonRemotingConnection) connection;
-      protonRemotingConnection.setDataReceived();
-      byte[] frame = new byte[buffer.readableBytes()];
-      buffer.readBytes(frame);
-
-      protonRemotingConnection.handleFrame(frame);
+      ((ProtonRemotingConnection) connection).handleFrame(buffer.byteBuf());
    }
 
    @Override
@@ -135,82 +130,104 @@ public class ProtonProtocolManager implements ProtocolManager, NotificationListe
                              final ProtonRemotingConnection connection, ProtonSession protonSession,
                              String address) throws Exception
    {
-      synchronized (connection.getDeliveryLock())
+      int count;
+      byte data[] = new byte[1024];
+      //todo an optimisation here would be to only use the buffer if we need more that one recv
+      while ((count = receiver.recv(data, 0, data.length)) > 0)
       {
-         int count;
-         byte data[] = new byte[1024];
-         //todo an optimisation here would be to only use the buffer if we need more that one recv
-         while ((count = receiver.recv(data, 0, data.length)) > 0)
-         {
-            buffer.writeBytes(data, 0, count);
-         }
+         buffer.writeBytes(data, 0, count);
+      }
 
-         // we keep reading until we get end of messages, i.e. -1
-         if (count == 0)
-         {
-            return;
-         }
-         receiver.advance();
-         byte[] bytes = new byte[buffer.readableBytes()];
-         buffer.readBytes(bytes);
-         buffer.clear();
-         EncodedMessage encodedMessage = new EncodedMessage(delivery.getMessageFormat(), bytes, 0, bytes.length);
-         ServerMessage message = ProtonUtils.INBOUND.transform(connection, encodedMessage);
-         //use the address on the receiver if not null, if null let's hope it was set correctly on the message
-         if (address != null)
-         {
-            message.setAddress(new SimpleString(address));
-         }
-         //todo decide on whether to deliver direct
-         protonSession.getServerSession().send(message, true);
-         server.getStorageManager().afterCompleteOperations(new IOAsyncTask()
+      // we keep reading until we get end of messages, i.e. -1
+      if (count == 0)
+      {
+         return;
+      }
+      receiver.advance();
+      byte[] bytes = new byte[buffer.readableBytes()];
+      buffer.readBytes(bytes);
+      buffer.clear();
+      EncodedMessage encodedMessage = new EncodedMessage(delivery.getMessageFormat(), bytes, 0, bytes.length);
+      ServerMessage message = ProtonUtils.INBOUND.transform(connection, encodedMessage);
+      //use the address on the receiver if not null, if null let's hope it was set correctly on the message
+      if (address != null)
+      {
+         message.setAddress(new SimpleString(address));
+      }
+      //todo decide on whether to deliver direct
+      protonSession.getServerSession().send(message, true);
+      server.getStorageManager().afterCompleteOperations(new IOAsyncTask()
+      {
+         @Override
+         public void done()
          {
-            @Override
-            public void done()
+            connection.execute(new Runnable()
             {
-               synchronized (connection.getDeliveryLock())
+               public void run()
                {
                   receiver.flow(1);
                   delivery.settle();
+                  connection.write();
                }
-            }
+            });
+         }
 
-            @Override
-            public void onError(int errorCode, String errorMessage)
+         @Override
+         public void onError(final int errorCode, final String errorMessage)
+         {
+            connection.execute(new Runnable()
             {
-               receiver.setCondition(new ErrorCondition(AmqpError.ILLEGAL_STATE, errorCode + ":" + errorMessage));
-            }
-         });
-      }
+               public void run()
+               {
+                  receiver.setCondition(new ErrorCondition(AmqpError.ILLEGAL_STATE, errorCode + ":" + errorMessage));
+                  connection.write();
+               }
+            });
+         }
+      });
    }
 
-   public void handleDelivery(final Sender sender, byte[] tag, EncodedMessage encodedMessage, ServerMessage message, ProtonRemotingConnection connection, final boolean preSettle)
+   /*
+   * must run on the executor of the connection, see ProtonRemotingConnection#execute
+   * */
+   public void handleDelivery(final Sender sender, byte[] tag, EncodedMessage encodedMessage, ServerMessage message, final ProtonRemotingConnection connection, final boolean preSettle)
    {
-      synchronized (connection.getDeliveryLock())
+      final Delivery delivery;
+      delivery = sender.delivery(tag, 0, tag.length);
+      delivery.setContext(message);
+      sender.send(encodedMessage.getArray(), 0, encodedMessage.getLength());
+      // the whole message has been sent, advancing any later would leave its transfer flagged as partial whenever
+      // the connection is written in between
+      sender.advance();
+      if (preSettle)
       {
-         final Delivery delivery;
-         delivery = sender.delivery(tag, 0, tag.length);
-         delivery.setContext(message);
-         sender.send(encodedMessage.getArray(), 0, encodedMessage.getLength());
          server.getStorageManager().afterCompleteOperations(new IOAsyncTask()
          {
             @Override
             public void done()
             {
-               if (preSettle)
-               {
-                  delivery.settle();
-                  ((LinkImpl) sender).addCredit(1);
-               } else
+               connection.execute(new Runnable()
                {
-                  sender.advance();
-               }
+                  public void run()
+                  {
+                     delivery.settle();
+                     ((LinkImpl) sender).addCredit(1);
+                     connection.write();
+                  }
+               });
             }
 
             @Override
-            public void onError(int errorCode, String errorMessage)
+            public void onError(final int errorCode, final String errorMessage)
             {
-               sender.setCondition(new ErrorCondition(AmqpError.ILLEGAL_STATE, errorCode + ":" + errorMessage));
+               connection.execute(new Runnable()
+               {
+                  public void run()
+                  {
+                     sender.setCondition(new ErrorCondition(AmqpError.ILLEGAL_STATE, errorCode + ":" + errorMessage));
+                     connection.write();
+                  }
+               });
             }
          });
       }
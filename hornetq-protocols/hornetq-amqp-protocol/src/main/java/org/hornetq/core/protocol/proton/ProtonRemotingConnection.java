@@ -13,6 +13,7 @@
 
 package org.hornetq.core.protocol.proton;
 
+import io.netty.buffer.ByteBuf;
 import org.apache.qpid.proton.amqp.transport.AmqpError;
 import org.apache.qpid.proton.amqp.transport.ErrorCondition;
 import org.apache.qpid.proton.engine.EndpointState;
@@ -41,6 +42,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 /**
  * @author <a href="mailto:andy.taylor@jboss.org">Andy Taylor</a>
@@ -54,11 +56,13 @@ public class ProtonRemotingConnection implements RemotingConnection
    private final Map<Object, ProtonSession> sessions = new HashMap<Object, ProtonSession>();
 
    /*
-   * Proton is not thread safe therefore we need to make sure we aren't updating the deliveries on the connection from
-   * the input of proton transport and asynchronously back from HornetQ at the same time.
-   * (this probably needs to be fixed on Proton)
+   * Proton is not thread safe, so everything touching the transport or its endpoints runs on this ordered executor:
+   * the input read from Netty as well as the deliveries, settlements and flow coming back from HornetQ.
    * */
-   private final Object deliveryLock = new Object();
+   private final Executor executor;
+
+   // used to feed the transport when the received buffer has no backing array, only touched by the executor
+   private byte[] inputBuffer;
 
    private boolean destroyed = false;
 
@@ -89,10 +93,12 @@ public class ProtonRemotingConnection implements RemotingConnection
 
    private boolean dataReceived;
 
-   public ProtonRemotingConnection(Acceptor acceptorUsed, Connection connection, ProtonProtocolManager protonProtocolManager)
+   public ProtonRemotingConnection(Acceptor acceptorUsed, Connection connection, ProtonProtocolManager protonProtocolManager, Executor executor)
    {
       this.protonProtocolManager = protonProtocolManager;
 
+      this.executor = executor;
+
       this.connection = connection;
 
       this.creationTime = System.currentTimeMillis();
@@ -218,17 +224,24 @@ public class ProtonRemotingConnection implements RemotingConnection
    }
 
    @Override
-   public void fail(HornetQException me)
+   public void fail(final HornetQException me)
    {
       HornetQServerLogger.LOGGER.connectionFailureDetected(me.getMessage(), me.getType());
-      // Then call the listeners
-      callFailureListeners(me);
-
-      callClosingListeners();
 
       destroyed = true;
 
       connection.close();
+
+      // the listeners close the sessions, which touches the transport
+      executor.execute(new Runnable()
+      {
+         public void run()
+         {
+            callFailureListeners(me);
+
+            callClosingListeners();
+         }
+      });
    }
 
    @Override
@@ -238,10 +251,13 @@ public class ProtonRemotingConnection implements RemotingConnection
 
       connection.close();
 
-      synchronized (deliveryLock)
+      executor.execute(new Runnable()
       {
-         callClosingListeners();
-      }
+         public void run()
+         {
+            callClosingListeners();
+         }
+      });
    }
 
    @Override
@@ -285,7 +301,38 @@ public class ProtonRemotingConnection implements RemotingConnection
    }
 
    @Override
-   public void bufferReceived(Object connectionID, HornetQBuffer buffer)
+   public void bufferReceived(Object connectionID, final HornetQBuffer buffer)
+   {
+      setDataReceived();
+
+      // the buffer is handed to the executor as it is, so keep it alive until the transport has consumed it
+      final ByteBuf byteBuf = buffer.byteBuf().retain();
+
+      executor.execute(new Runnable()
+      {
+         public void run()
+         {
+            try
+            {
+               handleBuffer(buffer);
+            }
+            finally
+            {
+               byteBuf.release();
+            }
+         }
+      });
+   }
+
+   /**
+    * Runs the given task on the executor driving the transport, after the frames already received.
+    */
+   public void execute(Runnable task)
+   {
+      executor.execute(task);
+   }
+
+   private void handleBuffer(HornetQBuffer buffer)
    {
       if (initialised)
       {
@@ -325,7 +372,7 @@ public class ProtonRemotingConnection implements RemotingConnection
 
          if (buffer.readableBytes() > 0)
          {
-            protonProtocolManager.handleBuffer(this, buffer.copy(buffer.readerIndex(), buffer.readableBytes()));
+            protonProtocolManager.handleBuffer(this, buffer);
          }
 
          if (sasl != null)
@@ -374,25 +421,16 @@ public class ProtonRemotingConnection implements RemotingConnection
 
    void write()
    {
-      synchronized (deliveryLock)
+      int pending;
+      while ((pending = protonTransport.pending()) > 0)
       {
-         int size = 1024 * 64;
-         byte data[] = new byte[size];
-         boolean done = false;
-         while (!done)
-         {
-            int count = protonTransport.output(data, 0, size);
-            if (count > 0)
-            {
-               final HornetQBuffer buffer;
-               buffer = connection.createBuffer(count);
-               buffer.writeBytes(data, 0, count);
-               connection.write(buffer);
-            } else
-            {
-               done = true;
-            }
-         }
+         HornetQBuffer buffer = connection.createBuffer(pending);
+         // the head is a view of the output buffer of the transport, which pop() moves on itself
+         ByteBuffer head = protonTransport.head().duplicate();
+         head.limit(head.position() + pending);
+         buffer.byteBuf().writeBytes(head);
+         protonTransport.pop(pending);
+         connection.write(buffer);
       }
    }
 
@@ -416,25 +454,38 @@ public class ProtonRemotingConnection implements RemotingConnection
       dataReceived = true;
    }
 
-   public void handleFrame(byte[] frame)
+   /*
+   * feeds the readable bytes of the frame to the transport and handles what they changed, must run on the executor
+   * */
+   void handleFrame(ByteBuf frame)
    {
-      int read = 0;
-      while (read < frame.length)
+      while (frame.isReadable())
       {
-         synchronized (deliveryLock)
+         try
          {
-            try
+            int count;
+            if (frame.hasArray())
             {
-               int count = protonTransport.input(frame, read, frame.length - read);
-               read += count;
+               count = protonTransport.input(frame.array(), frame.arrayOffset() + frame.readerIndex(), frame.readableBytes());
             }
-            catch (Exception e)
+            else
             {
-               protonTransport.setCondition(new ErrorCondition(AmqpError.DECODE_ERROR, HornetQAMQPProtocolMessageBundle.BUNDLE.decodeError()));
-               write();
-               protonConnection.close();
-               return;
+               if (inputBuffer == null)
+               {
+                  inputBuffer = new byte[1024 * 64];
+               }
+               int length = Math.min(frame.readableBytes(), inputBuffer.length);
+               frame.getBytes(frame.readerIndex(), inputBuffer, 0, length);
+               count = protonTransport.input(inputBuffer, 0, length);
             }
+            frame.skipBytes(count);
+         }
+         catch (Exception e)
+         {
+            protonTransport.setCondition(new ErrorCondition(AmqpError.DECODE_ERROR, HornetQAMQPProtocolMessageBundle.BUNDLE.decodeError()));
+            write();
+            protonConnection.close();
+            return;
          }
 
          if (sasl != null)
@@ -650,9 +701,4 @@ public class ProtonRemotingConnection implements RemotingConnection
          }
       }
    }
-
-   public Object getDeliveryLock()
-   {
-      return deliveryLock;
-   }
 }
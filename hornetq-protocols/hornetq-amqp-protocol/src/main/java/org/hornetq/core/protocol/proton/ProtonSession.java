@@ -34,6 +34,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author <a href="mailto:andy.taylor@jboss.org">Andy Taylor</a>
@@ -64,7 +65,8 @@ public class ProtonSession implements SessionCallback
 
    private Map<Object, ProtonProducer> producers = new HashMap<Object, ProtonProducer>();
 
-   private Map<Long, ProtonConsumer> consumers = new HashMap<Long, ProtonConsumer>();
+   // looked up by the delivery of the queues, the other maps are only used on the executor of the connection
+   private Map<Long, ProtonConsumer> consumers = new ConcurrentHashMap<Long, ProtonConsumer>();
 
    private boolean closed = false;
 
@@ -163,22 +165,34 @@ public class ProtonSession implements SessionCallback
       //To change body of implemented methods use File | Settings | File Templates.
    }
 
+   @Override
+   public boolean isWritable(long consumerID)
+   {
+      return true;
+   }
+
    @Override
    public void disconnect(long consumerId, String queueName)
    {
-      ProtonConsumer protonConsumer = consumers.remove(consumerId);
+      final ProtonConsumer protonConsumer = consumers.remove(consumerId);
       if(protonConsumer != null)
       {
-         try
+         connection.execute(new Runnable()
          {
-            protonConsumer.close();
-         }
-         catch (HornetQAMQPException e)
-         {
-            protonConsumer.getSender().setTarget(null);
-            protonConsumer.getSender().setCondition(new ErrorCondition(e.getAmqpError(), e.getMessage()));
-         }
-         connection.write();
+            public void run()
+            {
+               try
+               {
+                  protonConsumer.close();
+               }
+               catch (HornetQAMQPException e)
+               {
+                  protonConsumer.getSender().setTarget(null);
+                  protonConsumer.getSender().setCondition(new ErrorCondition(e.getAmqpError(), e.getMessage()));
+               }
+               connection.write();
+            }
+         });
       }
    }
 
@@ -26,27 +26,31 @@ import org.apache.qpid.proton.amqp.messaging.Header;
 import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
 import org.apache.qpid.proton.amqp.messaging.Properties;
 import org.apache.qpid.proton.amqp.messaging.Section;
+import org.apache.qpid.proton.codec.AMQPDefinedTypes;
 import org.apache.qpid.proton.codec.CompositeWritableBuffer;
+import org.apache.qpid.proton.codec.DecoderImpl;
 import org.apache.qpid.proton.codec.DroppingWritableBuffer;
+import org.apache.qpid.proton.codec.EncoderImpl;
 import org.apache.qpid.proton.codec.WritableBuffer;
 import org.apache.qpid.proton.jms.EncodedMessage;
-import org.apache.qpid.proton.message.Message;
 import org.apache.qpid.proton.message.MessageFormat;
 import org.apache.qpid.proton.message.impl.MessageImpl;
+import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.utils.DataConstants;
 import org.hornetq.utils.TypedProperties;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-import static org.hornetq.api.core.Message.TEXT_TYPE;
-
 /**
  * @author <a href="mailto:andy.taylor@jboss.org">Andy Taylor</a>
  *         4/11/13
@@ -73,6 +77,9 @@ public class ProtonUtils
    private static final String GROUP_ID = PREFIX + "GROUP_ID";
    private static final String GROUP_SEQUENCE = PREFIX + "GROUP_SEQUENCE";
    private static final String REPLY_TO_GROUP_ID = PREFIX + "REPLY_TO_GROUP_ID";
+   private static final String NATIVE = PREFIX + "NATIVE";
+   private static final String NATIVE_BODY = PREFIX + "NATIVE_BODY";
+   private static final String NATIVE_FOOTER = PREFIX + "NATIVE_FOOTER";
 
    private static final SimpleString USER_ID_SS = new SimpleString(USER_ID);
    private static final SimpleString SUBJECT_SS = new SimpleString(SUBJECT);
@@ -86,6 +93,49 @@ public class ProtonUtils
    private static final SimpleString GROUP_SEQUENCE_SS = new SimpleString(GROUP_SEQUENCE);
    private static final SimpleString REPLY_TO_GROUP_ID_SS = new SimpleString(REPLY_TO_GROUP_ID);
    private static final SimpleString PROTON_MESSAGE_SIZE_SS = new SimpleString(PROTON_MESSAGE_SIZE);
+   private static final SimpleString FIRST_ACQUIRER_SS = new SimpleString(FIRST_ACQUIRER);
+   private static final SimpleString NATIVE_SS = new SimpleString(NATIVE);
+   private static final SimpleString NATIVE_BODY_SS = new SimpleString(NATIVE_BODY);
+   private static final SimpleString NATIVE_FOOTER_SS = new SimpleString(NATIVE_FOOTER);
+
+   // descriptor codes of the sections which are never decoded by the server: the bodies and the footer
+   private static final long DATA_CODE = 0x75L;
+   private static final long AMQP_VALUE_CODE = 0x77L;
+   private static final long FOOTER_CODE = 0x78L;
+
+   // constructors of the numeric descriptors
+   private static final byte SMALL_ULONG = 0x53;
+   private static final byte ULONG = (byte) 0x80;
+
+   // constructors of the values a body of the other protocols is made of
+   private static final byte VBIN8 = (byte) 0xa0;
+   private static final byte VBIN32 = (byte) 0xb0;
+   private static final byte STR8 = (byte) 0xa1;
+   private static final byte STR32 = (byte) 0xb1;
+
+   private static final Charset UTF8 = Charset.forName("UTF-8");
+
+   private static final SimpleString MESSAGE_TYPE_SS = new SimpleString(MESSAGE_TYPE);
+
+   private static final int BODY_OFFSET = org.hornetq.core.message.impl.MessageImpl.BODY_OFFSET;
+
+   // more than enough for a header with every field set
+   private static final int MAX_HEADER_SIZE = 64;
+
+   // the descriptor, the constructor and the size of a body section
+   private static final int MAX_BODY_PREFIX_SIZE = 8;
+
+   /**
+    * Proton's codec is costly to set up and not thread safe, so each thread keeps its own.
+    */
+   private static final ThreadLocal<Codec> CODEC = new ThreadLocal<Codec>()
+   {
+      @Override
+      protected Codec initialValue()
+      {
+         return new Codec();
+      }
+   };
 
    private static Set<String> SPECIAL_PROPS = new HashSet<String>();
 
@@ -108,66 +158,318 @@ public class ProtonUtils
       SPECIAL_PROPS.add(GROUP_ID);
       SPECIAL_PROPS.add(GROUP_SEQUENCE);
       SPECIAL_PROPS.add(REPLY_TO_GROUP_ID);
+      SPECIAL_PROPS.add(NATIVE);
+      SPECIAL_PROPS.add(NATIVE_BODY);
+      SPECIAL_PROPS.add(NATIVE_FOOTER);
+   }
+
+   private static final class Codec
+   {
+      private final DecoderImpl decoder = new DecoderImpl();
+
+      private final EncoderImpl encoder = new EncoderImpl(decoder);
+
+      Codec()
+      {
+         AMQPDefinedTypes.registerAllTypes(decoder, encoder);
+      }
+   }
+
+   /**
+    * Where the payload of a body the other protocols can read is in the AMQP encoding.
+    */
+   private static final class CoreBody
+   {
+      private boolean text;
+
+      private int offset;
+
+      private int length;
+
+      // the end of the body section
+      private int end;
    }
 
    public static class INBOUND
    {
+      /**
+       * Only the sections in front of the body are decoded, for routing and selectors, and they
+       * are kept as they were received, less the header and the delivery annotations which are
+       * rewritten for each delivery by {@link OUTBOUND#transform(ServerMessage, int)}. A body
+       * which the other protocols can read, a single data section or a string or binary value,
+       * is stored as the body of a text or bytes message and encoded again for AMQP consumers.
+       * Any other body is kept in its AMQP encoding.
+       */
       public static ServerMessageImpl transform(ProtonRemotingConnection connection, EncodedMessage encodedMessage) throws Exception
       {
-         org.apache.qpid.proton.message.Message protonMessage = encodedMessage.decode();
-
-         Header header = protonMessage.getHeader();
-         if (header == null)
-         {
-            header = new Header();
-         }
+         return transform(connection.createServerMessage(), encodedMessage);
+      }
 
-         ServerMessageImpl message = connection.createServerMessage();
+      /**
+       * Fills in the new message given from the AMQP message.
+       */
+      public static ServerMessageImpl transform(ServerMessageImpl message, EncodedMessage encodedMessage) throws Exception
+      {
          TypedProperties properties = message.getProperties();
 
          properties.putLongProperty(new SimpleString(MESSAGE_FORMAT), encodedMessage.getMessageFormat());
-         properties.putLongProperty(new SimpleString(PROTON_MESSAGE_FORMAT), getMessageFormat(protonMessage.getMessageFormat()));
          properties.putIntProperty(new SimpleString(PROTON_MESSAGE_SIZE), encodedMessage.getLength());
 
-         populateSpecialProps(header, protonMessage, message, properties);
+         byte[] array = encodedMessage.getArray();
+         ByteBuffer buffer = ByteBuffer.wrap(array, encodedMessage.getArrayOffset(), encodedMessage.getLength());
+         int end = buffer.limit();
+         // the stored sections start after the header and the delivery annotations
+         int start = buffer.position();
+         int bodyStart;
+         int messageType;
+         CoreBody coreBody;
+
+         Header header = null;
+         Footer footer = null;
+         DecoderImpl decoder = CODEC.get().decoder;
+         decoder.setByteBuffer(buffer);
+         try
+         {
+            while (buffer.hasRemaining() && !isBodyOrFooter(getDescriptorCode(buffer, buffer.position())))
+            {
+               Object section = decoder.readObject();
+               if (section instanceof Header)
+               {
+                  header = (Header) section;
+                  start = buffer.position();
+               }
+               else if (section instanceof DeliveryAnnotations)
+               {
+                  populateDeliveryAnnotations((DeliveryAnnotations) section, properties);
+                  start = buffer.position();
+               }
+               else if (section instanceof MessageAnnotations)
+               {
+                  populateMessageAnnotations((MessageAnnotations) section, properties);
+               }
+               else if (section instanceof Properties)
+               {
+                  populateProperties((Properties) section, properties, message);
+               }
+               else if (section instanceof ApplicationProperties)
+               {
+                  populateApplicationProperties((ApplicationProperties) section, properties);
+               }
+            }
+
+            bodyStart = buffer.position();
+            // for the consumers of other protocols, read from the body without decoding it
+            messageType = getMessageType(buffer);
+            coreBody = getCoreBody(buffer);
+            if (coreBody != null)
+            {
+               buffer.position(coreBody.end);
+            }
+
+            // only the footer is left after a body of the other protocols, any other body is
+            // decoded to find the footer
+            while (buffer.hasRemaining())
+            {
+               Object section = decoder.readObject();
+               if (section instanceof Footer)
+               {
+                  footer = (Footer) section;
+               }
+            }
+         }
+         finally
+         {
+            decoder.setByteBuffer(null);
+         }
+
+         properties.putIntProperty(MESSAGE_TYPE_SS, messageType);
+         populateFooterProperties(footer, properties);
+
+         if (header == null)
+         {
+            header = new Header();
+         }
+
+         populateSpecialProps(header, properties);
          populateHeaderProperties(header, properties, message);
-         populateDeliveryAnnotations(protonMessage.getDeliveryAnnotations(), properties);
-         populateMessageAnnotations(protonMessage.getMessageAnnotations(), properties);
-         populateApplicationProperties(protonMessage.getApplicationProperties(), properties);
-         populateProperties(protonMessage.getProperties(), properties, message);
-         populateFooterProperties(protonMessage.getFooter(), properties);
          message.setTimestamp(System.currentTimeMillis());
 
-         Section section = protonMessage.getBody();
-         if (section instanceof AmqpValue)
+         properties.putBytesProperty(NATIVE_SS, Arrays.copyOfRange(array, start, bodyStart));
+
+         if (coreBody == null)
          {
-            AmqpValue amqpValue = (AmqpValue) section;
-            Object value = amqpValue.getValue();
-            if (value instanceof String)
+            properties.putBooleanProperty(NATIVE_BODY_SS, true);
+            message.getBodyBuffer().writeBytes(array, bodyStart, end - bodyStart);
+         }
+         else
+         {
+            if (coreBody.end < end)
             {
-               message.getBodyBuffer().writeNullableString((String) value);
+               properties.putBytesProperty(NATIVE_FOOTER_SS, Arrays.copyOfRange(array, coreBody.end, end));
             }
-            else if (value instanceof Binary)
+
+            if (coreBody.text)
             {
-               Binary binary = (Binary) value;
-               message.getBodyBuffer().writeBytes(binary.getArray());
+               message.setType(org.hornetq.api.core.Message.TEXT_TYPE);
+               String text = new String(array, coreBody.offset, coreBody.length, UTF8);
+               message.getBodyBuffer().writeNullableSimpleString(new SimpleString(text));
+            }
+            else
+            {
+               message.setType(org.hornetq.api.core.Message.BYTES_TYPE);
+               message.getBodyBuffer().writeBytes(array, coreBody.offset, coreBody.length);
             }
          }
-         else if(section instanceof Data)
+
+         return message;
+      }
+
+      private static boolean isBodyOrFooter(long code)
+      {
+         return code >= DATA_CODE && code <= FOOTER_CODE;
+      }
+
+      /**
+       * Returns the descriptor code of the section at the position given, -1 if its descriptor
+       * is symbolic or there is no section there.
+       */
+      private static long getDescriptorCode(ByteBuffer buffer, int position)
+      {
+         int remaining = buffer.limit() - position;
+         if (remaining < 3 || buffer.get(position) != 0)
          {
-            message.getBodyBuffer().writeBytes(((Data)section).getValue().getArray());
+            return -1;
          }
 
-         return message;
+         byte constructor = buffer.get(position + 1);
+         if (constructor == SMALL_ULONG)
+         {
+            return buffer.get(position + 2) & 0xFF;
+         }
+         else if (constructor == ULONG && remaining >= 10)
+         {
+            return buffer.getLong(position + 2);
+         }
+         // symbolic descriptors are just decoded
+         return -1;
+      }
+
+      /**
+       * Returns the body at the position of the buffer if the other protocols can read it: a
+       * single data section, or a value which is a string or binary. Returns null otherwise.
+       */
+      private static CoreBody getCoreBody(ByteBuffer buffer)
+      {
+         long code = getDescriptorCode(buffer, buffer.position());
+         if (code != DATA_CODE && code != AMQP_VALUE_CODE)
+         {
+            return null;
+         }
+
+         int position = getValuePosition(buffer);
+         if (position + 2 > buffer.limit())
+         {
+            return null;
+         }
+
+         byte constructor = buffer.get(position);
+         boolean text = constructor == STR8 || constructor == STR32;
+         if (!text && constructor != VBIN8 && constructor != VBIN32)
+         {
+            return null;
+         }
+
+         CoreBody body = new CoreBody();
+         body.text = text;
+         if (constructor == VBIN8 || constructor == STR8)
+         {
+            body.length = buffer.get(position + 1) & 0xFF;
+            body.offset = position + 2;
+         }
+         else if (position + 5 <= buffer.limit())
+         {
+            body.length = buffer.getInt(position + 1);
+            body.offset = position + 5;
+         }
+         else
+         {
+            return null;
+         }
+         body.end = body.offset + body.length;
+
+         if (body.length < 0 || body.end > buffer.limit() || getDescriptorCode(buffer, body.end) == DATA_CODE)
+         {
+            return null;
+         }
+         return body;
+      }
+
+      /**
+       * Returns the type of the message from the constructor of the value of its body, as
+       * decoding the body would: text for a string, map for a map and object for any other
+       * value. A body of data or sequence sections is of the default type.
+       */
+      private static int getMessageType(ByteBuffer body)
+      {
+         if (getDescriptorCode(body, body.position()) != AMQP_VALUE_CODE)
+         {
+            return org.hornetq.api.core.Message.DEFAULT_TYPE;
+         }
+
+         int position = getValuePosition(body);
+         if (position >= body.limit())
+         {
+            return org.hornetq.api.core.Message.DEFAULT_TYPE;
+         }
+
+         switch (body.get(position))
+         {
+            // str8-utf8 and str32-utf8
+            case STR8:
+            case STR32:
+               return org.hornetq.api.core.Message.TEXT_TYPE;
+            // map8 and map32
+            case (byte) 0xc1:
+            case (byte) 0xd1:
+               return org.hornetq.api.core.Message.MAP_TYPE;
+            // null
+            case 0x40:
+               return org.hornetq.api.core.Message.DEFAULT_TYPE;
+            default:
+               return org.hornetq.api.core.Message.OBJECT_TYPE;
+         }
+      }
+
+      /**
+       * Returns the position of the value of the section with a numeric descriptor at the
+       * position of the buffer.
+       */
+      private static int getValuePosition(ByteBuffer buffer)
+      {
+         return buffer.position() + (buffer.get(buffer.position() + 1) == SMALL_ULONG ? 3 : 10);
+      }
+
+      private static void populateFooterProperties(Footer footer, TypedProperties properties)
+      {
+         if (footer != null)
+         {
+            Map values = footer.getValue();
+            Set keySet = values.keySet();
+            for (Object key : keySet)
+            {
+               Symbol symbol = (Symbol) key;
+               Object value = values.get(key);
+               properties.putSimpleStringProperty(new SimpleString(FOOTER_VALUES + symbol.toString()), new SimpleString(value.toString()));
+            }
+         }
       }
 
-      private static void populateSpecialProps(Header header, Message protonMessage, ServerMessageImpl message, TypedProperties properties)
+      private static void populateSpecialProps(Header header, TypedProperties properties)
       {
          if (header.getFirstAcquirer() != null)
          {
-            properties.putBooleanProperty(new SimpleString(FIRST_ACQUIRER), header.getFirstAcquirer());
+            properties.putBooleanProperty(FIRST_ACQUIRER_SS, header.getFirstAcquirer());
          }
-         properties.putIntProperty(new SimpleString(MESSAGE_TYPE), getMessageType(protonMessage));
       }
 
       private static void populateHeaderProperties(Header header, TypedProperties properties, ServerMessageImpl message)
@@ -203,21 +505,6 @@ public class ProtonUtils
          }
       }
 
-      private static void populateFooterProperties(Footer footer, TypedProperties properties)
-      {
-         if (footer != null)
-         {
-            Map values = footer.getValue();
-            Set keySet = values.keySet();
-            for (Object key : keySet)
-            {
-               Symbol symbol = (Symbol) key;
-               Object value = values.get(key);
-               properties.putSimpleStringProperty(new SimpleString(FOOTER_VALUES + symbol.toString()), new SimpleString(value.toString()));
-            }
-         }
-      }
-
       private static void populateProperties(Properties amqpProperties, TypedProperties properties, ServerMessageImpl message)
       {
          if(amqpProperties == null)
@@ -336,6 +623,11 @@ public class ProtonUtils
    {
       public static EncodedMessage transform(ServerMessage message, int deliveryCount)
       {
+         if (message.containsProperty(NATIVE_SS))
+         {
+            return transformNative(message, deliveryCount);
+         }
+
          long messageFormat = message.getLongProperty(MESSAGE_FORMAT);
          Integer size = message.getIntProperty(PROTON_MESSAGE_SIZE_SS);
 
@@ -373,6 +665,89 @@ public class ProtonUtils
          return new EncodedMessage(messageFormat, buffer.array(), 0, c);
       }
 
+      /**
+       * Sends the sections stored by {@link INBOUND#transform(ServerMessageImpl, EncodedMessage)}
+       * behind a new header carrying the delivery count, with the body encoded again when it is
+       * stored for the other protocols. Delivery annotations only concern the hop which brought
+       * the message to the server and are not sent on.
+       */
+      private static EncodedMessage transformNative(ServerMessage message, int deliveryCount)
+      {
+         long messageFormat = message.getLongProperty(MESSAGE_FORMAT);
+
+         Header header = new Header();
+         header.setDurable(message.isDurable());
+         header.setPriority(new UnsignedByte(message.getPriority()));
+         header.setDeliveryCount(new UnsignedInteger(deliveryCount));
+         if (message.getExpiration() != 0)
+         {
+            header.setTtl(new UnsignedInteger((int) message.getExpiration()));
+         }
+         if (message.containsProperty(FIRST_ACQUIRER_SS))
+         {
+            header.setFirstAcquirer(message.getBooleanProperty(FIRST_ACQUIRER_SS));
+         }
+
+         byte[] sections = message.getBytesProperty(NATIVE_SS);
+         byte[] footer = message.containsProperty(NATIVE_FOOTER_SS) ? message.getBytesProperty(NATIVE_FOOTER_SS) : null;
+
+         // absolute reads, the message may be delivered to other consumers at the same time
+         HornetQBuffer buffer = message.getWholeBuffer();
+         int bodySize = message.getEndOfBodyPosition() - BODY_OFFSET;
+         boolean nativeBody = message.containsProperty(NATIVE_BODY_SS);
+         byte[] text = null;
+         if (!nativeBody && message.getType() == org.hornetq.api.core.Message.TEXT_TYPE)
+         {
+            text = readText(buffer).getBytes(UTF8);
+            bodySize = text.length;
+         }
+
+         byte[] bytes = new byte[MAX_HEADER_SIZE + sections.length + MAX_BODY_PREFIX_SIZE + bodySize + (footer == null ? 0 : footer.length)];
+         ByteBuffer target = ByteBuffer.wrap(bytes);
+         EncoderImpl encoder = CODEC.get().encoder;
+         encoder.setByteBuffer(target);
+         encoder.writeObject(header);
+         target.put(sections);
+
+         if (!nativeBody)
+         {
+            boolean value = text != null || message.getIntProperty(MESSAGE_TYPE_SS) == org.hornetq.api.core.Message.OBJECT_TYPE;
+            target.put((byte) 0).put(SMALL_ULONG).put((byte) (value ? AMQP_VALUE_CODE : DATA_CODE));
+            target.put(text != null ? STR32 : VBIN32).putInt(bodySize);
+         }
+
+         if (text != null)
+         {
+            target.put(text);
+         }
+         else
+         {
+            buffer.getBytes(BODY_OFFSET, bytes, target.position(), bodySize);
+            target.position(target.position() + bodySize);
+         }
+
+         if (footer != null)
+         {
+            target.put(footer);
+         }
+
+         return new EncodedMessage(messageFormat, bytes, 0, target.position());
+      }
+
+      /**
+       * Reads the text of a text message without moving the indexes of its buffer.
+       */
+      private static String readText(HornetQBuffer buffer)
+      {
+         if (buffer.getByte(BODY_OFFSET) == DataConstants.NULL)
+         {
+            return "";
+         }
+         byte[] data = new byte[buffer.getInt(BODY_OFFSET + 1)];
+         buffer.getBytes(BODY_OFFSET + 1 + DataConstants.SIZE_INT, data);
+         return new SimpleString(data).toString();
+      }
+
       private static Header populateHeader(ServerMessage message, int deliveryCount)
       {
          Header header = new Header();
@@ -561,24 +936,6 @@ public class ProtonUtils
       }
    }
 
-   private static long getMessageFormat(MessageFormat messageFormat)
-   {
-      switch (messageFormat)
-      {
-         case AMQP:
-            return 0;
-         case DATA:
-            return 1;
-         case JSON:
-            return 2;
-         case TEXT:
-            return 3;
-         default:
-            return 0;
-
-      }
-   }
-
    private static MessageFormat getMessageFormat(long messageFormat)
    {
       switch ((int) messageFormat)
@@ -596,38 +953,4 @@ public class ProtonUtils
 
       }
    }
-
-   private static int getMessageType(Message protonMessage)
-   {
-      Section section = protonMessage.getBody();
-      if (section instanceof AmqpValue)
-      {
-         AmqpValue amqpValue = (AmqpValue) section;
-         Object value = amqpValue.getValue();
-         if (value instanceof String)
-         {
-            return TEXT_TYPE;
-         }
-         else if (value instanceof byte[])
-         {
-            return org.hornetq.api.core.Message.BYTES_TYPE;
-         }
-         else if (value instanceof Map)
-         {
-            return org.hornetq.api.core.Message.MAP_TYPE;
-         }
-         else if (value instanceof Object)
-         {
-            return org.hornetq.api.core.Message.OBJECT_TYPE;
-         }
-         else
-         {
-            return org.hornetq.api.core.Message.DEFAULT_TYPE;
-         }
-      }
-      else
-      {
-         return org.hornetq.api.core.Message.DEFAULT_TYPE;
-      }
-   }
 }
@@ -50,6 +50,10 @@ public interface HornetQStompProtocolLogger
    @Message(id = 222068, value = "connection closed {0}", format = Message.Format.MESSAGE_FORMAT)
    void connectionClosed(StompConnection connection);
 
+   @LogMessage(level = Logger.Level.WARN)
+   @Message(id = 222183, value = "Consumer {0} held back more than {1} chunks of a large message, destroying the connection", format = Message.Format.MESSAGE_FORMAT)
+   void tooManyHeldBackChunks(long consumerID, int maxChunks);
+
 
 
    @LogMessage(level = Logger.Level.ERROR)
@@ -31,10 +31,13 @@ public class SimpleBytes
    public String getString() throws UnsupportedEncodingException
    {
       if (index == 0) return "";
-      byte[] realData = new byte[index];
-      System.arraycopy(contents, 0, realData, 0, realData.length);
 
-      return new String(realData, "UTF-8");
+      return new String(contents, 0, index, "UTF-8");
+   }
+
+   public String getHeaderName()
+   {
+      return StompUtils.decodeHeaderName(contents, 0, index);
    }
 
    public void reset()
@@ -12,10 +12,14 @@
  */
 package org.hornetq.core.protocol.stomp;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -35,6 +39,8 @@ import org.hornetq.core.server.impl.ServerMessageImpl;
 import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.spi.core.remoting.Acceptor;
 import org.hornetq.spi.core.remoting.Connection;
+import org.hornetq.spi.core.remoting.ReadyListener;
+import org.hornetq.utils.ConcurrentHashSet;
 import org.hornetq.utils.ConfigurationHelper;
 import org.hornetq.utils.VersionLoader;
 
@@ -88,10 +94,25 @@ public final class StompConnection implements RemotingConnection
 
    private FrameEventListener stompListener;
 
+   // the most chunks of a large message held back while another one is streamed
+   private static final int MAX_HELD_BACK_CHUNKS = 16;
+
    private final Object sendLock = new Object();
 
    private int minLargeMessageSize;
 
+   // the consumer whose large message is being streamed, the frames sent meanwhile are held back
+   private Long streamingConsumer;
+
+   // held back frames and large messages, in the order they were sent
+   private final Deque<Object> heldBack = new ArrayDeque<Object>();
+
+   private final Map<Long, HeldBackStream> heldBackStreams = new HashMap<Long, HeldBackStream>();
+
+   private final Set<ReadyListener> readyListeners = new ConcurrentHashSet<ReadyListener>();
+
+   private volatile boolean writable = true;
+
    public StompFrame decode(HornetQBuffer buffer) throws HornetQStompException
    {
       StompFrame frame = null;
@@ -142,6 +163,14 @@ public final class StompConnection implements RemotingConnection
       this.minLargeMessageSize = ConfigurationHelper.getIntProperty(TransportConstants.STOMP_MIN_LARGE_MESSAGE_SIZE,
                                                                                  HornetQClient.DEFAULT_MIN_LARGE_MESSAGE_SIZE,
                                                                                  acceptorUsed.getConfiguration());
+
+      transportConnection.addReadyListener(new ReadyListener()
+      {
+         public void readyForWriting(final boolean ready)
+         {
+            writable = ready;
+         }
+      });
    }
 
    @Override
@@ -780,10 +809,19 @@ public final class StompConnection implements RemotingConnection
 
    public void physicalSend(StompFrame frame) throws Exception
    {
-      HornetQBuffer buffer = frame.toHornetQBuffer();
+      // encoded straight into a buffer of the transport, allocated with the exact size of the frame
+      HornetQBuffer buffer = getTransportConnection().createBuffer(frame.getEncodedSize());
+      frame.encode(buffer);
       synchronized (sendLock)
       {
-         getTransportConnection().write(buffer, false, false);
+         if (streamingConsumer == null)
+         {
+            getTransportConnection().write(buffer, false, false);
+         }
+         else
+         {
+            heldBack.add(buffer);
+         }
       }
 
       if (stompListener != null)
@@ -793,6 +831,169 @@ public final class StompConnection implements RemotingConnection
 
    }
 
+   /**
+    * Starts streaming a large message frame to a consumer. Until its last chunk is sent, the other
+    * frames are held back and the large messages of other consumers wait for their turn.
+    *
+    * @param head the command and headers of the frame
+    */
+   void startLargeMessage(long consumerID, HornetQBuffer head)
+   {
+      synchronized (sendLock)
+      {
+         if (streamingConsumer == null)
+         {
+            streamingConsumer = consumerID;
+            getTransportConnection().write(head, false, false);
+         }
+         else
+         {
+            HeldBackStream stream = new HeldBackStream(consumerID);
+            stream.chunks.add(head);
+            heldBack.add(stream);
+            heldBackStreams.put(consumerID, stream);
+         }
+      }
+   }
+
+   /**
+    * Sends a chunk of the large message frame streamed to a consumer. The chunks of a consumer
+    * waiting for its turn are held back, but {@link #isWritable(long)} stops its deliverer, so only
+    * the chunks that raced that check get buffered. Should more than {@link #MAX_HELD_BACK_CHUNKS}
+    * pile up anyway, the connection is destroyed rather than buffering without bound.
+    *
+    * @param last whether the chunk ends the frame
+    */
+   void sendLargeMessageChunk(long consumerID, HornetQBuffer chunk, boolean last)
+   {
+      boolean done = false;
+      boolean overflow = false;
+      synchronized (sendLock)
+      {
+         if (streamingConsumer != null && streamingConsumer == consumerID)
+         {
+            getTransportConnection().write(chunk, false, false);
+            if (last)
+            {
+               streamingConsumer = null;
+               releaseHeldBack();
+               done = true;
+            }
+         }
+         else
+         {
+            HeldBackStream stream = heldBackStreams.get(consumerID);
+            if (stream == null)
+            {
+               // the large message was aborted while the chunk was on its way
+               return;
+            }
+            if (stream.chunks.size() >= MAX_HELD_BACK_CHUNKS)
+            {
+               overflow = true;
+            }
+            else
+            {
+               stream.chunks.add(chunk);
+               stream.complete = last;
+            }
+         }
+      }
+
+      if (overflow)
+      {
+         HornetQStompProtocolLogger.LOGGER.tooManyHeldBackChunks(consumerID, MAX_HELD_BACK_CHUNKS);
+         destroy();
+         return;
+      }
+
+      // the consumers held up by the stream may deliver again
+      if (done && writable)
+      {
+         for (ReadyListener listener : readyListeners)
+         {
+            listener.readyForWriting(true);
+         }
+      }
+   }
+
+   /**
+    * Drops the large message of a consumer closed before its last chunk was sent. A frame already
+    * partly written can't be completed, so the connection is destroyed then.
+    */
+   void abortLargeMessage(long consumerID)
+   {
+      boolean partlyWritten;
+      synchronized (sendLock)
+      {
+         HeldBackStream stream = heldBackStreams.remove(consumerID);
+         if (stream != null)
+         {
+            heldBack.remove(stream);
+            partlyWritten = false;
+         }
+         else
+         {
+            partlyWritten = streamingConsumer != null && streamingConsumer == consumerID;
+         }
+      }
+
+      if (partlyWritten)
+      {
+         destroy();
+      }
+   }
+
+   /**
+    * Returns whether the consumer may write now, which it can't while a large message is streamed
+    * to another consumer.
+    */
+   boolean isWritable(long consumerID)
+   {
+      synchronized (sendLock)
+      {
+         return streamingConsumer == null || streamingConsumer == consumerID;
+      }
+   }
+
+   void addReadyListener(ReadyListener listener)
+   {
+      readyListeners.add(listener);
+      getTransportConnection().addReadyListener(listener);
+   }
+
+   void removeReadyListener(ReadyListener listener)
+   {
+      readyListeners.remove(listener);
+      getTransportConnection().removeReadyListener(listener);
+   }
+
+   // writes the frames held back up to the next large message, which then gets streamed
+   private void releaseHeldBack()
+   {
+      while (streamingConsumer == null && !heldBack.isEmpty())
+      {
+         Object next = heldBack.poll();
+         if (next instanceof HeldBackStream)
+         {
+            HeldBackStream stream = (HeldBackStream)next;
+            heldBackStreams.remove(stream.consumerID);
+            for (HornetQBuffer chunk : stream.chunks)
+            {
+               getTransportConnection().write(chunk, false, false);
+            }
+            if (!stream.complete)
+            {
+               streamingConsumer = stream.consumerID;
+            }
+         }
+         else
+         {
+            getTransportConnection().write((HornetQBuffer)next, false, false);
+         }
+      }
+   }
+
    public VersionedStompFrameHandler getFrameHandler()
    {
       return this.frameHandler;
@@ -808,4 +1009,18 @@ public final class StompConnection implements RemotingConnection
       return minLargeMessageSize;
    }
 
+
+   private static final class HeldBackStream
+   {
+      private final long consumerID;
+
+      private final List<HornetQBuffer> chunks = new ArrayList<HornetQBuffer>();
+
+      private boolean complete;
+
+      HeldBackStream(long consumerID)
+      {
+         this.consumerID = consumerID;
+      }
+   }
 }
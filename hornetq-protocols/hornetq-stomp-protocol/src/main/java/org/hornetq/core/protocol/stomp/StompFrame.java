@@ -72,15 +72,38 @@ public class StompFrame
       return command;
    }
 
+   /**
+    * Returns the number of bytes of the encoded frame, computed without encoding it.
+    */
    public int getEncodedSize() throws Exception
    {
-      if (buffer == null)
+      if (size == 0)
       {
-         buffer = toHornetQBuffer();
+         if (isPing())
+         {
+            size = 1;
+         }
+         else
+         {
+            size = getEncodedHeadSize() + END_OF_FRAME.length;
+            if (bytesBody != null)
+            {
+               size += bytesBody.length;
+            }
+         }
       }
       return size;
    }
 
+   /**
+    * Returns the number of bytes of the command and the header lines, including the blank line
+    * ending them.
+    */
+   public int getEncodedHeadSize()
+   {
+      return StompUtils.encodeCommand(command).length + encodeHeaders(null) + 1;
+   }
+
    @Override
    public String toString()
    {
@@ -102,49 +125,199 @@ public class StompFrame
    {
       if (buffer == null)
       {
-         if (bytesBody != null)
+         buffer = HornetQBuffers.fixedBuffer(getEncodedSize());
+         encode(buffer);
+      }
+      else
+      {
+         buffer.readerIndex(0);
+      }
+      return buffer;
+   }
+
+   /**
+    * Writes the frame into the given buffer, which must have {@link #getEncodedSize()} bytes of
+    * room. The command and the usual header names are written from their pre-encoded bytes and
+    * the header values are encoded directly into the buffer.
+    */
+   public void encode(HornetQBuffer out) throws Exception
+   {
+      if (isPing())
+      {
+         out.writeByte((byte)10);
+         return;
+      }
+
+      encodeHead(out);
+      if (bytesBody != null)
+      {
+         out.writeBytes(bytesBody);
+      }
+      encodeEndOfFrame(out);
+   }
+
+   /**
+    * Writes the command and the header lines of the frame, for a body streamed after them. The
+    * buffer must have {@link #getEncodedHeadSize()} bytes of room.
+    */
+   public void encodeHead(HornetQBuffer out)
+   {
+      out.writeBytes(StompUtils.encodeCommand(command));
+      encodeHeaders(out);
+      // Add a newline to separate the headers from the content.
+      out.writeByte((byte)'\n');
+   }
+
+   /**
+    * Writes the bytes ending a frame.
+    */
+   public static void encodeEndOfFrame(HornetQBuffer out)
+   {
+      out.writeBytes(END_OF_FRAME);
+   }
+
+   public static int getEndOfFrameSize()
+   {
+      return END_OF_FRAME.length;
+   }
+
+   /**
+    * Writes the header lines into the buffer, or only counts their bytes if it is {@code null}.
+    *
+    * @return the number of bytes of the header lines
+    */
+   protected int encodeHeaders(HornetQBuffer out)
+   {
+      int length = 0;
+      for (Map.Entry<String, String> header : headers.entrySet())
+      {
+         length += encodeHeader(out, header.getKey(), header.getValue(), false);
+      }
+      return length;
+   }
+
+   /**
+    * Writes one header line into the buffer, or only counts its bytes if it is {@code null}.
+    */
+   protected int encodeHeader(HornetQBuffer out, String key, String value, boolean escaped)
+   {
+      byte[] name = StompUtils.getEncodedHeaderName(key);
+      int length;
+      if (name != null)
+      {
+         // pre-encoded with its separator, the known names have nothing to escape
+         length = name.length;
+         if (out != null)
          {
-            buffer = HornetQBuffers.dynamicBuffer(bytesBody.length + 512);
+            out.writeBytes(name);
          }
-         else
+      }
+      else
+      {
+         length = encodeString(out, key, escaped) + 1;
+         if (out != null)
          {
-            buffer = HornetQBuffers.dynamicBuffer(512);
+            out.writeByte((byte)':');
          }
+      }
+      length += encodeString(out, value, escaped) + 1;
+      if (out != null)
+      {
+         out.writeByte((byte)'\n');
+      }
+      return length;
+   }
 
-         if (isPing())
+   /**
+    * Writes the string in UTF-8 into the buffer, escaping it if asked to, or only counts its bytes
+    * if the buffer is {@code null}.
+    */
+   protected int encodeString(HornetQBuffer out, String str, boolean escaped)
+   {
+      int length = 0;
+      int len = str.length();
+      for (int i = 0; i < len; i++)
+      {
+         char c = str.charAt(i);
+         char escape = escaped ? escapeCharacter(c) : 0;
+         if (escape != 0)
          {
-            buffer.writeByte((byte)10);
-            return buffer;
+            length += 2;
+            if (out != null)
+            {
+               out.writeByte((byte)'\\');
+               out.writeByte((byte)escape);
+            }
          }
-
-         StringBuffer head = new StringBuffer();
-         head.append(command);
-         head.append(Stomp.NEWLINE);
-         // Output the headers.
-         for (Map.Entry<String, String> header : headers.entrySet())
+         else if (c < 0x80)
          {
-            head.append(header.getKey());
-            head.append(Stomp.Headers.SEPARATOR);
-            head.append(header.getValue());
-            head.append(Stomp.NEWLINE);
+            length++;
+            if (out != null)
+            {
+               out.writeByte((byte)c);
+            }
          }
-         // Add a newline to separate the headers from the content.
-         head.append(Stomp.NEWLINE);
-
-         buffer.writeBytes(head.toString().getBytes("UTF-8"));
-         if (bytesBody != null)
+         else if (c < 0x800)
          {
-            buffer.writeBytes(bytesBody);
+            length += 2;
+            if (out != null)
+            {
+               out.writeByte((byte)(0xC0 | c >> 6));
+               out.writeByte((byte)(0x80 | c & 0x3F));
+            }
+         }
+         else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1)))
+         {
+            int codePoint = Character.toCodePoint(c, str.charAt(++i));
+            length += 4;
+            if (out != null)
+            {
+               out.writeByte((byte)(0xF0 | codePoint >> 18));
+               out.writeByte((byte)(0x80 | codePoint >> 12 & 0x3F));
+               out.writeByte((byte)(0x80 | codePoint >> 6 & 0x3F));
+               out.writeByte((byte)(0x80 | codePoint & 0x3F));
+            }
+         }
+         else if (Character.isSurrogate(c))
+         {
+            // a lone surrogate is replaced by '?' as String.getBytes does
+            length++;
+            if (out != null)
+            {
+               out.writeByte((byte)'?');
+            }
+         }
+         else
+         {
+            length += 3;
+            if (out != null)
+            {
+               out.writeByte((byte)(0xE0 | c >> 12));
+               out.writeByte((byte)(0x80 | c >> 6 & 0x3F));
+               out.writeByte((byte)(0x80 | c & 0x3F));
+            }
          }
-         buffer.writeBytes(END_OF_FRAME);
-
-         size = buffer.writerIndex();
       }
-      else
+      return length;
+   }
+
+   /**
+    * Returns the character following the backslash when {@code c} has to be escaped in a header,
+    * 0 if it is written as it is.
+    */
+   protected char escapeCharacter(char c)
+   {
+      switch (c)
       {
-         buffer.readerIndex(0);
+         case '\n':
+            return 'n';
+         case '\\':
+            return '\\';
+         case ':':
+            return ':';
+         default:
+            return 0;
       }
-      return buffer;
    }
 
    public String getHeader(String key)
@@ -188,37 +361,27 @@ public class StompFrame
    {
       int len = str.length();
 
-      char[] buffer = new char[2*len];
-      int iBuffer = 0;
+      StringBuilder buffer = null;
       for (int i = 0; i < len; i++)
       {
          char c = str.charAt(i);
-         if (c == '\n')
-         {
-            buffer[iBuffer++] = '\\';
-            buffer[iBuffer] = 'n';
-         }
-         else if (c == '\\')
+         char escape = escapeCharacter(c);
+         if (escape != 0)
          {
-            buffer[iBuffer++] = '\\';
-            buffer[iBuffer] = '\\';
+            if (buffer == null)
+            {
+               buffer = new StringBuilder(len + 8);
+               buffer.append(str, 0, i);
+            }
+            buffer.append('\\').append(escape);
          }
-         else if (c == ':')
+         else if (buffer != null)
          {
-            buffer[iBuffer++] = '\\';
-            buffer[iBuffer] = ':';
+            buffer.append(c);
          }
-         else
-         {
-            buffer[iBuffer] = c;
-         }
-         iBuffer++;
       }
 
-      char[] total = new char[iBuffer];
-      System.arraycopy(buffer, 0, total, 0, iBuffer);
-
-      return new String(total);
+      return buffer == null ? str : buffer.toString();
    }
 
    public void setBody(String body) throws UnsupportedEncodingException
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.protocol.stomp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.utils.CompressionCodec;
+import org.hornetq.utils.DataConstants;
+
+/**
+ * The body of a large message streamed to a STOMP consumer, converted chunk by chunk as the
+ * consumer reads it from the large message file: decompressed if the message was compressed, and
+ * from the encoding of a {@link org.hornetq.api.core.SimpleString} to UTF-8 for a text body.
+ * <p>
+ * A body sent as is goes out in the chunks read from the file, without copying them.
+ */
+class StompLargeMessage
+{
+   private final long messageID;
+
+   private final int headSize;
+
+   // the bytes sent so far, given back as credits when the message is acknowledged
+   private int size;
+
+   private final ChunkWriter chunks;
+
+   private final TextWriter text;
+
+   private final OutputStream body;
+
+   /**
+    * @param codec the codec the body was compressed with, {@code null} if it was not
+    * @param text  whether the body is the encoding of a text
+    */
+   StompLargeMessage(long messageID, int headSize, CompressionCodec codec, boolean text)
+   {
+      this.messageID = messageID;
+      this.headSize = headSize;
+      this.size = headSize;
+
+      if (codec == null && !text)
+      {
+         this.chunks = null;
+         this.text = null;
+         this.body = null;
+      }
+      else
+      {
+         this.chunks = new ChunkWriter();
+         this.text = text ? new TextWriter(chunks) : null;
+         OutputStream output = text ? this.text : chunks;
+         this.body = codec == null ? output : codec.decompressingWriter(output);
+      }
+   }
+
+   long getMessageID()
+   {
+      return messageID;
+   }
+
+   int getHeadSize()
+   {
+      return headSize;
+   }
+
+   int getSize()
+   {
+      return size;
+   }
+
+   /**
+    * Converts a chunk read from the large message file.
+    *
+    * @param last whether it is the last chunk, the end of the frame being added after it
+    * @return the bytes to send
+    */
+   HornetQBuffer convert(byte[] chunk, boolean last) throws IOException
+   {
+      HornetQBuffer buffer;
+      if (body == null)
+      {
+         if (last)
+         {
+            buffer = HornetQBuffers.fixedBuffer(chunk.length + StompFrame.getEndOfFrameSize());
+            buffer.writeBytes(chunk);
+            StompFrame.encodeEndOfFrame(buffer);
+         }
+         else
+         {
+            buffer = HornetQBuffers.wrappedBuffer(chunk);
+         }
+      }
+      else
+      {
+         body.write(chunk);
+         if (last)
+         {
+            body.close();
+            if (text != null)
+            {
+               // not every decompressing writer closes its output
+               text.close();
+            }
+            StompFrame.encodeEndOfFrame(chunks.buffer);
+         }
+         buffer = chunks.take(chunk.length);
+      }
+
+      size += buffer.readableBytes();
+      return buffer;
+   }
+
+   /**
+    * Collects the converted bytes of a chunk.
+    */
+   private static final class ChunkWriter extends OutputStream
+   {
+      private HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(1024);
+
+      @Override
+      public void write(int b)
+      {
+         buffer.writeByte((byte)b);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len)
+      {
+         buffer.writeBytes(b, off, len);
+      }
+
+      HornetQBuffer take(int nextSize)
+      {
+         HornetQBuffer taken = buffer;
+         buffer = HornetQBuffers.dynamicBuffer(Math.max(nextSize, 1024));
+         return taken;
+      }
+   }
+
+   /**
+    * Converts the encoding of a nullable {@link org.hornetq.api.core.SimpleString}, two bytes
+    * per char after a null flag and the length, to UTF-8. A char or a surrogate pair can be split
+    * across chunks.
+    */
+   private static final class TextWriter extends OutputStream
+   {
+      private static final int HEADER_SIZE = 1 + DataConstants.SIZE_INT;
+
+      private final OutputStream output;
+
+      private int position;
+
+      private boolean isNull;
+
+      private int low = -1;
+
+      private char highSurrogate;
+
+      TextWriter(OutputStream output)
+      {
+         this.output = output;
+      }
+
+      @Override
+      public void write(int b) throws IOException
+      {
+         if (position < HEADER_SIZE)
+         {
+            if (position == 0)
+            {
+               isNull = (byte)b == DataConstants.NULL;
+            }
+            position++;
+            return;
+         }
+
+         if (isNull)
+         {
+            return;
+         }
+
+         if (low == -1)
+         {
+            low = b & 0xFF;
+            return;
+         }
+
+         char c = (char)(low | (b & 0xFF) << 8);
+         low = -1;
+
+         if (highSurrogate != 0)
+         {
+            if (Character.isLowSurrogate(c))
+            {
+               writeCodePoint(Character.toCodePoint(highSurrogate, c));
+               highSurrogate = 0;
+               return;
+            }
+            output.write('?');
+            highSurrogate = 0;
+         }
+
+         if (Character.isHighSurrogate(c))
+         {
+            highSurrogate = c;
+         }
+         else if (Character.isLowSurrogate(c))
+         {
+            output.write('?');
+         }
+         else
+         {
+            writeCodePoint(c);
+         }
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         if (highSurrogate != 0)
+         {
+            output.write('?');
+            highSurrogate = 0;
+         }
+      }
+
+      private void writeCodePoint(int c) throws IOException
+      {
+         if (c < 0x80)
+         {
+            output.write(c);
+         }
+         else if (c < 0x800)
+         {
+            output.write(0xC0 | c >> 6);
+            output.write(0x80 | c & 0x3F);
+         }
+         else if (c < 0x10000)
+         {
+            output.write(0xE0 | c >> 12);
+            output.write(0x80 | c >> 6 & 0x3F);
+            output.write(0x80 | c & 0x3F);
+         }
+         else
+         {
+            output.write(0xF0 | c >> 18);
+            output.write(0x80 | c >> 12 & 0x3F);
+            output.write(0x80 | c >> 6 & 0x3F);
+            output.write(0x80 | c & 0x3F);
+         }
+      }
+   }
+}
@@ -12,22 +12,22 @@
  */
 package org.hornetq.core.protocol.stomp;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.zip.Inflater;
 
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.Message;
 import org.hornetq.api.core.Pair;
 import org.hornetq.api.core.SimpleString;
-import org.hornetq.core.message.BodyEncoder;
 import org.hornetq.core.message.impl.MessageImpl;
 import org.hornetq.core.persistence.OperationContext;
 import org.hornetq.core.persistence.StorageManager;
-import org.hornetq.core.persistence.impl.journal.LargeServerMessageImpl;
 import org.hornetq.core.remoting.impl.netty.TransportConstants;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.LargeServerMessage;
@@ -39,6 +39,8 @@ import org.hornetq.core.server.impl.ServerSessionImpl;
 import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.spi.core.protocol.SessionCallback;
 import org.hornetq.spi.core.remoting.ReadyListener;
+import org.hornetq.utils.CompressionCodec;
+import org.hornetq.utils.CompressionCodecs;
 import org.hornetq.utils.ConfigurationHelper;
 import org.hornetq.utils.UUIDGenerator;
 
@@ -63,6 +65,9 @@ public class StompSession implements SessionCallback
    // key = message ID, value = consumer ID
    private final Map<Long, Pair<Long, Integer>> messagesToAck = new ConcurrentHashMap<Long, Pair<Long, Integer>>();
 
+   // the large messages being streamed, by consumer ID
+   private final Map<Long, StompLargeMessage> largeMessages = new ConcurrentHashMap<Long, StompLargeMessage>();
+
    private volatile boolean noLocal = false;
 
    private final int consumerCredits;
@@ -97,42 +102,27 @@ public class StompSession implements SessionCallback
 
    public int sendMessage(ServerMessage serverMessage, long consumerID, int deliveryCount)
    {
-      LargeServerMessageImpl largeMessage = null;
       ServerMessage newServerMessage = serverMessage;
       try
       {
          StompSubscription subscription = subscriptions.get(consumerID);
          StompFrame frame = null;
-         if (serverMessage.isLargeMessage())
-         {
-            newServerMessage = serverMessage.copy();
-
-            largeMessage = (LargeServerMessageImpl)serverMessage;
-            BodyEncoder encoder = largeMessage.getBodyEncoder();
-            encoder.open();
-            int bodySize = (int)encoder.getLargeBodySize();
-
-            //large message doesn't have a body.
-            ((ServerMessageImpl)newServerMessage).createBody(bodySize);
-            encoder.encode(newServerMessage.getBodyBuffer(), bodySize);
-            encoder.close();
-         }
 
+         // large messages are streamed by sendLargeMessage, a compressed body small enough is sent as a regular message
          if (serverMessage.getBooleanProperty(Message.HDR_LARGE_COMPRESSED))
          {
             //decompress
             HornetQBuffer qbuff = newServerMessage.getBodyBuffer();
             int bytesToRead = qbuff.writerIndex() - MessageImpl.BODY_OFFSET;
-            Inflater inflater = new Inflater();
-            inflater.setInput(qbuff.readBytes(bytesToRead).toByteBuffer().array());
-            
-            
+            SimpleString codecName = serverMessage.getSimpleStringProperty(Message.HDR_LARGE_COMPRESSION_CODEC);
+            CompressionCodec codec = CompressionCodecs.getCodec(codecName == null ? null : codecName.toString());
+            InputStream compressed = new ByteArrayInputStream(qbuff.readBytes(bytesToRead).toByteBuffer().array());
+
             //get the real size of large message
             long sizeBody = newServerMessage.getLongProperty(Message.HDR_LARGE_BODY_SIZE);
 
             byte[] data = new byte[(int)sizeBody];
-            inflater.inflate(data);
-            inflater.end();
+            new DataInputStream(codec.decompressingReader(compressed)).readFully(data);
             qbuff.resetReaderIndex();
             qbuff.resetWriterIndex();
             qbuff.writeBytes(data);
@@ -164,25 +154,92 @@ public class StompSession implements SessionCallback
       {
          return 0;
       }
-      finally
+
+   }
+
+   public int sendLargeMessage(ServerMessage msg, long consumerID, long bodySize, int deliveryCount)
+   {
+      try
       {
-         if (largeMessage != null)
+         StompSubscription subscription = subscriptions.get(consumerID);
+
+         CompressionCodec codec = null;
+         if (msg.getBooleanProperty(Message.HDR_LARGE_COMPRESSED))
          {
-            largeMessage.releaseResources();
-            largeMessage = null;
+            SimpleString codecName = msg.getSimpleStringProperty(Message.HDR_LARGE_COMPRESSION_CODEC);
+            codec = CompressionCodecs.getCodec(codecName == null ? null : codecName.toString());
+            bodySize = msg.getLongProperty(Message.HDR_LARGE_BODY_SIZE);
          }
-      }
 
+         StompFrame frame = connection.getFrameHandler().createLargeMessageFrame(msg, subscription, deliveryCount, bodySize);
+
+         HornetQBuffer head = connection.getTransportConnection().createBuffer(frame.getEncodedHeadSize());
+         frame.encodeHead(head);
+
+         StompLargeMessage largeMessage = new StompLargeMessage(msg.getMessageID(),
+                                                                head.readableBytes(),
+                                                                codec,
+                                                                !StompUtils.hasBytesBody(msg));
+         largeMessages.put(consumerID, largeMessage);
+
+         connection.startLargeMessage(consumerID, head);
+
+         return head.readableBytes();
+      }
+      catch (Exception e)
+      {
+         HornetQServerLogger.LOGGER.errorEncodingStompPacket(e);
+         return 0;
+      }
    }
 
    public int sendLargeMessageContinuation(long consumerID, byte[] body, boolean continues, boolean requiresResponse)
    {
-      return 0;
-   }
+      StompLargeMessage largeMessage = largeMessages.get(consumerID);
+      if (largeMessage == null)
+      {
+         return 0;
+      }
 
-   public int sendLargeMessage(ServerMessage msg, long consumerID, long bodySize, int deliveryCount)
-   {
-      return 0;
+      try
+      {
+         HornetQBuffer chunk = largeMessage.convert(body, !continues);
+
+         // credits are only given back once the whole frame is acknowledged, so the body is only
+         // charged with its last chunk: charging it on the way could stall the frame half sent
+         if (continues)
+         {
+            connection.sendLargeMessageChunk(consumerID, chunk, false);
+            return 0;
+         }
+
+         largeMessages.remove(consumerID);
+
+         StompSubscription subscription = subscriptions.get(consumerID);
+         if (subscription.getAck().equals(Stomp.Headers.Subscribe.AckModeValues.AUTO))
+         {
+            connection.sendLargeMessageChunk(consumerID, chunk, true);
+            if (!connection.isDestroyed())
+            {
+               //we ack and commit only if the send is successful
+               session.acknowledge(consumerID, largeMessage.getMessageID());
+               session.commit();
+            }
+         }
+         else
+         {
+            messagesToAck.put(largeMessage.getMessageID(), new Pair<Long, Integer>(consumerID, largeMessage.getSize()));
+            // Must send AFTER adding to messagesToAck - or could get acked from client BEFORE it's been added!
+            connection.sendLargeMessageChunk(consumerID, chunk, true);
+         }
+
+         return largeMessage.getSize() - largeMessage.getHeadSize();
+      }
+      catch (Exception e)
+      {
+         HornetQServerLogger.LOGGER.errorEncodingStompPacket(e);
+         return 0;
+      }
    }
 
    public void closed()
@@ -191,18 +248,24 @@ public class StompSession implements SessionCallback
 
    public void addReadyListener(final ReadyListener listener)
    {
-      connection.getTransportConnection().addReadyListener(listener);
+      connection.addReadyListener(listener);
    }
 
    public void removeReadyListener(final ReadyListener listener)
    {
-      connection.getTransportConnection().removeReadyListener(listener);
+      connection.removeReadyListener(listener);
+   }
+
+   public boolean isWritable(long consumerID)
+   {
+      return connection.isWritable(consumerID);
    }
 
    @Override
    public void disconnect(long consumerId, String queueName)
    {
       StompSubscription stompSubscription = subscriptions.remove(consumerId);
+      abortLargeMessage(consumerId);
       if (stompSubscription != null)
       {
          StompFrame frame = connection.getFrameHandler().createStompFrame(StompCommands.ERROR.toString());
@@ -294,11 +357,11 @@ public class StompSession implements SessionCallback
             queue = UUIDGenerator.getInstance().generateSimpleStringUUID();
             session.createQueue(SimpleString.toSimpleString(destination), queue, SimpleString.toSimpleString(selector), true, false);
          }
-        ((ServerSessionImpl)session).createConsumer(consumerID, queue, null, false, false, receiveCredits);
+        ((ServerSessionImpl)session).createConsumer(consumerID, queue, null, false, true, receiveCredits);
       } 
       else 
       {
-        ((ServerSessionImpl)session).createConsumer(consumerID, queue, SimpleString.toSimpleString(selector), false, false, receiveCredits);
+        ((ServerSessionImpl)session).createConsumer(consumerID, queue, SimpleString.toSimpleString(selector), false, true, receiveCredits);
       }
 
       StompSubscription subscription = new StompSubscription(subscriptionID, ack);
@@ -319,6 +382,7 @@ public class StompSession implements SessionCallback
          {
             iterator.remove();
             session.closeConsumer(consumerID);
+            abortLargeMessage(consumerID);
             SimpleString queueName;
             if (durableSubscriptionName != null && durableSubscriptionName.trim().length() != 0) {
                 queueName = SimpleString.toSimpleString(id + "." + durableSubscriptionName);
@@ -335,6 +399,14 @@ public class StompSession implements SessionCallback
       return false;
    }
 
+   private void abortLargeMessage(long consumerID)
+   {
+      if (largeMessages.remove(consumerID) != null)
+      {
+         connection.abortLargeMessage(consumerID);
+      }
+   }
+
    boolean containsSubscription(String subscriptionID)
    {
       Iterator<Entry<Long, StompSubscription>> iterator = subscriptions.entrySet().iterator();
@@ -12,6 +12,7 @@
  */
 package org.hornetq.core.protocol.stomp;
 
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -21,6 +22,7 @@ import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.client.impl.ClientMessageImpl;
 import org.hornetq.core.message.impl.MessageInternal;
+import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.impl.ServerMessageImpl;
 
 /**
@@ -35,6 +37,49 @@ public class StompUtils
    // Constants -----------------------------------------------------
    private static final String DEFAULT_MESSAGE_PRIORITY= "4";
 
+   private static final Charset UTF8 = Charset.forName("UTF-8");
+
+   private static final String[] COMMANDS = {Stomp.Commands.CONNECT, Stomp.Commands.SEND, Stomp.Commands.DISCONNECT,
+      Stomp.Commands.SUBSCRIBE, Stomp.Commands.UNSUBSCRIBE, Stomp.Commands.BEGIN, Stomp.Commands.COMMIT,
+      Stomp.Commands.ABORT, Stomp.Commands.ACK, Stomp.Commands.NACK, Stomp.Commands.STOMP,
+      Stomp.Responses.CONNECTED, Stomp.Responses.ERROR, Stomp.Responses.MESSAGE, Stomp.Responses.RECEIPT};
+
+   // the header names exchanged on every frame, so that they are neither encoded nor decoded each time
+   private static final String[] HEADER_NAMES = {Stomp.Headers.Message.DESTINATION,
+      Stomp.Headers.Message.SUBSCRIPTION, Stomp.Headers.Message.MESSAGE_ID, Stomp.Headers.Message.ACK,
+      Stomp.Headers.Message.CORRELATION_ID, Stomp.Headers.Message.EXPIRATION_TIME, Stomp.Headers.Message.REDELIVERED,
+      Stomp.Headers.Message.PRORITY, Stomp.Headers.Message.REPLY_TO, Stomp.Headers.Message.TIMESTAMP,
+      Stomp.Headers.Message.TYPE, Stomp.Headers.CONTENT_LENGTH, Stomp.Headers.CONTENT_TYPE,
+      Stomp.Headers.TRANSACTION, Stomp.Headers.RECEIPT_REQUESTED, Stomp.Headers.Response.RECEIPT_ID,
+      Stomp.Headers.Send.PERSISTENT.toString(), Stomp.Headers.Subscribe.ID, Stomp.Headers.Subscribe.SELECTOR,
+      Stomp.Headers.Subscribe.DURABLE_SUBSCRIBER_NAME, Stomp.Headers.Subscribe.NO_LOCAL,
+      Stomp.Headers.Connect.LOGIN, Stomp.Headers.Connect.PASSCODE, Stomp.Headers.Connect.CLIENT_ID,
+      Stomp.Headers.Connect.REQUEST_ID, Stomp.Headers.Connect.ACCEPT_VERSION, Stomp.Headers.Connect.HOST,
+      Stomp.Headers.Connected.HEART_BEAT, Stomp.Headers.Connected.SESSION, Stomp.Headers.Connected.VERSION,
+      Stomp.Headers.Connected.SERVER, Stomp.Headers.Error.MESSAGE};
+
+   private static final byte[][] HEADER_NAME_BYTES = new byte[HEADER_NAMES.length][];
+
+   // commands encoded with the newline which follows them
+   private static final Map<String, byte[]> ENCODED_COMMANDS = new HashMap<String, byte[]>();
+
+   // header names encoded with the separator which follows them, apart from the commands as a
+   // header may be named like one
+   private static final Map<String, byte[]> ENCODED_HEADER_NAMES = new HashMap<String, byte[]>();
+
+   static
+   {
+      for (String command : COMMANDS)
+      {
+         ENCODED_COMMANDS.put(command, (command + Stomp.NEWLINE).getBytes(UTF8));
+      }
+      for (int i = 0; i < HEADER_NAMES.length; i++)
+      {
+         HEADER_NAME_BYTES[i] = HEADER_NAMES[i].getBytes(UTF8);
+         ENCODED_HEADER_NAMES.put(HEADER_NAMES[i], (HEADER_NAMES[i] + Stomp.Headers.SEPARATOR).getBytes(UTF8));
+      }
+   }
+
    // Attributes ----------------------------------------------------
 
    // Static --------------------------------------------------------
@@ -125,6 +170,64 @@ public class StompUtils
          command.addHeader(name.toString(), message.getObjectProperty(name).toString());
       }
    }
+
+   /**
+    * Returns whether the body of the message is sent as is with a content-length header, rather
+    * than as the UTF-8 encoding of its text.
+    */
+   public static boolean hasBytesBody(ServerMessage message)
+   {
+      return message.containsProperty(Stomp.Headers.CONTENT_LENGTH) || message.getType() == Message.BYTES_TYPE;
+   }
+
+   /**
+    * Returns the command followed by a newline in UTF-8, pre-encoded for the STOMP commands.
+    */
+   public static byte[] encodeCommand(String command)
+   {
+      byte[] encoded = ENCODED_COMMANDS.get(command);
+      if (encoded == null)
+      {
+         encoded = (command + Stomp.NEWLINE).getBytes(UTF8);
+      }
+      return encoded;
+   }
+
+   /**
+    * Returns the header name followed by the separator in UTF-8 if it is one of the usual
+    * headers, {@code null} otherwise.
+    */
+   public static byte[] getEncodedHeaderName(String name)
+   {
+      return ENCODED_HEADER_NAMES.get(name);
+   }
+
+   /**
+    * Decodes a header name, returning the constant instance without allocating anything if it is
+    * one of the usual headers.
+    */
+   public static String decodeHeaderName(byte[] bytes, int offset, int length)
+   {
+      outer:
+      for (int i = 0; i < HEADER_NAME_BYTES.length; i++)
+      {
+         byte[] name = HEADER_NAME_BYTES[i];
+         if (name.length != length)
+         {
+            continue;
+         }
+         for (int j = 0; j < length; j++)
+         {
+            if (name[j] != bytes[offset + j])
+            {
+               continue outer;
+            }
+         }
+         return HEADER_NAMES[i];
+      }
+      return new String(bytes, offset, length, UTF8);
+   }
+
    // Constructors --------------------------------------------------
 
    // Public --------------------------------------------------------
@@ -342,21 +342,23 @@ public abstract class VersionedStompFrameHandler
                subscription.getID());
       }
 
-      HornetQBuffer buffer = serverMessage.getBodyBufferCopy();
-
-      int bodyPos = serverMessage.getEndOfBodyPosition() == -1 ? buffer
-            .writerIndex() : serverMessage.getEndOfBodyPosition();
+      // the body is read from a duplicate of the message buffer, sharing its content without copying it
+      HornetQBuffer buffer;
+      int bodyPos;
+      synchronized (serverMessage)
+      {
+         buffer = serverMessage.getWholeBuffer().duplicate();
+         bodyPos = serverMessage.getEndOfBodyPosition();
+      }
 
       buffer.readerIndex(MessageImpl.BUFFER_HEADER_SPACE
                   + DataConstants.SIZE_INT);
 
-      int size = bodyPos - buffer.readerIndex();
+      byte[] data;
 
-      byte[] data = new byte[size];
-
-      if (serverMessage.containsProperty(Stomp.Headers.CONTENT_LENGTH)
-            || serverMessage.getType() == Message.BYTES_TYPE)
+      if (StompUtils.hasBytesBody(serverMessage))
       {
+         data = new byte[bodyPos - buffer.readerIndex()];
          frame.addHeader(Headers.CONTENT_LENGTH, String.valueOf(data.length));
          buffer.readBytes(data);
       }
@@ -380,6 +382,35 @@ public abstract class VersionedStompFrameHandler
       return frame;
    }
 
+   /**
+    * Creates a MESSAGE frame without a body, the body of the large message being streamed after
+    * the head of the frame.
+    *
+    * @param bodySize the size of the body, once decompressed
+    */
+   public StompFrame createLargeMessageFrame(ServerMessage serverMessage,
+         StompSubscription subscription, int deliveryCount, long bodySize) throws Exception
+   {
+      StompFrame frame = createStompFrame(Stomp.Responses.MESSAGE);
+
+      if (subscription.getID() != null)
+      {
+         frame.addHeader(Stomp.Headers.Message.SUBSCRIPTION,
+               subscription.getID());
+      }
+
+      // a text body is converted to UTF-8 as it is streamed so its size is not known beforehand
+      if (StompUtils.hasBytesBody(serverMessage))
+      {
+         frame.addHeader(Headers.CONTENT_LENGTH, String.valueOf(bodySize));
+      }
+
+      StompUtils.copyStandardHeadersFromMessageToFrame(serverMessage, frame,
+            deliveryCount);
+
+      return frame;
+   }
+
    /**
     * this method is called when a newer version of handler is created. It should
     * take over the state of the decoder of the existingHandler so that
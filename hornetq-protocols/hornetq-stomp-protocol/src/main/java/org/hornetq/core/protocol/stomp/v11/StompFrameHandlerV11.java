@@ -753,14 +753,7 @@ public class StompFrameHandlerV11 extends VersionedStompFrameHandler implements
                   {
                      if (inHeaderName)
                      {
-                        try
-                        {
-                           headerName = holder.getString();
-                        }
-                        catch (UnsupportedEncodingException e)
-                        {
-                           throw BUNDLE.encodingErrorWithCause(e);
-                        }
+                        headerName = holder.getHeaderName();
 
                         holder.reset();
 
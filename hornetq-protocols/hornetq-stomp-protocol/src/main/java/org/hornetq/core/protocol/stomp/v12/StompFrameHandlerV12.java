@@ -178,14 +178,7 @@ public class StompFrameHandlerV12 extends StompFrameHandlerV11 implements FrameE
                   {
                      if (inHeaderName)
                      {
-                        try
-                        {
-                           headerName = holder.getString();
-                        }
-                        catch (UnsupportedEncodingException e)
-                        {
-                           throw new HornetQStompException("Encoding exception", e);
-                        }
+                        headerName = holder.getHeaderName();
 
                         holder.reset();
 
@@ -17,7 +17,6 @@ import java.util.List;
 import java.util.Map;
 
 import org.hornetq.api.core.HornetQBuffer;
-import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.core.protocol.stomp.Stomp;
 import org.hornetq.core.protocol.stomp.StompFrame;
 
@@ -27,8 +26,6 @@ import org.hornetq.core.protocol.stomp.StompFrame;
  */
 public class StompFrameV12 extends StompFrame
 {
-   private static final byte[] END_OF_FRAME = new byte[] { 0, '\n' };
-
    //stomp 1.1 talks about repetitive headers.
    private final List<Header> allHeaders = new ArrayList<Header>();
 
@@ -43,52 +40,19 @@ public class StompFrameV12 extends StompFrame
    }
 
    @Override
-   public HornetQBuffer toHornetQBuffer() throws Exception
+   protected int encodeHeaders(HornetQBuffer out)
    {
-      if (buffer == null)
+      int length = 0;
+      for (Header h : allHeaders)
       {
-         if (bytesBody != null)
-         {
-            buffer = HornetQBuffers.dynamicBuffer(bytesBody.length + 512);
-         }
-         else
-         {
-            buffer = HornetQBuffers.dynamicBuffer(512);
-         }
-
-         StringBuffer head = new StringBuffer();
-         head.append(command);
-         head.append(Stomp.NEWLINE);
-         // Output the headers.
-         for (Header h : allHeaders)
-         {
-            head.append(h.getEscapedKey());
-            head.append(Stomp.Headers.SEPARATOR);
-            head.append(h.getEscapedValue());
-            head.append(Stomp.NEWLINE);
-         }
-
-         if ((bytesBody != null) && (bytesBody.length > 0))
-         {
-            head.append(Stomp.Headers.CONTENT_LENGTH);
-            head.append(Stomp.Headers.SEPARATOR);
-            head.append(bytesBody.length);
-            head.append(Stomp.NEWLINE);
-         }
-         // Add a newline to separate the headers from the content.
-         head.append(Stomp.NEWLINE);
-
-         buffer.writeBytes(head.toString().getBytes("UTF-8"));
-         if (bytesBody != null)
-         {
-            buffer.writeBytes(bytesBody);
-         }
-
-         buffer.writeBytes(END_OF_FRAME);
+         length += encodeHeader(out, h.key, h.val, true);
+      }
 
-         size = buffer.writerIndex();
+      if ((bytesBody != null) && (bytesBody.length > 0))
+      {
+         length += encodeHeader(out, Stomp.Headers.CONTENT_LENGTH, String.valueOf(bytesBody.length), true);
       }
-      return buffer;
+      return length;
    }
 
    @Override
@@ -106,47 +70,12 @@ public class StompFrameV12 extends StompFrame
    }
 
    @Override
-   public String escape(String str)
+   protected char escapeCharacter(char c)
    {
-      int len = str.length();
-
-      char[] buffer = new char[2*len];
-      int iBuffer = 0;
-      for (int i = 0; i < len; i++)
+      if (c == '\r')
       {
-         char c = str.charAt(i);
-         if (c == '\r')
-         {
-            buffer[iBuffer++] = '\\';
-            buffer[iBuffer] = 'r';
-         }
-         else if (c == '\n')
-         {
-            buffer[iBuffer++] = '\\';
-            buffer[iBuffer] = 'n';
-         }
-         else if (c == '\\')
-         {
-            buffer[iBuffer++] = '\\';
-            buffer[iBuffer] = '\\';
-         }
-         else if (c == ':')
-         {
-            buffer[iBuffer++] = '\\';
-            buffer[iBuffer] = ':';
-         }
-         else
-         {
-            buffer[iBuffer] = c;
-         }
-         iBuffer++;
+         return 'r';
       }
-
-      char[] total = new char[iBuffer];
-      System.arraycopy(buffer, 0, total, 0, iBuffer);
-
-      return new String(total);
+      return super.escapeCharacter(c);
    }
-
-
 }
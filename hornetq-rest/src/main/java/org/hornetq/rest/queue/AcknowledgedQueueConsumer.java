@@ -27,6 +27,8 @@ import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -58,9 +60,11 @@ public class AcknowledgedQueueConsumer extends QueueConsumer
 
    @Path("acknowledge-next{index}")
    @POST
-   public synchronized Response poll(@HeaderParam(Constants.WAIT_HEADER) @DefaultValue("0") long wait,
-                                     @PathParam("index") long index,
-                                     @Context UriInfo info)
+   public synchronized void poll(@HeaderParam(Constants.WAIT_HEADER) @DefaultValue("0") long wait,
+                                 @HeaderParam(Constants.BATCH_HEADER) @DefaultValue("1") int batch,
+                                 @PathParam("index") long index,
+                                 @Context UriInfo info,
+                                 @Suspended AsyncResponse response)
    {
       HornetQRestLogger.LOGGER.debug("Handling POST request for \"" + info.getPath() + "\"");
 
@@ -74,9 +78,10 @@ public class AcknowledgedQueueConsumer extends QueueConsumer
 
          // redirect to another acknowledge-next
 
-         return Response.status(307).location(URI.create(uri)).build();
+         response.resume(Response.status(307).location(URI.create(uri)).build());
+         return;
       }
-      return checkIndexAndPoll(wait, info, info.getMatchedURIs().get(1), index);
+      checkIndexAndPoll(wait, batch, info, info.getMatchedURIs().get(1), index, response);
    }
 
 
@@ -123,6 +128,7 @@ public class AcknowledgedQueueConsumer extends QueueConsumer
       // clear indexes as we know the client got the message and won't send a duplicate ack-next
       previousIndex = -2;
       lastConsumed = null;
+      lastBatch = null;
 
       if (ack.wasSet() && doAcknowledge != ack.isAcknowledged())
       {
@@ -176,16 +182,14 @@ public class AcknowledgedQueueConsumer extends QueueConsumer
       return msg;
    }
 
+   /**
+    * The acknowledgement is of the last message handed to the client, acknowledging a batch as a whole.
+    */
    @Override
-   protected ClientMessage receiveFromConsumer(long timeoutSecs) throws Exception
+   protected ConsumedMessage received(ClientMessage message)
    {
-      ClientMessage message = super.receiveFromConsumer(timeoutSecs);
-      if (message != null)
-      {
-         ack = new Acknowledgement((counter++) + startup, message);
-         //System.out.println("---> Setting ack: " + ack.getAckToken());
-      }
-      return message;
+      ack = new Acknowledgement((counter++) + startup, message);
+      return super.received(message);
    }
 
 
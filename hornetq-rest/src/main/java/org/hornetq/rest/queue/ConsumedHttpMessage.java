@@ -13,6 +13,7 @@
 package org.hornetq.rest.queue;
 
 import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.rest.HttpHeaderProperty;
 
 import javax.ws.rs.core.Response;
 
@@ -33,6 +34,19 @@ public class ConsumedHttpMessage extends ConsumedMessage
    public void build(Response.ResponseBuilder builder)
    {
       buildHeaders(builder);
+      builder.entity(getBody());
+   }
+
+   @Override
+   protected String getPartType()
+   {
+      String type = message.getStringProperty(HttpHeaderProperty.CONTENT_TYPE);
+      return type == null ? "application/octet-stream" : type;
+   }
+
+   @Override
+   protected byte[] getBody()
+   {
       if (data == null)
       {
          int size = message.getBodySize();
@@ -46,6 +60,6 @@ public class ConsumedHttpMessage extends ConsumedMessage
             data = new byte[0];
          }
       }
-      builder.entity(data);
+      return data;
    }
 }
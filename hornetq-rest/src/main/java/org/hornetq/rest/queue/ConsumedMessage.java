@@ -18,6 +18,11 @@ import org.hornetq.rest.HornetQRestLogger;
 import org.hornetq.rest.HttpHeaderProperty;
 
 import javax.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
 
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
@@ -26,6 +31,7 @@ import javax.ws.rs.core.Response;
 public abstract class ConsumedMessage
 {
    public static final String POSTED_AS_HTTP_MESSAGE = "postedAsHttpMessage";
+   private static final Charset UTF_8 = Charset.forName("UTF-8");
    protected ClientMessage message;
 
    public ConsumedMessage(ClientMessage message)
@@ -55,6 +61,66 @@ public abstract class ConsumedMessage
       }
    }
 
+   /**
+    * Writes the message as one part of a multipart/mixed batch: its headers, a blank line, then its body.
+    */
+   public void writePart(OutputStream out) throws IOException
+   {
+      for (SimpleString key : message.getPropertyNames())
+      {
+         String k = key.toString();
+         String headerName = HttpHeaderProperty.fromPropertyName(k);
+         if (headerName == null || headerName.equalsIgnoreCase("content-type"))
+         {
+            continue;
+         }
+         writeLine(out, headerName + ": " + message.getStringProperty(k));
+      }
+      writeLine(out, "Content-Type: " + getPartType());
+      writeLine(out, "");
+      out.write(getBody());
+   }
+
+   /**
+    * @return the content type of the body written by {@link #writePart(OutputStream)}
+    */
+   protected abstract String getPartType();
+
+   /**
+    * @return the raw body of the message, read from it the first time
+    */
+   protected abstract byte[] getBody();
+
+   /**
+    * Writes messages as a multipart/mixed entity, one part per message.
+    */
+   public static byte[] writeBatch(List<ConsumedMessage> messages, String boundary)
+   {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try
+      {
+         for (ConsumedMessage msg : messages)
+         {
+            writeLine(out, "--" + boundary);
+            msg.writePart(out);
+            writeLine(out, "");
+         }
+         writeLine(out, "--" + boundary + "--");
+      }
+      catch (IOException e)
+      {
+         throw new RuntimeException(e);
+      }
+      return out.toByteArray();
+   }
+
+   protected static void writeLine(OutputStream out, String line) throws IOException
+   {
+      out.write(line.getBytes(UTF_8));
+      out.write('\r');
+      out.write('\n');
+   }
+
    public static ConsumedMessage createConsumedMessage(ClientMessage message)
    {
       Boolean aBoolean = message.getBooleanProperty(POSTED_AS_HTTP_MESSAGE);
@@ -25,6 +25,7 @@ import java.io.ObjectInputStream;
 public class ConsumedObjectMessage extends ConsumedMessage
 {
    protected Object readObject;
+   private byte[] body;
 
    public ConsumedObjectMessage(ClientMessage message)
    {
@@ -38,12 +39,10 @@ public class ConsumedObjectMessage extends ConsumedMessage
       buildHeaders(builder);
       if (readObject == null)
       {
-         int size = message.getBodyBuffer().readInt();
-         if (size > 0)
+         byte[] bytes = getBody();
+         if (bytes.length > 0)
          {
-            byte[] body = new byte[size];
-            message.getBodyBuffer().readBytes(body);
-            ByteArrayInputStream bais = new ByteArrayInputStream(body);
+            ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
             try
             {
                ObjectInputStream ois = new ObjectInputStream(bais);
@@ -58,4 +57,26 @@ public class ConsumedObjectMessage extends ConsumedMessage
       }
       builder.entity(readObject);
    }
+
+   /**
+    * The object is written to a batch in its Java serialized form, there being no single
+    * representation the client asked for.
+    */
+   @Override
+   protected String getPartType()
+   {
+      return "application/x-java-serialized-object";
+   }
+
+   @Override
+   protected byte[] getBody()
+   {
+      if (body == null)
+      {
+         int size = message.getBodyBuffer().readInt();
+         body = new byte[Math.max(size, 0)];
+         message.getBodyBuffer().readBytes(body);
+      }
+      return body;
+   }
 }
@@ -12,6 +12,8 @@
  */
 package org.hornetq.rest.queue;
 
+import java.util.concurrent.ExecutorService;
+
 import org.hornetq.api.core.TransportConfiguration;
 import org.hornetq.api.core.client.ClientSessionFactory;
 import org.hornetq.api.core.client.HornetQClient;
@@ -35,6 +37,7 @@ public abstract class DestinationServiceManager
    protected String pushStoreFile;
    protected DestinationSettings defaultSettings = DestinationSettings.defaultSettings;
    protected TimeoutTask timeoutTask;
+   protected ExecutorService threadPool;
    protected int producerPoolSize;
    protected long producerTimeToLive;
    protected LinkStrategy linkStrategy;
@@ -114,6 +117,19 @@ public abstract class DestinationServiceManager
       this.timeoutTask = timeoutTask;
    }
 
+   /**
+    * @return the pool completing the long-polls of the pull consumers when a message arrives
+    */
+   public ExecutorService getThreadPool()
+   {
+      return threadPool;
+   }
+
+   public void setThreadPool(ExecutorService threadPool)
+   {
+      this.threadPool = threadPool;
+   }
+
    public DestinationSettings getDefaultSettings()
    {
       return defaultSettings;
@@ -175,6 +191,7 @@ public abstract class DestinationServiceManager
       if (consumerSessionFactory == null) consumerSessionFactory = sessionFactory;
 
       if (timeoutTask == null) throw new RuntimeException("TimeoutTask is not set");
+      if (threadPool == null) throw new RuntimeException("Thread pool is not set");
    }
 
    public abstract void start() throws Exception;
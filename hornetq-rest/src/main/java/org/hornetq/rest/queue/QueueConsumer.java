@@ -13,12 +13,19 @@
 package org.hornetq.rest.queue;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.container.TimeoutHandler;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -30,6 +37,7 @@ import org.hornetq.api.core.client.ClientConsumer;
 import org.hornetq.api.core.client.ClientMessage;
 import org.hornetq.api.core.client.ClientSession;
 import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.MessageHandler;
 import org.hornetq.jms.client.SelectorTranslator;
 import org.hornetq.rest.HornetQRestLogger;
 import org.hornetq.rest.util.Constants;
@@ -37,6 +45,9 @@ import org.hornetq.rest.util.LinkStrategy;
 
 /**
  * Auto-acknowleged consumer
+ * <p>
+ * A poll waiting for a message does not hold a thread: its response is suspended and a
+ * {@link MessageHandler} on the consumer completes it when a message arrives.
  *
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  */
@@ -58,6 +69,23 @@ public class QueueConsumer
     */
    protected long previousIndex = -1;
    protected ConsumedMessage lastConsumed;
+   /**
+    * the messages of the last batch, lastConsumed being the last of them, null if it was not a batch
+    */
+   protected List<ConsumedMessage> lastBatch;
+
+   /**
+    * the poll waiting for a message, if any
+    */
+   private LongPoll waiting;
+   /**
+    * whether a handler is listening for the next message on the consumer
+    */
+   private boolean handlerSet;
+   /**
+    * a message delivered to the handler after its poll timed out, returned by the next poll
+    */
+   private ClientMessage pending;
 
    public long getConsumeIndex()
    {
@@ -111,7 +139,15 @@ public class QueueConsumer
       if (closed) return;
       closed = true;
       lastConsumed = null;
+      lastBatch = null;
       previousIndex = -2;
+      pending = null;
+      if (waiting != null)
+      {
+         LongPoll poll = waiting;
+         waiting = null;
+         poll.timedOut();
+      }
       try
       {
          consumer.close();
@@ -136,9 +172,11 @@ public class QueueConsumer
 
    @Path("consume-next{index}")
    @POST
-   public synchronized Response poll(@HeaderParam(Constants.WAIT_HEADER) @DefaultValue("0") long wait,
-                                     @PathParam("index") long index,
-                                     @Context UriInfo info)
+   public synchronized void poll(@HeaderParam(Constants.WAIT_HEADER) @DefaultValue("0") long wait,
+                                 @HeaderParam(Constants.BATCH_HEADER) @DefaultValue("1") int batch,
+                                 @PathParam("index") long index,
+                                 @Context UriInfo info,
+                                 @Suspended AsyncResponse response)
    {
       HornetQRestLogger.LOGGER.debug("Handling POST request for \"" + info.getRequestUri() + "\"");
 
@@ -151,63 +189,203 @@ public class QueueConsumer
 
          // redirect to another consume-next
 
-         return Response.status(307).location(URI.create(uri)).build();
+         response.resume(Response.status(307).location(URI.create(uri)).build());
+         return;
       }
-      return checkIndexAndPoll(wait, info, info.getMatchedURIs().get(1), index);
+      checkIndexAndPoll(wait, batch, info, info.getMatchedURIs().get(1), index, response);
    }
 
-   protected Response checkIndexAndPoll(long wait, UriInfo info, String basePath, long index)
+   protected void checkIndexAndPoll(long wait, int batch, UriInfo info, String basePath, long index, AsyncResponse response)
    {
       ping(wait);
 
       if (lastConsumed == null && index > 0)
       {
-         return Response.status(412).entity("You are using an old consume-next link and are out of sync with the JMS session on the server").type("text/plain").build();
+         ping(0);
+         response.resume(Response.status(412).entity("You are using an old consume-next link and are out of sync with the JMS session on the server").type("text/plain").build());
+         return;
       }
       if (lastConsumed != null)
       {
          if (index == previousIndex)
          {
+            ping(0);
             String token = Long.toString(lastConsumed.getMessageID());
-            return getMessageResponse(lastConsumed, info, basePath, token).build();
+            response.resume(getLastConsumedResponse(info, basePath, token).build());
+            return;
          }
          if (index != lastConsumed.getMessageID())
          {
-            return Response.status(412).entity("You are using an old consume-next link and are out of sync with the JMS session on the server").type("text/plain").build();
+            ping(0);
+            response.resume(Response.status(412).entity("You are using an old consume-next link and are out of sync with the JMS session on the server").type("text/plain").build());
+            return;
          }
       }
 
+      pollWithIndex(wait, batch, info, basePath, index, response);
+   }
+
+   /**
+    * Answers with the next message if there is one at hand, otherwise suspends the poll until one
+    * arrives or the wait is over.  The client is pinged again once the poll is answered as we don't
+    * want the wait time included in the timeout.
+    */
+   protected void pollWithIndex(long wait, int batch, UriInfo info, String basePath, long index, AsyncResponse response)
+   {
       try
       {
-         return pollWithIndex(wait, info, basePath, index);
+         ClientMessage message = receiveImmediate();
+         if (message == null && wait > 0)
+         {
+            if (waiting != null)
+            {
+               // only one poll waits at a time, the client gave up on the older one
+               LongPoll older = waiting;
+               waiting = null;
+               older.timedOut();
+            }
+            LongPoll poll = new LongPoll(batch, info, basePath, index, response);
+            response.setTimeoutHandler(poll);
+            listen();
+            waiting = poll;
+            response.setTimeout(wait, TimeUnit.SECONDS);
+            return;
+         }
+         ping(0);
+         response.resume(consume(message, batch, info, basePath, index));
       }
-      finally
+      catch (Exception e)
       {
-         ping(0); // ping again as we don't want wait time included in timeout.
+         ping(0);
+         response.resume(new RuntimeException(e));
       }
    }
 
-   protected Response pollWithIndex(long wait, UriInfo info, String basePath, long index)
+   /**
+    * Builds the response to a poll from the first message received, adding the messages already
+    * buffered by the consumer to it up to the size of the batch.
+    *
+    * @param message null if the poll timed out
+    */
+   protected Response consume(ClientMessage message, int batch, UriInfo info, String basePath, long index) throws Exception
    {
-      try
+      if (message == null)
+      {
+         return getPollTimeoutResponse(info, basePath, index);
+      }
+
+      previousIndex = index;
+      if (batch <= 1)
+      {
+         lastBatch = null;
+         lastConsumed = received(message);
+      }
+      else
       {
-         ClientMessage message = receive(wait);
-         if (message == null)
+         lastBatch = new ArrayList<ConsumedMessage>(batch);
+         lastBatch.add(received(message));
+         ClientMessage next;
+         while (lastBatch.size() < batch && (next = receive(0)) != null)
          {
-            Response.ResponseBuilder builder = Response.status(503).entity("Timed out waiting for message receive.").type("text/plain");
-            setPollTimeoutLinks(info, basePath, builder, Long.toString(index));
-            return builder.build();
+            message = next;
+            lastBatch.add(received(message));
          }
-         previousIndex = index;
-         lastConsumed = ConsumedMessage.createConsumedMessage(message);
-         String token = Long.toString(lastConsumed.getMessageID());
-         Response response = getMessageResponse(lastConsumed, info, basePath, token).build();
-         if (autoAck) message.acknowledge();
-         return response;
+         lastConsumed = lastBatch.get(lastBatch.size() - 1);
+      }
+      String token = Long.toString(lastConsumed.getMessageID());
+      Response response = getLastConsumedResponse(info, basePath, token).build();
+      // acknowledging the last message of a batch acknowledges all of them
+      if (autoAck) message.acknowledge();
+      return response;
+   }
+
+   /**
+    * Called for each message handed to the client, in order.
+    */
+   protected ConsumedMessage received(ClientMessage message)
+   {
+      return ConsumedMessage.createConsumedMessage(message);
+   }
+
+   /**
+    * @return the message delivered to the handler after its poll timed out, or one buffered by
+    *         the consumer, null if there is none or the handler is still listening for it
+    */
+   private ClientMessage receiveImmediate() throws Exception
+   {
+      if (pending != null)
+      {
+         ClientMessage message = pending;
+         pending = null;
+         return message;
+      }
+      if (handlerSet)
+      {
+         return null;
+      }
+      return receive(0);
+   }
+
+   /**
+    * Sets a handler taking the next message of the consumer, unless one is already listening.
+    * The handler removes itself from the consumer on its first message so that the following
+    * messages stay in the consumer's buffer until they are polled.
+    */
+   private void listen() throws HornetQException
+   {
+      if (handlerSet)
+      {
+         return;
+      }
+      final ClientConsumer target = consumer;
+      target.setMessageHandler(new MessageHandler()
+      {
+         public void onMessage(final ClientMessage message)
+         {
+            try
+            {
+               target.setMessageHandler(null);
+            }
+            catch (HornetQException e)
+            {
+               HornetQRestLogger.LOGGER.debug("Could not remove the message handler of " + target, e);
+            }
+            // answered from another thread as shutting down waits for onMessage holding our lock
+            serviceManager.getThreadPool().execute(new Runnable()
+            {
+               public void run()
+               {
+                  delivered(target, message);
+               }
+            });
+         }
+      });
+      handlerSet = true;
+   }
+
+   private synchronized void delivered(ClientConsumer from, ClientMessage message)
+   {
+      if (from != consumer)
+      {
+         // closed or replaced, the message is redelivered with the session it came from
+         return;
+      }
+      handlerSet = false;
+      LongPoll poll = waiting;
+      waiting = null;
+      if (poll == null || !poll.response.isSuspended())
+      {
+         pending = message;
+         return;
+      }
+      ping(0);
+      try
+      {
+         poll.response.resume(consume(message, poll.batch, poll.info, poll.basePath, poll.index));
       }
       catch (Exception e)
       {
-         throw new RuntimeException(e);
+         poll.response.resume(new RuntimeException(e));
       }
    }
 
@@ -225,6 +403,13 @@ public class QueueConsumer
       }
       HornetQRestLogger.LOGGER.debug("Created consumer: " + consumer);
       session.start();
+      // a message delivered to the old consumer is redelivered to this one
+      pending = null;
+      handlerSet = false;
+      if (waiting != null)
+      {
+         listen();
+      }
    }
 
    protected ClientMessage receiveFromConsumer(long timeoutSecs) throws Exception
@@ -249,6 +434,13 @@ public class QueueConsumer
       return receiveFromConsumer(timeoutSecs);
    }
 
+   protected Response getPollTimeoutResponse(UriInfo info, String basePath, long index)
+   {
+      Response.ResponseBuilder builder = Response.status(503).entity("Timed out waiting for message receive.").type("text/plain");
+      setPollTimeoutLinks(info, basePath, builder, Long.toString(index));
+      return builder.build();
+   }
+
    protected void setPollTimeoutLinks(UriInfo info, String basePath, Response.ResponseBuilder builder, String index)
    {
       setSessionLink(builder, info, basePath);
@@ -263,6 +455,27 @@ public class QueueConsumer
       return responseBuilder;
    }
 
+   protected Response.ResponseBuilder getLastConsumedResponse(UriInfo info, String basePath, String index)
+   {
+      if (lastBatch == null)
+      {
+         return getMessageResponse(lastConsumed, info, basePath, index);
+      }
+      return getBatchResponse(lastBatch, info, basePath, index);
+   }
+
+   /**
+    * Answers with a multipart/mixed entity holding one part per message.
+    */
+   protected Response.ResponseBuilder getBatchResponse(List<ConsumedMessage> batch, UriInfo info, String basePath, String index)
+   {
+      String boundary = "hornetq-" + UUID.randomUUID();
+      byte[] body = ConsumedMessage.writeBatch(batch, boundary);
+      Response.ResponseBuilder responseBuilder = Response.ok(body, "multipart/mixed; boundary=" + boundary);
+      setMessageResponseLinks(info, basePath, responseBuilder, index);
+      return responseBuilder;
+   }
+
    protected void setMessageResponseLinks(UriInfo info, String basePath, Response.ResponseBuilder responseBuilder, String index)
    {
       setConsumeNextLink(serviceManager.getLinkStrategy(), responseBuilder, info, basePath, index);
@@ -286,4 +499,45 @@ public class QueueConsumer
       String uri = builder.build().toString();
       serviceManager.getLinkStrategy().setLinkHeader(response, "consumer", "consumer", uri, MediaType.APPLICATION_XML);
    }
+
+   /**
+    * A poll suspended until a message arrives, answered with a timeout when its wait is over.
+    */
+   private final class LongPoll implements TimeoutHandler
+   {
+      private final int batch;
+      private final UriInfo info;
+      private final String basePath;
+      private final long index;
+      private final AsyncResponse response;
+
+      LongPoll(int batch, UriInfo info, String basePath, long index, AsyncResponse response)
+      {
+         this.batch = batch;
+         this.info = info;
+         this.basePath = basePath;
+         this.index = index;
+         this.response = response;
+      }
+
+      public void handleTimeout(AsyncResponse asyncResponse)
+      {
+         synchronized (QueueConsumer.this)
+         {
+            if (waiting != this)
+            {
+               return;
+            }
+            // the handler keeps listening, the next poll gets the message it takes
+            waiting = null;
+            timedOut();
+         }
+      }
+
+      void timedOut()
+      {
+         ping(0);
+         response.resume(getPollTimeoutResponse(info, basePath, index));
+      }
+   }
 }
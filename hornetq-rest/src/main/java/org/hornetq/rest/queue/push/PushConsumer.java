@@ -20,6 +20,8 @@ import org.hornetq.rest.queue.push.xml.PushRegistration;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
@@ -31,6 +33,11 @@ public class PushConsumer
    protected ClientSessionFactory factory;
    protected List<ClientSession> sessions;
    protected List<ClientConsumer> consumers;
+   protected List<PushConsumerMessageHandler> handlers;
+   /**
+    * pushes the messages of the sessions, each one having at most one push in flight
+    */
+   protected ExecutorService executor;
    protected String destination;
    protected String id;
    protected PushStrategy strategy;
@@ -87,6 +94,8 @@ public class PushConsumer
 
       sessions = new ArrayList<ClientSession>();
       consumers = new ArrayList<ClientConsumer>();
+      handlers = new ArrayList<PushConsumerMessageHandler>();
+      executor = Executors.newFixedThreadPool(Math.max(1, registration.getSessionCount()));
 
       for (int i = 0; i < registration.getSessionCount(); i++)
       {
@@ -102,17 +111,27 @@ public class PushConsumer
          {
             consumer = session.createConsumer(destination);
          }
-         consumer.setMessageHandler(new PushConsumerMessageHandler(this, session));
+         PushConsumerMessageHandler handler = new PushConsumerMessageHandler(this, session, executor);
+         consumer.setMessageHandler(handler);
          session.start();
          HornetQRestLogger.LOGGER.startingPushConsumer(registration.getTarget());
 
          consumers.add(consumer);
          sessions.add(session);
+         handlers.add(handler);
       }
    }
 
    public void stop()
    {
+      if (handlers != null)
+      {
+         for (PushConsumerMessageHandler handler : handlers)
+         {
+            handler.close();
+         }
+      }
+
       for (ClientSession session : sessions)
       {
          try
@@ -128,6 +147,11 @@ public class PushConsumer
          }
       }
 
+      if (executor != null)
+      {
+         executor.shutdown();
+      }
+
       try
       {
          if (strategy != null)
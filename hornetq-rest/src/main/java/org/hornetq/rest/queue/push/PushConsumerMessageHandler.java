@@ -12,21 +12,52 @@
  */
 package org.hornetq.rest.queue.push;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.client.ClientMessage;
 import org.hornetq.api.core.client.ClientSession;
 import org.hornetq.api.core.client.MessageHandler;
 import org.hornetq.rest.HornetQRestLogger;
 
+/**
+ * Collects the messages of a push consumer session and pushes them from the push executor, so
+ * that the session keeps receiving while a push is in flight.  The messages received meanwhile
+ * make up the next push, up to the batch size of the registration.
+ * <p>
+ * The session is transacted: the messages of a push are acknowledged and committed once it
+ * succeeded, and rolled back only when it failed.
+ */
 public class PushConsumerMessageHandler implements MessageHandler
 {
-   private ClientSession session;
-   private PushConsumer pushConsumer;
+   private final ClientSession session;
+   private final PushConsumer pushConsumer;
+   private final Executor executor;
+   private final int batchSize;
+
+   // the messages received and not pushed yet, guarded by this
+   private final List<ClientMessage> batch = new ArrayList<ClientMessage>();
+   private boolean pushing;
+   // set while a failed push is rolled back, the messages received then are redelivered by the rollback
+   private boolean discarding;
+   private boolean closed;
+
+   private final Runnable pusher = new Runnable()
+   {
+      public void run()
+      {
+         pushBatches();
+      }
+   };
 
-   PushConsumerMessageHandler(PushConsumer pushConsumer, ClientSession session)
+   PushConsumerMessageHandler(PushConsumer pushConsumer, ClientSession session, Executor executor)
    {
       this.pushConsumer = pushConsumer;
       this.session = session;
+      this.executor = executor;
+      this.batchSize = Math.max(1, pushConsumer.getRegistration().getBatchSize());
    }
 
    @Override
@@ -34,48 +65,201 @@ public class PushConsumerMessageHandler implements MessageHandler
    {
       HornetQRestLogger.LOGGER.debug(this + ": receiving " + clientMessage);
 
-      try
+      synchronized (this)
       {
-         clientMessage.acknowledge();
-         HornetQRestLogger.LOGGER.debug(this + ": acknowledged " + clientMessage);
+         // the session waits while a full batch is queued behind the push in flight
+         boolean interrupted = false;
+         while (pushing && batch.size() >= batchSize && !discarding && !closed)
+         {
+            try
+            {
+               wait();
+            }
+            catch (InterruptedException e)
+            {
+               interrupted = true;
+            }
+         }
+         if (interrupted)
+         {
+            Thread.currentThread().interrupt();
+         }
+         if (discarding || closed)
+         {
+            HornetQRestLogger.LOGGER.debug(this + ": discarding " + clientMessage);
+            return;
+         }
+         batch.add(clientMessage);
+         if (pushing)
+         {
+            return;
+         }
+         pushing = true;
       }
-      catch (HornetQException e)
+      executor.execute(pusher);
+   }
+
+   /**
+    * Stops pushing, releasing the session if it waits for a push to complete.
+    */
+   synchronized void close()
+   {
+      closed = true;
+      batch.clear();
+      notifyAll();
+   }
+
+   private void pushBatches()
+   {
+      while (true)
       {
-         throw new RuntimeException(e.getMessage(), e);
+         List<ClientMessage> messages;
+         synchronized (this)
+         {
+            if (batch.isEmpty() || closed)
+            {
+               pushing = false;
+               return;
+            }
+            List<ClientMessage> next = batch.subList(0, Math.min(batch.size(), batchSize));
+            messages = new ArrayList<ClientMessage>(next);
+            next.clear();
+            notifyAll();
+         }
+         if (!push(messages))
+         {
+            return;
+         }
       }
+   }
 
-      HornetQRestLogger.LOGGER.debug(this + ": pushing " + clientMessage + " via " + pushConsumer.getStrategy());
-      boolean acknowledge = pushConsumer.getStrategy().push(clientMessage);
+   /**
+    * @return {@code false} if the push failed, the messages being rolled back
+    */
+   private boolean push(List<ClientMessage> messages)
+   {
+      PushStrategy strategy = pushConsumer.getStrategy();
+      HornetQRestLogger.LOGGER.debug(this + ": pushing " + messages.size() + " message(s) via " + strategy);
 
-      if (acknowledge)
+      ClientMessage last = messages.get(messages.size() - 1);
+      ClientMessage pushed = null;
+      try
       {
-         try
+         if (messages.size() > 1 && strategy instanceof UriStrategy && ((UriStrategy) strategy).isBatchable())
          {
-            HornetQRestLogger.LOGGER.debug("Acknowledging: " + clientMessage.getMessageID());
-            session.commit();
-            return;
+            if (((UriStrategy) strategy).push(messages))
+            {
+               pushed = last;
+            }
          }
-         catch (HornetQException e)
+         else
          {
-            throw new RuntimeException(e);
+            for (ClientMessage message : messages)
+            {
+               if (!strategy.push(message))
+               {
+                  break;
+               }
+               pushed = message;
+            }
          }
       }
-      else
+      catch (RuntimeException e)
+      {
+         // the receiver did not accept the message, HornetQ's retry and dead letter logic takes over
+         HornetQRestLogger.LOGGER.pushRefused(e, pushConsumer.getRegistration().getTarget());
+         return rollback(pushed, false);
+      }
+
+      if (pushed != last)
+      {
+         return rollback(pushed, pushConsumer.getRegistration().isDisableOnFailure());
+      }
+      return commit(pushed);
+   }
+
+   /**
+    * Acknowledges the messages received up to the one given, acknowledgements being cumulative.
+    */
+   private boolean commit(ClientMessage pushed)
+   {
+      try
+      {
+         HornetQRestLogger.LOGGER.debug("Acknowledging: " + pushed.getMessageID());
+         pushed.acknowledge();
+         session.commit();
+         return true;
+      }
+      catch (HornetQException e)
       {
-         try
+         synchronized (this)
          {
-            session.rollback();
+            if (closed)
+            {
+               return false;
+            }
          }
-         catch (HornetQException e)
+         HornetQRestLogger.LOGGER.errorAcknowledgingPush(e, pushConsumer.getRegistration().getTarget());
+         return rollback(null, false);
+      }
+   }
+
+   /**
+    * Rolls back the messages received after the last one pushed, dropping those waiting for the
+    * next push as the rollback redelivers them too.
+    *
+    * @param pushed the last message pushed before the failure, null if none was
+    */
+   private boolean rollback(ClientMessage pushed, boolean disable)
+   {
+      if (pushed != null && !commit(pushed))
+      {
+         return false;
+      }
+
+      synchronized (this)
+      {
+         if (closed)
          {
-            throw new RuntimeException(e.getMessage(), e);
+            return false;
          }
-         if (pushConsumer.getRegistration().isDisableOnFailure())
+         discarding = true;
+         batch.clear();
+         notifyAll();
+      }
+      try
+      {
+         session.stop();
+         session.rollback();
+      }
+      catch (HornetQException e)
+      {
+         throw new RuntimeException(e.getMessage(), e);
+      }
+      finally
+      {
+         synchronized (this)
          {
-            HornetQRestLogger.LOGGER.errorPushingMessage(pushConsumer.getRegistration().getTarget());
-            pushConsumer.disableFromFailure();
-            return;
+            discarding = false;
+            pushing = false;
          }
       }
+
+      if (disable)
+      {
+         HornetQRestLogger.LOGGER.errorPushingMessage(pushConsumer.getRegistration().getTarget());
+         pushConsumer.disableFromFailure();
+         return false;
+      }
+
+      try
+      {
+         session.start();
+      }
+      catch (HornetQException e)
+      {
+         throw new RuntimeException(e.getMessage(), e);
+      }
+      return false;
    }
 }
@@ -34,6 +34,7 @@ import org.apache.http.protocol.ExecutionContext;
 import org.apache.http.protocol.HttpContext;
 import org.hornetq.api.core.client.ClientMessage;
 import org.hornetq.rest.HornetQRestLogger;
+import org.hornetq.rest.queue.ConsumedMessage;
 import org.hornetq.rest.queue.push.xml.BasicAuth;
 import org.hornetq.rest.queue.push.xml.PushRegistration;
 import org.hornetq.rest.queue.push.xml.XmlHttpHeader;
@@ -44,6 +45,9 @@ import org.jboss.resteasy.client.core.executors.ApacheHttpClient4Executor;
 import org.jboss.resteasy.specimpl.ResteasyUriBuilder;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
@@ -112,7 +116,40 @@ public class UriStrategy implements PushStrategy
    public boolean push(ClientMessage message)
    {
       HornetQRestLogger.LOGGER.debug("Pushing " + message);
-      String uri = createUri(message);
+      return push(createUri(message), message, null, null);
+   }
+
+   /**
+    * Whether {@link #push(List)} may send several messages to the same URI in one request.
+    */
+   public boolean isBatchable()
+   {
+      return true;
+   }
+
+   /**
+    * Pushes several messages in a single multipart/mixed request, one part per message.
+    *
+    * @return {@code false} if unable to connect
+    */
+   public boolean push(List<ClientMessage> messages)
+   {
+      HornetQRestLogger.LOGGER.debug("Pushing a batch of " + messages.size() + " messages");
+      List<ConsumedMessage> parts = new ArrayList<ConsumedMessage>(messages.size());
+      for (ClientMessage message : messages)
+      {
+         parts.add(ConsumedMessage.createConsumedMessage(message));
+      }
+      String boundary = "hornetq-" + UUID.randomUUID();
+      byte[] body = ConsumedMessage.writeBatch(parts, boundary);
+      return push(createUri(messages.get(messages.size() - 1)), null, "multipart/mixed; boundary=" + boundary, body);
+   }
+
+   /**
+    * @param message the message to push, null to push the batch
+    */
+   private boolean push(String uri, ClientMessage message, String batchType, byte[] batch)
+   {
       for (int i = 0; i < registration.getMaxRetries(); i++)
       {
          long wait = registration.getRetryWaitMillis();
@@ -126,7 +163,14 @@ public class UriStrategy implements PushStrategy
             HornetQRestLogger.LOGGER.debug("Setting XmlHttpHeader: " + header.getName() + "=" + header.getValue());
             request.header(header.getName(), header.getValue());
          }
-         HttpMessageHelper.buildMessage(message, request, contentType);
+         if (message != null)
+         {
+            HttpMessageHelper.buildMessage(message, request, contentType);
+         }
+         else
+         {
+            request.body(batchType, batch);
+         }
          ClientResponse<?> res = null;
          try
          {
@@ -20,6 +20,15 @@ import org.hornetq.api.core.client.ClientMessage;
  */
 public class UriTemplateStrategy extends UriStrategy
 {
+   /**
+    * Each message gets its own URI.
+    */
+   @Override
+   public boolean isBatchable()
+   {
+      return false;
+   }
+
    protected String createUri(ClientMessage message)
    {
       String dupId = registration.getId() + "-" + message.getMessageID() + "-" + message.getTimestamp();
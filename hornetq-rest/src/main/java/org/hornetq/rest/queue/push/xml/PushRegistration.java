@@ -31,7 +31,7 @@ import javax.xml.bind.annotation.XmlType;
  */
 @XmlRootElement(name = "push-registration")
 @XmlAccessorType(XmlAccessType.PROPERTY)
-@XmlType(propOrder = {"enabled", "destination", "durable", "selector", "target", "maxRetries", "retryWaitMillis", "disableOnFailure", "authenticationMechanism", "headers", "sessionCount"})
+@XmlType(propOrder = {"enabled", "destination", "durable", "selector", "target", "maxRetries", "retryWaitMillis", "disableOnFailure", "authenticationMechanism", "headers", "sessionCount", "batchSize"})
 public class PushRegistration implements Serializable
 {
    private static final long serialVersionUID = -2749818399978544262L;
@@ -48,6 +48,7 @@ public class PushRegistration implements Serializable
    private int maxRetries = 10;
    private boolean enabled = true;
    private int sessionCount = 1;
+   private int batchSize = 1;
 
    @XmlElement
    public int getMaxRetries()
@@ -191,6 +192,20 @@ public class PushRegistration implements Serializable
       this.sessionCount = sessionCount;
    }
 
+   /**
+    * @return the maximum number of messages pushed in one request
+    */
+   @XmlElement
+   public int getBatchSize()
+   {
+      return batchSize;
+   }
+
+   public void setBatchSize(int batchSize)
+   {
+      this.batchSize = batchSize;
+   }
+
    @Override
    public String toString()
    {
@@ -206,6 +221,7 @@ public class PushRegistration implements Serializable
               ", disableOnFailure=" + disableOnFailure +
               ", maxRetries=" + maxRetries +
               ", sessionCount=" + sessionCount +
+              ", batchSize=" + batchSize +
               ", enabled=" + enabled +
               '}';
    }
@@ -19,5 +19,6 @@ package org.hornetq.rest.util;
 public interface Constants
 {
    String WAIT_HEADER = "Accept-Wait";
+   String BATCH_HEADER = "Accept-Batch";
    String PATH_FOR_QUEUES = "/queues";
 }
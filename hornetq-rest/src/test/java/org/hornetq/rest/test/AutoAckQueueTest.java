@@ -85,4 +85,51 @@ public class AutoAckQueueTest extends MessageTestBase
       Assert.assertEquals(204, res.getStatus());
    }
 
-}
\ No newline at end of file
+   @Test
+   public void testBatch() throws Exception
+   {
+      String testName = "testBatch";
+      QueueDeployment deployment = new QueueDeployment();
+      deployment.setDuplicatesAllowed(true);
+      deployment.setDurableSend(false);
+      deployment.setName(testName);
+      manager.getQueueManager().deploy(deployment);
+
+      ClientRequest request = new ClientRequest(generateURL("/queues/" + testName));
+
+      ClientResponse<?> response = request.head();
+      response.releaseConnection();
+      Assert.assertEquals(200, response.getStatus());
+      Link sender = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), response, "create");
+      Link consumers = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), response, "pull-consumers");
+      response = Util.setAutoAck(consumers, true);
+      Link consumeNext = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), response, "consume-next");
+
+      for (int i = 1; i <= 3; i++)
+      {
+         ClientResponse<?> res = sender.request().body("text/plain", Integer.toString(i)).post();
+         res.releaseConnection();
+         Assert.assertEquals(201, res.getStatus());
+      }
+
+      ClientResponse<?> res = consumeNext.request().header(Constants.WAIT_HEADER, "2").header(Constants.BATCH_HEADER, "10").post(String.class);
+      Assert.assertEquals(200, res.getStatus());
+      Assert.assertTrue(res.getHeaders().getFirst("Content-Type").toString().startsWith("multipart/mixed"));
+      String body = res.getEntity(String.class);
+      res.releaseConnection();
+      Assert.assertTrue(body, body.contains("\r\n\r\n1\r\n"));
+      Assert.assertTrue(body, body.contains("\r\n\r\n2\r\n"));
+      Assert.assertTrue(body, body.contains("\r\n\r\n3\r\n"));
+      Link session = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), res, "consumer");
+      consumeNext = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), res, "consume-next");
+
+      // the batch was acknowledged as a whole
+      res = consumeNext.request().header(Constants.WAIT_HEADER, "1").post(String.class);
+      res.releaseConnection();
+      Assert.assertEquals(503, res.getStatus());
+
+      res = session.request().delete();
+      res.releaseConnection();
+      Assert.assertEquals(204, res.getStatus());
+   }
+}
@@ -288,6 +288,74 @@ public class PushQueueConsumerTest extends MessageTestBase
       }
    }
 
+   @Path("/myBatch")
+   public static class MyBatchResource
+   {
+      public static AtomicInteger requests = new AtomicInteger();
+      public static StringBuffer received = new StringBuffer();
+
+      @PUT
+      public void put(String str)
+      {
+         received.append(str);
+         requests.incrementAndGet();
+         try
+         {
+            // sleep here so the next messages are batched
+            Thread.sleep(500);
+         }
+         catch (InterruptedException e)
+         {
+            e.printStackTrace();
+         }
+      }
+   }
+
+   @Test
+   public void testUriWithBatches() throws Exception
+   {
+      Link pushSubscription = null;
+      final int MESSAGES = 5;
+
+      try
+      {
+         // The name of the queue used for the test should match the name of the test
+         String queue = "testUriWithBatches";
+         System.out.println("\n" + queue);
+
+         deployQueue(queue);
+         server.getJaxrsServer().getDeployment().getRegistry().addPerRequestResource(MyBatchResource.class);
+
+         ClientResponse queueResponse = Util.head(new ClientRequest(generateURL(Util.getUrlPath(queue))));
+         Link destinationForSend = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), queueResponse, "create");
+         Link pushSubscriptions = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), queueResponse, "push-consumers");
+
+         pushSubscription = createPushRegistration(generateURL("/myBatch"), pushSubscriptions, PushRegistrationType.URI, 1, 10);
+
+         for (int i = 0; i < MESSAGES; i++)
+         {
+            sendMessage(destinationForSend, "message-" + i);
+         }
+
+         long end = System.currentTimeMillis() + 10000;
+         while (System.currentTimeMillis() < end && !MyBatchResource.received.toString().contains("message-" + (MESSAGES - 1)))
+         {
+            Thread.sleep(100);
+         }
+
+         for (int i = 0; i < MESSAGES; i++)
+         {
+            Assert.assertTrue(MyBatchResource.received.toString().contains("message-" + i));
+         }
+         // the messages sent while the first one was pushed went in one request
+         Assert.assertTrue(MyBatchResource.requests.get() < MESSAGES);
+      }
+      finally
+      {
+         cleanupSubscription(pushSubscription);
+      }
+   }
+
    private void deployQueue(String queueName) throws Exception
    {
       QueueDeployment deployment = new QueueDeployment();
@@ -340,6 +408,11 @@ public class PushQueueConsumerTest extends MessageTestBase
    }
 
    private Link createPushRegistration(String queueToPushTo, Link pushSubscriptions, PushRegistrationType pushRegistrationType, int sessionCount) throws Exception
+   {
+      return createPushRegistration(queueToPushTo, pushSubscriptions, pushRegistrationType, sessionCount, 1);
+   }
+
+   private Link createPushRegistration(String queueToPushTo, Link pushSubscriptions, PushRegistrationType pushRegistrationType, int sessionCount, int batchSize) throws Exception
    {
       PushRegistration reg = new PushRegistration();
       reg.setDurable(false);
@@ -366,6 +439,7 @@ public class PushQueueConsumerTest extends MessageTestBase
       }
       reg.setTarget(target);
       reg.setSessionCount(sessionCount);
+      reg.setBatchSize(batchSize);
       ClientResponse pushRegistrationResponse = pushSubscriptions.request().body("application/xml", reg).post();
       pushRegistrationResponse.releaseConnection();
       Assert.assertEquals(201, pushRegistrationResponse.getStatus());
@@ -13,7 +13,11 @@
 package org.hornetq.api.core.management;
 
 import java.text.DateFormat;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 
 import org.hornetq.core.messagecounter.MessageCounter;
 import org.hornetq.utils.json.JSONObject;
@@ -44,8 +48,11 @@ public final class MessageCounterInfo
 
    private final String udpateTimestamp;
 
+   private final Map<String, Long> countingFilterCounts;
+
    /**
-    * Returns a JSON String serialization of a {@link MessageCounter} object.
+    * Returns a JSON String serialization of a {@link MessageCounter} object, with the counts of the
+    * counting filters of the queue under {@code countingFilterCounts}.
     * @param counter
     * @return
     * @throws Exception
@@ -59,6 +66,7 @@ public final class MessageCounterInfo
       json.put("lastAddTimestamp", lastAddTimestamp);
       String updateTimestamp = dateFormat.format(new Date(counter.getLastUpdate()));
       json.put("updateTimestamp", updateTimestamp);
+      json.put("countingFilterCounts", counter.getCountingFilterCounts());
 
       return json.toString();
    }
@@ -80,6 +88,18 @@ public final class MessageCounterInfo
       String lastAddTimestamp = data.getString("lastAddTimestamp");
       String updateTimestamp = data.getString("updateTimestamp");
 
+      Map<String, Long> countingFilterCounts = new HashMap<String, Long>();
+      JSONObject counts = data.optJSONObject("countingFilterCounts");
+      if (counts != null)
+      {
+         Iterator<?> filters = counts.keys();
+         while (filters.hasNext())
+         {
+            String filter = (String)filters.next();
+            countingFilterCounts.put(filter, counts.getLong(filter));
+         }
+      }
+
       return new MessageCounterInfo(name,
                                     subscription,
                                     durable,
@@ -88,7 +108,8 @@ public final class MessageCounterInfo
                                     depth,
                                     depthDelta,
                                     lastAddTimestamp,
-                                    updateTimestamp);
+                                    updateTimestamp,
+                                    countingFilterCounts);
    }
 
    // Constructors --------------------------------------------------
@@ -102,6 +123,29 @@ public final class MessageCounterInfo
                              final int depthDelta,
                              final String lastAddTimestamp,
                              final String udpateTimestamp)
+   {
+      this(name,
+           subscription,
+           durable,
+           count,
+           countDelta,
+           depth,
+           depthDelta,
+           lastAddTimestamp,
+           udpateTimestamp,
+           Collections.<String, Long>emptyMap());
+   }
+
+   public MessageCounterInfo(final String name,
+                             final String subscription,
+                             final boolean durable,
+                             final long count,
+                             final long countDelta,
+                             final int depth,
+                             final int depthDelta,
+                             final String lastAddTimestamp,
+                             final String udpateTimestamp,
+                             final Map<String, Long> countingFilterCounts)
    {
       this.name = name;
       this.subscription = subscription;
@@ -112,6 +156,7 @@ public final class MessageCounterInfo
       this.depthDelta = depthDelta;
       this.lastAddTimestamp = lastAddTimestamp;
       this.udpateTimestamp = udpateTimestamp;
+      this.countingFilterCounts = countingFilterCounts;
    }
 
    // Public --------------------------------------------------------
@@ -187,4 +232,13 @@ public final class MessageCounterInfo
    {
       return udpateTimestamp;
    }
+
+   /**
+    * Returns the number of messages in the queue matching each of its counting filters, keyed by
+    * filter, -1 for a count which could not be kept.
+    */
+   public Map<String, Long> getCountingFilterCounts()
+   {
+      return countingFilterCounts;
+   }
 }
@@ -15,6 +15,7 @@ package org.hornetq.core.config;
 import java.io.Serializable;
 import java.util.List;
 
+import org.hornetq.api.config.HornetQDefaultConfiguration;
 import org.hornetq.api.core.client.HornetQClient;
 
 /**
@@ -67,6 +68,10 @@ public final class BridgeConfiguration implements Serializable
 
    private int minLargeMessageSize = HornetQClient.DEFAULT_MIN_LARGE_MESSAGE_SIZE;
 
+   private int ackBatchSize = HornetQDefaultConfiguration.getDefaultBridgeAckBatchSize();
+
+   private long ackBatchDelay = HornetQDefaultConfiguration.getDefaultBridgeAckBatchDelay();
+
    // At this point this is only changed on testcases
    // The bridge shouldn't be sending blocking anyways
    private long callTimeout = HornetQClient.DEFAULT_CALL_TIMEOUT;
@@ -437,6 +442,34 @@ public final class BridgeConfiguration implements Serializable
       this.reconnectAttemptsOnSameNode = reconnectAttemptsOnSameNode;
    }
 
+   /**
+    * @return the number of forwarded messages acknowledged on the source queue in a single
+    *         transaction, 1 meaning each message is acknowledged on its own
+    */
+   public int getAckBatchSize()
+   {
+      return ackBatchSize;
+   }
+
+   public void setAckBatchSize(final int ackBatchSize)
+   {
+      this.ackBatchSize = ackBatchSize;
+   }
+
+   /**
+    * @return how long (in milliseconds) a partial batch of acknowledgements may wait before
+    *         being committed
+    */
+   public long getAckBatchDelay()
+   {
+      return ackBatchDelay;
+   }
+
+   public void setAckBatchDelay(final long ackBatchDelay)
+   {
+      this.ackBatchDelay = ackBatchDelay;
+   }
+
    /**
     *
     * At this point this is only changed on testcases
@@ -453,6 +486,8 @@ public final class BridgeConfiguration implements Serializable
    {
       final int prime = 31;
       int result = 1;
+      result = prime * result + (int)(ackBatchDelay ^ (ackBatchDelay >>> 32));
+      result = prime * result + ackBatchSize;
       result = prime * result + (int)(callTimeout ^ (callTimeout >>> 32));
       result = prime * result + (int)(clientFailureCheckPeriod ^ (clientFailureCheckPeriod >>> 32));
       result = prime * result + confirmationWindowSize;
@@ -489,6 +524,10 @@ public final class BridgeConfiguration implements Serializable
       if (getClass() != obj.getClass())
          return false;
       BridgeConfiguration other = (BridgeConfiguration)obj;
+      if (ackBatchDelay != other.ackBatchDelay)
+         return false;
+      if (ackBatchSize != other.ackBatchSize)
+         return false;
       if (callTimeout != other.callTimeout)
          return false;
       if (clientFailureCheckPeriod != other.clientFailureCheckPeriod)
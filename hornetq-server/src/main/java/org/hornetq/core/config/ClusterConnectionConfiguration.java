@@ -19,6 +19,7 @@ import java.util.List;
 import org.hornetq.api.config.HornetQDefaultConfiguration;
 import org.hornetq.api.core.client.HornetQClient;
 import org.hornetq.core.server.HornetQMessageBundle;
+import org.hornetq.core.server.cluster.LoadBalancingPolicy;
 
 /**
  * A ClusterConnectionConfiguration
@@ -29,6 +30,8 @@ public final class ClusterConnectionConfiguration implements Serializable
 {
    private static final long serialVersionUID = 8948303813427795935L;
 
+   public static final LoadBalancingPolicy DEFAULT_LOAD_BALANCING_POLICY = LoadBalancingPolicy.ROUND_ROBIN;
+
    private final String name;
 
    private final String address;
@@ -73,6 +76,12 @@ public final class ClusterConnectionConfiguration implements Serializable
 
    private final int clusterNotificationAttempts;
 
+   private LoadBalancingPolicy loadBalancingPolicy = DEFAULT_LOAD_BALANCING_POLICY;
+
+   private long loadReportInterval = HornetQDefaultConfiguration.getDefaultClusterLoadReportInterval();
+
+   private long redistributionThreshold = HornetQDefaultConfiguration.getDefaultClusterRedistributionThreshold();
+
    public ClusterConnectionConfiguration(final String name,
                                          final String address,
                                          final String connectorName,
@@ -473,6 +482,57 @@ public final class ClusterConnectionConfiguration implements Serializable
       return clusterNotificationAttempts;
    }
 
+   /**
+    * @return how messages are spread over the queues of the cluster
+    */
+   public LoadBalancingPolicy getLoadBalancingPolicy()
+   {
+      return loadBalancingPolicy;
+   }
+
+   /**
+    * @param loadBalancingPolicy the loadBalancingPolicy to set
+    */
+   public void setLoadBalancingPolicy(final LoadBalancingPolicy loadBalancingPolicy)
+   {
+      this.loadBalancingPolicy = loadBalancingPolicy;
+   }
+
+   /**
+    * @return how often (in milliseconds) each node samples and advertises the backlog and consume
+    *         rate of its clustered queues
+    */
+   public long getLoadReportInterval()
+   {
+      return loadReportInterval;
+   }
+
+   /**
+    * @param loadReportInterval the loadReportInterval to set
+    */
+   public void setLoadReportInterval(final long loadReportInterval)
+   {
+      this.loadReportInterval = loadReportInterval;
+   }
+
+   /**
+    * @return how many more messages a queue must hold than the same queue on another node, with
+    *         consumers, before some of them are moved there even though the queue still has
+    *         consumers. -1 means messages are only redistributed from queues with no consumers.
+    */
+   public long getRedistributionThreshold()
+   {
+      return redistributionThreshold;
+   }
+
+   /**
+    * @param redistributionThreshold the redistributionThreshold to set
+    */
+   public void setRedistributionThreshold(final long redistributionThreshold)
+   {
+      this.redistributionThreshold = redistributionThreshold;
+   }
+
    @Override
    public int hashCode()
    {
@@ -491,12 +551,15 @@ public final class ClusterConnectionConfiguration implements Serializable
       result = prime * result + ((discoveryGroupName == null) ? 0 : discoveryGroupName.hashCode());
       result = prime * result + (duplicateDetection ? 1231 : 1237);
       result = prime * result + (forwardWhenNoConsumers ? 1231 : 1237);
+      result = prime * result + ((loadBalancingPolicy == null) ? 0 : loadBalancingPolicy.hashCode());
+      result = prime * result + (int)(loadReportInterval ^ (loadReportInterval >>> 32));
       result = prime * result + maxHops;
       result = prime * result + (int)(maxRetryInterval ^ (maxRetryInterval >>> 32));
       result = prime * result + minLargeMessageSize;
       result = prime * result + ((name == null) ? 0 : name.hashCode());
       result = prime * result + initialConnectAttempts;
       result = prime * result + reconnectAttempts;
+      result = prime * result + (int)(redistributionThreshold ^ (redistributionThreshold >>> 32));
       result = prime * result + (int)(retryInterval ^ (retryInterval >>> 32));
       long temp;
       temp = Double.doubleToLongBits(retryIntervalMultiplier);
@@ -556,6 +619,10 @@ public final class ClusterConnectionConfiguration implements Serializable
          return false;
       if (forwardWhenNoConsumers != other.forwardWhenNoConsumers)
          return false;
+      if (loadBalancingPolicy != other.loadBalancingPolicy)
+         return false;
+      if (loadReportInterval != other.loadReportInterval)
+         return false;
       if (maxHops != other.maxHops)
          return false;
       if (maxRetryInterval != other.maxRetryInterval)
@@ -573,6 +640,8 @@ public final class ClusterConnectionConfiguration implements Serializable
          return false;
       if (reconnectAttempts != other.reconnectAttempts)
          return false;
+      if (redistributionThreshold != other.redistributionThreshold)
+         return false;
       if (retryInterval != other.retryInterval)
          return false;
       if (Double.doubleToLongBits(retryIntervalMultiplier) != Double.doubleToLongBits(other.retryIntervalMultiplier))
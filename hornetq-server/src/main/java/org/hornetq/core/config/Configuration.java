@@ -791,6 +791,50 @@ public interface Configuration extends Serializable
     */
    void setMessageCounterMaxDayHistory(int maxDayHistory);
 
+   /**
+    * Returns whether latency metrics are recorded for this server. <br>
+    * Default value is {@value HornetQDefaultConfiguration#DEFAULT_METRICS_ENABLED}.
+    */
+   boolean isMetricsEnabled();
+
+   /**
+    * Sets whether latency metrics are recorded for this server.
+    */
+   void setMetricsEnabled(boolean enabled);
+
+   /**
+    * Returns the period (in milliseconds) at which metrics are handed to the metrics reporters. <br>
+    * Default value is {@value HornetQDefaultConfiguration#DEFAULT_METRICS_REPORT_PERIOD}.
+    */
+   long getMetricsReportPeriod();
+
+   /**
+    * Sets the period at which metrics are handed to the metrics reporters.
+    */
+   void setMetricsReportPeriod(long period);
+
+   /**
+    * Returns the class names of the {@link org.hornetq.core.server.metrics.MetricsReporter}s
+    * the metrics are reported to.
+    */
+   List<String> getMetricsReporterClassNames();
+
+   /**
+    * Sets the class names of the metrics reporters.
+    */
+   void setMetricsReporterClassNames(List<String> reporters);
+
+   /**
+    * Returns the class names of the {@link org.hornetq.utils.CompressionCodec}s, beside the built
+    * in ones, that large messages sent to this server may be compressed with.
+    */
+   List<String> getCompressionCodecClassNames();
+
+   /**
+    * Sets the class names of the compression codecs.
+    */
+   void setCompressionCodecClassNames(List<String> codecs);
+
    /**
     * Returns the frequency (in milliseconds) to scan transactions to detect which transactions have
     * timed out. <br>
@@ -953,4 +997,16 @@ public interface Configuration extends Serializable
     * @return the number of backup journals to keep after failback has occurred
     */
    int getMaxSavedReplicatedJournalsSize();
+
+   /**
+    * Sets how many files a live server sends concurrently while synchronizing a replicating backup.
+    * @param replicationSyncParallelism
+    */
+   void setReplicationSyncParallelism(int replicationSyncParallelism);
+
+   /**
+    * @see #setReplicationSyncParallelism(int)
+    * @return the number of files sent concurrently during the initial backup synchronization
+    */
+   int getReplicationSyncParallelism();
 }
@@ -173,6 +173,14 @@ public class ConfigurationImpl implements Configuration
 
    private int messageCounterMaxDayHistory = HornetQDefaultConfiguration.getDefaultMessageCounterMaxDayHistory();
 
+   private boolean metricsEnabled = HornetQDefaultConfiguration.isDefaultMetricsEnabled();
+
+   private long metricsReportPeriod = HornetQDefaultConfiguration.getDefaultMetricsReportPeriod();
+
+   private List<String> metricsReporterClassNames = new ArrayList<String>();
+
+   private List<String> compressionCodecClassNames = new ArrayList<String>();
+
    private long transactionTimeout = HornetQDefaultConfiguration.getDefaultTransactionTimeout();
 
    private long transactionTimeoutScanPeriod = HornetQDefaultConfiguration.getDefaultTransactionTimeoutScanPeriod();
@@ -216,6 +224,8 @@ public class ConfigurationImpl implements Configuration
 
    private int maxSavedReplicatedJournalsSize = HornetQDefaultConfiguration.getDefaultMaxSavedReplicatedJournalsSize();
 
+   private int replicationSyncParallelism = HornetQDefaultConfiguration.getDefaultReplicationSyncParallelism();
+
    // Public -------------------------------------------------------------------------
 
    public boolean isClustered()
@@ -754,6 +764,46 @@ public class ConfigurationImpl implements Configuration
       messageCounterMaxDayHistory = maxDayHistory;
    }
 
+   public boolean isMetricsEnabled()
+   {
+      return metricsEnabled;
+   }
+
+   public void setMetricsEnabled(final boolean enabled)
+   {
+      metricsEnabled = enabled;
+   }
+
+   public long getMetricsReportPeriod()
+   {
+      return metricsReportPeriod;
+   }
+
+   public void setMetricsReportPeriod(final long period)
+   {
+      metricsReportPeriod = period;
+   }
+
+   public List<String> getMetricsReporterClassNames()
+   {
+      return metricsReporterClassNames;
+   }
+
+   public void setMetricsReporterClassNames(final List<String> reporters)
+   {
+      metricsReporterClassNames = reporters;
+   }
+
+   public List<String> getCompressionCodecClassNames()
+   {
+      return compressionCodecClassNames;
+   }
+
+   public void setCompressionCodecClassNames(final List<String> codecs)
+   {
+      compressionCodecClassNames = codecs;
+   }
+
    public SimpleString getManagementAddress()
    {
       return managementAddress;
@@ -1049,6 +1099,18 @@ public class ConfigurationImpl implements Configuration
       return maxSavedReplicatedJournalsSize;
    }
 
+   @Override
+   public void setReplicationSyncParallelism(int replicationSyncParallelism)
+   {
+      this.replicationSyncParallelism = replicationSyncParallelism;
+   }
+
+   @Override
+   public int getReplicationSyncParallelism()
+   {
+      return replicationSyncParallelism;
+   }
+
    @Override
    public void setResolveProtocols(boolean resolveProtocols)
    {
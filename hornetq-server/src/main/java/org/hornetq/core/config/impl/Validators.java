@@ -14,6 +14,7 @@ package org.hornetq.core.config.impl;
 
 import org.hornetq.core.server.HornetQMessageBundle;
 import org.hornetq.core.server.JournalType;
+import org.hornetq.core.server.cluster.LoadBalancingPolicy;
 import org.hornetq.core.settings.impl.AddressFullMessagePolicy;
 
 /**
@@ -166,4 +167,17 @@ public final class Validators
          }
       }
    };
+
+   public static final Validator LOAD_BALANCING_POLICY_TYPE = new Validator()
+   {
+      public void validate(final String name, final Object value)
+      {
+         String val = (String) value;
+         if (val == null || !val.equals(LoadBalancingPolicy.ROUND_ROBIN.toString()) &&
+               !val.equals(LoadBalancingPolicy.CONSUMER_RATE.toString()))
+         {
+            throw HornetQMessageBundle.BUNDLE.invalidLoadBalancingPolicyType(val);
+         }
+      }
+   };
 }
@@ -46,6 +46,7 @@ import org.hornetq.core.journal.impl.JournalConstants;
 import org.hornetq.core.security.Role;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.JournalType;
+import org.hornetq.core.server.cluster.LoadBalancingPolicy;
 import org.hornetq.core.server.group.impl.GroupingHandlerConfiguration;
 import org.hornetq.core.settings.impl.AddressFullMessagePolicy;
 import org.hornetq.core.settings.impl.AddressSettings;
@@ -199,6 +200,9 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
       config.setMaxSavedReplicatedJournalSize(getInteger(e, "max-saved-replicated-journals-size",
             config.getMaxSavedReplicatedJournalsSize(), Validators.MINUS_ONE_OR_GE_ZERO));
 
+      config.setReplicationSyncParallelism(getInteger(e, "replication-sync-parallelism",
+            config.getReplicationSyncParallelism(), Validators.GT_ZERO));
+
       config.setBackup(getBoolean(e, "backup", config.isBackup()));
 
       config.setSharedStore(getBoolean(e, "shared-store", config.isSharedStore()));
@@ -594,6 +598,49 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
                                                                             config.getMessageCounterMaxDayHistory(),
                                                                             Validators.GT_ZERO));
 
+      config.setMetricsEnabled(getBoolean(e, "metrics-enabled", config.isMetricsEnabled()));
+
+      config.setMetricsReportPeriod(getLong(e, "metrics-report-period", config.getMetricsReportPeriod(),
+                                            Validators.GT_ZERO));
+
+      NodeList metricsReporterNodes = e.getElementsByTagName("metrics-reporters");
+
+      ArrayList<String> metricsReporterList = new ArrayList<String>();
+
+      if (metricsReporterNodes.getLength() > 0)
+      {
+         NodeList reporters = metricsReporterNodes.item(0).getChildNodes();
+
+         for (int i = 0; i < reporters.getLength(); i++)
+         {
+            if ("class-name".equalsIgnoreCase(reporters.item(i).getNodeName()))
+            {
+               metricsReporterList.add(getTrimmedTextContent(reporters.item(i)));
+            }
+         }
+      }
+
+      config.setMetricsReporterClassNames(metricsReporterList);
+
+      NodeList compressionCodecNodes = e.getElementsByTagName("compression-codecs");
+
+      ArrayList<String> compressionCodecList = new ArrayList<String>();
+
+      if (compressionCodecNodes.getLength() > 0)
+      {
+         NodeList codecs = compressionCodecNodes.item(0).getChildNodes();
+
+         for (int i = 0; i < codecs.getLength(); i++)
+         {
+            if ("class-name".equalsIgnoreCase(codecs.item(i).getNodeName()))
+            {
+               compressionCodecList.add(getTrimmedTextContent(codecs.item(i)));
+            }
+         }
+      }
+
+      config.setCompressionCodecClassNames(compressionCodecList);
+
       config.setServerDumpInterval(getLong(e, "server-dump-interval", config.getServerDumpInterval(),
                                            Validators.MINUS_ONE_OR_GT_ZERO)); // in
       // milliseconds
@@ -1104,6 +1151,14 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
 
       int clusterNotificationAttempts = getInteger(e, "notification-attempts", HornetQDefaultConfiguration.getDefaultClusterNotificationAttempts(), Validators.GT_ZERO);
 
+      String loadBalancingPolicy = getString(e, "load-balancing-policy",
+                                             ClusterConnectionConfiguration.DEFAULT_LOAD_BALANCING_POLICY.toString(),
+                                             Validators.LOAD_BALANCING_POLICY_TYPE);
+
+      long loadReportInterval = getLong(e, "load-report-interval", HornetQDefaultConfiguration.getDefaultClusterLoadReportInterval(), Validators.GT_ZERO);
+
+      long redistributionThreshold = getLong(e, "redistribution-threshold", HornetQDefaultConfiguration.getDefaultClusterRedistributionThreshold(), Validators.MINUS_ONE_OR_GT_ZERO);
+
       String discoveryGroupName = null;
 
       List<String> staticConnectorNames = new ArrayList<String>();
@@ -1169,6 +1224,10 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
                                                      clusterNotificationAttempts);
       }
 
+      config.setLoadBalancingPolicy(LoadBalancingPolicy.valueOf(loadBalancingPolicy));
+      config.setLoadReportInterval(loadReportInterval);
+      config.setRedistributionThreshold(redistributionThreshold);
+
       mainConfig.getClusterConfigurations().add(config);
    }
 
@@ -1180,6 +1239,7 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
       Integer timeout = getInteger(node, "timeout", GroupingHandlerConfiguration.DEFAULT_TIMEOUT, Validators.GT_ZERO);
       Long groupTimeout = getLong(node, "group-timeout", GroupingHandlerConfiguration.DEFAULT_GROUP_TIMEOUT, Validators.MINUS_ONE_OR_GT_ZERO);
       Long reaperPeriod = getLong(node, "reaper-period", GroupingHandlerConfiguration.DEFAULT_REAPER_PERIOD, Validators.GT_ZERO);
+      Integer responseCacheSize = getInteger(node, "response-cache-size", GroupingHandlerConfiguration.DEFAULT_RESPONSE_CACHE_SIZE, Validators.GT_ZERO);
       mainConfiguration.setGroupingHandlerConfiguration(new GroupingHandlerConfiguration(new SimpleString(name),
                                                                                          type.equals(GroupingHandlerConfiguration.TYPE.LOCAL.getType())
                                                                                                                                                        ? GroupingHandlerConfiguration.TYPE.LOCAL
@@ -1187,7 +1247,8 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
                                                                                          new SimpleString(address),
                                                                                          timeout,
                                                                                          groupTimeout,
-                                                                                         reaperPeriod));
+                                                                                         reaperPeriod,
+                                                                                         responseCacheSize));
    }
 
    private void parseBridgeConfiguration(final Element brNode, final Configuration mainConfig) throws Exception
@@ -1271,6 +1332,12 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
 
       boolean ha = getBoolean(brNode, "ha", false);
 
+      int ackBatchSize = getInteger(brNode, "ack-batch-size", HornetQDefaultConfiguration.getDefaultBridgeAckBatchSize(),
+                                    Validators.GT_ZERO);
+
+      long ackBatchDelay = getLong(brNode, "ack-batch-delay", HornetQDefaultConfiguration.getDefaultBridgeAckBatchDelay(),
+                                   Validators.GT_ZERO);
+
       String filterString = null;
 
       List<String> staticConnectorNames = new ArrayList<String>();
@@ -1346,6 +1413,9 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
                                           password);
       }
 
+      config.setAckBatchSize(ackBatchSize);
+      config.setAckBatchDelay(ackBatchDelay);
+
       mainConfig.getBridgeConfigurations().add(config);
    }
 
@@ -60,6 +60,7 @@ import org.hornetq.core.server.HornetQMessageBundle;
 import org.hornetq.core.server.HornetQServer;
 import org.hornetq.core.server.JournalType;
 import org.hornetq.core.server.ServerSession;
+import org.hornetq.core.server.metrics.MetricsManager;
 import org.hornetq.core.settings.impl.AddressFullMessagePolicy;
 import org.hornetq.core.settings.impl.AddressSettings;
 import org.hornetq.core.transaction.ResourceManager;
@@ -68,6 +69,7 @@ import org.hornetq.core.transaction.TransactionDetail;
 import org.hornetq.core.transaction.impl.CoreTransactionDetail;
 import org.hornetq.core.transaction.impl.XidImpl;
 import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.utils.LatencyHistogram;
 import org.hornetq.utils.SecurityFormatter;
 import org.hornetq.utils.json.JSONArray;
 import org.hornetq.utils.json.JSONObject;
@@ -757,6 +759,36 @@ public class HornetQServerControlImpl extends AbstractControl implements HornetQ
       }
    }
 
+   public int getXATransactionCount()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return resourceManager.getTransactionCount();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getTimedOutXATransactionCount()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return resourceManager.getTimedOutTransactionCount();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public void enableMessageCounters()
    {
       checkStarted();
@@ -817,6 +849,60 @@ public class HornetQServerControlImpl extends AbstractControl implements HornetQ
       }
    }
 
+   public boolean isMetricsEnabled()
+   {
+      checkStarted();
+
+      return server.getMetricsManager() != null;
+   }
+
+   public String listMetricsAsJSON() throws Exception
+   {
+      checkStarted();
+
+      JSONObject histograms = new JSONObject();
+      JSONObject counters = new JSONObject();
+
+      MetricsManager metricsManager = server.getMetricsManager();
+      if (metricsManager != null)
+      {
+         for (Map.Entry<String, LatencyHistogram.Snapshot> entry : metricsManager.getHistogramSnapshots().entrySet())
+         {
+            LatencyHistogram.Snapshot snapshot = entry.getValue();
+            JSONObject histogram = new JSONObject();
+            histogram.put("count", snapshot.getCount());
+            histogram.put("mean", snapshot.getMean());
+            histogram.put("p50", snapshot.getValueAtPercentile(50));
+            histogram.put("p90", snapshot.getValueAtPercentile(90));
+            histogram.put("p99", snapshot.getValueAtPercentile(99));
+            histogram.put("p999", snapshot.getValueAtPercentile(99.9));
+            histogram.put("max", snapshot.getMax());
+            histograms.put(entry.getKey(), histogram);
+         }
+
+         for (Map.Entry<String, Long> entry : metricsManager.getCounterValues().entrySet())
+         {
+            counters.put(entry.getKey(), entry.getValue());
+         }
+      }
+
+      JSONObject metrics = new JSONObject();
+      metrics.put("histograms", histograms);
+      metrics.put("counters", counters);
+      return metrics.toString();
+   }
+
+   public void resetMetrics()
+   {
+      checkStarted();
+
+      MetricsManager metricsManager = server.getMetricsManager();
+      if (metricsManager != null)
+      {
+         metricsManager.reset();
+      }
+   }
+
    public boolean isMessageCounterEnabled()
    {
       checkStarted();
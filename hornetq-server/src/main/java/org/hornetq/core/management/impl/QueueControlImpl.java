@@ -14,9 +14,11 @@ package org.hornetq.core.management.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 
 import javax.management.MBeanOperationInfo;
 
@@ -32,6 +34,7 @@ import org.hornetq.core.messagecounter.impl.MessageCounterHelper;
 import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.postoffice.Binding;
 import org.hornetq.core.postoffice.PostOffice;
+import org.hornetq.core.server.BulkOperation;
 import org.hornetq.core.server.Consumer;
 import org.hornetq.core.server.HornetQMessageBundle;
 import org.hornetq.core.server.MessageReference;
@@ -68,6 +71,16 @@ public class QueueControlImpl extends AbstractControl implements QueueControl
 
    // Static --------------------------------------------------------
 
+    private static final Comparator<MessageReference> DESCENDING_MESSAGE_ID = new Comparator<MessageReference>()
+    {
+        public int compare(final MessageReference ref1, final MessageReference ref2)
+        {
+            long id1 = ref1.getMessage().getMessageID();
+            long id2 = ref2.getMessage().getMessageID();
+            return id1 < id2 ? 1 : id1 == id2 ? 0 : -1;
+        }
+    };
+
     private static String toJSON(final Map<String, Object>[] messages)
     {
         JSONArray array = toJSONMsgArray(messages);
@@ -517,6 +530,83 @@ public class QueueControlImpl extends AbstractControl implements QueueControl
       }
    }
 
+   public String browse(final String filterStr, final long fromMessageID, final int limit) throws Exception
+   {
+      checkStarted();
+
+      if (limit <= 0)
+      {
+         throw HornetQMessageBundle.BUNDLE.greaterThanZero("limit", limit);
+      }
+
+      clearIO();
+      try
+      {
+         Filter filter = FilterImpl.createFilter(filterStr);
+
+         // the references are not in message ID order, so the whole queue is gone through for
+         // every page, keeping the limit + 1 lowest message IDs seen so far, the greatest on top,
+         // the extra one telling whether there is a next page
+         PriorityQueue<MessageReference> lowest = new PriorityQueue<MessageReference>(limit + 1, DESCENDING_MESSAGE_ID);
+
+         queue.flushExecutor();
+         LinkedListIterator<MessageReference> iterator = queue.totalIterator();
+         try
+         {
+            while (iterator.hasNext())
+            {
+               MessageReference ref = iterator.next();
+               long messageID = ref.getMessage().getMessageID();
+
+               if (messageID <= fromMessageID || filter != null && !filter.match(ref.getMessage()))
+               {
+                  continue;
+               }
+
+               if (lowest.size() <= limit)
+               {
+                  lowest.add(ref);
+               }
+               else if (messageID < lowest.peek().getMessage().getMessageID())
+               {
+                  lowest.poll();
+                  lowest.add(ref);
+               }
+            }
+         }
+         finally
+         {
+            iterator.close();
+         }
+
+         long next = -1;
+         if (lowest.size() > limit)
+         {
+            lowest.poll();
+            next = lowest.peek().getMessage().getMessageID();
+         }
+
+         Map<String, Object>[] messages = new Map[lowest.size()];
+         for (int i = messages.length - 1; i >= 0; i--)
+         {
+            messages[i] = lowest.poll().getMessage().toMap();
+         }
+
+         JSONObject page = new JSONObject();
+         page.put("messages", toJSONMsgArray(messages));
+         page.put("next", next);
+         return page.toString();
+      }
+      catch (HornetQException e)
+      {
+         throw new IllegalStateException(e.getMessage());
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public String getFirstMessageAsJSON() throws Exception
    {
       checkStarted();
@@ -562,6 +652,12 @@ public class QueueControlImpl extends AbstractControl implements QueueControl
          {
             return getMessageCount();
          }
+
+         long counted = queue.getCountingFilterCount(filter.getFilterString());
+         if (counted >= 0)
+         {
+            return counted;
+         }
          else
          {
             LinkedListIterator<MessageReference> iterator = queue.totalIterator();
@@ -590,6 +686,71 @@ public class QueueControlImpl extends AbstractControl implements QueueControl
       }
    }
 
+   public String[] listCountingFilters() throws Exception
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         SimpleString[] filters = queue.getCountingFilters();
+         String[] filterStrings = new String[filters.length];
+         for (int i = 0; i < filters.length; i++)
+         {
+            filterStrings[i] = filters[i].toString();
+         }
+         return filterStrings;
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public boolean addCountingFilter(final String filterStr) throws Exception
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         Filter filter = FilterImpl.createFilter(filterStr);
+         if (filter == null)
+         {
+            throw HornetQMessageBundle.BUNDLE.emptyOrNull("filter");
+         }
+         return queue.addCountingFilter(filter);
+      }
+      catch (HornetQException e)
+      {
+         throw new IllegalStateException(e.getMessage());
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public boolean removeCountingFilter(final String filterStr) throws Exception
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         Filter filter = FilterImpl.createFilter(filterStr);
+         return filter != null && queue.removeCountingFilter(filter.getFilterString());
+      }
+      catch (HornetQException e)
+      {
+         throw new IllegalStateException(e.getMessage());
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public boolean removeMessage(final long messageID) throws Exception
    {
       checkStarted();
@@ -784,6 +945,89 @@ public class QueueControlImpl extends AbstractControl implements QueueControl
       }
    }
 
+   public long removeMessagesInBackground(final int flushLimit, final String filterStr) throws Exception
+   {
+      checkStarted();
+
+      Filter filter = FilterImpl.createFilter(filterStr);
+
+      return queue.deleteMatchingReferencesInBackground(flushLimit, filter).getID();
+   }
+
+   public long expireMessagesInBackground(final int flushLimit, final String filterStr) throws Exception
+   {
+      checkStarted();
+
+      Filter filter = FilterImpl.createFilter(filterStr);
+
+      return queue.expireReferencesInBackground(flushLimit, filter).getID();
+   }
+
+   public long moveMessagesInBackground(final int flushLimit, final String filterStr, final String otherQueueName,
+                                        final boolean rejectDuplicates) throws Exception
+   {
+      checkStarted();
+
+      Filter filter = FilterImpl.createFilter(filterStr);
+
+      Binding binding = postOffice.getBinding(new SimpleString(otherQueueName));
+
+      if (binding == null)
+      {
+         throw HornetQMessageBundle.BUNDLE.noQueueFound(otherQueueName);
+      }
+
+      return queue.moveReferencesInBackground(flushLimit, filter, binding.getAddress(), rejectDuplicates).getID();
+   }
+
+   public long changeMessagesPriorityInBackground(final int flushLimit, final String filterStr, final int newPriority) throws Exception
+   {
+      checkStarted();
+
+      if (newPriority < 0 || newPriority > 9)
+      {
+         throw HornetQMessageBundle.BUNDLE.invalidNewPriority(newPriority);
+      }
+      Filter filter = FilterImpl.createFilter(filterStr);
+
+      return queue.changeReferencesPriorityInBackground(flushLimit, filter, (byte)newPriority).getID();
+   }
+
+   public String listBulkOperationsAsJSON() throws Exception
+   {
+      checkStarted();
+
+      JSONArray array = new JSONArray();
+      for (BulkOperation operation : queue.getBulkOperations())
+      {
+         JSONObject object = new JSONObject();
+         object.put("id", operation.getID());
+         object.put("type", operation.getType());
+         object.put("filter", operation.getFilter());
+         object.put("startTime", operation.getStartTime());
+         object.put("count", operation.getCount());
+         object.put("done", operation.isDone());
+         object.put("cancelled", operation.isCancelled());
+         object.put("error", operation.getError());
+         array.put(object);
+      }
+      return array.toString();
+   }
+
+   public boolean cancelBulkOperation(final long operationID) throws Exception
+   {
+      checkStarted();
+
+      for (BulkOperation operation : queue.getBulkOperations())
+      {
+         if (operation.getID() == operationID)
+         {
+            return operation.cancel();
+         }
+      }
+      return false;
+   }
+
    public boolean changeMessagePriority(final long messageID, final int newPriority) throws Exception
    {
       checkStarted();
@@ -37,8 +37,11 @@ import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.server.Queue;
 
 /**
@@ -216,6 +219,20 @@ public class MessageCounter
       return serverQueue.getInstantMessageCount();
    }
 
+   /**
+    * Gets the number of pending messages matching each counting filter registered on the destination,
+    * -1 when it can't be known without going through the destination
+    */
+   public Map<String, Long> getCountingFilterCounts()
+   {
+      Map<String, Long> counts = new HashMap<String, Long>();
+      for (SimpleString filter : serverQueue.getCountingFilters())
+      {
+         counts.put(filter.toString(), serverQueue.getCountingFilterCount(filter));
+      }
+      return counts;
+   }
+
    /**
     * Gets the message count delta of pending messages
     * since last method call.
@@ -46,6 +46,8 @@ public class PagedReferenceImpl implements PagedReference
 
    private Long consumerId;
 
+   private long latencyTimestamp;
+
    private final AtomicInteger deliveryCount = new AtomicInteger(0);
 
    private final PageSubscription subscription;
@@ -251,4 +253,14 @@ public class PagedReferenceImpl implements PagedReference
       return this.consumerId;
    }
 
+   public long getLatencyTimestamp()
+   {
+      return latencyTimestamp;
+   }
+
+   public void setLatencyTimestamp(final long nanoTime)
+   {
+      latencyTimestamp = nanoTime;
+   }
+
 }
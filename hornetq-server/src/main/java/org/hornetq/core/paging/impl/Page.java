@@ -30,8 +30,11 @@ import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.server.HornetQMessageBundle;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.LargeServerMessage;
+import org.hornetq.core.server.metrics.MetricsManager;
 import org.hornetq.utils.ConcurrentHashSet;
 import org.hornetq.utils.DataConstants;
+import org.hornetq.utils.LatencyHistogram;
+import org.hornetq.utils.StripedCounter;
 
 /**
  *
@@ -78,6 +81,15 @@ public final class Page implements Comparable<Page>
     */
    private Set<PageSubscriptionCounter> pendingCounters;
 
+   // only set when the server records metrics
+   private LatencyHistogram writeLatency;
+
+   private LatencyHistogram readLatency;
+
+   private StripedCounter bytesWritten;
+
+   private StripedCounter bytesRead;
+
    public Page(final SimpleString storeName,
                final StorageManager storageManager,
                final SequentialFileFactory factory,
@@ -96,6 +108,14 @@ public final class Page implements Comparable<Page>
       return pageId;
    }
 
+   public void setMetrics(final MetricsManager metricsManager)
+   {
+      writeLatency = metricsManager.getHistogram(MetricsManager.PAGING_WRITE);
+      readLatency = metricsManager.getHistogram(MetricsManager.PAGING_READ);
+      bytesWritten = metricsManager.getCounter(MetricsManager.PAGING_BYTES_WRITTEN);
+      bytesRead = metricsManager.getCounter(MetricsManager.PAGING_BYTES_READ);
+   }
+
    public void setLiveCache(LivePageCache pageCache)
    {
       this.pageCache = pageCache;
@@ -122,9 +142,17 @@ public final class Page implements Comparable<Page>
       try
       {
 
+         long start = readLatency == null ? 0 : System.nanoTime();
+
          file.position(0);
          file.read(directBuffer);
 
+         if (readLatency != null)
+         {
+            readLatency.recordSince(start);
+            bytesRead.add(directBuffer.limit());
+         }
+
          directBuffer.rewind();
 
          fileBuffer = HornetQBuffers.wrappedBuffer(directBuffer);
@@ -197,6 +225,8 @@ public final class Page implements Comparable<Page>
          return;
       }
 
+      long start = writeLatency == null ? 0 : System.nanoTime();
+
       ByteBuffer buffer = fileFactory.newBuffer(message.getEncodeSize() + Page.SIZE_RECORD);
 
       HornetQBuffer wrap = HornetQBuffers.wrappedBuffer(buffer);
@@ -223,6 +253,12 @@ public final class Page implements Comparable<Page>
       size.addAndGet(buffer.limit());
 
       storageManager.pageWrite(message, pageId);
+
+      if (writeLatency != null)
+      {
+         writeLatency.recordSince(start);
+         bytesWritten.add(buffer.limit());
+      }
    }
 
    public void sync() throws Exception
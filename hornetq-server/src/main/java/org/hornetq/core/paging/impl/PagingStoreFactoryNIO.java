@@ -33,6 +33,7 @@ import org.hornetq.core.paging.PagingStore;
 import org.hornetq.core.paging.PagingStoreFactory;
 import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.server.HornetQServerLogger;
+import org.hornetq.core.server.metrics.MetricsManager;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.impl.AddressSettings;
 import org.hornetq.utils.ExecutorFactory;
@@ -61,6 +62,9 @@ public class PagingStoreFactoryNIO implements PagingStoreFactory
 
    private PagingManager pagingManager;
 
+   /** null unless metrics are enabled */
+   private MetricsManager metricsManager;
+
    private final ScheduledExecutorService scheduledExecutor;
 
    private final long syncTimeout;
@@ -94,17 +98,21 @@ public class PagingStoreFactoryNIO implements PagingStoreFactory
    public synchronized PagingStore newStore(final SimpleString address, final AddressSettings settings)
    {
 
-      return new PagingStoreImpl(address,
-                                 scheduledExecutor,
-                                 syncTimeout,
-                                 pagingManager,
-                                 storageManager,
-                                 null,
-                                 this,
-                                 address,
-                                 settings,
-                                 executorFactory.getExecutor(),
-                                 syncNonTransactional);
+      PagingStoreImpl store = new PagingStoreImpl(address,
+                                                  scheduledExecutor,
+                                                  syncTimeout,
+                                                  pagingManager,
+                                                  storageManager,
+                                                  null,
+                                                  this,
+                                                  address,
+                                                  settings,
+                                                  executorFactory.getExecutor(),
+                                                  syncNonTransactional);
+
+      store.setMetricsManager(metricsManager);
+
+      return store;
    }
 
    public synchronized SequentialFileFactory newFileFactory(final SimpleString address) throws Exception
@@ -141,6 +149,11 @@ public class PagingStoreFactoryNIO implements PagingStoreFactory
       this.pagingManager = pagingManager;
    }
 
+   public void setMetricsManager(final MetricsManager metricsManager)
+   {
+      this.metricsManager = metricsManager;
+   }
+
    public List<PagingStore> reloadStores(final HierarchicalRepository<AddressSettings> addressSettingsRepository) throws Exception
    {
       File pageDirectory = new File(directory);
@@ -187,17 +200,19 @@ public class PagingStoreFactoryNIO implements PagingStoreFactory
 
             AddressSettings settings = addressSettingsRepository.getMatch(address.toString());
 
-            PagingStore store = new PagingStoreImpl(address,
-                                                    scheduledExecutor,
-                                                    syncTimeout,
-                                                    pagingManager,
-                                                    storageManager,
-                                                    factory,
-                                                    this,
-                                                    address,
-                                                    settings,
-                                                    executorFactory.getExecutor(),
-                                                    syncNonTransactional);
+            PagingStoreImpl store = new PagingStoreImpl(address,
+                                                        scheduledExecutor,
+                                                        syncTimeout,
+                                                        pagingManager,
+                                                        storageManager,
+                                                        factory,
+                                                        this,
+                                                        address,
+                                                        settings,
+                                                        executorFactory.getExecutor(),
+                                                        syncNonTransactional);
+
+            store.setMetricsManager(metricsManager);
 
             storesReturn.add(store);
          }
@@ -31,6 +31,7 @@ import org.hornetq.core.server.LargeServerMessage;
 import org.hornetq.core.server.MessageReference;
 import org.hornetq.core.server.RouteContextList;
 import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.metrics.MetricsManager;
 import org.hornetq.core.settings.impl.AddressFullMessagePolicy;
 import org.hornetq.core.settings.impl.AddressSettings;
 import org.hornetq.core.transaction.Transaction;
@@ -78,6 +79,9 @@ public class PagingStoreImpl implements PagingStore
 
    private final PagingStoreFactory storeFactory;
 
+   /** null unless metrics are enabled */
+   private volatile MetricsManager metricsManager;
+
    // Used to schedule sync threads
    private final PageSyncTimer syncTimer;
 
@@ -573,6 +577,11 @@ public class PagingStoreImpl implements PagingStore
       return file.exists();
    }
 
+   public void setMetricsManager(final MetricsManager metricsManager)
+   {
+      this.metricsManager = metricsManager;
+   }
+
    public Page createPage(final int pageNumber) throws Exception
    {
       String fileName = createFileName(pageNumber);
@@ -586,6 +595,11 @@ public class PagingStoreImpl implements PagingStore
 
       Page page = new Page(storeName, storageManager, fileFactory, file, pageNumber);
 
+      if (metricsManager != null)
+      {
+         page.setMetrics(metricsManager);
+      }
+
       // To create the file
       file.open();
 
@@ -22,7 +22,9 @@ import static org.hornetq.core.persistence.impl.journal.JournalRecordIds.SET_SCH
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.security.AccessController;
 import java.security.DigestInputStream;
 import java.security.InvalidParameterException;
@@ -39,11 +41,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -109,6 +114,7 @@ import org.hornetq.core.server.RouteContextList;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.group.impl.GroupBinding;
 import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.core.server.metrics.MetricsManager;
 import org.hornetq.core.transaction.ResourceManager;
 import org.hornetq.core.transaction.Transaction;
 import org.hornetq.core.transaction.Transaction.State;
@@ -197,6 +203,8 @@ public class JournalStorageManager implements StorageManager
 
    private final int perfBlastPages;
 
+   private final int replicationSyncParallelism;
+
    private final boolean createBindingsDir;
 
    private final String bindingsDir;
@@ -316,6 +324,8 @@ public class JournalStorageManager implements StorageManager
 
       perfBlastPages = config.getJournalPerfBlastPages();
 
+      replicationSyncParallelism = config.getReplicationSyncParallelism();
+
       if (config.getPageMaxConcurrentIO() != 1)
       {
          pageMaxConcurrentIO = new Semaphore(config.getPageMaxConcurrentIO());
@@ -336,6 +346,15 @@ public class JournalStorageManager implements StorageManager
       return replicator != null;
    }
 
+   /**
+    * Records the latency of the message journal's appends and syncs.
+    */
+   public void setMetricsManager(final MetricsManager metricsManager)
+   {
+      ((JournalImpl)originalMessageJournal).setLatencyHistograms(metricsManager.getHistogram(MetricsManager.JOURNAL_APPEND),
+                                                                 metricsManager.getHistogram(MetricsManager.JOURNAL_SYNC));
+   }
+
    /**
     * Starts replication at the live-server side.
     * <p>
@@ -426,10 +445,13 @@ public class JournalStorageManager implements StorageManager
             storageManagerLock.writeLock().unlock();
          }
 
-         sendJournalFile(messageFiles, JournalContent.MESSAGES);
-         sendJournalFile(bindingsFiles, JournalContent.BINDINGS);
-         sendLargeMessageFiles();
-         sendPagesToBackup(pageFilesToSync, pagingManager);
+         // the tasks hold on to this replicator, the field is cleared if replication stops while they are queued
+         List<Callable<Void>> syncTasks = new ArrayList<Callable<Void>>();
+         addJournalFileSyncTasks(syncTasks, replicationManager, messageFiles, JournalContent.MESSAGES);
+         addJournalFileSyncTasks(syncTasks, replicationManager, bindingsFiles, JournalContent.BINDINGS);
+         addLargeMessageSyncTasks(syncTasks, replicationManager);
+         addPageSyncTasks(syncTasks, replicationManager, pageFilesToSync, pagingManager);
+         sendFilesToBackup(syncTasks);
 
          storageManagerLock.writeLock().lock();
          try
@@ -544,15 +566,26 @@ public class JournalStorageManager implements StorageManager
     * @param pageFilesToSync
     * @throws Exception
     */
-   private void sendPagesToBackup(Map<SimpleString, Collection<Integer>> pageFilesToSync, PagingManager manager)
-      throws Exception
+   private void addPageSyncTasks(List<Callable<Void>> syncTasks,
+                                 final ReplicationManager syncReplicator,
+                                 Map<SimpleString, Collection<Integer>> pageFilesToSync,
+                                 final PagingManager manager)
    {
-      for (Entry<SimpleString, Collection<Integer>> entry : pageFilesToSync.entrySet())
+      for (final Entry<SimpleString, Collection<Integer>> entry : pageFilesToSync.entrySet())
       {
-         if (!started)
-            return;
-         PagingStore store = manager.getPageStore(entry.getKey());
-         store.sendPages(replicator, entry.getValue());
+         // pages of a single store are sent by the same task, as the store is locked while they are sent
+         syncTasks.add(new Callable<Void>()
+         {
+            public Void call() throws Exception
+            {
+               if (started)
+               {
+                  PagingStore store = manager.getPageStore(entry.getKey());
+                  store.sendPages(syncReplicator, entry.getValue());
+               }
+               return null;
+            }
+         });
       }
    }
 
@@ -574,24 +607,30 @@ public class JournalStorageManager implements StorageManager
       return info;
    }
 
-   private void sendLargeMessageFiles() throws Exception
+   private void addLargeMessageSyncTasks(List<Callable<Void>> syncTasks, final ReplicationManager syncReplicator)
    {
       while (true)
       {
-         Map.Entry<Long, Pair<String, Long>> entry = replicator.getNextLargeMessageToSync();
+         Map.Entry<Long, Pair<String, Long>> entry = syncReplicator.getNextLargeMessageToSync();
          if (entry == null)
          {
             break;
          }
-         String fileName = entry.getValue().getA();
+         final String fileName = entry.getValue().getA();
          final long id = entry.getKey();
-         long size = entry.getValue().getB();
-         SequentialFile seqFile = largeMessagesFactory.createSequentialFile(fileName, 1);
-         if (!seqFile.exists())
-            continue;
-         if (!started)
-            return;
-         replicator.syncLargeMessageFile(seqFile, size, id);
+         final long size = entry.getValue().getB();
+         syncTasks.add(new Callable<Void>()
+         {
+            public Void call() throws Exception
+            {
+               SequentialFile seqFile = largeMessagesFactory.createSequentialFile(fileName, 1);
+               if (seqFile.exists() && started)
+               {
+                  syncReplicator.syncLargeMessageFile(seqFile, size, id);
+               }
+               return null;
+            }
+         });
       }
    }
 
@@ -630,13 +669,55 @@ public class JournalStorageManager implements StorageManager
    /**
     * Send an entire journal file to a replicating backup server.
     */
-   private void sendJournalFile(JournalFile[] journalFiles, JournalContent type) throws Exception
+   private void addJournalFileSyncTasks(List<Callable<Void>> syncTasks, final ReplicationManager syncReplicator,
+                                        JournalFile[] journalFiles, final JournalContent type)
    {
-      for (JournalFile jf : journalFiles)
+      for (final JournalFile jf : journalFiles)
       {
-         if (!started)
-            return;
-         replicator.syncJournalFile(jf, type);
+         syncTasks.add(new Callable<Void>()
+         {
+            public Void call() throws Exception
+            {
+               if (started)
+               {
+                  syncReplicator.syncJournalFile(jf, type);
+               }
+               return null;
+            }
+         });
+      }
+   }
+
+   /**
+    * Sends the files to the backup using up to {@code replication-sync-parallelism} threads, and
+    * waits until all of them were sent.
+    */
+   private void sendFilesToBackup(List<Callable<Void>> syncTasks) throws Exception
+   {
+      ExecutorService syncExecutor =
+         Executors.newFixedThreadPool(replicationSyncParallelism,
+                                      new HornetQThreadFactory("HornetQ-replication-sync", true, getThisClassLoader()));
+      try
+      {
+         for (Future<Void> result : syncExecutor.invokeAll(syncTasks))
+         {
+            try
+            {
+               result.get();
+            }
+            catch (ExecutionException e)
+            {
+               if (e.getCause() instanceof Exception)
+               {
+                  throw (Exception)e.getCause();
+               }
+               throw e;
+            }
+         }
+      }
+      finally
+      {
+         syncExecutor.shutdownNow();
       }
    }
 
@@ -2548,6 +2629,34 @@ public class JournalStorageManager implements StorageManager
       return largeMessagesFactory.createSequentialFile(messageID + extension.getExtension(), -1);
    }
 
+   /**
+    * Makes {@code target} a hard link to the body of {@code source}, so a copied large message
+    * shares its body with the original instead of duplicating it. Large message bodies are never
+    * modified once complete, and the file system only releases the body when its last link is
+    * deleted.
+    * @return {@code false} if the file system could not link the files, in which case the caller
+    *         should copy the body instead
+    */
+   boolean linkLargeMessageFile(final SequentialFile source, final SequentialFile target)
+   {
+      try
+      {
+         Files.createLink(target.getJavaFile().toPath(), source.getJavaFile().toPath());
+         return true;
+      }
+      catch (UnsupportedOperationException e)
+      {
+         HornetQServerLogger.LOGGER.debug("Hard links not supported, copying " + source.getFileName(), e);
+         return false;
+      }
+      catch (IOException e)
+      {
+         HornetQServerLogger.LOGGER.debug("Could not link " + target.getFileName() + " to " + source.getFileName() +
+                                          ", copying it instead", e);
+         return false;
+      }
+   }
+
 
    // Private ----------------------------------------------------------------------------------
 
@@ -2597,7 +2706,10 @@ public class JournalStorageManager implements StorageManager
             SequentialFile linkedFile = createFileForLargeMessage(originalMessageID, true);
             if (linkedFile.exists())
             {
-               linkedFile.copyTo(currentFile);
+               if (!linkLargeMessageFile(linkedFile, currentFile))
+               {
+                  linkedFile.copyTo(currentFile);
+               }
                linkedFile.close();
             }
          }
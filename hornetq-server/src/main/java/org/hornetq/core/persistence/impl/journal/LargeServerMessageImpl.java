@@ -318,9 +318,13 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
          try
          {
             this.pendingRecordID = storageManager.storePendingLargeMessage(this.messageID);
-            copyTo.open();
-            pendingCopy.open();
-            pendingCopy.copyTo(copyTo);
+            // sharing the body with the original is enough, its bytes are only copied when that's not possible
+            if (!storageManager.linkLargeMessageFile(pendingCopy, copyTo))
+            {
+               copyTo.open();
+               pendingCopy.open();
+               pendingCopy.copyTo(copyTo);
+            }
          }
          finally
          {
@@ -336,7 +340,8 @@ public final class LargeServerMessageImpl extends ServerMessageImpl implements L
    }
 
    /**
-    * The copy of the file itself will be done later by {@link LargeServerMessageImpl#finishCopy()}
+    * The copy of the file itself will be done later by {@link LargeServerMessageImpl#finishCopy()},
+    * as a hard link to this message's body whenever the file system allows it.
     * */
    @Override
    public synchronized ServerMessage copy(final long newID)
@@ -12,9 +12,8 @@
  */
 package org.hornetq.core.persistence.impl.journal;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -77,23 +76,29 @@ public class OperationContextImpl implements OperationContext
       OperationContextImpl.threadLocalContext.set(context);
    }
 
-   private List<TaskHolder> tasks;
-
-   private long minimalStore = Long.MAX_VALUE;
-   private long minimalReplicated = Long.MAX_VALUE;
-   private long minimalPage = Long.MAX_VALUE;
+   /**
+    * Tasks waiting for their line ups to complete, in the order they were scheduled.
+    * Only the head of the queue needs to be checked on each completion.
+    */
+   private final Queue<TaskHolder> tasks = new ConcurrentLinkedQueue<TaskHolder>();
 
    private final AtomicLong storeLineUp = new AtomicLong(0);
    private final AtomicLong replicationLineUp = new AtomicLong(0);
    private final AtomicLong pageLineUp = new AtomicLong(0);
 
-   private long stored = 0;
-   private long replicated = 0;
-   private long paged = 0;
+   private final AtomicLong stored = new AtomicLong(0);
+   private final AtomicLong replicated = new AtomicLong(0);
+   private final AtomicLong paged = new AtomicLong(0);
 
-   private int errorCode = -1;
+   /**
+    * Number of requests to drain the task queue. Only the thread raising it from zero drains the
+    * queue, the others just leave a note for it to go around once more.
+    */
+   private final AtomicInteger checksPending = new AtomicInteger(0);
+
+   private volatile int errorCode = -1;
 
-   private String errorMessage = null;
+   private volatile String errorMessage = null;
 
    private final Executor executor;
 
@@ -110,9 +115,9 @@ public class OperationContextImpl implements OperationContext
       pageLineUp.incrementAndGet();
    }
 
-   public synchronized void pageSyncDone()
+   public void pageSyncDone()
    {
-      paged++;
+      paged.incrementAndGet();
       checkTasks();
    }
 
@@ -126,9 +131,9 @@ public class OperationContextImpl implements OperationContext
       replicationLineUp.incrementAndGet();
    }
 
-   public synchronized void replicationDone()
+   public void replicationDone()
    {
-      replicated++;
+      replicated.incrementAndGet();
       checkTasks();
    }
 
@@ -140,86 +145,83 @@ public class OperationContextImpl implements OperationContext
          return;
       }
 
-      boolean executeNow = false;
-
-      synchronized (this)
+      // On this case, we can just execute the context directly.
+      // The queue has to be checked before executorsPending as checkTasks raises executorsPending
+      // before it removes a task from the queue
+      if (tasks.isEmpty() && replicationLineUp.get() == replicated.get() && storeLineUp.get() == stored.get() &&
+         pageLineUp.get() == paged.get() && executorsPending.get() == 0)
       {
-         if (tasks == null)
-         {
-            tasks = new LinkedList<TaskHolder>();
-            minimalReplicated = replicationLineUp.intValue();
-            minimalStore = storeLineUp.intValue();
-            minimalPage = pageLineUp.intValue();
-         }
-
-         // On this case, we can just execute the context directly
-         if (replicationLineUp.intValue() == replicated && storeLineUp.intValue() == stored &&
-                  pageLineUp.intValue() == paged)
-         {
-            // We want to avoid the executor if everything is complete...
-            // However, we can't execute the context if there are executions pending
-            // We need to use the executor on this case
-            if (executorsPending.get() == 0)
-            {
-               // No need to use an executor here or a context switch
-               // there are no actions pending.. hence we can just execute the task directly on the same thread
-               executeNow = true;
-            }
-            else
-            {
-               execute(completion);
-            }
-         }
-         else
-         {
-            tasks.add(new TaskHolder(completion));
-         }
+         // No need to use an executor here or a context switch
+         // there are no actions pending.. hence we can just execute the task directly on the same thread
+         completion.done();
+         return;
       }
 
-      if (executeNow)
+      tasks.offer(new TaskHolder(completion));
+
+      // the line ups may have completed while we were adding the task
+      checkTasks();
+
+      if (errorCode != -1)
       {
-         // Executing outside of any locks
-         completion.done();
+         // onError may have drained the queue before our task was added
+         failTasks();
       }
-
    }
 
-   public synchronized void done()
+   public void done()
    {
-      stored++;
+      stored.incrementAndGet();
       checkTasks();
    }
 
    private void checkTasks()
    {
-      if (stored >= minimalStore && replicated >= minimalReplicated && paged >= minimalPage)
+      if (checksPending.getAndIncrement() != 0)
       {
-         Iterator<TaskHolder> iter = tasks.iterator();
-         while (iter.hasNext())
-         {
-            TaskHolder holder = iter.next();
-            if (stored >= holder.storeLined && replicated >= holder.replicationLined && paged >= holder.pageLined)
-            {
-               // If set, we use an executor to avoid the server being single threaded
-               execute(holder.task);
+         return;
+      }
 
-               iter.remove();
-            }
-            else
+      int missed = 1;
+
+      do
+      {
+         TaskHolder holder;
+         while ((holder = tasks.peek()) != null && holder.isComplete())
+         {
+            // raised before the task leaves the queue, so executeOnCompletion can't overtake it
+            executorsPending.incrementAndGet();
+            // the holder is at the head, so this doesn't scan the queue
+            if (!tasks.remove(holder))
             {
-               // End of list here. No other task will be completed after this
-               break;
+               // onError took it
+               executorsPending.decrementAndGet();
+               continue;
             }
+            // If set, we use an executor to avoid the server being single threaded
+            execute(holder.task);
          }
+         // End of queue here. No other task will be completed after the head
+         missed = checksPending.addAndGet(-missed);
+      }
+      while (missed != 0);
+   }
+
+   private void failTasks()
+   {
+      TaskHolder holder;
+      while ((holder = tasks.poll()) != null)
+      {
+         holder.task.onError(errorCode, errorMessage);
       }
    }
 
    /**
+    * Callers must have raised {@link #executorsPending} for the task.
     * @param task
     */
    private void execute(final IOAsyncTask task)
    {
-      executorsPending.incrementAndGet();
       try
       {
          executor.execute(new Runnable()
@@ -257,21 +259,12 @@ public class OperationContextImpl implements OperationContext
    }
 
    @Override
-   public synchronized void onError(final int errorCode, final String errorMessage)
+   public void onError(final int errorCode, final String errorMessage)
    {
-      this.errorCode = errorCode;
       this.errorMessage = errorMessage;
+      this.errorCode = errorCode;
 
-      if (tasks != null)
-      {
-         Iterator<TaskHolder> iter = tasks.iterator();
-         while (iter.hasNext())
-         {
-            TaskHolder holder = iter.next();
-            holder.task.onError(errorCode, errorMessage);
-            iter.remove();
-         }
-      }
+      failTasks();
    }
 
    final class TaskHolder
@@ -290,19 +283,24 @@ public class OperationContextImpl implements OperationContext
                 "]";
       }
 
-      final int storeLined;
-      final int replicationLined;
-      final int pageLined;
+      final long storeLined;
+      final long replicationLined;
+      final long pageLined;
 
       final IOAsyncTask task;
 
       TaskHolder(final IOAsyncTask task)
       {
-         storeLined = storeLineUp.intValue();
-         replicationLined = replicationLineUp.intValue();
-         pageLined = pageLineUp.intValue();
+         storeLined = storeLineUp.get();
+         replicationLined = replicationLineUp.get();
+         pageLined = pageLineUp.get();
          this.task = task;
       }
+
+      boolean isComplete()
+      {
+         return stored.get() >= storeLined && replicated.get() >= replicationLined && paged.get() >= pageLined;
+      }
    }
 
    @Override
@@ -332,29 +330,21 @@ public class OperationContextImpl implements OperationContext
    public String toString()
    {
       StringBuffer buffer = new StringBuffer();
-      if (tasks != null)
+      for (TaskHolder hold : tasks)
       {
-         for (TaskHolder hold : tasks)
-         {
-            buffer.append("Task = " + hold + "\n");
-         }
+         buffer.append("Task = " + hold + "\n");
       }
 
-      return "OperationContextImpl [" + hashCode() + "] [minimalStore=" + minimalStore +
-             ", storeLineUp=" +
+      return "OperationContextImpl [" + hashCode() + "] [storeLineUp=" +
              storeLineUp +
              ", stored=" +
              stored +
-             ", minimalReplicated=" +
-             minimalReplicated +
              ", replicationLineUp=" +
              replicationLineUp +
              ", replicated=" +
              replicated +
              ", paged=" +
              paged +
-             ", minimalPage=" +
-             minimalPage +
              ", pageLineUp=" +
              pageLineUp +
              ", errorCode=" +
@@ -18,6 +18,7 @@ import org.hornetq.core.paging.PagingStore;
 import org.hornetq.core.server.Queue;
 import org.hornetq.core.server.RoutingContext;
 import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.cluster.LoadBalancingPolicy;
 
 /**
  * A Bindings
@@ -38,6 +39,8 @@ public interface Bindings
 
    void setRouteWhenNoConsumers(boolean takePriorityIntoAccount);
 
+   void setLoadBalancingPolicy(LoadBalancingPolicy loadBalancingPolicy);
+
    boolean redistribute(ServerMessage message, Queue originatingQueue, RoutingContext context) throws Exception;
 
    void route(ServerMessage message, RoutingContext context) throws Exception;
@@ -28,4 +28,14 @@ public interface QueueBinding extends Binding
    int consumerCount();
 
    Queue getQueue();
+
+   /**
+    * @return the number of messages waiting on the queue, as far as this node knows
+    */
+   long getMessageCount();
+
+   /**
+    * @return the number of messages per second acknowledged from the queue, as last sampled
+    */
+   long getConsumeRate();
 }
@@ -29,11 +29,13 @@ import org.hornetq.core.message.impl.MessageImpl;
 import org.hornetq.core.paging.PagingStore;
 import org.hornetq.core.postoffice.Binding;
 import org.hornetq.core.postoffice.Bindings;
+import org.hornetq.core.postoffice.QueueBinding;
 import org.hornetq.core.server.HornetQMessageBundle;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.Queue;
 import org.hornetq.core.server.RoutingContext;
 import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.cluster.LoadBalancingPolicy;
 import org.hornetq.core.server.group.GroupingHandler;
 import org.hornetq.core.server.group.impl.Proposal;
 import org.hornetq.core.server.group.impl.Response;
@@ -61,6 +63,8 @@ public final class BindingsImpl implements Bindings
 
    private volatile boolean routeWhenNoConsumers;
 
+   private volatile LoadBalancingPolicy loadBalancingPolicy = LoadBalancingPolicy.ROUND_ROBIN;
+
    private final GroupingHandler groupingHandler;
 
    private final PagingStore pageStore;
@@ -79,6 +83,11 @@ public final class BindingsImpl implements Bindings
       this.routeWhenNoConsumers = routeWhenNoConsumers;
    }
 
+   public void setLoadBalancingPolicy(final LoadBalancingPolicy loadBalancingPolicy)
+   {
+      this.loadBalancingPolicy = loadBalancingPolicy;
+   }
+
    public Collection<Binding> getBindings()
    {
       return bindingsMap.values();
@@ -179,6 +188,18 @@ public final class BindingsImpl implements Bindings
          return false;
       }
 
+      if (loadBalancingPolicy == LoadBalancingPolicy.CONSUMER_RATE)
+      {
+         Binding leastLoaded = getLeastLoadedBinding(message, routingName, bindings, originatingQueue);
+
+         if (leastLoaded != null)
+         {
+            leastLoaded.route(message, context);
+
+            return true;
+         }
+      }
+
       Integer ipos = routingNamePositions.get(routingName);
 
       int pos = ipos != null ? ipos.intValue() : 0;
@@ -324,6 +345,16 @@ public final class BindingsImpl implements Bindings
                                   final SimpleString routingName,
                                   final List<Binding> bindings)
    {
+      if (loadBalancingPolicy == LoadBalancingPolicy.CONSUMER_RATE && bindings.size() > 1)
+      {
+         Binding leastLoaded = getLeastLoadedBinding(message, routingName, bindings, null);
+
+         if (leastLoaded != null)
+         {
+            return leastLoaded;
+         }
+      }
+
       Integer ipos = routingNamePositions.get(routingName);
 
       int pos = ipos != null ? ipos : 0;
@@ -426,6 +457,82 @@ public final class BindingsImpl implements Bindings
       return theBinding;
    }
 
+   /**
+    * Picks, among the queue bindings whose filter matches the message and having a consumer whose
+    * filter matches it too (see {@link Binding#isHighAcceptPriority(ServerMessage)}), the one
+    * expected to drain its backlog first, i.e. with the lowest backlog / consume rate. The backlog
+    * and the rate are those of the whole queue, whichever of its consumers would take the message.
+    * Queues whose consumers keep up all score close to zero and are used in turn.
+    * <p>
+    * Returns {@code null} if no such binding is found, so the round robin can apply its own rules
+    * for that case.
+    */
+   private Binding getLeastLoadedBinding(final ServerMessage message,
+                                         final SimpleString routingName,
+                                         final List<Binding> bindings,
+                                         final Queue originatingQueue)
+   {
+      Integer ipos = routingNamePositions.get(routingName);
+
+      int length = bindings.size();
+
+      int startPos = ipos != null ? ipos : 0;
+
+      Binding theBinding = null;
+
+      int thePos = -1;
+
+      double lowestDrainTime = Double.MAX_VALUE;
+
+      for (int i = 0; i < length; i++)
+      {
+         int pos = (startPos + i) % length;
+
+         Binding binding;
+         try
+         {
+            binding = bindings.get(pos);
+         }
+         catch (IndexOutOfBoundsException e)
+         {
+            // This can occur if binding is removed while in route
+            break;
+         }
+
+         if (!(binding instanceof QueueBinding) || binding.getBindable() == originatingQueue)
+         {
+            continue;
+         }
+
+         Filter filter = binding.getFilter();
+
+         if (filter != null && !filter.match(message) || !binding.isHighAcceptPriority(message))
+         {
+            continue;
+         }
+
+         QueueBinding queueBinding = (QueueBinding)binding;
+
+         double drainTime = queueBinding.getMessageCount() / (double)Math.max(1, queueBinding.getConsumeRate());
+
+         if (drainTime < lowestDrainTime)
+         {
+            lowestDrainTime = drainTime;
+
+            theBinding = binding;
+
+            thePos = pos;
+         }
+      }
+
+      if (theBinding != null)
+      {
+         routingNamePositions.put(routingName, incrementPos(thePos, length));
+      }
+
+      return theBinding;
+   }
+
    private void routeUsingStrictOrdering(final ServerMessage message,
                                          final RoutingContext context,
                                          final GroupingHandler groupingGroupingHandler) throws Exception
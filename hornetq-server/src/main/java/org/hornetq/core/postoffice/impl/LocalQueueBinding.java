@@ -37,6 +37,8 @@ public class LocalQueueBinding implements QueueBinding
 
    private final SimpleString clusterName;
 
+   private volatile long consumeRate;
+
    public LocalQueueBinding(final SimpleString address, final Queue queue, final SimpleString nodeID)
    {
       this.address = address;
@@ -75,6 +77,25 @@ public class LocalQueueBinding implements QueueBinding
       return queue;
    }
 
+   public long getMessageCount()
+   {
+      return queue.getInstantMessageCount();
+   }
+
+   public long getConsumeRate()
+   {
+      return consumeRate;
+   }
+
+   /**
+    * Sets the consume rate sampled by the cluster connection, used to weigh this binding against
+    * the remote ones.
+    */
+   public void setConsumeRate(final long consumeRate)
+   {
+      this.consumeRate = consumeRate;
+   }
+
    public SimpleString getRoutingName()
    {
       return name;
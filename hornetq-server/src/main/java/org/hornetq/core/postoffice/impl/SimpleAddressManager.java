@@ -17,6 +17,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.message.impl.MessageImpl;
 import org.hornetq.core.postoffice.Address;
 import org.hornetq.core.postoffice.AddressManager;
 import org.hornetq.core.postoffice.Binding;
@@ -196,7 +197,7 @@ public class SimpleAddressManager implements AddressManager
       {
          bindings = bindingsFactory.createBindings(address);
 
-         prevBindings = mappings.putIfAbsent(address, bindings);
+         prevBindings = mappings.putIfAbsent(MessageImpl.internAddress(address), bindings);
 
          if (prevBindings != null)
          {
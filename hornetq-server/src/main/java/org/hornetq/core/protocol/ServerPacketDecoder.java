@@ -37,6 +37,7 @@ import org.hornetq.core.protocol.core.impl.wireformat.BackupReplicationStartFail
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationLiveIsStoppingMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddTXMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationCommitMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationDeleteMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationDeleteTXMessage;
@@ -167,6 +168,11 @@ public class ServerPacketDecoder extends PacketDecoder
             packet = new ReplicationLiveIsStoppingMessage();
             break;
          }
+         case PacketImpl.REPLICATION_BATCH:
+         {
+            packet = new ReplicationBatchMessage();
+            break;
+         }
          default:
          {
             packet = super.decode(packetType);
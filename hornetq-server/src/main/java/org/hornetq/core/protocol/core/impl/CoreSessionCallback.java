@@ -113,6 +113,11 @@ public final class CoreSessionCallback implements SessionCallback
       channel.getConnection().getTransportConnection().removeReadyListener(listener);
    }
 
+   public boolean isWritable(final long consumerID)
+   {
+      return true;
+   }
+
    @Override
    public void disconnect(long consumerId, String queueName)
    {
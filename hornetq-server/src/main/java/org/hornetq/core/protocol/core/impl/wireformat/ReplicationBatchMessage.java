@@ -0,0 +1,108 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.protocol.core.impl.wireformat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.core.protocol.ServerPacketDecoder;
+import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.utils.DataConstants;
+
+/**
+ * Carries several replication packets in a single frame, so the backup acknowledges them with a
+ * single response.
+ * <p>
+ * Packets are encoded as soon as they are added, since the records they refer to may change after
+ * the journal call returns. Each inner packet is framed as: length, type, channel ID, body.
+ */
+public final class ReplicationBatchMessage extends PacketImpl
+{
+   private HornetQBuffer encodedPackets;
+
+   private int count;
+
+   /** only filled on the receiving side */
+   private List<Packet> packets;
+
+   public ReplicationBatchMessage()
+   {
+      super(PacketImpl.REPLICATION_BATCH);
+   }
+
+   public ReplicationBatchMessage(final int initialSize)
+   {
+      this();
+      encodedPackets = HornetQBuffers.dynamicBuffer(initialSize);
+   }
+
+   public void addPacket(final PacketImpl packet)
+   {
+      int start = encodedPackets.writerIndex();
+      encodedPackets.writeInt(0);
+      encodedPackets.writeByte(packet.getType());
+      encodedPackets.writeLong(packet.getChannelID());
+      packet.encodeRest(encodedPackets);
+      encodedPackets.setInt(start, encodedPackets.writerIndex() - start - DataConstants.SIZE_INT);
+      count++;
+   }
+
+   /**
+    * @return the number of packets in this batch
+    */
+   public int getCount()
+   {
+      return count;
+   }
+
+   /**
+    * @return the number of bytes used by the encoded packets
+    */
+   public int getBatchSize()
+   {
+      return encodedPackets.writerIndex();
+   }
+
+   public List<Packet> getPackets()
+   {
+      return packets;
+   }
+
+   @Override
+   public void encodeRest(final HornetQBuffer buffer)
+   {
+      buffer.writeInt(count);
+      buffer.writeBytes(encodedPackets, 0, encodedPackets.writerIndex());
+   }
+
+   @Override
+   public void decodeRest(final HornetQBuffer buffer)
+   {
+      count = buffer.readInt();
+      packets = new ArrayList<Packet>(count);
+      for (int i = 0; i < count; i++)
+      {
+         int length = buffer.readInt();
+         packets.add(ServerPacketDecoder.INSTANCE.decode(buffer.readSlice(length)));
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      return getParentString() + ", count=" + count + "]";
+   }
+}
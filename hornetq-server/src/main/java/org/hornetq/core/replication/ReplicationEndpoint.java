@@ -53,6 +53,7 @@ import org.hornetq.core.protocol.core.impl.wireformat.BackupReplicationStartFail
 import org.hornetq.core.protocol.core.impl.wireformat.HornetQExceptionMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddTXMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationCommitMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationDeleteMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationDeleteTXMessage;
@@ -154,78 +155,25 @@ public final class ReplicationEndpoint implements ChannelHandler, HornetQCompone
    public void handlePacket(final Packet packet)
    {
       PacketImpl response = new ReplicationResponseMessage();
-      final byte type=packet.getType();
 
       try
       {
-            if (!started)
-            {
-               return;
-            }
-
-            if (type == PacketImpl.REPLICATION_APPEND)
-            {
-               handleAppendAddRecord((ReplicationAddMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_APPEND_TX)
-            {
-               handleAppendAddTXRecord((ReplicationAddTXMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_DELETE)
-            {
-               handleAppendDelete((ReplicationDeleteMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_DELETE_TX)
-            {
-               handleAppendDeleteTX((ReplicationDeleteTXMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_PREPARE)
-            {
-               handlePrepare((ReplicationPrepareMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_COMMIT_ROLLBACK)
-            {
-               handleCommitRollback((ReplicationCommitMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_PAGE_WRITE)
-            {
-               handlePageWrite((ReplicationPageWriteMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_PAGE_EVENT)
-            {
-               handlePageEvent((ReplicationPageEventMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_LARGE_MESSAGE_BEGIN)
-            {
-               handleLargeMessageBegin((ReplicationLargeMessageBeginMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_LARGE_MESSAGE_WRITE)
-            {
-               handleLargeMessageWrite((ReplicationLargeMessageWriteMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_LARGE_MESSAGE_END)
-            {
-               handleLargeMessageEnd((ReplicationLargeMessageEndMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_START_FINISH_SYNC)
-            {
-               handleStartReplicationSynchronization((ReplicationStartSyncMessage) packet);
-            }
-            else if (type == PacketImpl.REPLICATION_SYNC_FILE)
-            {
-               handleReplicationSynchronization((ReplicationSyncFileMessage) packet);
-            }
-         else if (type == PacketImpl.REPLICATION_SCHEDULED_FAILOVER)
+         if (!started)
          {
-            handleLiveStopping((ReplicationLiveIsStoppingMessage)packet);
+            return;
          }
-         else if (type == PacketImpl.BACKUP_REGISTRATION_FAILED)
+
+         if (packet.getType() == PacketImpl.REPLICATION_BATCH)
          {
-            handleFatalError((BackupReplicationStartFailedMessage)packet);
+            // a single response acknowledges the whole batch
+            for (Packet batchedPacket : ((ReplicationBatchMessage)packet).getPackets())
+            {
+               handleReplicationPacket(batchedPacket);
+            }
          }
          else
          {
-            HornetQServerLogger.LOGGER.invalidPacketForReplication(packet);
+            handleReplicationPacket(packet);
          }
       }
       catch (HornetQException e)
@@ -242,6 +190,76 @@ public final class ReplicationEndpoint implements ChannelHandler, HornetQCompone
       channel.send(response);
    }
 
+   private void handleReplicationPacket(final Packet packet) throws Exception
+   {
+      final byte type = packet.getType();
+
+      if (type == PacketImpl.REPLICATION_APPEND)
+      {
+         handleAppendAddRecord((ReplicationAddMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_APPEND_TX)
+      {
+         handleAppendAddTXRecord((ReplicationAddTXMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_DELETE)
+      {
+         handleAppendDelete((ReplicationDeleteMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_DELETE_TX)
+      {
+         handleAppendDeleteTX((ReplicationDeleteTXMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_PREPARE)
+      {
+         handlePrepare((ReplicationPrepareMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_COMMIT_ROLLBACK)
+      {
+         handleCommitRollback((ReplicationCommitMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_PAGE_WRITE)
+      {
+         handlePageWrite((ReplicationPageWriteMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_PAGE_EVENT)
+      {
+         handlePageEvent((ReplicationPageEventMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_LARGE_MESSAGE_BEGIN)
+      {
+         handleLargeMessageBegin((ReplicationLargeMessageBeginMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_LARGE_MESSAGE_WRITE)
+      {
+         handleLargeMessageWrite((ReplicationLargeMessageWriteMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_LARGE_MESSAGE_END)
+      {
+         handleLargeMessageEnd((ReplicationLargeMessageEndMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_START_FINISH_SYNC)
+      {
+         handleStartReplicationSynchronization((ReplicationStartSyncMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_SYNC_FILE)
+      {
+         handleReplicationSynchronization((ReplicationSyncFileMessage) packet);
+      }
+      else if (type == PacketImpl.REPLICATION_SCHEDULED_FAILOVER)
+      {
+         handleLiveStopping((ReplicationLiveIsStoppingMessage)packet);
+      }
+      else if (type == PacketImpl.BACKUP_REGISTRATION_FAILED)
+      {
+         handleFatalError((BackupReplicationStartFailedMessage)packet);
+      }
+      else
+      {
+         HornetQServerLogger.LOGGER.invalidPacketForReplication(packet);
+      }
+   }
+
    /**
     * @param packet
     */
@@ -529,6 +547,11 @@ public final class ReplicationEndpoint implements ChannelHandler, HornetQCompone
 
       if (data == null)
       {
+         // the data was written without syncing, as the file is only needed once it is complete
+         if (channel1.isOpen())
+         {
+            channel1.sync();
+         }
          channel1.close();
          return;
       }
@@ -537,7 +560,7 @@ public final class ReplicationEndpoint implements ChannelHandler, HornetQCompone
       {
          channel1.open(1, false);
       }
-      channel1.writeDirect(ByteBuffer.wrap(data), true);
+      channel1.writeDirect(ByteBuffer.wrap(data), false);
    }
 
    /**
@@ -24,6 +24,9 @@ import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.HornetQException;
@@ -32,6 +35,7 @@ import org.hornetq.api.core.Pair;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.client.SessionFailureListener;
 import org.hornetq.core.journal.EncodingSupport;
+import org.hornetq.core.journal.IOAsyncTask;
 import org.hornetq.core.journal.SequentialFile;
 import org.hornetq.core.journal.impl.JournalFile;
 import org.hornetq.core.paging.PagedMessage;
@@ -46,6 +50,7 @@ import org.hornetq.core.protocol.core.impl.ChannelImpl.CHANNEL_ID;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddTXMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationCommitMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationDeleteMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationDeleteTXMessage;
@@ -63,6 +68,7 @@ import org.hornetq.core.server.HornetQComponent;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.utils.ExecutorFactory;
+import org.hornetq.utils.LatencyHistogram;
 
 /**
  * Manages replication tasks on the live server (that is the live server side of a "remote backup"
@@ -101,6 +107,35 @@ public final class ReplicationManager implements HornetQComponent
       }
    }
 
+   /**
+    * Batches are sent as soon as they reach this size, without waiting for the flush task.
+    */
+   private static final int MAX_BATCH_SIZE = 128 * 1024;
+
+   private static final int INITIAL_BATCH_SIZE = 4 * 1024;
+
+   /**
+    * Maximum number of file chunks sent during synchronization that the backup hasn't acknowledged
+    * yet. Files may be sent by several threads at once, so this bounds the memory queued on the
+    * connection.
+    */
+   private static final int MAX_PENDING_SYNC_CHUNKS = 64;
+
+   private final Semaphore pendingSyncChunks = new Semaphore(MAX_PENDING_SYNC_CHUNKS);
+
+   private final IOAsyncTask syncChunkDone = new IOAsyncTask()
+   {
+      public void done()
+      {
+         pendingSyncChunks.release();
+      }
+
+      public void onError(final int errorCode, final String errorMessage)
+      {
+         pendingSyncChunks.release();
+      }
+   };
+
    private final ResponseHandler responseHandler = new ResponseHandler();
 
    private final Channel replicatingChannel;
@@ -115,6 +150,27 @@ public final class ReplicationManager implements HornetQComponent
 
    private final Queue<OperationContext> pendingTokens = new ConcurrentLinkedQueue<OperationContext>();
 
+   /** Number of tokens completed by each response the backup still owes us, in sending order */
+   private final Queue<Integer> pendingResponses = new ConcurrentLinkedQueue<Integer>();
+
+   /** When each frame the backup still owes a response for was sent, only kept when metrics are enabled */
+   private final Queue<Long> pendingSendTimes = new ConcurrentLinkedQueue<Long>();
+
+   private LatencyHistogram roundTripLatency;
+
+   /**
+    * Journal, paging and large-message records are coalesced here (guarded by {@link #replicationLock})
+    * until the flush task runs, so records appended concurrently travel in the same frame and are
+    * acked by a single response.
+    */
+   private ReplicationBatchMessage pendingBatch;
+
+   private boolean batchFlushScheduled;
+
+   private final Executor batchFlushExecutor;
+
+   private final Runnable batchFlusher = new BatchFlusher();
+
    private final ExecutorFactory executorFactory;
 
    private SessionFailureListener failureListener;
@@ -129,10 +185,20 @@ public final class ReplicationManager implements HornetQComponent
    public ReplicationManager(CoreRemotingConnection remotingConnection, final ExecutorFactory executorFactory)
    {
       this.executorFactory = executorFactory;
+      this.batchFlushExecutor = executorFactory.getExecutor();
       this.replicatingChannel = remotingConnection.getChannel(CHANNEL_ID.REPLICATION.id, -1);
       this.remotingConnection = remotingConnection;
    }
 
+   /**
+    * Records the time between sending each frame and receiving its response. Must be called before
+    * {@link #start()}.
+    */
+   public void setRoundTripLatency(final LatencyHistogram roundTripLatency)
+   {
+      this.roundTripLatency = roundTripLatency;
+   }
+
    public void appendUpdateRecord(final byte journalID, final ADD_OPERATION_TYPE operation, final long id,
                                   final byte recordType,
  final EncodingSupport record) throws Exception
@@ -322,6 +388,9 @@ public final class ReplicationManager implements HornetQComponent
    {
       synchronized (replicationLock)
       {
+         pendingBatch = null;
+         pendingResponses.clear();
+         pendingSendTimes.clear();
          while (!pendingTokens.isEmpty())
          {
             OperationContext ctx = pendingTokens.poll();
@@ -361,6 +430,20 @@ public final class ReplicationManager implements HornetQComponent
    }
 
    private OperationContext sendReplicatePacket(final Packet packet, boolean lineUp)
+   {
+      return sendReplicatePacket(packet, lineUp, true);
+   }
+
+   /**
+    * Sends a packet that must not wait in the batch, such as synchronization and fail-over control
+    * packets. Any pending batch is sent before it, to keep the ordering.
+    */
+   private OperationContext sendUnbatchedPacket(final Packet packet)
+   {
+      return sendReplicatePacket(packet, true, false);
+   }
+
+   private OperationContext sendReplicatePacket(final Packet packet, boolean lineUp, boolean batch)
    {
       if (!enabled)
          return null;
@@ -377,7 +460,17 @@ public final class ReplicationManager implements HornetQComponent
          if (enabled)
          {
             pendingTokens.add(repliToken);
-            replicatingChannel.send(packet);
+            if (batch)
+            {
+               addToBatch((PacketImpl)packet);
+            }
+            else
+            {
+               flushBatch();
+               pendingResponses.add(1);
+               sending();
+               replicatingChannel.send(packet);
+            }
          }
          else
          {
@@ -396,6 +489,56 @@ public final class ReplicationManager implements HornetQComponent
       return repliToken;
    }
 
+   /**
+    * Must be called holding {@link #replicationLock}
+    */
+   private void addToBatch(final PacketImpl packet)
+   {
+      if (pendingBatch == null)
+      {
+         pendingBatch = new ReplicationBatchMessage(INITIAL_BATCH_SIZE);
+      }
+
+      pendingBatch.addPacket(packet);
+
+      if (pendingBatch.getBatchSize() >= MAX_BATCH_SIZE)
+      {
+         flushBatch();
+      }
+      else if (!batchFlushScheduled)
+      {
+         batchFlushScheduled = true;
+         batchFlushExecutor.execute(batchFlusher);
+      }
+   }
+
+   /**
+    * Must be called holding {@link #replicationLock}
+    */
+   private void flushBatch()
+   {
+      ReplicationBatchMessage batch = pendingBatch;
+
+      if (batch != null)
+      {
+         pendingBatch = null;
+         pendingResponses.add(batch.getCount());
+         sending();
+         replicatingChannel.send(batch);
+      }
+   }
+
+   /**
+    * Must be called holding {@link #replicationLock}
+    */
+   private void sending()
+   {
+      if (roundTripLatency != null)
+      {
+         pendingSendTimes.add(System.nanoTime());
+      }
+   }
+
    /**
     * @throws IllegalStateException By default, all replicated packets generate a replicated
     *            response. If your packets are triggering this exception, it may be because the
@@ -403,14 +546,30 @@ public final class ReplicationManager implements HornetQComponent
     */
    private void replicated()
    {
-      OperationContext ctx = pendingTokens.poll();
+      Integer count = pendingResponses.poll();
 
-      if (ctx == null)
+      if (count == null)
       {
          throw new IllegalStateException("Missing replication token on the queue.");
       }
 
-      ctx.replicationDone();
+      Long sent = pendingSendTimes.poll();
+      if (sent != null)
+      {
+         roundTripLatency.recordSince(sent);
+      }
+
+      for (int i = 0; i < count; i++)
+      {
+         OperationContext ctx = pendingTokens.poll();
+
+         if (ctx == null)
+         {
+            throw new IllegalStateException("Missing replication token on the queue.");
+         }
+
+         ctx.replicationDone();
+      }
    }
 
    // Inner classes -------------------------------------------------
@@ -444,6 +603,22 @@ public final class ReplicationManager implements HornetQComponent
       }
    }
 
+   private final class BatchFlusher implements Runnable
+   {
+      public void run()
+      {
+         synchronized (replicationLock)
+         {
+            batchFlushScheduled = false;
+
+            if (enabled)
+            {
+               flushBatch();
+            }
+         }
+      }
+   }
+
    private final class ResponseHandler implements ChannelHandler
    {
      public void handlePacket(final Packet packet)
@@ -530,6 +705,9 @@ public final class ReplicationManager implements HornetQComponent
 
    /**
     * Sends large files in reasonably sized chunks to the backup during replication synchronization.
+    * <p>
+    * This may be called concurrently for different files, chunks of different files are then
+    * interleaved on the replicating channel.
     * @param content journal type or {@code null} for large-messages and pages
     * @param pageStore page store name for pages, or {@code null} otherwise
     * @param id journal file id or (large) message id
@@ -575,8 +753,22 @@ public final class ReplicationManager implements HornetQComponent
                   }
                   buffer.rewind();
 
+                  if (!acquireSyncChunk())
+                  {
+                     return;
+                  }
+
                   // sending -1 or 0 bytes will close the file at the backup
-                  sendReplicatePacket(new ReplicationSyncFileMessage(content, pageStore, id, toSend, buffer));
+                  OperationContext token =
+                     sendUnbatchedPacket(new ReplicationSyncFileMessage(content, pageStore, id, toSend, buffer));
+                  if (token == null)
+                  {
+                     pendingSyncChunks.release();
+                  }
+                  else
+                  {
+                     token.executeOnCompletion(syncChunkDone);
+                  }
                   if (bytesRead == -1 || bytesRead == 0 || maxBytesToSend == 0)
                      break;
                }
@@ -598,6 +790,22 @@ public final class ReplicationManager implements HornetQComponent
       }
    }
 
+   /**
+    * Waits until the backup has acknowledged enough synchronization chunks to send another one.
+    * @return {@code false} if replication was stopped meanwhile
+    */
+   private boolean acquireSyncChunk() throws InterruptedException
+   {
+      while (enabled)
+      {
+         if (pendingSyncChunks.tryAcquire(1, TimeUnit.SECONDS))
+         {
+            return true;
+         }
+      }
+      return false;
+   }
+
    /**
     * Reserve the following fileIDs in the backup server.
     * @param datafiles
@@ -608,7 +816,7 @@ public final class ReplicationManager implements HornetQComponent
                                     boolean allowsAutoFailBack) throws HornetQException
    {
       if (enabled)
-         sendReplicatePacket(new ReplicationStartSyncMessage(datafiles, contentType, nodeID, allowsAutoFailBack));
+         sendUnbatchedPacket(new ReplicationStartSyncMessage(datafiles, contentType, nodeID, allowsAutoFailBack));
    }
 
    /**
@@ -622,7 +830,7 @@ public final class ReplicationManager implements HornetQComponent
    {
       if (enabled)
       {
-         sendReplicatePacket(new ReplicationStartSyncMessage(nodeID));
+         sendUnbatchedPacket(new ReplicationStartSyncMessage(nodeID));
          inSync = false;
       }
    }
@@ -641,7 +849,7 @@ public final class ReplicationManager implements HornetQComponent
          idsToSend = new ArrayList<Long>(largeMessagesToSync.keySet());
 
       if (enabled)
-         sendReplicatePacket(new ReplicationStartSyncMessage(idsToSend));
+         sendUnbatchedPacket(new ReplicationStartSyncMessage(idsToSend));
    }
 
    /**
@@ -657,7 +865,7 @@ public final class ReplicationManager implements HornetQComponent
       if (enabled)
       {
          HornetQServerLogger.LOGGER.warn("LIVE IS STOPPING?!? message=" + finalMessage + " " + enabled);
-         return sendReplicatePacket(new ReplicationLiveIsStoppingMessage(finalMessage));
+         return sendUnbatchedPacket(new ReplicationLiveIsStoppingMessage(finalMessage));
       }
       return null;
    }
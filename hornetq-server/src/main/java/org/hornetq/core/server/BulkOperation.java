@@ -0,0 +1,67 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.server;
+
+/**
+ * A removal, move, expiry or priority change of the messages of a queue matching a filter,
+ * running in the background.
+ * <p>
+ * The operation works in chunks: each chunk holds the queue lock for at most {@code flushLimit}
+ * messages and commits its own transaction, so delivery carries on between chunks and the
+ * messages already processed stay processed if the operation is cancelled or fails.
+ */
+public interface BulkOperation
+{
+   String REMOVE = "remove";
+
+   String MOVE = "move";
+
+   String EXPIRE = "expire";
+
+   String CHANGE_PRIORITY = "change-priority";
+
+   long getID();
+
+   /**
+    * Returns one of {@link #REMOVE}, {@link #MOVE}, {@link #EXPIRE} or {@link #CHANGE_PRIORITY}.
+    */
+   String getType();
+
+   /**
+    * Returns the filter of the operation, {@code null} if it applies to every message.
+    */
+   String getFilter();
+
+   long getStartTime();
+
+   /**
+    * Returns the number of messages processed so far.
+    */
+   int getCount();
+
+   boolean isDone();
+
+   boolean isCancelled();
+
+   /**
+    * Returns the error which stopped the operation, {@code null} if there was none.
+    */
+   String getError();
+
+   /**
+    * Asks the operation to stop after its current chunk.
+    *
+    * @return {@code false} if the operation was already done
+    */
+   boolean cancel();
+}
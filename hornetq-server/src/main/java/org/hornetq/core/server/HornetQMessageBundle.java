@@ -334,4 +334,10 @@ public interface HornetQMessageBundle
    @Message(id = 119101, value = "error trying to backup journal files at directory: {0}",
          format = Message.Format.MESSAGE_FORMAT)
    IllegalStateException couldNotMoveJournal(File dir);
+
+   @Message(id = 119102, value = "Invalid load balancing policy type {0}", format = Message.Format.MESSAGE_FORMAT)
+   IllegalArgumentException invalidLoadBalancingPolicyType(String val);
+
+   @Message(id = 119103, value = "Message compressed with unknown compression codec {0}", format = Message.Format.MESSAGE_FORMAT)
+   HornetQException unknownCompressionCodec(SimpleString codec);
 }
@@ -40,6 +40,7 @@ import org.hornetq.core.server.cluster.ClusterManager;
 import org.hornetq.core.server.group.GroupingHandler;
 import org.hornetq.core.server.impl.ConnectorsService;
 import org.hornetq.core.server.management.ManagementService;
+import org.hornetq.core.server.metrics.MetricsManager;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.impl.AddressSettings;
 import org.hornetq.core.transaction.ResourceManager;
@@ -215,6 +216,11 @@ public interface HornetQServer extends HornetQComponent
 
    ReplicationManager getReplicationManager();
 
+   /**
+    * @return the latency metrics of this server, or {@code null} if metrics are disabled
+    */
+   MetricsManager getMetricsManager();
+
    void deployDivert(DivertConfiguration config) throws Exception;
 
    void destroyDivert(SimpleString name) throws Exception;
@@ -1054,6 +1054,22 @@ public interface HornetQServerLogger extends BasicLogger
             format = Message.Format.MESSAGE_FORMAT)
    void errorRecoveringPageCounter(@Cause Throwable error);
 
+   @LogMessage(level = Logger.Level.WARN)
+   @Message(id = 222179, value = "Error instantiating metrics reporter {0}", format = Message.Format.MESSAGE_FORMAT)
+   void errorCreatingMetricsReporter(@Cause Exception e, String reporterClass);
+
+   @LogMessage(level = Logger.Level.WARN)
+   @Message(id = 222180, value = "Metrics reporter {0} failed to report", format = Message.Format.MESSAGE_FORMAT)
+   void errorReportingMetrics(@Cause Throwable e, String reporterClass);
+
+   @LogMessage(level = Logger.Level.WARN)
+   @Message(id = 222181, value = "Error running the {0} bulk operation on queue {1}", format = Message.Format.MESSAGE_FORMAT)
+   void errorRunningBulkOperation(@Cause Exception e, String type, SimpleString queue);
+
+   @LogMessage(level = Logger.Level.WARN)
+   @Message(id = 222182, value = "Error instantiating compression codec {0}", format = Message.Format.MESSAGE_FORMAT)
+   void errorCreatingCompressionCodec(@Cause Exception e, String codecClass);
+
    @LogMessage(level = Logger.Level.ERROR)
    @Message(id = 224000, value = "Failure in initialisation", format = Message.Format.MESSAGE_FORMAT)
    void initializationError(@Cause Throwable e);
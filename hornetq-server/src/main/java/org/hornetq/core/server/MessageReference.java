@@ -69,5 +69,14 @@ public interface MessageReference
 
    Long getConsumerId();
 
+   /**
+    * The {@link System#nanoTime()} at which the reference was last added to its queue or
+    * delivered, or 0 if unknown. Only maintained when metrics are enabled.
+    * @see org.hornetq.core.server.metrics.QueueMetrics
+    */
+   long getLatencyTimestamp();
+
+   void setLatencyTimestamp(long nanoTime);
+
    void handled();
 }
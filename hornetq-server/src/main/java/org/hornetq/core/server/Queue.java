@@ -20,6 +20,7 @@ import java.util.concurrent.Executor;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.filter.Filter;
 import org.hornetq.core.paging.cursor.PageSubscription;
+import org.hornetq.core.server.metrics.QueueMetrics;
 import org.hornetq.core.transaction.Transaction;
 import org.hornetq.utils.LinkedListIterator;
 import org.hornetq.utils.ReferenceCounter;
@@ -115,6 +116,31 @@ public interface Queue extends Bindable
    /** Return the current message count without waiting for scheduled executors to finish */
    long getInstantMessageCount();
 
+   /**
+    * Registers a filter whose matching messages are counted as they enter and leave this queue, so their number
+    * can be read without going through the queue.
+    * <br>
+    * The messages already in the queue are counted once, when the filter is registered. Messages added or
+    * acknowledged while that count is taken may be missed or counted twice.
+    * @return {@code false} if a filter with the same filter string is already registered
+    */
+   boolean addCountingFilter(Filter filter);
+
+   boolean removeCountingFilter(SimpleString filterString);
+
+   /**
+    * @return the number of messages matching the counting filter registered with this filter string, or -1 if there
+    * is no such filter or if the count can't be trusted because the queue is paging
+    */
+   long getCountingFilterCount(SimpleString filterString);
+
+   SimpleString[] getCountingFilters();
+
+   /**
+    * @return the latency metrics of this queue, or {@code null} if metrics are disabled
+    */
+   QueueMetrics getMetrics();
+
    int getDeliveringCount();
 
    void referenceHandled();
@@ -147,6 +173,12 @@ public interface Queue extends Bindable
 
    long getInstantMessagesAdded();
 
+   /**
+    * Return the number of messages acknowledged on this queue since it was created, without waiting
+    * for scheduled executors to finish.
+    */
+   long getMessagesAcknowledged();
+
    MessageReference removeReferenceWithID(long id) throws Exception;
 
    MessageReference getReference(long id);
@@ -188,10 +220,43 @@ public interface Queue extends Bindable
 
    int moveReferences(final int flushLimit, Filter filter, SimpleString toAddress, boolean rejectDuplicates) throws Exception;
 
+   /**
+    * Starts {@link #deleteMatchingReferences(int, Filter)} in the background.
+    */
+   BulkOperation deleteMatchingReferencesInBackground(int flushLimit, Filter filter) throws Exception;
+
+   /**
+    * Starts {@link #expireReferences(Filter)} in the background.
+    */
+   BulkOperation expireReferencesInBackground(int flushLimit, Filter filter) throws Exception;
+
+   /**
+    * Starts {@link #moveReferences(int, Filter, SimpleString, boolean)} in the background.
+    */
+   BulkOperation moveReferencesInBackground(int flushLimit, Filter filter, SimpleString toAddress, boolean rejectDuplicates) throws Exception;
+
+   /**
+    * Starts {@link #changeReferencesPriority(Filter, byte)} in the background.
+    */
+   BulkOperation changeReferencesPriorityInBackground(int flushLimit, Filter filter, byte newPriority) throws Exception;
+
+   /**
+    * Returns the bulk operations started in the background on this queue, oldest first: those still
+    * running and the last ones to have finished.
+    */
+   List<BulkOperation> getBulkOperations();
+
    void addRedistributor(long delay);
 
    void cancelRedistributor() throws Exception;
 
+   /**
+    * Moves up to {@code messages} messages to the same queue on other nodes of the cluster, even
+    * though this queue may still have consumers. Does nothing if messages are already being
+    * redistributed.
+    */
+   void redistributeBacklog(int messages);
+
    boolean hasMatchingConsumer(ServerMessage message);
 
    Collection<Consumer> getConsumers();
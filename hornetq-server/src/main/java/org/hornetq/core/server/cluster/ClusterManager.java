@@ -548,25 +548,27 @@ public final class ClusterManager implements HornetQComponent
 
       clusterLocators.add(serverLocator);
 
-      Bridge bridge = new BridgeImpl(serverLocator,
-                                     config.getInitialConnectAttempts(),
-                                     config.getReconnectAttempts(),
-                                     config.getReconnectAttemptsOnSameNode(),
-                                     config.getRetryInterval(),
-                                     config.getRetryIntervalMultiplier(),
-                                     config.getMaxRetryInterval(),
-                                     nodeManager.getUUID(),
-                                     new SimpleString(config.getName()),
-                                     queue,
-                                     executorFactory.getExecutor(),
-                                     FilterImpl.createFilter(config.getFilterString()),
-                                     SimpleString.toSimpleString(config.getForwardingAddress()),
-                                     scheduledExecutor,
-                                     transformer,
-                                     config.isUseDuplicateDetection(),
-                                     config.getUser(),
-                                     config.getPassword(),
-                                     server.getStorageManager());
+      BridgeImpl bridge = new BridgeImpl(serverLocator,
+                                         config.getInitialConnectAttempts(),
+                                         config.getReconnectAttempts(),
+                                         config.getReconnectAttemptsOnSameNode(),
+                                         config.getRetryInterval(),
+                                         config.getRetryIntervalMultiplier(),
+                                         config.getMaxRetryInterval(),
+                                         nodeManager.getUUID(),
+                                         new SimpleString(config.getName()),
+                                         queue,
+                                         executorFactory.getExecutor(),
+                                         FilterImpl.createFilter(config.getFilterString()),
+                                         SimpleString.toSimpleString(config.getForwardingAddress()),
+                                         scheduledExecutor,
+                                         transformer,
+                                         config.isUseDuplicateDetection(),
+                                         config.getUser(),
+                                         config.getPassword(),
+                                         server.getStorageManager());
+
+      bridge.setAckBatch(config.getAckBatchSize(), config.getAckBatchDelay());
 
       bridges.put(config.getName(), bridge);
 
@@ -790,6 +792,10 @@ public final class ClusterManager implements HornetQComponent
       }
 
 
+      clusterConnection.setLoadBalancing(config.getLoadBalancingPolicy(),
+                                         config.getLoadReportInterval(),
+                                         config.getRedistributionThreshold());
+
       if (defaultClusterConnection == null)
       {
          defaultClusterConnection = clusterConnection;
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.server.cluster;
+
+/**
+ * How messages sent to an address are spread over the queues bound to it with the same routing
+ * name on the different nodes of a cluster.
+ */
+public enum LoadBalancingPolicy
+{
+   /**
+    * Each message goes to the next queue in turn.
+    */
+   ROUND_ROBIN,
+
+   /**
+    * Each message goes to the queue expected to drain first, judging by the backlog and the consume
+    * rate each node advertises for its queues.
+    */
+   CONSUMER_RATE;
+}
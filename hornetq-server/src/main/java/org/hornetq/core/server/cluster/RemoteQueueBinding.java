@@ -29,4 +29,9 @@ public interface RemoteQueueBinding extends QueueBinding
    void addConsumer(SimpleString filterString) throws Exception;
 
    void removeConsumer(SimpleString filterString) throws Exception;
+
+   /**
+    * Updates the backlog and consume rate advertised by the node owning the queue.
+    */
+   void setLoad(long messageCount, long consumeRate);
 }
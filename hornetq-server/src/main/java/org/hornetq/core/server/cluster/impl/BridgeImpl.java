@@ -13,6 +13,7 @@
 package org.hornetq.core.server.cluster.impl;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -50,6 +51,8 @@ import org.hornetq.core.server.cluster.Bridge;
 import org.hornetq.core.server.cluster.Transformer;
 import org.hornetq.core.server.management.Notification;
 import org.hornetq.core.server.management.NotificationService;
+import org.hornetq.core.transaction.Transaction;
+import org.hornetq.core.transaction.impl.TransactionImpl;
 import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.utils.FutureLatch;
 import org.hornetq.utils.ReusableLatch;
@@ -100,6 +103,15 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
 
    private final java.util.Queue<MessageReference> refs = new ConcurrentLinkedQueue<MessageReference>();
 
+   /** References confirmed by the target and not yet acknowledged on the source queue */
+   private final List<MessageReference> ackBatch = new ArrayList<MessageReference>();
+
+   private int ackBatchSize = 1;
+
+   private long ackBatchDelay;
+
+   private ScheduledFuture<?> ackBatchFuture;
+
    private final Transformer transformer;
 
    private final Object connectionGuard = new Object();
@@ -120,6 +132,8 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
 
    private final long maxRetryInterval;
 
+   private final StorageManager storageManager;
+
    /** Used when there's a scheduled reconnection */
    protected ScheduledFuture<?> futureScheduledReconnection;
 
@@ -205,6 +219,8 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
       this.user = user;
 
       this.password = password;
+
+      this.storageManager = storageManager;
    }
 
    public final static byte[] getDuplicateBytes(final UUID nodeUUID, final long messageID)
@@ -240,6 +256,17 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
       this.notificationService = notificationService;
    }
 
+   /**
+    * Acknowledges the references confirmed by the target in transactions of up to
+    * {@code ackBatchSize} references, instead of one journal update per reference. A partial batch
+    * is committed after {@code ackBatchDelay} milliseconds. Must be set before the bridge is started.
+    */
+   public void setAckBatch(final int ackBatchSize, final long ackBatchDelay)
+   {
+      this.ackBatchSize = ackBatchSize;
+      this.ackBatchDelay = ackBatchDelay;
+   }
+
    public synchronized void start() throws Exception
    {
       if (started)
@@ -309,6 +336,10 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
 
    public void getDeliveringMessages(List<MessageReference> refList)
    {
+      synchronized (ackBatch)
+      {
+         refList.addAll(ackBatch);
+      }
       synchronized(this)
       {
          refList.addAll(refs);
@@ -489,6 +520,12 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
 
             if (ref != null)
             {
+               if (ackBatchSize > 1)
+               {
+                  addToAckBatch(ref);
+                  return;
+               }
+
                if (isTrace)
                {
                   HornetQServerLogger.LOGGER.trace(this + " Acking " + ref + " on queue " + ref.getQueue());
@@ -504,6 +541,106 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
       }
    }
 
+   private void addToAckBatch(final MessageReference ref)
+   {
+      List<MessageReference> toAck = null;
+
+      synchronized (ackBatch)
+      {
+         ackBatch.add(ref);
+
+         if (ackBatch.size() >= ackBatchSize)
+         {
+            toAck = takeAckBatch();
+         }
+         else if (ackBatchFuture == null)
+         {
+            ackBatchFuture = scheduledExecutor.schedule(new Runnable()
+            {
+               public void run()
+               {
+                  flushAckBatch();
+               }
+            }, ackBatchDelay, TimeUnit.MILLISECONDS);
+         }
+      }
+
+      if (toAck != null)
+      {
+         acknowledge(toAck);
+      }
+   }
+
+   /**
+    * Must be called while holding the ackBatch lock
+    */
+   private List<MessageReference> takeAckBatch()
+   {
+      if (ackBatchFuture != null)
+      {
+         ackBatchFuture.cancel(false);
+         ackBatchFuture = null;
+      }
+
+      if (ackBatch.isEmpty())
+      {
+         return null;
+      }
+
+      List<MessageReference> toAck = new ArrayList<MessageReference>(ackBatch);
+      ackBatch.clear();
+      return toAck;
+   }
+
+   /**
+    * Acknowledges, in a single transaction, every reference already confirmed by the target
+    */
+   private void flushAckBatch()
+   {
+      List<MessageReference> toAck;
+
+      synchronized (ackBatch)
+      {
+         toAck = takeAckBatch();
+      }
+
+      if (toAck != null)
+      {
+         acknowledge(toAck);
+      }
+   }
+
+   private void acknowledge(final List<MessageReference> toAck)
+   {
+      if (isTrace)
+      {
+         HornetQServerLogger.LOGGER.trace(this + " Acking " + toAck.size() + " references in a single transaction");
+      }
+
+      // this is called from the bridge's client threads, which must not share IO contexts with other servers
+      storageManager.clearContext();
+      try
+      {
+         Transaction tx = new TransactionImpl(storageManager);
+
+         for (MessageReference ref : toAck)
+         {
+            ref.getQueue().acknowledge(tx, ref);
+         }
+
+         tx.commit();
+      }
+      catch (Exception e)
+      {
+         HornetQServerLogger.LOGGER.bridgeFailedToAck(e);
+      }
+      finally
+      {
+         storageManager.clearContext();
+         pendingAcks.countDown(toAck.size());
+      }
+   }
+
    protected boolean isPlainCoreBridge()
    {
       return true;
@@ -772,6 +909,9 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
    {
       HornetQServerLogger.LOGGER.debug(this + "\n\t::fail being called, permanently=" + permanently);
 
+      // these were already confirmed by the target, so they are acknowledged rather than cancelled
+      flushAckBatch();
+
       if (queue != null)
       {
          try
@@ -1118,6 +1258,8 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
             HornetQServerLogger.LOGGER.debug("stopping bridge " + BridgeImpl.this);
             queue.removeConsumer(BridgeImpl.this);
 
+            flushAckBatch();
+
             if (!pendingAcks.await(10, TimeUnit.SECONDS))
             {
                HornetQServerLogger.LOGGER.timedOutWaitingCompletions(BridgeImpl.this.toString(),
@@ -1186,6 +1328,8 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
          {
             queue.removeConsumer(BridgeImpl.this);
 
+            flushAckBatch();
+
             if (!pendingAcks.await(60, TimeUnit.SECONDS))
             {
                HornetQServerLogger.LOGGER.timedOutWaitingCompletions(BridgeImpl.this.toString(),
@@ -271,6 +271,8 @@ public class ClusterConnectionBridge extends BridgeImpl
                                                 NotificationType.PROPOSAL_RESPONSE +
                                                 "','" +
                                                 NotificationType.UNPROPOSAL +
+                                                "','" +
+                                                NotificationType.QUEUE_LOAD +
                                                 "') AND " +
                                                 ManagementHelper.HDR_DISTANCE +
                                                 "<" +
@@ -14,18 +14,21 @@ package org.hornetq.core.server.cluster.impl;
 
 import static org.hornetq.api.core.management.NotificationType.CONSUMER_CLOSED;
 import static org.hornetq.api.core.management.NotificationType.CONSUMER_CREATED;
+import static org.hornetq.api.core.management.NotificationType.QUEUE_LOAD;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.hornetq.api.core.DiscoveryGroupConfiguration;
@@ -44,8 +47,10 @@ import org.hornetq.core.client.impl.ServerLocatorInternal;
 import org.hornetq.core.client.impl.Topology;
 import org.hornetq.core.client.impl.TopologyMemberImpl;
 import org.hornetq.core.postoffice.Binding;
+import org.hornetq.core.postoffice.BindingType;
 import org.hornetq.core.postoffice.Bindings;
 import org.hornetq.core.postoffice.PostOffice;
+import org.hornetq.core.postoffice.impl.LocalQueueBinding;
 import org.hornetq.core.postoffice.impl.PostOfficeImpl;
 import org.hornetq.core.server.HornetQMessageBundle;
 import org.hornetq.core.server.HornetQServer;
@@ -56,6 +61,7 @@ import org.hornetq.core.server.cluster.Bridge;
 import org.hornetq.core.server.cluster.ClusterConnection;
 import org.hornetq.core.server.cluster.ClusterManager;
 import org.hornetq.core.server.cluster.ClusterManager.IncomingInterceptorLookingForExceptionMessage;
+import org.hornetq.core.server.cluster.LoadBalancingPolicy;
 import org.hornetq.core.server.cluster.MessageFlowRecord;
 import org.hornetq.core.server.cluster.RemoteQueueBinding;
 import org.hornetq.core.server.group.impl.Proposal;
@@ -63,6 +69,7 @@ import org.hornetq.core.server.group.impl.Response;
 import org.hornetq.core.server.management.ManagementService;
 import org.hornetq.core.server.management.Notification;
 import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.utils.ConcurrentHashSet;
 import org.hornetq.utils.ExecutorFactory;
 import org.hornetq.utils.FutureLatch;
 import org.hornetq.utils.TypedProperties;
@@ -162,6 +169,19 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
 
    private final int clusterNotificationAttempts;
 
+   private LoadBalancingPolicy loadBalancingPolicy = LoadBalancingPolicy.ROUND_ROBIN;
+
+   private long loadReportInterval;
+
+   private long redistributionThreshold = -1;
+
+   /**
+    * Addresses having queues on other nodes, whose local queues have their load reported
+    */
+   private final Set<SimpleString> balancedAddresses = new ConcurrentHashSet<SimpleString>();
+
+   private LoadReporter loadReporter;
+
    /**
     * @param staticTranspConfigs notice if {@code null} this is a cluster which won't connect to
     *           anyone, but that can still accept incoming connections.
@@ -390,6 +410,25 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
 
    }
 
+   /**
+    * Must be called before the cluster connection is started.
+    *
+    * @param loadBalancingPolicy how messages are spread over the queues of the cluster
+    * @param loadReportInterval how often the load of the local queues is advertised
+    * @param redistributionThreshold backlog difference over which messages are moved to a queue on
+    *           another node, -1 to disable
+    */
+   public void setLoadBalancing(final LoadBalancingPolicy loadBalancingPolicy,
+                                final long loadReportInterval,
+                                final long redistributionThreshold)
+   {
+      this.loadBalancingPolicy = loadBalancingPolicy;
+
+      this.loadReportInterval = loadReportInterval;
+
+      this.redistributionThreshold = redistributionThreshold;
+   }
+
    public void flushExecutor()
    {
       FutureLatch future = new FutureLatch();
@@ -423,6 +462,13 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
                 " serverLocator = " +
                 serverLocator);
 
+      if (loadReporter != null)
+      {
+         loadReporter.cancel();
+
+         loadReporter = null;
+      }
+
       synchronized (this)
       {
          for (MessageFlowRecord record : records.values())
@@ -604,6 +650,13 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
       liveNotifier.updateAsLive();
       liveNotifier.schedule();
 
+      if (loadReportInterval > 0 &&
+          (loadBalancingPolicy == LoadBalancingPolicy.CONSUMER_RATE || redistributionThreshold > 0))
+      {
+         loadReporter = new LoadReporter();
+         loadReporter.schedule();
+      }
+
       serverLocator = clusterConnector.createServerLocator();
 
       if (serverLocator != null)
@@ -1175,6 +1228,11 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
                   doUnProposalReceived(message);
                   break;
                }
+               case QUEUE_LOAD:
+               {
+                  doQueueLoad(message);
+                  break;
+               }
                default:
                {
                   throw HornetQMessageBundle.BUNDLE.invalidType(ntype);
@@ -1203,6 +1261,20 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
 
          Integer hops = message.getIntProperty(ManagementHelper.HDR_DISTANCE);
 
+         if (message.containsProperty(ManagementHelper.HDR_PROPOSAL_BATCH))
+         {
+            List<Proposal> proposals = Proposal.decode(message.getBytesProperty(ManagementHelper.HDR_PROPOSAL_BATCH));
+
+            List<Response> responses = server.getGroupingHandler().receive(proposals, hops + 1);
+
+            if (responses != null && !responses.isEmpty())
+            {
+               server.getGroupingHandler().send(responses, 0);
+            }
+
+            return;
+         }
+
          Response response = server.getGroupingHandler().receive(new Proposal(type, val), hops + 1);
 
          if (response != null)
@@ -1246,6 +1318,18 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
          SimpleString val = message.getSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_VALUE);
          SimpleString alt = message.getSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_ALT_VALUE);
          Integer hops = message.getIntProperty(ManagementHelper.HDR_DISTANCE);
+         server.getGroupingHandler()
+               .setProposalBatchesSupported(message.containsProperty(ManagementHelper.HDR_PROPOSAL_BATCH_SUPPORTED));
+         if (message.containsProperty(ManagementHelper.HDR_PROPOSAL_BATCH))
+         {
+            List<Response> responses = Response.decode(message.getBytesProperty(ManagementHelper.HDR_PROPOSAL_BATCH));
+            for (Response response : responses)
+            {
+               server.getGroupingHandler().proposed(response);
+            }
+            server.getGroupingHandler().send(responses, hops + 1);
+            return;
+         }
          Response response = new Response(type, val, alt);
          server.getGroupingHandler().proposed(response);
          server.getGroupingHandler().send(response, hops + 1);
@@ -1343,6 +1427,9 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
 
          theBindings.setRouteWhenNoConsumers(routeWhenNoConsumers);
 
+         theBindings.setLoadBalancingPolicy(loadBalancingPolicy);
+
+         balancedAddresses.add(queueAddress);
       }
 
       private void doBindingRemoved(final ClientMessage message) throws Exception
@@ -1433,6 +1520,58 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
          managementService.sendNotification(notification);
       }
 
+      private synchronized void doQueueLoad(final ClientMessage message) throws Exception
+      {
+         if (!message.containsProperty(ManagementHelper.HDR_DISTANCE))
+         {
+            throw new IllegalStateException("distance is null");
+         }
+
+         if (!message.containsProperty(ManagementHelper.HDR_CLUSTER_NAME))
+         {
+            throw new IllegalStateException("clusterName is null");
+         }
+
+         Integer distance = message.getIntProperty(ManagementHelper.HDR_DISTANCE);
+
+         SimpleString clusterName = message.getSimpleStringProperty(ManagementHelper.HDR_CLUSTER_NAME);
+
+         long messageCount = message.getLongProperty(ManagementHelper.HDR_MESSAGE_COUNT);
+
+         long consumeRate = message.getLongProperty(ManagementHelper.HDR_CONSUME_RATE);
+
+         RemoteQueueBinding binding = bindings.get(clusterName);
+
+         if (binding == null)
+         {
+            // the load is reported periodically, it may arrive before the binding or after its removal
+            return;
+         }
+
+         binding.setLoad(messageCount, consumeRate);
+
+         // Need to propagate the load to the nodes further away
+         TypedProperties props = new TypedProperties();
+
+         props.putIntProperty(ManagementHelper.HDR_BINDING_TYPE, BindingType.REMOTE_QUEUE.toInt());
+
+         props.putSimpleStringProperty(ManagementHelper.HDR_ADDRESS, binding.getAddress());
+
+         props.putSimpleStringProperty(ManagementHelper.HDR_CLUSTER_NAME, clusterName);
+
+         props.putSimpleStringProperty(ManagementHelper.HDR_ROUTING_NAME, binding.getRoutingName());
+
+         props.putIntProperty(ManagementHelper.HDR_DISTANCE, distance + 1);
+
+         props.putLongProperty(ManagementHelper.HDR_MESSAGE_COUNT, messageCount);
+
+         props.putLongProperty(ManagementHelper.HDR_CONSUME_RATE, consumeRate);
+
+         Notification notification = new Notification(null, QUEUE_LOAD, props);
+
+         managementService.sendNotification(notification);
+      }
+
       private synchronized void doConsumerClosed(final ClientMessage message) throws Exception
       {
          if (HornetQServerLogger.LOGGER.isTraceEnabled())
@@ -1589,6 +1728,181 @@ public final class ClusterConnectionImpl implements ClusterConnection, AfterConn
       return clusterUser.equals(clusterUser0) && clusterPassword.equals(clusterPassword0);
    }
 
+   /**
+    * Periodically samples the backlog and consume rate of the local queues having counterparts on
+    * other nodes, advertises them to the cluster, and moves part of the backlog of a queue to
+    * another node when the difference between them passes the redistribution threshold.
+    */
+   private final class LoadReporter implements Runnable
+   {
+      private Map<Long, LoadSample> samples = new HashMap<Long, LoadSample>();
+
+      private ScheduledFuture<?> future;
+
+      public void schedule()
+      {
+         future = scheduledExecutor.scheduleWithFixedDelay(this,
+                                                           loadReportInterval,
+                                                           loadReportInterval,
+                                                           TimeUnit.MILLISECONDS);
+      }
+
+      public void cancel()
+      {
+         future.cancel(false);
+      }
+
+      public synchronized void run()
+      {
+         if (!started || stopping)
+         {
+            return;
+         }
+
+         Map<Long, LoadSample> newSamples = new HashMap<Long, LoadSample>();
+
+         long now = System.currentTimeMillis();
+
+         try
+         {
+            for (SimpleString balancedAddress : balancedAddresses)
+            {
+               Bindings theBindings = postOffice.lookupBindingsForAddress(balancedAddress);
+
+               if (theBindings == null)
+               {
+                  balancedAddresses.remove(balancedAddress);
+
+                  continue;
+               }
+
+               for (Binding binding : theBindings.getBindings())
+               {
+                  if (binding instanceof LocalQueueBinding)
+                  {
+                     report((LocalQueueBinding)binding, theBindings, now, newSamples);
+                  }
+               }
+            }
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.warn(e.getMessage(), e);
+         }
+
+         samples = newSamples;
+      }
+
+      private void report(final LocalQueueBinding binding,
+                          final Bindings theBindings,
+                          final long now,
+                          final Map<Long, LoadSample> newSamples)
+      {
+         Queue theQueue = binding.getQueue();
+
+         long acknowledged = theQueue.getMessagesAcknowledged();
+
+         long messageCount = theQueue.getInstantMessageCount();
+
+         long consumeRate = 0;
+
+         LoadSample previous = samples.get(binding.getID());
+
+         if (previous != null && now > previous.time)
+         {
+            consumeRate = (acknowledged - previous.acknowledged) * 1000 / (now - previous.time);
+
+            // when the queue drains, its consumers are only limited by the messages they get, so
+            // what they acknowledged is a lower bound of what they could
+            if (messageCount == 0)
+            {
+               consumeRate = Math.max(consumeRate, previous.consumeRate);
+            }
+         }
+
+         newSamples.put(binding.getID(), new LoadSample(acknowledged, now, messageCount, consumeRate));
+
+         binding.setConsumeRate(consumeRate);
+
+         // idle queues are only reported once
+         if (messageCount != 0 || consumeRate != 0 || previous == null || !previous.isIdle())
+         {
+            TypedProperties props = new TypedProperties();
+
+            props.putIntProperty(ManagementHelper.HDR_BINDING_TYPE, BindingType.LOCAL_QUEUE.toInt());
+
+            props.putSimpleStringProperty(ManagementHelper.HDR_ADDRESS, binding.getAddress());
+
+            props.putSimpleStringProperty(ManagementHelper.HDR_CLUSTER_NAME, binding.getClusterName());
+
+            props.putSimpleStringProperty(ManagementHelper.HDR_ROUTING_NAME, binding.getRoutingName());
+
+            props.putIntProperty(ManagementHelper.HDR_DISTANCE, binding.getDistance());
+
+            props.putLongProperty(ManagementHelper.HDR_MESSAGE_COUNT, messageCount);
+
+            props.putLongProperty(ManagementHelper.HDR_CONSUME_RATE, consumeRate);
+
+            try
+            {
+               managementService.sendNotification(new Notification(null, QUEUE_LOAD, props));
+            }
+            catch (Exception e)
+            {
+               HornetQServerLogger.LOGGER.warn(e.getMessage(), e);
+            }
+         }
+
+         if (redistributionThreshold > 0)
+         {
+            long lowestRemoteCount = Long.MAX_VALUE;
+
+            for (Binding other : theBindings.getBindings())
+            {
+               if (other instanceof RemoteQueueBinding && other.getRoutingName().equals(binding.getRoutingName()))
+               {
+                  RemoteQueueBinding remote = (RemoteQueueBinding)other;
+
+                  if (remote.consumerCount() > 0)
+                  {
+                     lowestRemoteCount = Math.min(lowestRemoteCount, remote.getMessageCount());
+                  }
+               }
+            }
+
+            if (lowestRemoteCount != Long.MAX_VALUE && messageCount - lowestRemoteCount > redistributionThreshold)
+            {
+               // move half the difference, the next reports will tell whether more has to go
+               theQueue.redistributeBacklog((int)Math.min((messageCount - lowestRemoteCount) / 2, Integer.MAX_VALUE));
+            }
+         }
+      }
+   }
+
+   private static final class LoadSample
+   {
+      final long acknowledged;
+
+      final long time;
+
+      final long messageCount;
+
+      final long consumeRate;
+
+      LoadSample(final long acknowledged, final long time, final long messageCount, final long consumeRate)
+      {
+         this.acknowledged = acknowledged;
+         this.time = time;
+         this.messageCount = messageCount;
+         this.consumeRate = consumeRate;
+      }
+
+      boolean isIdle()
+      {
+         return messageCount == 0 && consumeRate == 0;
+      }
+   }
+
    private final class LiveNotifier implements Runnable
    {
       int notificationsSent = 0;
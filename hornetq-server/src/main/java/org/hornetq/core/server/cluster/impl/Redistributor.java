@@ -46,6 +46,8 @@ public class Redistributor implements Consumer
 {
    private boolean active;
 
+   private boolean stopped;
+
    private final StorageManager storageManager;
 
    private final PostOffice postOffice;
@@ -58,6 +60,9 @@ public class Redistributor implements Consumer
 
    private int count;
 
+   // how many more messages may be moved, -1 for as many as the queue holds
+   private int remaining;
+
    // a Flush executor here is happening inside another executor.
    // what may cause issues under load. Say you are running out of executors for cases where you don't need to wait at all.
    // So, instead of using a future we will use a plain ReusableLatch here
@@ -68,6 +73,20 @@ public class Redistributor implements Consumer
                         final PostOffice postOffice,
                         final Executor executor,
                         final int batchSize)
+   {
+      this(queue, storageManager, postOffice, executor, batchSize, -1);
+   }
+
+   /**
+    * @param limit how many messages to move before the redistributor removes itself from the queue,
+    *           -1 to keep moving them for as long as it is attached
+    */
+   public Redistributor(final Queue queue,
+                        final StorageManager storageManager,
+                        final PostOffice postOffice,
+                        final Executor executor,
+                        final int batchSize,
+                        final int limit)
    {
       this.queue = queue;
 
@@ -78,6 +97,8 @@ public class Redistributor implements Consumer
       this.executor = executor;
 
       this.batchSize = batchSize;
+
+      this.remaining = limit;
    }
 
    public Filter getFilter()
@@ -110,6 +131,8 @@ public class Redistributor implements Consumer
    {
       active = false;
 
+      stopped = true;
+
       boolean ok = flushExecutor();
 
       if (!ok)
@@ -118,6 +141,14 @@ public class Redistributor implements Consumer
       }
    }
 
+   /**
+    * Keeps the redistributor moving messages for as long as it is attached to the queue.
+    */
+   public synchronized void removeLimit()
+   {
+      remaining = -1;
+   }
+
    public void getDeliveringMessages(List<MessageReference> refList)
    {
       // noop
@@ -133,6 +164,8 @@ public class Redistributor implements Consumer
       }
 
       active = false;
+
+      stopped = true;
    }
 
    private boolean flushExecutor()
@@ -151,7 +184,7 @@ public class Redistributor implements Consumer
 
    public synchronized HandleStatus handle(final MessageReference reference) throws Exception
    {
-      if (!active)
+      if (!active || remaining == 0)
       {
          return HandleStatus.BUSY;
       }
@@ -220,6 +253,33 @@ public class Redistributor implements Consumer
          });
       }
 
+      if (remaining > 0 && --remaining == 0)
+      {
+         executor.execute(new Runnable()
+         {
+            public void run()
+            {
+               synchronized (Redistributor.this)
+               {
+                  // the limit may have been removed, or the redistributor cancelled, in the meantime
+                  if (stopped || remaining != 0)
+                  {
+                     return;
+                  }
+               }
+
+               try
+               {
+                  queue.cancelRedistributor();
+               }
+               catch (Exception e)
+               {
+                  HornetQServerLogger.LOGGER.warn(e.getMessage(), e);
+               }
+            }
+         });
+      }
+
       return HandleStatus.HANDLED;
    }
 
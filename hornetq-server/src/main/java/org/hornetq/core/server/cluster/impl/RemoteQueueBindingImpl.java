@@ -18,6 +18,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.filter.Filter;
@@ -66,6 +67,14 @@ public class RemoteQueueBindingImpl implements RemoteQueueBinding
 
    private final int distance;
 
+   private volatile long messageCount;
+
+   private volatile long consumeRate;
+
+   // messages routed to the queue since its node last advertised its load, so a stale backlog
+   // doesn't make every message go to the same node until the next report
+   private final AtomicLong routedSinceLoad = new AtomicLong(0);
+
    public RemoteQueueBindingImpl(final long id,
                                  final SimpleString address,
                                  final SimpleString uniqueName,
@@ -177,6 +186,8 @@ public class RemoteQueueBindingImpl implements RemoteQueueBinding
 
    public void route(final ServerMessage message, final RoutingContext context)
    {
+      routedSinceLoad.incrementAndGet();
+
       addRouteContextToMessage(message);
 
       List<Queue> durableQueuesOnContext = context.getDurableQueues(storeAndForwardQueue.getAddress());
@@ -244,6 +255,25 @@ public class RemoteQueueBindingImpl implements RemoteQueueBinding
       return consumerCount;
    }
 
+   public void setLoad(final long messageCount, final long consumeRate)
+   {
+      routedSinceLoad.set(0);
+
+      this.messageCount = messageCount;
+
+      this.consumeRate = consumeRate;
+   }
+
+   public long getMessageCount()
+   {
+      return messageCount + routedSinceLoad.get();
+   }
+
+   public long getConsumeRate()
+   {
+      return consumeRate;
+   }
+
    @Override
    public String toString()
    {
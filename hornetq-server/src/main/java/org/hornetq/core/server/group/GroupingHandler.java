@@ -12,6 +12,8 @@
  */
 package org.hornetq.core.server.group;
 
+import java.util.List;
+
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.server.HornetQComponent;
 import org.hornetq.core.server.group.impl.GroupBinding;
@@ -34,6 +36,20 @@ public interface GroupingHandler extends NotificationListener, HornetQComponent
 
    Response receive(Proposal proposal, int distance) throws Exception;
 
+   /**
+    * Receives a batch of proposals sent as a single notification.
+    * @return the responses to send back, or {@code null} if this handler does not decide
+    */
+   List<Response> receive(List<Proposal> proposals, int distance) throws Exception;
+
+   void send(List<Response> responses, int distance) throws Exception;
+
+   /**
+    * Tells whether the handler that answered the last proposal reads proposals sent together in a
+    * single notification. Older handlers only read the first of them.
+    */
+   void setProposalBatchesSupported(boolean supported);
+
    void addGroupBinding(GroupBinding groupBinding);
 
    Response getProposal(SimpleString fullID);
@@ -31,6 +31,8 @@ public final class GroupingHandlerConfiguration implements Serializable
 
    public static final long DEFAULT_REAPER_PERIOD = 30000;
 
+   public static final int DEFAULT_RESPONSE_CACHE_SIZE = 100000;
+
    public static final String GROUP_TIMEOUT_PROP_NAME = "org.hornetq.GroupingHandlerConfiguration.groupTimeout";
 
    public static final String REAPER_PERIOD_PROP_NAME = "org.hornetq.GroupingHandlerConfiguration.reaperPeriod";
@@ -47,6 +49,7 @@ public final class GroupingHandlerConfiguration implements Serializable
 
    private final long reaperPeriod;
 
+   private final int responseCacheSize;
 
    public GroupingHandlerConfiguration(final SimpleString name, final TYPE type, final SimpleString address)
    {
@@ -72,6 +75,18 @@ public final class GroupingHandlerConfiguration implements Serializable
                                        final int timeout,
                                        final long groupTimeout,
                                        final long reaperPeriod)
+   {
+      this(name, type, address, timeout, groupTimeout, reaperPeriod,
+            GroupingHandlerConfiguration.DEFAULT_RESPONSE_CACHE_SIZE);
+   }
+
+   public GroupingHandlerConfiguration(final SimpleString name,
+                                       final TYPE type,
+                                       final SimpleString address,
+                                       final int timeout,
+                                       final long groupTimeout,
+                                       final long reaperPeriod,
+                                       final int responseCacheSize)
    {
       this.type = type;
       this.name = name;
@@ -94,6 +109,8 @@ public final class GroupingHandlerConfiguration implements Serializable
       {
          this.reaperPeriod = reaperPeriod;
       }
+
+      this.responseCacheSize = responseCacheSize;
    }
 
    public SimpleString getName()
@@ -126,6 +143,14 @@ public final class GroupingHandlerConfiguration implements Serializable
       return reaperPeriod;
    }
 
+   /**
+    * How many group id decisions a REMOTE handler keeps cached.
+    */
+   public int getResponseCacheSize()
+   {
+      return responseCacheSize;
+   }
+
    public enum TYPE
    {
       LOCAL("LOCAL"), REMOTE("REMOTE");
@@ -13,8 +13,11 @@
 package org.hornetq.core.server.group.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
@@ -36,6 +39,7 @@ import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.group.GroupingHandler;
 import org.hornetq.core.server.management.ManagementService;
 import org.hornetq.core.server.management.Notification;
+import org.hornetq.utils.ConcurrentHashSet;
 import org.hornetq.utils.ExecutorFactory;
 import org.hornetq.utils.TypedProperties;
 
@@ -48,7 +52,16 @@ public final class LocalGroupingHandler implements GroupingHandler
 {
    private final ConcurrentHashMap<SimpleString, GroupBinding> map = new ConcurrentHashMap<SimpleString, GroupBinding>();
 
-   private final ConcurrentHashMap<SimpleString, List<GroupBinding>> groupMap = new ConcurrentHashMap<SimpleString, List<GroupBinding>>();
+   private final ConcurrentHashMap<SimpleString, Set<GroupBinding>> groupMap = new ConcurrentHashMap<SimpleString, Set<GroupBinding>>();
+
+   /**
+    * The group bindings in the order they were created, which is also the order they expire in as
+    * they all live for the same groupTimeout. Only used when group bindings expire.
+    */
+   private final ConcurrentLinkedQueue<GroupBinding> expiryQueue = new ConcurrentLinkedQueue<GroupBinding>();
+
+   /** One instance per cluster name, shared by all the group bindings pointing at it */
+   private final ConcurrentHashMap<SimpleString, SimpleString> clusterNames = new ConcurrentHashMap<SimpleString, SimpleString>();
 
    private final SimpleString name;
 
@@ -109,6 +122,14 @@ public final class LocalGroupingHandler implements GroupingHandler
    }
 
    public Response propose(final Proposal proposal) throws Exception
+   {
+      return propose(Collections.singletonList(proposal)).get(0);
+   }
+
+   /**
+    * Decides a batch of proposals, waiting only once for the new group bindings to be stored.
+    */
+   private List<Response> propose(final List<Proposal> proposals) throws Exception
    {
       OperationContext originalCtx = storageManager.getContext();
 
@@ -117,34 +138,40 @@ public final class LocalGroupingHandler implements GroupingHandler
          // the waitCompletion cannot be done inside an ordered executor or we would starve when the thread pool is full
          storageManager.setContext(storageManager.newSingleThreadContext());
 
-         if (proposal.getClusterName() == null)
-         {
-            GroupBinding original = map.get(proposal.getGroupId());
-            return original == null ? null : new Response(proposal.getGroupId(), original.getClusterName());
-         }
-         GroupBinding groupBinding = new GroupBinding(proposal.getGroupId(), proposal.getClusterName());
-         if (map.putIfAbsent(groupBinding.getGroupId(), groupBinding) == null)
+         List<Response> responses = new ArrayList<Response>(proposals.size());
+
+         boolean stored = false;
+
+         for (Proposal proposal : proposals)
          {
-            groupBinding.setId(storageManager.generateUniqueID());
-            List<GroupBinding> newList = new ArrayList<GroupBinding>();
-            List<GroupBinding> oldList = groupMap.putIfAbsent(groupBinding.getClusterName(), newList);
-            if (oldList != null)
+            if (proposal.getClusterName() == null)
+            {
+               GroupBinding original = map.get(proposal.getGroupId());
+               responses.add(original == null ? null : new Response(proposal.getGroupId(), original.getClusterName()));
+               continue;
+            }
+            GroupBinding groupBinding = new GroupBinding(proposal.getGroupId(), canonicalClusterName(proposal.getClusterName()));
+            GroupBinding original = map.putIfAbsent(groupBinding.getGroupId(), groupBinding);
+            if (original == null)
             {
-               newList = oldList;
+               groupBinding.setId(storageManager.generateUniqueID());
+               indexGroupBinding(groupBinding);
+               storageManager.addGrouping(groupBinding);
+               stored = true;
+               responses.add(new Response(groupBinding.getGroupId(), groupBinding.getClusterName()));
             }
-            newList.add(groupBinding);
-            storageManager.addGrouping(groupBinding);
-            if (!storageManager.waitOnOperations(timeout))
+            else
             {
-               throw HornetQMessageBundle.BUNDLE.ioTimeout();
+               responses.add(new Response(original.getGroupId(), proposal.getClusterName(), original.getClusterName()));
             }
-            return new Response(groupBinding.getGroupId(), groupBinding.getClusterName());
          }
-         else
+
+         if (stored && !storageManager.waitOnOperations(timeout))
          {
-            groupBinding = map.get(proposal.getGroupId());
-            return new Response(groupBinding.getGroupId(), proposal.getClusterName(), groupBinding.getClusterName());
+            throw HornetQMessageBundle.BUNDLE.ioTimeout();
          }
+
+         return responses;
       }
       finally
       {
@@ -163,6 +190,12 @@ public final class LocalGroupingHandler implements GroupingHandler
 
    public void send(final Response response, final int distance) throws Exception
    {
+      send(Collections.singletonList(response), distance);
+   }
+
+   public void send(final List<Response> responses, final int distance) throws Exception
+   {
+      Response response = responses.get(0);
       TypedProperties props = new TypedProperties();
       props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_GROUP_ID, response.getGroupId());
       props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_VALUE, response.getClusterName());
@@ -170,6 +203,13 @@ public final class LocalGroupingHandler implements GroupingHandler
       props.putIntProperty(ManagementHelper.HDR_BINDING_TYPE, BindingType.LOCAL_QUEUE_INDEX);
       props.putSimpleStringProperty(ManagementHelper.HDR_ADDRESS, address);
       props.putIntProperty(ManagementHelper.HDR_DISTANCE, distance);
+      // remote handlers only send proposals together once they know this handler reads them
+      props.putBooleanProperty(ManagementHelper.HDR_PROPOSAL_BATCH_SUPPORTED, true);
+      if (responses.size() > 1)
+      {
+         // the first response is kept in the plain headers as well
+         props.putBytesProperty(ManagementHelper.HDR_PROPOSAL_BATCH, Response.encode(responses));
+      }
       Notification notification = new Notification(null, NotificationType.PROPOSAL_RESPONSE, props);
       managementService.sendNotification(notification);
    }
@@ -180,16 +220,47 @@ public final class LocalGroupingHandler implements GroupingHandler
       return propose(proposal);
    }
 
+   public List<Response> receive(final List<Proposal> proposals, final int distance) throws Exception
+   {
+      HornetQServerLogger.LOGGER.trace("received " + proposals.size() + " proposals");
+      List<Response> responses = propose(proposals);
+      responses.removeAll(Collections.singleton(null));
+      return responses;
+   }
+
+   public void setProposalBatchesSupported(final boolean supported)
+   {
+      // NO-OP
+   }
+
    public void addGroupBinding(final GroupBinding groupBinding)
    {
-      map.put(groupBinding.getGroupId(), groupBinding);
-      List<GroupBinding> newList = new ArrayList<GroupBinding>();
-      List<GroupBinding> oldList = groupMap.putIfAbsent(groupBinding.getClusterName(), newList);
-      if (oldList != null)
+      GroupBinding binding = new GroupBinding(groupBinding.getId(),
+                                              groupBinding.getGroupId(),
+                                              canonicalClusterName(groupBinding.getClusterName()));
+      map.put(binding.getGroupId(), binding);
+      indexGroupBinding(binding);
+   }
+
+   private SimpleString canonicalClusterName(final SimpleString clusterName)
+   {
+      SimpleString canonical = clusterNames.putIfAbsent(clusterName, clusterName);
+      return canonical == null ? clusterName : canonical;
+   }
+
+   private void indexGroupBinding(final GroupBinding groupBinding)
+   {
+      Set<GroupBinding> newSet = new ConcurrentHashSet<GroupBinding>();
+      Set<GroupBinding> oldSet = groupMap.putIfAbsent(groupBinding.getClusterName(), newSet);
+      if (oldSet != null)
       {
-         newList = oldList;
+         newSet = oldSet;
+      }
+      newSet.add(groupBinding);
+      if (groupTimeout > 0)
+      {
+         expiryQueue.add(groupBinding);
       }
-      newList.add(groupBinding);
    }
 
    public Response getProposal(final SimpleString fullID)
@@ -312,35 +383,27 @@ public final class LocalGroupingHandler implements GroupingHandler
 
    private void removeGrouping(final SimpleString clusterName, final boolean warn)
    {
-      final List<GroupBinding> list = groupMap.remove(clusterName);
-      if(warn && list != null)
+      final Set<GroupBinding> set = groupMap.remove(clusterName);
+      if(warn && set != null)
       {
-         HornetQServerLogger.LOGGER.groupingQueueRemoved(list.size(), clusterName);
+         HornetQServerLogger.LOGGER.groupingQueueRemoved(set.size(), clusterName);
       }
-      if (list != null)
+      if (set != null)
       {
          executor.execute(new Runnable()
          {
             @Override
             public void run()
             {
-               for (GroupBinding val : list)
+               List<GroupBinding> removed = new ArrayList<GroupBinding>(set.size());
+               for (GroupBinding val : set)
                {
-                  if (val != null)
+                  if (val != null && map.remove(val.getGroupId(), val))
                   {
-
-                     map.remove(val.getGroupId());
-
-                     try
-                     {
-                        storageManager.deleteGrouping(val, map.isEmpty());
-                     }
-                     catch (Exception e)
-                     {
-                        HornetQServerLogger.LOGGER.unableToDeleteGroupBindings(e, val.getGroupId());
-                     }
+                     removed.add(val);
                   }
                }
+               deleteGroupBindings(removed);
                if(warn)
                {
                   HornetQServerLogger.LOGGER.groupingQueueRemovedComplete(clusterName);
@@ -351,6 +414,25 @@ public final class LocalGroupingHandler implements GroupingHandler
       }
    }
 
+   /**
+    * Deletes the group bindings from the journal, syncing only once for the whole batch.
+    */
+   private void deleteGroupBindings(final List<GroupBinding> groupBindings)
+   {
+      for (int i = 0; i < groupBindings.size(); i++)
+      {
+         GroupBinding groupBinding = groupBindings.get(i);
+         try
+         {
+            storageManager.deleteGrouping(groupBinding, i == groupBindings.size() - 1);
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.unableToDeleteGroupBindings(e, groupBinding.getGroupId());
+         }
+      }
+   }
+
    private final class GroupIdReaper implements Runnable
    {
       public void run()
@@ -362,38 +444,48 @@ public final class LocalGroupingHandler implements GroupingHandler
             if (!isStarted())
                return;
 
-            for (GroupBinding groupBinding : map.values())
+            long now = System.currentTimeMillis();
+
+            List<GroupBinding> expired = new ArrayList<GroupBinding>();
+
+            // only the expired bindings are looked at, they are all at the head of the queue
+            GroupBinding groupBinding;
+            while ((groupBinding = expiryQueue.peek()) != null && groupBinding.getTimeCreated() + groupTimeout <= now)
             {
-               if(groupBinding.getTimeCreated() + groupTimeout > System.currentTimeMillis())
+               expiryQueue.poll();
+
+               // it may have been removed already, along with the queue it was bound to
+               if (map.remove(groupBinding.getGroupId(), groupBinding))
                {
-                  map.remove(groupBinding.getGroupId());
-                  List<GroupBinding> groupBindings = groupMap.get(groupBinding.getClusterName());
-                  groupBindings.remove(groupBinding);
-                  TypedProperties props = new TypedProperties();
-                  props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_GROUP_ID, groupBinding.getGroupId());
-                  props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_VALUE, groupBinding.getClusterName());
-                  props.putIntProperty(ManagementHelper.HDR_BINDING_TYPE, BindingType.LOCAL_QUEUE_INDEX);
-                  props.putSimpleStringProperty(ManagementHelper.HDR_ADDRESS, address);
-                  props.putIntProperty(ManagementHelper.HDR_DISTANCE, 0);
-                  Notification notification = new Notification(null, NotificationType.UNPROPOSAL, props);
-                  try
-                  {
-                     managementService.sendNotification(notification);
-                  }
-                  catch (Exception e)
-                  {
-                     HornetQServerLogger.LOGGER.errorHandlingMessage(e);
-                  }
-                  try
-                  {
-                     storageManager.deleteGrouping(groupBinding, true);
-                  }
-                  catch (Exception e)
+                  Set<GroupBinding> groupBindings = groupMap.get(groupBinding.getClusterName());
+                  if (groupBindings != null)
                   {
-                     HornetQServerLogger.LOGGER.unableToDeleteGroupBindings(e, groupBinding.getGroupId());
+                     groupBindings.remove(groupBinding);
                   }
+                  expired.add(groupBinding);
                }
             }
+
+            for (GroupBinding val : expired)
+            {
+               TypedProperties props = new TypedProperties();
+               props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_GROUP_ID, val.getGroupId());
+               props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_VALUE, val.getClusterName());
+               props.putIntProperty(ManagementHelper.HDR_BINDING_TYPE, BindingType.LOCAL_QUEUE_INDEX);
+               props.putSimpleStringProperty(ManagementHelper.HDR_ADDRESS, address);
+               props.putIntProperty(ManagementHelper.HDR_DISTANCE, 0);
+               Notification notification = new Notification(null, NotificationType.UNPROPOSAL, props);
+               try
+               {
+                  managementService.sendNotification(notification);
+               }
+               catch (Exception e)
+               {
+                  HornetQServerLogger.LOGGER.errorHandlingMessage(e);
+               }
+            }
+
+            deleteGroupBindings(expired);
          }
       }
    }
@@ -12,6 +12,11 @@
  */
 package org.hornetq.core.server.group.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.SimpleString;
 
 /**
@@ -46,4 +51,34 @@ public class Proposal
    {
       return getGroupId() + ":" + clusterName;
    }
+
+   /**
+    * Encodes a batch of proposals so they can travel in a single notification.
+    */
+   public static byte[] encode(final List<Proposal> proposals)
+   {
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(proposals.size() * 64);
+      buffer.writeInt(proposals.size());
+      for (Proposal proposal : proposals)
+      {
+         buffer.writeSimpleString(proposal.getGroupId());
+         buffer.writeNullableSimpleString(proposal.getClusterName());
+      }
+      byte[] bytes = new byte[buffer.writerIndex()];
+      buffer.readBytes(bytes);
+      return bytes;
+   }
+
+   public static List<Proposal> decode(final byte[] bytes)
+   {
+      HornetQBuffer buffer = HornetQBuffers.wrappedBuffer(bytes);
+      int size = buffer.readInt();
+      List<Proposal> proposals = new ArrayList<Proposal>(size);
+      for (int i = 0; i < size; i++)
+      {
+         SimpleString groupId = buffer.readSimpleString();
+         proposals.add(new Proposal(groupId, buffer.readNullableSimpleString()));
+      }
+      return proposals;
+   }
 }
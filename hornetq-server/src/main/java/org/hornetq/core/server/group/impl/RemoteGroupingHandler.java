@@ -13,14 +13,18 @@
 package org.hornetq.core.server.group.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.management.ManagementHelper;
@@ -30,6 +34,7 @@ import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.group.GroupingHandler;
 import org.hornetq.core.server.management.ManagementService;
 import org.hornetq.core.server.management.Notification;
+import org.hornetq.utils.ConcurrentHashSet;
 import org.hornetq.utils.TypedProperties;
 
 /**
@@ -37,10 +42,25 @@ import org.hornetq.utils.TypedProperties;
  * <p>
  * This will use management notifications to communicate with the node that has the Local Grouping
  * handler to make proposals.
+ * <p>
+ * Proposals for different group ids do not wait on each other: proposals made while another one is
+ * being sent are coalesced into a single notification, and each proposer only waits for the
+ * response to its own group id. Proposals are only sent together once a response of the local
+ * handler told it reads them, older local handlers get one proposal per notification.
+ * <p>
+ * Responses are cached up to {@code responseCacheSize} entries, the oldest being evicted first; an
+ * evicted group id is simply proposed again, and the local handler answers with the binding it
+ * already chose.
  * @author <a href="mailto:andy.taylor@jboss.org">Andy Taylor</a>
  */
 public final class RemoteGroupingHandler implements GroupingHandler
 {
+   /** Maximum number of proposals sent in a single notification */
+   private static final int MAX_PROPOSAL_BATCH = 1000;
+
+   /** Set from the responses of the local handler, until one is received proposals are sent one by one */
+   private volatile boolean proposalBatchesSupported = false;
+
    private final SimpleString name;
 
    private final ManagementService managementService;
@@ -49,13 +69,23 @@ public final class RemoteGroupingHandler implements GroupingHandler
 
    private final Map<SimpleString, Response> responses = new ConcurrentHashMap<SimpleString, Response>();
 
-   private final Lock lock = new ReentrantLock();
+   /**
+    * Group ids in the order their responses were cached, used to evict the oldest ones. A group id
+    * proposed again keeps its place, so each cached response is counted once. Guarded by itself.
+    */
+   private final Set<SimpleString> responseOrder = new LinkedHashSet<SimpleString>();
+
+   private final int responseCacheSize;
+
+   private final ConcurrentMap<SimpleString, CountDownLatch> pendingProposals = new ConcurrentHashMap<SimpleString, CountDownLatch>();
 
-   private final Condition sendCondition = lock.newCondition();
+   private final ConcurrentLinkedQueue<Proposal> proposalsToSend = new ConcurrentLinkedQueue<Proposal>();
+
+   private final AtomicBoolean sendingProposals = new AtomicBoolean(false);
 
    private final long timeout;
 
-   private final ConcurrentMap<SimpleString, List<SimpleString>> groupMap = new ConcurrentHashMap<SimpleString, List<SimpleString>>();
+   private final ConcurrentMap<SimpleString, Set<SimpleString>> groupMap = new ConcurrentHashMap<SimpleString, Set<SimpleString>>();
 
    private boolean started = false;
 
@@ -63,11 +93,21 @@ public final class RemoteGroupingHandler implements GroupingHandler
                                 final SimpleString name,
                                 final SimpleString address,
                                 final long timeout)
+   {
+      this(managementService, name, address, timeout, GroupingHandlerConfiguration.DEFAULT_RESPONSE_CACHE_SIZE);
+   }
+
+   public RemoteGroupingHandler(final ManagementService managementService,
+                                final SimpleString name,
+                                final SimpleString address,
+                                final long timeout,
+                                final int responseCacheSize)
    {
       this.name = name;
       this.address = address;
       this.managementService = managementService;
       this.timeout = timeout;
+      this.responseCacheSize = responseCacheSize;
    }
 
    public SimpleString getName()
@@ -95,6 +135,14 @@ public final class RemoteGroupingHandler implements GroupingHandler
       return started;
    }
 
+   /**
+    * Proposes a binding for a group id and waits up to the timeout for the local handler to answer.
+    * <p>
+    * This blocks the routing thread: the message is routed within the send, by
+    * {@code BindingsImpl}, and it can't go anywhere until the group has a binding. Only the first
+    * message of a group waits, the later ones use the cached response, and proposals of the other
+    * group ids are sent meanwhile.
+    */
    public Response propose(final Proposal proposal) throws Exception
    {
       // sanity check in case it is already selected
@@ -104,40 +152,97 @@ public final class RemoteGroupingHandler implements GroupingHandler
          return response;
       }
 
-      try
+      CountDownLatch pending = new CountDownLatch(1);
+
+      CountDownLatch previous = pendingProposals.putIfAbsent(proposal.getGroupId(), pending);
+
+      if (previous != null)
       {
-         lock.lock();
+         // somebody else already asked for this group id, the same response will do for both
+         pending = previous;
+      }
+      else
+      {
+         proposalsToSend.add(proposal);
 
-         TypedProperties props = new TypedProperties();
+         sendProposals();
+      }
 
-         props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_GROUP_ID, proposal.getGroupId());
+      if (!pending.await(timeout, TimeUnit.MILLISECONDS))
+      {
+         HornetQServerLogger.LOGGER.groupHandlerSendTimeout();
 
-         props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_VALUE, proposal.getClusterName());
+         // so the next message of the group proposes again
+         pendingProposals.remove(proposal.getGroupId(), pending);
+      }
 
-         props.putIntProperty(ManagementHelper.HDR_BINDING_TYPE, BindingType.LOCAL_QUEUE_INDEX);
+      response = responses.get(proposal.getGroupId());
 
-         props.putSimpleStringProperty(ManagementHelper.HDR_ADDRESS, address);
+      if (response == null)
+      {
+         throw new IllegalStateException("no response received from group handler for " + proposal.getGroupId());
+      }
+      return response;
+   }
 
-         props.putIntProperty(ManagementHelper.HDR_DISTANCE, 0);
+   /**
+    * Sends the proposals waiting to go. Only one thread sends at a time; the proposals made by the
+    * others meanwhile are picked up in its next batch.
+    */
+   private void sendProposals() throws Exception
+   {
+      while (!proposalsToSend.isEmpty() && sendingProposals.compareAndSet(false, true))
+      {
+         try
+         {
+            List<Proposal> batch = new ArrayList<Proposal>();
 
-         Notification notification = new Notification(null, NotificationType.PROPOSAL, props);
+            int maxBatch = proposalBatchesSupported ? MAX_PROPOSAL_BATCH : 1;
 
-         managementService.sendNotification(notification);
+            Proposal proposal;
 
-         if (!sendCondition.await(timeout, TimeUnit.MILLISECONDS))
-            HornetQServerLogger.LOGGER.groupHandlerSendTimeout();
-         response = responses.get(proposal.getGroupId());
+            while (batch.size() < maxBatch && (proposal = proposalsToSend.poll()) != null)
+            {
+               batch.add(proposal);
+            }
 
+            if (!batch.isEmpty())
+            {
+               sendProposals(batch, 0);
+            }
+         }
+         finally
+         {
+            sendingProposals.set(false);
+         }
       }
-      finally
-      {
-         lock.unlock();
-      }
-      if (response == null)
+   }
+
+   private void sendProposals(final List<Proposal> proposals, final int distance) throws Exception
+   {
+      Proposal proposal = proposals.get(0);
+
+      TypedProperties props = new TypedProperties();
+
+      props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_GROUP_ID, proposal.getGroupId());
+
+      props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_VALUE, proposal.getClusterName());
+
+      props.putIntProperty(ManagementHelper.HDR_BINDING_TYPE, BindingType.LOCAL_QUEUE_INDEX);
+
+      props.putSimpleStringProperty(ManagementHelper.HDR_ADDRESS, address);
+
+      props.putIntProperty(ManagementHelper.HDR_DISTANCE, distance);
+
+      if (proposals.size() > 1)
       {
-         throw new IllegalStateException("no response received from group handler for " + proposal.getGroupId());
+         // the first proposal is kept in the plain headers as well
+         props.putBytesProperty(ManagementHelper.HDR_PROPOSAL_BATCH, Proposal.encode(proposals));
       }
-      return response;
+
+      Notification notification = new Notification(null, NotificationType.PROPOSAL, props);
+
+      managementService.sendNotification(notification);
    }
 
    public Response getProposal(final SimpleString fullID)
@@ -154,12 +259,16 @@ public final class RemoteGroupingHandler implements GroupingHandler
    @Override
    public void remove(SimpleString groupid, SimpleString clusterName, int distance) throws Exception
    {
-      List<SimpleString> groups = groupMap.get(clusterName);
+      Set<SimpleString> groups = groupMap.get(clusterName);
       if(groups != null)
       {
          groups.remove(groupid);
       }
       responses.remove(groupid);
+      synchronized (responseOrder)
+      {
+         responseOrder.remove(groupid);
+      }
       TypedProperties props = new TypedProperties();
       props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_GROUP_ID, groupid);
       props.putSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_VALUE, clusterName);
@@ -172,22 +281,47 @@ public final class RemoteGroupingHandler implements GroupingHandler
 
    public void proposed(final Response response) throws Exception
    {
-      try
+      responses.put(response.getGroupId(), response);
+      Set<SimpleString> newSet = new ConcurrentHashSet<SimpleString>();
+      Set<SimpleString> oldSet = groupMap.putIfAbsent(response.getChosenClusterName(), newSet);
+      if (oldSet != null)
       {
-         lock.lock();
-         responses.put(response.getGroupId(), response);
-         List<SimpleString> newList = new ArrayList<SimpleString>();
-         List<SimpleString> oldList = groupMap.putIfAbsent(response.getChosenClusterName(), newList);
-         if (oldList != null)
+         newSet = oldSet;
+      }
+      newSet.add(response.getGroupId());
+
+      synchronized (responseOrder)
+      {
+         if (responseOrder.add(response.getGroupId()) && responseOrder.size() > responseCacheSize)
          {
-            newList = oldList;
+            evictResponses();
          }
-         newList.add(response.getGroupId());
-         sendCondition.signal();
       }
-      finally
+
+      CountDownLatch pending = pendingProposals.remove(response.getGroupId());
+      if (pending != null)
+      {
+         pending.countDown();
+      }
+   }
+
+   // called holding the lock of responseOrder
+   private void evictResponses()
+   {
+      Iterator<SimpleString> oldest = responseOrder.iterator();
+      while (responseOrder.size() > responseCacheSize)
       {
-         lock.unlock();
+         SimpleString groupId = oldest.next();
+         oldest.remove();
+         Response evicted = responses.remove(groupId);
+         if (evicted != null)
+         {
+            Set<SimpleString> groups = groupMap.get(evicted.getChosenClusterName());
+            if (groups != null)
+            {
+               groups.remove(groupId);
+            }
+         }
       }
    }
 
@@ -204,11 +338,37 @@ public final class RemoteGroupingHandler implements GroupingHandler
       return null;
    }
 
+   public List<Response> receive(final List<Proposal> proposals, final int distance) throws Exception
+   {
+      if (proposalBatchesSupported)
+      {
+         sendProposals(proposals, distance);
+      }
+      else
+      {
+         for (Proposal proposal : proposals)
+         {
+            sendProposals(Collections.singletonList(proposal), distance);
+         }
+      }
+      return null;
+   }
+
    public void send(final Response response, final int distance) throws Exception
    {
       // NO-OP
    }
 
+   public void send(final List<Response> responses, final int distance) throws Exception
+   {
+      // NO-OP
+   }
+
+   public void setProposalBatchesSupported(final boolean supported)
+   {
+      proposalBatchesSupported = supported;
+   }
+
    public void addGroupBinding(final GroupBinding groupBinding)
    {
       // NO-OP
@@ -221,14 +381,18 @@ public final class RemoteGroupingHandler implements GroupingHandler
       {
          SimpleString clusterName = notification.getProperties()
                                                 .getSimpleStringProperty(ManagementHelper.HDR_CLUSTER_NAME);
-         List<SimpleString> list = groupMap.remove(clusterName);
-         if (list != null)
+         Set<SimpleString> set = groupMap.remove(clusterName);
+         if (set != null)
          {
-            for (SimpleString val : list)
+            for (SimpleString val : set)
             {
                if (val != null)
                {
                   responses.remove(val);
+                  synchronized (responseOrder)
+                  {
+                     responseOrder.remove(val);
+                  }
                }
             }
          }
@@ -12,6 +12,11 @@
  */
 package org.hornetq.core.server.group.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.SimpleString;
 
 /**
@@ -77,4 +82,36 @@ public class Response
    {
       return groupId;
    }
+
+   /**
+    * Encodes a batch of responses so they can travel in a single notification.
+    */
+   public static byte[] encode(final List<Response> responses)
+   {
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(responses.size() * 64);
+      buffer.writeInt(responses.size());
+      for (Response response : responses)
+      {
+         buffer.writeSimpleString(response.getGroupId());
+         buffer.writeNullableSimpleString(response.getClusterName());
+         buffer.writeNullableSimpleString(response.getAlternativeClusterName());
+      }
+      byte[] bytes = new byte[buffer.writerIndex()];
+      buffer.readBytes(bytes);
+      return bytes;
+   }
+
+   public static List<Response> decode(final byte[] bytes)
+   {
+      HornetQBuffer buffer = HornetQBuffers.wrappedBuffer(bytes);
+      int size = buffer.readInt();
+      List<Response> responses = new ArrayList<Response>(size);
+      for (int i = 0; i < size; i++)
+      {
+         SimpleString groupId = buffer.readSimpleString();
+         SimpleString clusterName = buffer.readNullableSimpleString();
+         responses.add(new Response(groupId, clusterName, buffer.readNullableSimpleString()));
+      }
+      return responses;
+   }
 }
@@ -150,6 +150,9 @@ import org.hornetq.core.server.group.impl.RemoteGroupingHandler;
 import org.hornetq.core.server.impl.QuorumManager.BACKUP_ACTIVATION;
 import org.hornetq.core.server.management.ManagementService;
 import org.hornetq.core.server.management.impl.ManagementServiceImpl;
+import org.hornetq.core.server.metrics.MetricsManager;
+import org.hornetq.core.server.metrics.MetricsReporter;
+import org.hornetq.core.server.metrics.impl.MetricsManagerImpl;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.impl.AddressSettings;
 import org.hornetq.core.settings.impl.HierarchicalObjectRepository;
@@ -163,6 +166,7 @@ import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.spi.core.protocol.SessionCallback;
 import org.hornetq.spi.core.security.HornetQSecurityManager;
 import org.hornetq.utils.ClassloadingUtil;
+import org.hornetq.utils.CompressionCodecs;
 import org.hornetq.utils.ConcurrentHashSet;
 import org.hornetq.utils.ExecutorFactory;
 import org.hornetq.utils.HornetQThreadFactory;
@@ -258,6 +262,8 @@ public class HornetQServerImpl implements HornetQServer
 
    private volatile ManagementService managementService;
 
+   private volatile MetricsManager metricsManager;
+
    private volatile ConnectorsService connectorsService;
 
    private MemoryManager memoryManager;
@@ -639,6 +645,7 @@ public class HornetQServerImpl implements HornetQServer
 
       stopComponent(backupManager);
       stopComponent(managementService);
+      stopComponent(metricsManager);
       stopComponent(replicationEndpoint); // applies to a "backup" server
       stopComponent(pagingManager);
 
@@ -703,6 +710,7 @@ public class HornetQServerImpl implements HornetQServer
       resourceManager = null;
       messagingServerControl = null;
       memoryManager = null;
+      metricsManager = null;
 
       sessions.clear();
 
@@ -1247,6 +1255,11 @@ public class HornetQServerImpl implements HornetQServer
       }
 
       queue.deleteQueue(removeConsumers);
+
+      if (metricsManager != null)
+      {
+         metricsManager.removeQueueMetrics(queueName);
+      }
    }
 
 
@@ -1280,6 +1293,11 @@ public class HornetQServerImpl implements HornetQServer
       return replicationEndpoint;
    }
 
+   public MetricsManager getMetricsManager()
+   {
+      return metricsManager;
+   }
+
    public ReplicationManager getReplicationManager()
    {
       synchronized (replicationLock)
@@ -1407,14 +1425,35 @@ public class HornetQServerImpl implements HornetQServer
 
    private PagingManager createPagingManager()
    {
-
-      return new PagingManagerImpl(new PagingStoreFactoryNIO(storageManager, configuration.getPagingDirectory(),
+      PagingStoreFactoryNIO storeFactory = new PagingStoreFactoryNIO(storageManager, configuration.getPagingDirectory(),
          configuration.getJournalBufferSize_NIO(),
          scheduledPool,
          executorFactory,
          configuration.isJournalSyncNonTransactional(),
-         shutdownOnCriticalIO),
-      addressSettingsRepository);
+         shutdownOnCriticalIO);
+
+      storeFactory.setMetricsManager(metricsManager);
+
+      return new PagingManagerImpl(storeFactory, addressSettingsRepository);
+   }
+
+   private MetricsManager createMetricsManager()
+   {
+      MetricsManager metrics = new MetricsManagerImpl(scheduledPool, configuration.getMetricsReportPeriod());
+
+      for (String reporterClass : configuration.getMetricsReporterClassNames())
+      {
+         try
+         {
+            metrics.addReporter((MetricsReporter)safeInitNewInstance(reporterClass));
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.errorCreatingMetricsReporter(e, reporterClass);
+         }
+      }
+
+      return metrics;
    }
 
    /**
@@ -1424,7 +1463,12 @@ public class HornetQServerImpl implements HornetQServer
    {
       if (configuration.isPersistenceEnabled())
       {
-         return new JournalStorageManager(configuration, executorFactory, shutdownOnCriticalIO);
+         JournalStorageManager journalStorageManager = new JournalStorageManager(configuration, executorFactory, shutdownOnCriticalIO);
+         if (metricsManager != null)
+         {
+            journalStorageManager.setMetricsManager(metricsManager);
+         }
+         return journalStorageManager;
       }
       return new NullStorageManager();
    }
@@ -1496,6 +1540,23 @@ public class HornetQServerImpl implements HornetQServer
 
       managementService = new ManagementServiceImpl(mbeanServer, configuration);
 
+      if (configuration.isMetricsEnabled())
+      {
+         metricsManager = createMetricsManager();
+      }
+
+      for (String codecClass : configuration.getCompressionCodecClassNames())
+      {
+         try
+         {
+            CompressionCodecs.register(codecClass);
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.errorCreatingCompressionCodec(e, codecClass);
+         }
+      }
+
       if (configuration.getMemoryMeasureInterval() != -1)
       {
          memoryManager = new MemoryManager(configuration.getMemoryWarningThreshold(),
@@ -1530,7 +1591,11 @@ public class HornetQServerImpl implements HornetQServer
          configuration.getClusterPassword(),
          managementService);
 
-      queueFactory = new QueueFactoryImpl(executorFactory, scheduledPool, addressSettingsRepository, storageManager);
+      QueueFactoryImpl queueFactoryImpl = new QueueFactoryImpl(executorFactory, scheduledPool, addressSettingsRepository, storageManager);
+
+      queueFactoryImpl.setMetricsManager(metricsManager);
+
+      queueFactory = queueFactoryImpl;
 
       pagingManager = createPagingManager();
 
@@ -1597,6 +1662,11 @@ public class HornetQServerImpl implements HornetQServer
 
       managementService.start();
 
+      if (metricsManager != null)
+      {
+         metricsManager.start();
+      }
+
       resourceManager.start();
 
       // Deploy all security related config
@@ -2198,7 +2268,8 @@ public class HornetQServerImpl implements HornetQServer
                      new RemoteGroupingHandler(managementService,
                config.getName(),
                config.getAddress(),
-               config.getTimeout());
+               config.getTimeout(),
+               config.getResponseCacheSize());
          }
 
          this.groupingHandler = groupingHandler1;
@@ -3062,6 +3133,10 @@ public class HornetQServerImpl implements HornetQServer
          rc.addCloseListener(listener);
          rc.addFailureListener(listener);
          replicationManager = new ReplicationManager(rc, executorFactory);
+         if (metricsManager != null)
+         {
+            replicationManager.setRoundTripLatency(metricsManager.getHistogram(MetricsManager.REPLICATION_ROUND_TRIP));
+         }
          replicationManager.start();
          Thread t = new Thread(new Runnable()
          {
@@ -305,6 +305,16 @@ public class LastValueQueue extends QueueImpl
       {
          return this.consumerId;
       }
+
+      public long getLatencyTimestamp()
+      {
+         return ref.getLatencyTimestamp();
+      }
+
+      public void setLatencyTimestamp(final long nanoTime)
+      {
+         ref.setLatencyTimestamp(nanoTime);
+      }
    }
 
    @Override
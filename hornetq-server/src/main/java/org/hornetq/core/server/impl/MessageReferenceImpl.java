@@ -39,6 +39,8 @@ public class MessageReferenceImpl implements MessageReference
 
    private Long consumerID;
 
+   private long latencyTimestamp;
+
    // Static --------------------------------------------------------
 
    private static final int memoryOffset;
@@ -52,11 +54,11 @@ public class MessageReferenceImpl implements MessageReference
 
       if (MemorySize.is64bitArch())
       {
-         memoryOffset = 48;
+         memoryOffset = 56;
       }
       else
       {
-         memoryOffset = 32;
+         memoryOffset = 40;
       }
    }
 
@@ -183,6 +185,16 @@ public class MessageReferenceImpl implements MessageReference
       return this.consumerID;
    }
 
+   public long getLatencyTimestamp()
+   {
+      return latencyTimestamp;
+   }
+
+   public void setLatencyTimestamp(final long nanoTime)
+   {
+      latencyTimestamp = nanoTime;
+   }
+
    public int getMessageMemoryEstimate()
    {
       return message.getMemoryEstimate();
@@ -21,6 +21,7 @@ import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.postoffice.PostOffice;
 import org.hornetq.core.server.Queue;
 import org.hornetq.core.server.QueueFactory;
+import org.hornetq.core.server.metrics.MetricsManager;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.impl.AddressSettings;
 import org.hornetq.utils.ExecutorFactory;
@@ -46,6 +47,9 @@ public class QueueFactoryImpl implements QueueFactory
 
    protected final ExecutorFactory executorFactory;
 
+   /** null unless metrics are enabled */
+   protected MetricsManager metricsManager;
+
    public QueueFactoryImpl(final ExecutorFactory executorFactory,
                            final ScheduledExecutorService scheduledExecutor,
                            final HierarchicalRepository<AddressSettings> addressSettingsRepository,
@@ -65,6 +69,11 @@ public class QueueFactoryImpl implements QueueFactory
       this.postOffice = postOffice;
    }
 
+   public void setMetricsManager(final MetricsManager metricsManager)
+   {
+      this.metricsManager = metricsManager;
+   }
+
    public Queue createQueue(final long persistenceID,
                             final SimpleString address,
                             final SimpleString name,
@@ -75,7 +84,7 @@ public class QueueFactoryImpl implements QueueFactory
    {
       AddressSettings addressSettings = addressSettingsRepository.getMatch(address.toString());
 
-      Queue queue;
+      QueueImpl queue;
       if (addressSettings.isLastValueQueue())
       {
          queue = new LastValueQueue(persistenceID,
@@ -107,6 +116,11 @@ public class QueueFactoryImpl implements QueueFactory
                                executorFactory.getExecutor());
       }
 
+      if (metricsManager != null)
+      {
+         queue.setMetrics(metricsManager.getQueueMetrics(name));
+      }
+
       return queue;
    }
 }
@@ -15,6 +15,7 @@ package org.hornetq.core.server.impl;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -30,6 +31,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
@@ -40,6 +42,7 @@ import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.postoffice.Bindings;
 import org.hornetq.core.postoffice.DuplicateIDCache;
 import org.hornetq.core.postoffice.PostOffice;
+import org.hornetq.core.server.BulkOperation;
 import org.hornetq.core.server.Consumer;
 import org.hornetq.core.server.HandleStatus;
 import org.hornetq.core.server.HornetQServer;
@@ -50,6 +53,7 @@ import org.hornetq.core.server.RoutingContext;
 import org.hornetq.core.server.ScheduledDeliveryHandler;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.cluster.impl.Redistributor;
+import org.hornetq.core.server.metrics.QueueMetrics;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.HierarchicalRepositoryChangeListener;
 import org.hornetq.core.settings.impl.AddressSettings;
@@ -59,10 +63,10 @@ import org.hornetq.core.transaction.TransactionPropertyIndexes;
 import org.hornetq.core.transaction.impl.BindingsTransactionImpl;
 import org.hornetq.core.transaction.impl.TransactionImpl;
 import org.hornetq.utils.ConcurrentHashSet;
+import org.hornetq.utils.ConcurrentPriorityLinkedListImpl;
 import org.hornetq.utils.FutureLatch;
 import org.hornetq.utils.LinkedListIterator;
 import org.hornetq.utils.PriorityLinkedList;
-import org.hornetq.utils.PriorityLinkedListImpl;
 import org.hornetq.utils.ReferenceCounter;
 import org.hornetq.utils.ReusableLatch;
 
@@ -98,6 +102,11 @@ public class QueueImpl implements Queue
 
    public static final int DEFAULT_FLUSH_LIMIT = 500;
 
+   /** maximum number of references a bulk operation looks at while holding the queue lock */
+   private static final int BULK_OPERATION_SCAN_LIMIT = 10000;
+
+   private static final int MAX_FINISHED_BULK_OPERATIONS = 10;
+
    private final long id;
 
    private final SimpleString name;
@@ -124,7 +133,7 @@ public class QueueImpl implements Queue
    private final ConcurrentLinkedQueue<MessageReference> intermediateMessageReferences = new ConcurrentLinkedQueue<MessageReference>();
 
    // This is where messages are stored
-   private final PriorityLinkedList<MessageReference> messageReferences = new PriorityLinkedListImpl<MessageReference>(QueueImpl.NUM_PRIORITIES);
+   private final PriorityLinkedList<MessageReference> messageReferences = new ConcurrentPriorityLinkedListImpl<MessageReference>(QueueImpl.NUM_PRIORITIES);
 
    // The quantity of pagedReferences on messageReferences priority list
    private final AtomicInteger pagedReferences = new AtomicInteger(0);
@@ -141,6 +150,13 @@ public class QueueImpl implements Queue
 
    private long messagesAdded;
 
+   // copied on write, so adding and acknowledging messages doesn't need to lock it
+   private volatile CountingFilter[] countingFilters = new CountingFilter[0];
+
+   private volatile QueueMetrics metrics;
+
+   private final AtomicLong messagesAcknowledged = new AtomicLong(0);
+
    protected final AtomicInteger deliveringCount = new AtomicInteger(0);
 
    private boolean paused;
@@ -188,6 +204,10 @@ public class QueueImpl implements Queue
 
    private volatile long lastDirectDeliveryCheck = 0;
 
+   private final AtomicLong bulkOperationSequence = new AtomicLong(0);
+
+   private final List<BulkOperationImpl> bulkOperations = new LinkedList<BulkOperationImpl>();
+
    private volatile boolean directDeliver = true;
 
    private AddressSettingsRepositoryListener addressSettingsRepositoryListener;
@@ -438,6 +458,10 @@ public class QueueImpl implements Queue
 
    public synchronized void reload(final MessageReference ref)
    {
+      if (metrics != null)
+      {
+         metrics.enqueued(ref);
+      }
       queueMemorySize.addAndGet(ref.getMessageMemoryEstimate());
       if (!scheduledDeliveryHandler.checkAndSchedule(ref, true))
       {
@@ -447,6 +471,7 @@ public class QueueImpl implements Queue
       directDeliver = false;
 
       messagesAdded++;
+      countAdded(ref);
    }
 
    public void addTail(final MessageReference ref)
@@ -456,11 +481,17 @@ public class QueueImpl implements Queue
 
    public void addTail(final MessageReference ref, final boolean direct)
    {
+      if (metrics != null)
+      {
+         metrics.enqueued(ref);
+      }
+
       if (scheduledDeliveryHandler.checkAndSchedule(ref, true))
       {
          synchronized (this)
          {
             messagesAdded++;
+            countAdded(ref);
          }
 
          return;
@@ -501,6 +532,9 @@ public class QueueImpl implements Queue
       // We only add queueMemorySize if not being delivered directly
       queueMemorySize.addAndGet(ref.getMessageMemoryEstimate());
 
+      // counted here rather than when polled, so counting filters see the reference as soon as addTail returns
+      countAdded(ref);
+
       intermediateMessageReferences.add(ref);
 
       directDeliver = false;
@@ -741,6 +775,9 @@ public class QueueImpl implements Queue
 
       if (redistributor != null)
       {
+         // A backlog redistribution may be running, it has to go on until the queue is empty now
+         redistributor.removeLimit();
+
          // Just prompt delivery
          deliverAsync();
       }
@@ -762,6 +799,29 @@ public class QueueImpl implements Queue
       }
    }
 
+   public synchronized void redistributeBacklog(final int messages)
+   {
+      if (redistributor != null || messages <= 0)
+      {
+         return;
+      }
+
+      redistributor = new Redistributor(this,
+                                        storageManager,
+                                        postOffice,
+                                        executor,
+                                        QueueImpl.REDISTRIBUTOR_BATCH_SIZE,
+                                        messages);
+
+      consumerList.add(new ConsumerHolder(redistributor));
+
+      consumersChanged = true;
+
+      redistributor.start();
+
+      deliverAsync();
+   }
+
    public synchronized void cancelRedistributor() throws Exception
    {
       if (redistributor != null)
@@ -1144,6 +1204,133 @@ public class QueueImpl implements Queue
       }
     }
 
+   public boolean addCountingFilter(final Filter filter)
+   {
+      flushExecutor();
+
+      CountingFilter countingFilter = new CountingFilter(filter);
+
+      // deliveries happen under this lock, so no reference moves from one set to the other during the count
+      synchronized (this)
+      {
+         for (CountingFilter existing : countingFilters)
+         {
+            if (existing.filter.getFilterString().equals(filter.getFilterString()))
+            {
+               return false;
+            }
+         }
+
+         LinkedListIterator<MessageReference> iterator = messageReferences.iterator();
+         try
+         {
+            while (iterator.hasNext())
+            {
+               countingFilter.count(iterator.next(), 1);
+            }
+         }
+         finally
+         {
+            iterator.close();
+         }
+
+         for (MessageReference ref : intermediateMessageReferences)
+         {
+            countingFilter.count(ref, 1);
+         }
+
+         for (MessageReference ref : scheduledDeliveryHandler.getScheduledReferences())
+         {
+            countingFilter.count(ref, 1);
+         }
+
+         for (ConsumerHolder holder : consumerList)
+         {
+            List<MessageReference> delivering = holder.consumer.getDeliveringMessages();
+            if (delivering != null)
+            {
+               for (MessageReference ref : delivering)
+               {
+                  countingFilter.count(ref, 1);
+               }
+            }
+         }
+
+         CountingFilter[] filters = Arrays.copyOf(countingFilters, countingFilters.length + 1);
+         filters[filters.length - 1] = countingFilter;
+         countingFilters = filters;
+
+         return true;
+      }
+   }
+
+   public synchronized boolean removeCountingFilter(final SimpleString filterString)
+   {
+      for (int i = 0; i < countingFilters.length; i++)
+      {
+         if (countingFilters[i].filter.getFilterString().equals(filterString))
+         {
+            CountingFilter[] filters = new CountingFilter[countingFilters.length - 1];
+            System.arraycopy(countingFilters, 0, filters, 0, i);
+            System.arraycopy(countingFilters, i + 1, filters, i, filters.length - i);
+            countingFilters = filters;
+            return true;
+         }
+      }
+      return false;
+   }
+
+   public long getCountingFilterCount(final SimpleString filterString)
+   {
+      // paged messages are only seen once they are depaged
+      if (pageSubscription != null && pageSubscription.isPaging())
+      {
+         return -1;
+      }
+
+      for (CountingFilter countingFilter : countingFilters)
+      {
+         if (countingFilter.filter.getFilterString().equals(filterString))
+         {
+            return countingFilter.count.get();
+         }
+      }
+      return -1;
+   }
+
+   public QueueMetrics getMetrics()
+   {
+      return metrics;
+   }
+
+   public void setMetrics(final QueueMetrics metrics)
+   {
+      this.metrics = metrics;
+   }
+
+   public SimpleString[] getCountingFilters()
+   {
+      CountingFilter[] filters = countingFilters;
+      SimpleString[] filterStrings = new SimpleString[filters.length];
+      for (int i = 0; i < filters.length; i++)
+      {
+         filterStrings[i] = filters[i].filter.getFilterString();
+      }
+      return filterStrings;
+   }
+
+   private void countAdded(final MessageReference ref)
+   {
+      for (CountingFilter countingFilter : countingFilters)
+      {
+         countingFilter.count(ref, 1);
+      }
+   }
+
+   public long getMessagesAcknowledged()
+   {
+      return messagesAcknowledged.get();
+   }
 
    public int deleteAllReferences() throws Exception
    {
@@ -1161,134 +1348,79 @@ public class QueueImpl implements Queue
    }
 
 
-   public synchronized int deleteMatchingReferences(final int flushLimit, final Filter filter1) throws Exception
+   public int deleteMatchingReferences(final int flushLimit, final Filter filter1) throws Exception
    {
-      return iterQueue(flushLimit, filter1, new QueueIterateAction()
-      {
-         @Override
-         public void actMessage(Transaction tx, MessageReference ref) throws Exception
-         {
-            incDelivering();
-            acknowledge(tx, ref);
-            refRemoved(ref);
-         }
-      });
+      return iterQueue(flushLimit, filter1, new DeleteAction());
+   }
+
+   public BulkOperation deleteMatchingReferencesInBackground(final int flushLimit, final Filter filter1) throws Exception
+   {
+      return startBulkOperation(BulkOperation.REMOVE, flushLimit, filter1, new DeleteAction());
    }
 
+   public List<BulkOperation> getBulkOperations()
+   {
+      synchronized (bulkOperations)
+      {
+         return new ArrayList<BulkOperation>(bulkOperations);
+      }
+   }
 
    /**
     * This is a generic method for any method interacting on the Queue to move or delete messages
     * Instead of duplicate the feature we created an abstract class where you pass the logic for
     * each message.
+    * <p>
+    * The queue is only locked while each chunk of {@code flushLimit} messages is processed.
     *
     * @param filter1
     * @param messageAction
     * @return
     * @throws Exception
     */
-   private synchronized int iterQueue(final int flushLimit, final Filter filter1, QueueIterateAction messageAction) throws Exception
+   private int iterQueue(final int flushLimit, final Filter filter1, QueueIterateAction messageAction) throws Exception
    {
-      int count = 0;
-      int txCount = 0;
-
-      Transaction tx = new TransactionImpl(storageManager);
+      BulkOperationImpl operation = new BulkOperationImpl(null, flushLimit, filter1, messageAction);
 
-      LinkedListIterator<MessageReference> iter = iterator();
-      try
+      while (operation.runChunk())
       {
+      }
 
-         while (iter.hasNext())
-         {
-            MessageReference ref = iter.next();
-
-            if (ref.isPaged() && queueDestroyed)
-            {
-               // this means the queue is being removed
-               // hence paged references are just going away through
-               // page cleanup
-               continue;
-            }
-
-            if (filter1 == null || filter1.match(ref.getMessage()))
-            {
-               messageAction.actMessage(tx, ref);
-               iter.remove();
-               txCount++;
-               count++;
-            }
-         }
-
-         if (txCount > 0)
-         {
-            tx.commit();
-
-            tx = new TransactionImpl(storageManager);
-
-            txCount = 0;
-         }
-
-         List<MessageReference> cancelled = scheduledDeliveryHandler.cancel(filter1);
-         for (MessageReference messageReference : cancelled)
-         {
-            messageAction.actMessage(tx, messageReference);
-            count++;
-            txCount++;
-         }
+      return operation.getCount();
+   }
 
-         if (txCount > 0)
-         {
-            tx.commit();
-            tx = new TransactionImpl(storageManager);
-            txCount = 0;
-         }
+   private BulkOperation startBulkOperation(final String type, final int flushLimit, final Filter filter1,
+                                            final QueueIterateAction messageAction)
+   {
+      BulkOperationImpl operation = new BulkOperationImpl(type, flushLimit, filter1, messageAction);
 
+      synchronized (bulkOperations)
+      {
+         bulkOperations.add(operation);
 
-         if (pageIterator != null && !queueDestroyed)
+         int finished = 0;
+         for (BulkOperationImpl bulkOperation : bulkOperations)
          {
-            while (pageIterator.hasNext())
+            if (bulkOperation.isDone())
             {
-               PagedReference reference = pageIterator.next();
-               pageIterator.remove();
-
-               if (filter1 == null || filter1.match(reference.getMessage()))
-               {
-                  count++;
-                  txCount++;
-                  messageAction.actMessage(tx, reference);
-               }
-               else
-               {
-                  addTail(reference, false);
-               }
-
-               if (txCount > 0 && txCount % flushLimit == 0)
-               {
-                  tx.commit();
-                  tx = new TransactionImpl(storageManager);
-                  txCount = 0;
-               }
+               finished++;
             }
          }
 
-         if (txCount > 0)
+         Iterator<BulkOperationImpl> iter = bulkOperations.iterator();
+         while (finished > MAX_FINISHED_BULK_OPERATIONS && iter.hasNext())
          {
-            tx.commit();
-            tx = null;
+            if (iter.next().isDone())
+            {
+               iter.remove();
+               finished--;
+            }
          }
+      }
 
+      scheduledExecutor.execute(operation);
 
-
-         if (filter != null && !queueDestroyed && pageSubscription != null)
-         {
-            scheduleDepage(false);
-         }
-
-         return count;
-      }
-      finally
-      {
-         iter.close();
-      }
+      return operation;
    }
 
    public void destroyPaging() throws Exception
@@ -1415,45 +1547,38 @@ public class QueueImpl implements Queue
       }
    }
 
-   public synchronized int expireReferences(final Filter filter) throws Exception
+   public int expireReferences(final Filter filter) throws Exception
    {
-      if (expiryAddress != null && expiryAddress.equals(this.address))
+      if (isExpiringToItself())
       {
-         // check expire with itself would be silly (waste of time)
-         if (HornetQServerLogger.LOGGER.isDebugEnabled())
-            HornetQServerLogger.LOGGER.debug("Cannot expire from " + address + " into " + expiryAddress);
          return 0;
       }
 
-      Transaction tx = new TransactionImpl(storageManager);
-
-      int count = 0;
-      LinkedListIterator<MessageReference> iter = iterator();
+      return iterQueue(DEFAULT_FLUSH_LIMIT, filter, new ExpireAction());
+   }
 
-      try
+   public BulkOperation expireReferencesInBackground(final int flushLimit, final Filter filter) throws Exception
+   {
+      if (isExpiringToItself())
       {
+         BulkOperationImpl operation = new BulkOperationImpl(BulkOperation.EXPIRE, flushLimit, filter, new ExpireAction());
+         operation.finish();
+         return operation;
+      }
 
-         while (iter.hasNext())
-         {
-            MessageReference ref = iter.next();
-            if (filter == null || filter.match(ref.getMessage()))
-            {
-               incDelivering();
-               expire(tx, ref);
-               iter.remove();
-               refRemoved(ref);
-               count++;
-            }
-         }
-
-         tx.commit();
+      return startBulkOperation(BulkOperation.EXPIRE, flushLimit, filter, new ExpireAction());
+   }
 
-         return count;
-      }
-      finally
+   private boolean isExpiringToItself()
+   {
+      if (expiryAddress != null && expiryAddress.equals(this.address))
       {
-         iter.close();
+         // check expire with itself would be silly (waste of time)
+         if (HornetQServerLogger.LOGGER.isDebugEnabled())
+            HornetQServerLogger.LOGGER.debug("Cannot expire from " + address + " into " + expiryAddress);
+         return true;
       }
+      return false;
    }
 
    public void expireReferences()
@@ -1634,41 +1759,18 @@ public class QueueImpl implements Queue
       return moveReferences(DEFAULT_FLUSH_LIMIT, filter, toAddress, false);
    }
 
-   public synchronized int moveReferences(final int flushLimit, final Filter filter,
-                                          final SimpleString toAddress,
-                                          final boolean rejectDuplicates) throws Exception
+   public int moveReferences(final int flushLimit, final Filter filter,
+                             final SimpleString toAddress,
+                             final boolean rejectDuplicates) throws Exception
    {
-      final DuplicateIDCache targetDuplicateCache = postOffice.getDuplicateIDCache(toAddress);
-
-      return iterQueue(flushLimit, filter, new QueueIterateAction()
-      {
-         @Override
-         public void actMessage(Transaction tx, MessageReference ref) throws Exception
-         {
-            boolean ignored = false;
-
-            incDelivering();
-
-            if (rejectDuplicates)
-            {
-               byte[] duplicateBytes = ref.getMessage().getDuplicateIDBytes();
-               if (duplicateBytes != null)
-               {
-                  if (targetDuplicateCache.contains(duplicateBytes))
-                  {
-                     HornetQServerLogger.LOGGER.messageWithDuplicateID(ref.getMessage().getDuplicateProperty(), toAddress, address, address);
-                     acknowledge(tx, ref);
-                     ignored = true;
-                  }
-               }
-            }
+      return iterQueue(flushLimit, filter, new MoveAction(toAddress, rejectDuplicates));
+   }
 
-            if (!ignored)
-            {
-               move(toAddress, tx, ref, false, rejectDuplicates);
-            }
-         }
-      });
+   public BulkOperation moveReferencesInBackground(final int flushLimit, final Filter filter,
+                                                   final SimpleString toAddress,
+                                                   final boolean rejectDuplicates) throws Exception
+   {
+      return startBulkOperation(BulkOperation.MOVE, flushLimit, filter, new MoveAction(toAddress, rejectDuplicates));
    }
 
    public synchronized boolean changeReferencePriority(final long messageID, final byte newPriority) throws Exception
@@ -1684,9 +1786,7 @@ public class QueueImpl implements Queue
             if (ref.getMessage().getMessageID() == messageID)
             {
                iter.remove();
-               refRemoved(ref);
-               ref.getMessage().setPriority(newPriority);
-               addTail(ref, false);
+               requeue(ref, newPriority);
                return true;
             }
          }
@@ -1699,40 +1799,24 @@ public class QueueImpl implements Queue
       }
    }
 
-   public synchronized int changeReferencesPriority(final Filter filter, final byte newPriority) throws Exception
+   public int changeReferencesPriority(final Filter filter, final byte newPriority) throws Exception
    {
-      LinkedListIterator<MessageReference> iter = iterator();
+      return iterQueue(DEFAULT_FLUSH_LIMIT, filter, new ChangePriorityAction(newPriority));
+   }
 
-      try
+   public BulkOperation changeReferencesPriorityInBackground(final int flushLimit, final Filter filter,
+                                                             final byte newPriority) throws Exception
+   {
+      return startBulkOperation(BulkOperation.CHANGE_PRIORITY, flushLimit, filter, new ChangePriorityAction(newPriority));
+   }
+
+   public synchronized void resetAllIterators()
+   {
+      for (ConsumerHolder holder : this.consumerList)
       {
-         int count = 0;
-         while (iter.hasNext())
+         if (holder.iter != null)
          {
-            MessageReference ref = iter.next();
-            if (filter == null || filter.match(ref.getMessage()))
-            {
-               count++;
-               iter.remove();
-               refRemoved(ref);
-               ref.getMessage().setPriority(newPriority);
-               addTail(ref, false);
-            }
-         }
-         return count;
-      }
-      finally
-      {
-         iter.close();
-      }
-   }
-
-   public synchronized void resetAllIterators()
-   {
-      for (ConsumerHolder holder : this.consumerList)
-      {
-         if (holder.iter != null)
-         {
-            holder.iter.close();
+            holder.iter.close();
          }
          holder.iter = null;
       }
@@ -1813,6 +1897,18 @@ public class QueueImpl implements Queue
       return "QueueImpl[name=" + name.toString() + ", postOffice=" + this.postOffice + "]@" + Integer.toHexString(System.identityHashCode(this));
    }
 
+   /**
+    * Puts a reference taken out of the queue back at the tail of its new priority. It never left
+    * the queue, so unlike {@link #addTail(MessageReference)} it is not counted as added again, nor
+    * stamped again for the latency metrics.
+    */
+   private void requeue(final MessageReference ref, final byte newPriority)
+   {
+      ref.getMessage().setPriority(newPriority);
+      messageReferences.addTail(ref, newPriority);
+      deliverAsync();
+   }
+
    private synchronized void internalAddTail(final MessageReference ref)
    {
       refAdded(ref);
@@ -1827,6 +1923,10 @@ public class QueueImpl implements Queue
     */
    private void internalAddHead(final MessageReference ref)
    {
+      if (metrics != null)
+      {
+         metrics.enqueued(ref);
+      }
       queueMemorySize.addAndGet(ref.getMessageMemoryEstimate());
       refAdded(ref);
       messageReferences.addHead(ref, ref.getMessage().getPriority());
@@ -2006,6 +2106,11 @@ public class QueueImpl implements Queue
 
                   refRemoved(ref);
 
+                  if (metrics != null)
+                  {
+                     metrics.delivered(ref);
+                  }
+
                   if (groupID != null && groupConsumer == null)
                   {
                      groups.put(groupID, consumer);
@@ -2428,6 +2533,12 @@ public class QueueImpl implements Queue
                }
 
                messagesAdded++;
+               countAdded(ref);
+
+               if (metrics != null)
+               {
+                  metrics.delivered(ref);
+               }
 
                deliveriesInTransit.countUp();
                proceedDeliver(consumer, ref);
@@ -2553,6 +2664,13 @@ public class QueueImpl implements Queue
 
       queue.decDelivering();
 
+      queue.messagesAcknowledged.incrementAndGet();
+
+      for (CountingFilter countingFilter : queue.countingFilters)
+      {
+         countingFilter.count(ref, -1);
+      }
+
       if (ref.isPaged())
       {
          // nothing to be done
@@ -2634,6 +2752,26 @@ public class QueueImpl implements Queue
    // Inner classes
    // --------------------------------------------------------------------------
 
+   private static final class CountingFilter
+   {
+      final Filter filter;
+
+      final AtomicLong count = new AtomicLong();
+
+      CountingFilter(final Filter filter)
+      {
+         this.filter = filter;
+      }
+
+      void count(final MessageReference ref, final int delta)
+      {
+         if (filter.match(ref.getMessage()))
+         {
+            count.addAndGet(delta);
+         }
+      }
+   }
+
    private static class ConsumerHolder
    {
       ConsumerHolder(final Consumer consumer)
@@ -2865,6 +3003,458 @@ public class QueueImpl implements Queue
    abstract class QueueIterateAction
    {
       public abstract void actMessage(Transaction tx, MessageReference ref) throws Exception;
+
+      /**
+       * Whether the action only applies to the references in memory, and not to the scheduled
+       * and paged ones.
+       */
+      public boolean isMemoryOnly()
+      {
+         return false;
+      }
+
+      /**
+       * Called on the references matching the filter, returns false for those the action does
+       * not need to be applied to.
+       */
+      public boolean accept(MessageReference ref)
+      {
+         return true;
+      }
+   }
+
+   private final class DeleteAction extends QueueIterateAction
+   {
+      @Override
+      public void actMessage(Transaction tx, MessageReference ref) throws Exception
+      {
+         incDelivering();
+         acknowledge(tx, ref);
+         refRemoved(ref);
+      }
+   }
+
+   private final class ExpireAction extends QueueIterateAction
+   {
+      @Override
+      public void actMessage(Transaction tx, MessageReference ref) throws Exception
+      {
+         incDelivering();
+         expire(tx, ref);
+         refRemoved(ref);
+      }
+
+      @Override
+      public boolean isMemoryOnly()
+      {
+         return true;
+      }
+   }
+
+   private final class MoveAction extends QueueIterateAction
+   {
+      private final SimpleString toAddress;
+
+      private final boolean rejectDuplicates;
+
+      private final DuplicateIDCache targetDuplicateCache;
+
+      MoveAction(final SimpleString toAddress, final boolean rejectDuplicates)
+      {
+         this.toAddress = toAddress;
+         this.rejectDuplicates = rejectDuplicates;
+         this.targetDuplicateCache = postOffice.getDuplicateIDCache(toAddress);
+      }
+
+      @Override
+      public void actMessage(Transaction tx, MessageReference ref) throws Exception
+      {
+         boolean ignored = false;
+
+         incDelivering();
+
+         if (rejectDuplicates)
+         {
+            byte[] duplicateBytes = ref.getMessage().getDuplicateIDBytes();
+            if (duplicateBytes != null)
+            {
+               if (targetDuplicateCache.contains(duplicateBytes))
+               {
+                  HornetQServerLogger.LOGGER.messageWithDuplicateID(ref.getMessage().getDuplicateProperty(), toAddress, address, address);
+                  acknowledge(tx, ref);
+                  ignored = true;
+               }
+            }
+         }
+
+         if (!ignored)
+         {
+            move(toAddress, tx, ref, false, rejectDuplicates);
+         }
+      }
+   }
+
+   private final class ChangePriorityAction extends QueueIterateAction
+   {
+      private final byte newPriority;
+
+      ChangePriorityAction(final byte newPriority)
+      {
+         this.newPriority = newPriority;
+      }
+
+      @Override
+      public void actMessage(Transaction tx, MessageReference ref) throws Exception
+      {
+         requeue(ref, newPriority);
+      }
+
+      @Override
+      public boolean isMemoryOnly()
+      {
+         return true;
+      }
+
+      @Override
+      public boolean accept(MessageReference ref)
+      {
+         // the reference is added back to the queue, it must not be counted again when met later on
+         return ref.getMessage().getPriority() != newPriority;
+      }
+   }
+
+   /**
+    * Runs a {@link QueueIterateAction} over the queue in chunks, each one holding the queue lock
+    * and committing its own transaction.
+    * <p>
+    * The references in memory are processed first, then the scheduled ones and the paged ones,
+    * and then the references in memory again for those depaged by the queue in the meantime.
+    * References added after the operation started (with a greater message ID) are left alone.
+    */
+   private final class BulkOperationImpl implements BulkOperation, Runnable
+   {
+      private static final int MEMORY = 0;
+
+      private static final int SCHEDULED = 1;
+
+      private static final int PAGING = 2;
+
+      private static final int DEPAGED = 3;
+
+      private static final int DONE = 4;
+
+      private final long id = bulkOperationSequence.incrementAndGet();
+
+      // null when run by the thread calling the operation
+      private final String type;
+
+      private final int flushLimit;
+
+      private final Filter filter1;
+
+      private final QueueIterateAction messageAction;
+
+      private final long startTime = System.currentTimeMillis();
+
+      private final long firstNewMessageID = storageManager.getCurrentUniqueID();
+
+      private volatile int count;
+
+      private volatile boolean done;
+
+      private volatile boolean cancelled;
+
+      private volatile String error;
+
+      // only used while holding the queue lock
+      private int phase = MEMORY;
+
+      private LinkedListIterator<MessageReference> iter;
+
+      BulkOperationImpl(final String type, final int flushLimit, final Filter filter1,
+                        final QueueIterateAction messageAction)
+      {
+         this.type = type;
+         this.flushLimit = flushLimit > 0 ? flushLimit : DEFAULT_FLUSH_LIMIT;
+         this.filter1 = filter1;
+         this.messageAction = messageAction;
+      }
+
+      public long getID()
+      {
+         return id;
+      }
+
+      public String getType()
+      {
+         return type;
+      }
+
+      public String getFilter()
+      {
+         return filter1 == null ? null : filter1.getFilterString().toString();
+      }
+
+      public long getStartTime()
+      {
+         return startTime;
+      }
+
+      public int getCount()
+      {
+         return count;
+      }
+
+      public boolean isDone()
+      {
+         return done;
+      }
+
+      public boolean isCancelled()
+      {
+         return cancelled;
+      }
+
+      public String getError()
+      {
+         return error;
+      }
+
+      public boolean cancel()
+      {
+         if (done)
+         {
+            return false;
+         }
+         cancelled = true;
+         return true;
+      }
+
+      public void run()
+      {
+         try
+         {
+            if (runChunk())
+            {
+               scheduledExecutor.execute(this);
+            }
+         }
+         catch (Exception e)
+         {
+            error = e.toString();
+            HornetQServerLogger.LOGGER.errorRunningBulkOperation(e, type, name);
+            finish();
+         }
+      }
+
+      /**
+       * Processes the next chunk of the operation.
+       *
+       * @return whether there is more to process
+       */
+      boolean runChunk() throws Exception
+      {
+         synchronized (QueueImpl.this)
+         {
+            if (cancelled || type != null && queueDestroyed)
+            {
+               finish();
+               return false;
+            }
+
+            try
+            {
+               switch (phase)
+               {
+                  case MEMORY:
+                  case DEPAGED:
+                     iterMemory();
+                     break;
+                  case SCHEDULED:
+                     iterScheduled();
+                     break;
+                  case PAGING:
+                     iterPaging();
+                     break;
+                  default:
+                     break;
+               }
+            }
+            catch (Exception e)
+            {
+               finish();
+               throw e;
+            }
+
+            if (phase == DONE)
+            {
+               if (filter != null && !queueDestroyed && pageSubscription != null)
+               {
+                  scheduleDepage(false);
+               }
+
+               finish();
+               return false;
+            }
+
+            return true;
+         }
+      }
+
+      void finish()
+      {
+         synchronized (QueueImpl.this)
+         {
+            if (iter != null)
+            {
+               iter.close();
+               iter = null;
+            }
+            phase = DONE;
+            done = true;
+         }
+      }
+
+      private boolean match(final MessageReference ref)
+      {
+         return (filter1 == null || filter1.match(ref.getMessage())) && messageAction.accept(ref);
+      }
+
+      private void iterMemory() throws Exception
+      {
+         if (iter == null)
+         {
+            iter = messageReferences.iterator();
+         }
+
+         Transaction tx = new TransactionImpl(storageManager);
+         int txCount = 0;
+         int scanned = 0;
+
+         while (txCount < flushLimit && scanned < BULK_OPERATION_SCAN_LIMIT && iter.hasNext())
+         {
+            MessageReference ref = iter.next();
+            scanned++;
+
+            if (ref.isPaged() && queueDestroyed)
+            {
+               // this means the queue is being removed
+               // hence paged references are just going away through
+               // page cleanup
+               continue;
+            }
+
+            if (ref.getMessage().getMessageID() >= firstNewMessageID)
+            {
+               continue;
+            }
+
+            if (match(ref))
+            {
+               messageAction.actMessage(tx, ref);
+               iter.remove();
+               txCount++;
+            }
+         }
+
+         commit(tx, txCount);
+
+         if (!iter.hasNext())
+         {
+            iter.close();
+            iter = null;
+
+            if (phase == MEMORY && !messageAction.isMemoryOnly())
+            {
+               phase = SCHEDULED;
+            }
+            else
+            {
+               phase = DONE;
+            }
+         }
+      }
+
+      private void iterScheduled() throws Exception
+      {
+         // scheduled references are taken out all at once, they are always processed in a single chunk
+         Transaction tx = new TransactionImpl(storageManager);
+         int txCount = 0;
+
+         List<MessageReference> cancelledReferences = scheduledDeliveryHandler.cancel(filter1);
+         for (MessageReference messageReference : cancelledReferences)
+         {
+            messageAction.actMessage(tx, messageReference);
+            txCount++;
+
+            if (txCount == flushLimit)
+            {
+               commit(tx, txCount);
+               tx = new TransactionImpl(storageManager);
+               txCount = 0;
+            }
+         }
+
+         commit(tx, txCount);
+
+         phase = pageIterator != null && !queueDestroyed ? PAGING : DONE;
+      }
+
+      private void iterPaging() throws Exception
+      {
+         Transaction tx = new TransactionImpl(storageManager);
+         int txCount = 0;
+         int scanned = 0;
+
+         boolean pagingDone = false;
+
+         while (txCount < flushLimit && scanned < BULK_OPERATION_SCAN_LIMIT)
+         {
+            if (!pageIterator.hasNext())
+            {
+               pagingDone = true;
+               break;
+            }
+
+            PagedReference reference = pageIterator.next();
+            pageIterator.remove();
+            scanned++;
+
+            if (reference.getMessage().getMessageID() >= firstNewMessageID)
+            {
+               // everything after this one was paged after the operation started
+               addTail(reference, false);
+               pagingDone = true;
+               break;
+            }
+
+            if (match(reference))
+            {
+               messageAction.actMessage(tx, reference);
+               txCount++;
+            }
+            else
+            {
+               addTail(reference, false);
+            }
+         }
+
+         commit(tx, txCount);
+
+         if (pagingDone)
+         {
+            phase = DEPAGED;
+         }
+      }
+
+      private void commit(final Transaction tx, final int txCount) throws Exception
+      {
+         if (txCount > 0)
+         {
+            tx.commit();
+            count += txCount;
+         }
+      }
    }
 
    /* For external use we need to use a synchronized version since the list is not thread safe */
@@ -2933,7 +3523,8 @@ public class QueueImpl implements Queue
             pageIter = pageSubscription.iterator();
          }
          interIterator = intermediateMessageReferences.iterator();
-         messagesIterator = new SynchronizedIterator(messageReferences.iterator());
+         // read only, so it doesn't need the queue lock the deliveries hold
+         messagesIterator = messageReferences.iterator();
       }
 
       @Override
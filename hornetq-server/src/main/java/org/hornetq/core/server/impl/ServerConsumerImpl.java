@@ -12,6 +12,7 @@
  */
 package org.hornetq.core.server.impl;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -21,8 +22,6 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import org.hornetq.api.core.HornetQBuffer;
-import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.HornetQIllegalStateException;
 import org.hornetq.api.core.SimpleString;
@@ -45,6 +44,7 @@ import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.ServerSession;
 import org.hornetq.core.server.management.ManagementService;
 import org.hornetq.core.server.management.Notification;
+import org.hornetq.core.server.metrics.QueueMetrics;
 import org.hornetq.core.transaction.Transaction;
 import org.hornetq.core.transaction.impl.TransactionImpl;
 import org.hornetq.spi.core.protocol.SessionCallback;
@@ -76,6 +76,8 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
    private final Queue messageQueue;
 
+   private final QueueMetrics queueMetrics;
+
    private final Filter filter;
 
    private final int minLargeMessageSize;
@@ -178,6 +180,8 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
       messageQueue = binding.getQueue();
 
+      queueMetrics = messageQueue.getMetrics();
+
       this.started = browseOnly || started;
 
       this.browseOnly = browseOnly;
@@ -309,6 +313,17 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
             }
             return HandleStatus.BUSY;
          }
+
+         // the connection can be held up by a large message streamed to another consumer
+         if (!callback.isWritable(id))
+         {
+            if (HornetQServerLogger.LOGGER.isDebugEnabled())
+            {
+               HornetQServerLogger.LOGGER.debug(this + " can't write to its connection, can't deliver reference " + ref);
+            }
+            return HandleStatus.BUSY;
+         }
+
          final ServerMessage message = ref.getMessage();
 
          if (filter != null && !filter.match(message))
@@ -360,6 +375,11 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
                // With pre-ack, we ack *before* sending to the client
                ref.getQueue().acknowledge(ref);
+
+               if (queueMetrics != null)
+               {
+                  queueMetrics.acknowledged(ref);
+               }
             }
 
          }
@@ -747,6 +767,11 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
             }
 
             ref.getQueue().acknowledge(tx, ref);
+
+            if (queueMetrics != null)
+            {
+               queueMetrics.acknowledged(ref);
+            }
          }
          while (ref.getMessage().getMessageID() != messageID);
 
@@ -805,6 +830,11 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
       {
          ref.getQueue().acknowledge(tx, ref);
       }
+
+      if (queueMetrics != null)
+      {
+         queueMetrics.acknowledged(ref);
+      }
    }
 
    public void individualCancel(final long messageID, boolean failed) throws Exception
@@ -1025,6 +1055,17 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
                return false;
             }
 
+            // readyForWriting or the session callback resume the delivery once the connection can take more
+            if (!writeReady.get() || !callback.isWritable(id))
+            {
+               if (HornetQServerLogger.LOGGER.isTraceEnabled())
+               {
+                  HornetQServerLogger.LOGGER.trace(this + "::deliverLargeMessage interrupting as the connection is not writable");
+               }
+
+               return false;
+            }
+
             if (!sentInitialPacket)
             {
                context = largeMessage.getBodyEncoder();
@@ -1078,11 +1119,10 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
                localChunkLen = (int)Math.min(sizePendingLargeMessage - positionPendingLargeMessage, minLargeMessageSize);
 
-               HornetQBuffer bodyBuffer = HornetQBuffers.fixedBuffer(localChunkLen);
-
-               context.encode(bodyBuffer, localChunkLen);
+               // the chunk is read straight into the array that will be sent
+               byte[] body = new byte[localChunkLen];
 
-               byte[] body = bodyBuffer.toByteBuffer().array();
+               context.encode(ByteBuffer.wrap(body));
 
                int packetSize = callback.sendLargeMessageContinuation(id,
                                                                       body,
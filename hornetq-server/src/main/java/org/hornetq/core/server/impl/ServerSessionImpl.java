@@ -86,6 +86,7 @@ import org.hornetq.core.transaction.TransactionPropertyIndexes;
 import org.hornetq.core.transaction.impl.TransactionImpl;
 import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.spi.core.protocol.SessionCallback;
+import org.hornetq.utils.CompressionCodecs;
 import org.hornetq.utils.TypedProperties;
 import org.hornetq.utils.UUID;
 import org.hornetq.utils.json.JSONArray;
@@ -1219,6 +1220,10 @@ public class ServerSessionImpl implements ServerSession, FailureListener
       if (tx != null)
       {
          tx.setTimeout(timeout);
+         if (tx.getXid() != null)
+         {
+            resourceManager.rescheduleTimeout(tx.getXid());
+         }
       }
    }
 
@@ -1305,6 +1310,8 @@ public class ServerSessionImpl implements ServerSession, FailureListener
 
    public void sendLarge(final MessageInternal message) throws Exception
    {
+      checkCompressionCodec(message);
+
       // need to create the LargeMessage before continue
       long id = storageManager.generateUniqueID();
 
@@ -1325,6 +1332,8 @@ public class ServerSessionImpl implements ServerSession, FailureListener
 
    public void send(final ServerMessage message, final boolean direct) throws Exception
    {
+      checkCompressionCodec(message);
+
       //large message may come from StompSession directly, in which
       //case the id header already generated.
       if (!message.isLargeMessage())
@@ -1380,6 +1389,20 @@ public class ServerSessionImpl implements ServerSession, FailureListener
       }
    }
 
+   /**
+    * Rejects a message compressed with a codec this server doesn't know, so that neither the
+    * consumers nor the protocols converting the message have to resolve it.
+    */
+   private static void checkCompressionCodec(final MessageInternal message) throws HornetQException
+   {
+      SimpleString codec = message.getSimpleStringProperty(Message.HDR_LARGE_COMPRESSION_CODEC);
+
+      if (codec != null && !CompressionCodecs.isKnown(codec.toString()))
+      {
+         throw HornetQMessageBundle.BUNDLE.unknownCompressionCodec(codec);
+      }
+   }
+
    public void sendContinuations(final int packetSize,
                                  final long messageBodySize,
                                  final byte[] body,
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.server.metrics;
+
+import java.util.Map;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.server.HornetQComponent;
+import org.hornetq.utils.LatencyHistogram;
+import org.hornetq.utils.StripedCounter;
+
+/**
+ * Registry of the latency histograms and counters recorded by the server when metrics are
+ * enabled. Latencies are recorded in microseconds.
+ * <p>
+ * The registry only exists when {@code metrics-enabled} is set, components check for
+ * {@code null} so recording costs nothing otherwise.
+ */
+public interface MetricsManager extends HornetQComponent
+{
+   /** time spent in the journal append calls made by the storage manager */
+   String JOURNAL_APPEND = "journal.append";
+
+   /** time from a synced append to the completion of its disk sync */
+   String JOURNAL_SYNC = "journal.sync";
+
+   String PAGING_WRITE = "paging.write";
+
+   String PAGING_READ = "paging.read";
+
+   String PAGING_BYTES_WRITTEN = "paging.bytes-written";
+
+   String PAGING_BYTES_READ = "paging.bytes-read";
+
+   /** time from sending a replication frame to the backup until its response arrives */
+   String REPLICATION_ROUND_TRIP = "replication.round-trip";
+
+   LatencyHistogram getHistogram(String name);
+
+   StripedCounter getCounter(String name);
+
+   /**
+    * Returns the metrics of the given queue, creating them on first use.
+    */
+   QueueMetrics getQueueMetrics(SimpleString queueName);
+
+   void removeQueueMetrics(SimpleString queueName);
+
+   Map<String, LatencyHistogram.Snapshot> getHistogramSnapshots();
+
+   Map<String, Long> getCounterValues();
+
+   void addReporter(MetricsReporter reporter);
+
+   boolean removeReporter(MetricsReporter reporter);
+
+   /**
+    * Hands the current metrics to every reporter.
+    */
+   void report();
+
+   void reset();
+}
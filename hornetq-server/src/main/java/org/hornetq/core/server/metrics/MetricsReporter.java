@@ -0,0 +1,35 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.server.metrics;
+
+import java.util.Map;
+
+import org.hornetq.utils.LatencyHistogram;
+
+/**
+ * Receives the server metrics every {@code metrics-report-period}, to push them to an external
+ * monitoring system.
+ * <p>
+ * Implementations are listed in {@code metrics-reporters} and need a public no-argument
+ * constructor. {@link #report(Map, Map)} runs on the server's scheduled thread pool and should
+ * not block for long.
+ */
+public interface MetricsReporter
+{
+   /**
+    * @param histograms the latency histograms by name, cumulative since the server started or
+    *           the metrics were last reset, in microseconds
+    * @param counters the counters by name
+    */
+   void report(Map<String, LatencyHistogram.Snapshot> histograms, Map<String, Long> counters);
+}
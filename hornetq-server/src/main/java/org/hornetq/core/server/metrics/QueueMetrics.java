@@ -0,0 +1,76 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.server.metrics;
+
+import org.hornetq.core.server.MessageReference;
+import org.hornetq.utils.LatencyHistogram;
+
+/**
+ * Latencies of the references of one queue: how long they wait in the queue before being
+ * delivered, and how long consumers take to acknowledge them once delivered.
+ * <p>
+ * The queue stamps each reference with {@link System#nanoTime()} when it is added (or added back
+ * on cancellation) and again when it is delivered, so no extra state is kept per message.
+ * References read back from paging are only stamped when they are delivered.
+ */
+public final class QueueMetrics
+{
+   public static final String ENQUEUE_TO_DELIVER = ".enqueue-to-deliver";
+
+   public static final String DELIVER_TO_ACKNOWLEDGE = ".deliver-to-acknowledge";
+
+   private final LatencyHistogram deliverLatency;
+
+   private final LatencyHistogram acknowledgeLatency;
+
+   public QueueMetrics(final LatencyHistogram deliverLatency, final LatencyHistogram acknowledgeLatency)
+   {
+      this.deliverLatency = deliverLatency;
+      this.acknowledgeLatency = acknowledgeLatency;
+   }
+
+   public void enqueued(final MessageReference ref)
+   {
+      ref.setLatencyTimestamp(System.nanoTime());
+   }
+
+   public void delivered(final MessageReference ref)
+   {
+      long now = System.nanoTime();
+      long enqueued = ref.getLatencyTimestamp();
+      if (enqueued != 0)
+      {
+         deliverLatency.record((now - enqueued) / 1000);
+      }
+      ref.setLatencyTimestamp(now);
+   }
+
+   public void acknowledged(final MessageReference ref)
+   {
+      long delivered = ref.getLatencyTimestamp();
+      if (delivered != 0)
+      {
+         acknowledgeLatency.recordSince(delivered);
+      }
+   }
+
+   public LatencyHistogram getDeliverLatency()
+   {
+      return deliverLatency;
+   }
+
+   public LatencyHistogram getAcknowledgeLatency()
+   {
+      return acknowledgeLatency;
+   }
+}
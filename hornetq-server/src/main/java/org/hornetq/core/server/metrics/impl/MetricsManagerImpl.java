@@ -0,0 +1,223 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.server.metrics.impl;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.server.HornetQServerLogger;
+import org.hornetq.core.server.metrics.MetricsManager;
+import org.hornetq.core.server.metrics.MetricsReporter;
+import org.hornetq.core.server.metrics.QueueMetrics;
+import org.hornetq.utils.LatencyHistogram;
+import org.hornetq.utils.StripedCounter;
+
+public class MetricsManagerImpl implements MetricsManager
+{
+   private static final String QUEUE_PREFIX = "queue.";
+
+   // server wide metrics are recorded by every thread, queue metrics mostly by the queue's delivery
+   private static final int SERVER_STRIPES = Math.min(16, Runtime.getRuntime().availableProcessors());
+
+   private static final int QUEUE_STRIPES = 2;
+
+   private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+
+   private final ConcurrentMap<String, StripedCounter> counters = new ConcurrentHashMap<String, StripedCounter>();
+
+   private final ConcurrentMap<SimpleString, QueueMetrics> queues = new ConcurrentHashMap<SimpleString, QueueMetrics>();
+
+   private final CopyOnWriteArrayList<MetricsReporter> reporters = new CopyOnWriteArrayList<MetricsReporter>();
+
+   private final ScheduledExecutorService scheduledThreadPool;
+
+   private final long reportPeriod;
+
+   private ScheduledFuture<?> reportFuture;
+
+   private boolean started;
+
+   public MetricsManagerImpl(final ScheduledExecutorService scheduledThreadPool, final long reportPeriod)
+   {
+      this.scheduledThreadPool = scheduledThreadPool;
+      this.reportPeriod = reportPeriod;
+   }
+
+   public synchronized void start()
+   {
+      if (started)
+      {
+         return;
+      }
+
+      reportFuture = scheduledThreadPool.scheduleAtFixedRate(new Runnable()
+      {
+         public void run()
+         {
+            report();
+         }
+      }, reportPeriod, reportPeriod, TimeUnit.MILLISECONDS);
+
+      started = true;
+   }
+
+   public synchronized void stop()
+   {
+      if (!started)
+      {
+         return;
+      }
+
+      reportFuture.cancel(false);
+      reportFuture = null;
+
+      started = false;
+   }
+
+   public synchronized boolean isStarted()
+   {
+      return started;
+   }
+
+   public LatencyHistogram getHistogram(final String name)
+   {
+      return getHistogram(name, SERVER_STRIPES);
+   }
+
+   public StripedCounter getCounter(final String name)
+   {
+      StripedCounter counter = counters.get(name);
+      if (counter == null)
+      {
+         counter = new StripedCounter(SERVER_STRIPES);
+         StripedCounter existing = counters.putIfAbsent(name, counter);
+         if (existing != null)
+         {
+            counter = existing;
+         }
+      }
+      return counter;
+   }
+
+   public QueueMetrics getQueueMetrics(final SimpleString queueName)
+   {
+      QueueMetrics metrics = queues.get(queueName);
+      if (metrics == null)
+      {
+         metrics = new QueueMetrics(getHistogram(QUEUE_PREFIX + queueName + QueueMetrics.ENQUEUE_TO_DELIVER, QUEUE_STRIPES),
+                                    getHistogram(QUEUE_PREFIX + queueName + QueueMetrics.DELIVER_TO_ACKNOWLEDGE, QUEUE_STRIPES));
+         QueueMetrics existing = queues.putIfAbsent(queueName, metrics);
+         if (existing != null)
+         {
+            metrics = existing;
+         }
+      }
+      return metrics;
+   }
+
+   public void removeQueueMetrics(final SimpleString queueName)
+   {
+      if (queues.remove(queueName) != null)
+      {
+         histograms.remove(QUEUE_PREFIX + queueName + QueueMetrics.ENQUEUE_TO_DELIVER);
+         histograms.remove(QUEUE_PREFIX + queueName + QueueMetrics.DELIVER_TO_ACKNOWLEDGE);
+      }
+   }
+
+   public Map<String, LatencyHistogram.Snapshot> getHistogramSnapshots()
+   {
+      Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<String, LatencyHistogram.Snapshot>();
+      for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet())
+      {
+         snapshots.put(entry.getKey(), entry.getValue().snapshot());
+      }
+      return snapshots;
+   }
+
+   public Map<String, Long> getCounterValues()
+   {
+      Map<String, Long> values = new TreeMap<String, Long>();
+      for (Map.Entry<String, StripedCounter> entry : counters.entrySet())
+      {
+         values.put(entry.getKey(), entry.getValue().get());
+      }
+      return values;
+   }
+
+   public void addReporter(final MetricsReporter reporter)
+   {
+      reporters.add(reporter);
+   }
+
+   public boolean removeReporter(final MetricsReporter reporter)
+   {
+      return reporters.remove(reporter);
+   }
+
+   public void report()
+   {
+      if (reporters.isEmpty())
+      {
+         return;
+      }
+
+      Map<String, LatencyHistogram.Snapshot> snapshots = getHistogramSnapshots();
+      Map<String, Long> values = getCounterValues();
+
+      for (MetricsReporter reporter : reporters)
+      {
+         try
+         {
+            reporter.report(snapshots, values);
+         }
+         catch (Throwable e)
+         {
+            HornetQServerLogger.LOGGER.errorReportingMetrics(e, reporter.getClass().getName());
+         }
+      }
+   }
+
+   public void reset()
+   {
+      for (LatencyHistogram histogram : histograms.values())
+      {
+         histogram.reset();
+      }
+      for (StripedCounter counter : counters.values())
+      {
+         counter.reset();
+      }
+   }
+
+   private LatencyHistogram getHistogram(final String name, final int stripes)
+   {
+      LatencyHistogram histogram = histograms.get(name);
+      if (histogram == null)
+      {
+         histogram = new LatencyHistogram(stripes);
+         LatencyHistogram existing = histograms.putIfAbsent(name, histogram);
+         if (existing != null)
+         {
+            histogram = existing;
+         }
+      }
+      return histogram;
+   }
+}
@@ -36,6 +36,22 @@ public interface ResourceManager extends HornetQComponent
 
    int getTimeoutSeconds();
 
+   /**
+    * Recalculates when the transaction stored under {@code xid} times out, after its timeout was
+    * changed through {@link Transaction#setTimeout(int)}.
+    */
+   void rescheduleTimeout(Xid xid);
+
+   /**
+    * @return the number of transactions currently held by this resource manager
+    */
+   int getTransactionCount();
+
+   /**
+    * @return the number of transactions rolled back by this resource manager because they timed out
+    */
+   long getTimedOutTransactionCount();
+
    List<Xid> getPreparedTransactions();
 
    Map<Xid, Long> getPreparedTransactionsWithCreationTime();
@@ -70,4 +70,9 @@ public interface Transaction
    void setContainsPersistent();
 
    void setTimeout(int timeout);
+
+   /**
+    * @return the timeout of this transaction in seconds, or -1 if the resource manager default applies
+    */
+   int getTimeout();
 }
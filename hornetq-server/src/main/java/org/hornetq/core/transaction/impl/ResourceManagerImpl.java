@@ -14,16 +14,16 @@ package org.hornetq.core.transaction.impl;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.transaction.xa.Xid;
 
@@ -33,7 +33,9 @@ import org.hornetq.core.transaction.Transaction;
 
 /**
  * A ResourceManagerImpl
- *
+ * <p>
+ * Transaction timeouts are kept in a set ordered by deadline, so each scan only visits the
+ * transactions whose deadline has passed instead of every transaction held.
  *
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  */
@@ -41,6 +43,17 @@ public class ResourceManagerImpl implements ResourceManager
 {
    private final ConcurrentMap<Xid, Transaction> transactions = new ConcurrentHashMap<Xid, Transaction>();
 
+   /**
+    * The current timeout entry of each transaction, used to take it out of {@link #timeouts}
+    */
+   private final ConcurrentMap<Xid, TimeoutEntry> timeoutEntries = new ConcurrentHashMap<Xid, TimeoutEntry>();
+
+   private final ConcurrentSkipListSet<TimeoutEntry> timeouts = new ConcurrentSkipListSet<TimeoutEntry>();
+
+   private final AtomicLong timeoutSequence = new AtomicLong(0);
+
+   private final AtomicLong timedOutTransactions = new AtomicLong(0);
+
    private final List<HeuristicCompletionHolder> heuristicCompletions = new ArrayList<HeuristicCompletionHolder>();
 
    private final int defaultTimeoutSeconds;
@@ -111,12 +124,26 @@ public class ResourceManagerImpl implements ResourceManager
 
    public boolean putTransaction(final Xid xid, final Transaction tx)
    {
-      return transactions.putIfAbsent(xid, tx) == null;
+      if (transactions.putIfAbsent(xid, tx) == null)
+      {
+         scheduleTimeout(xid, tx);
+         return true;
+      }
+      return false;
    }
 
    public Transaction removeTransaction(final Xid xid)
    {
-      return transactions.remove(xid);
+      Transaction tx = transactions.remove(xid);
+      if (tx != null)
+      {
+         TimeoutEntry entry = timeoutEntries.remove(xid);
+         if (entry != null)
+         {
+            timeouts.remove(entry);
+         }
+      }
+      return tx;
    }
 
    public int getTimeoutSeconds()
@@ -124,6 +151,25 @@ public class ResourceManagerImpl implements ResourceManager
       return defaultTimeoutSeconds;
    }
 
+   public void rescheduleTimeout(final Xid xid)
+   {
+      Transaction tx = transactions.get(xid);
+      if (tx != null)
+      {
+         scheduleTimeout(xid, tx);
+      }
+   }
+
+   public int getTransactionCount()
+   {
+      return transactions.size();
+   }
+
+   public long getTimedOutTransactionCount()
+   {
+      return timedOutTransactions.get();
+   }
+
    public List<Xid> getPreparedTransactions()
    {
       List<Xid> xids = new ArrayList<Xid>();
@@ -179,6 +225,23 @@ public class ResourceManagerImpl implements ResourceManager
       return -1;
    }
 
+   private void scheduleTimeout(final Xid xid, final Transaction tx)
+   {
+      int timeoutSeconds = tx.getTimeout() == -1 ? defaultTimeoutSeconds : tx.getTimeout();
+
+      TimeoutEntry entry = new TimeoutEntry(tx.getCreateTime() + timeoutSeconds * 1000L,
+                                            timeoutSequence.incrementAndGet(),
+                                            xid,
+                                            tx);
+
+      TimeoutEntry previous = timeoutEntries.put(xid, entry);
+      if (previous != null)
+      {
+         timeouts.remove(previous);
+      }
+      timeouts.add(entry);
+   }
+
    private List<Xid> getHeuristicCompletedTransactions(final boolean isCommit)
    {
       List<Xid> xids = new ArrayList<Xid>();
@@ -205,20 +268,46 @@ public class ResourceManagerImpl implements ResourceManager
             return;
          }
 
-         Set<Transaction> timedoutTransactions = new HashSet<Transaction>();
+         List<Transaction> timedoutTransactions = new ArrayList<Transaction>();
 
          long now = System.currentTimeMillis();
 
-         for (Transaction tx : transactions.values())
+         Iterator<TimeoutEntry> iterator = timeouts.iterator();
+         while (iterator.hasNext())
          {
-            if (tx.hasTimedOut(now, defaultTimeoutSeconds))
+            TimeoutEntry entry = iterator.next();
+            if (entry.deadline >= now)
             {
-               transactions.remove(tx.getXid());
-               HornetQServerLogger.LOGGER.unexpectedXid(tx.getXid());
-               timedoutTransactions.add(tx);
+               // Everything after this entry expires later
+               break;
+            }
+
+            iterator.remove();
+
+            if (!timeoutEntries.remove(entry.xid, entry) || transactions.get(entry.xid) != entry.tx)
+            {
+               // the transaction was removed or rescheduled meanwhile
+               continue;
+            }
+
+            if (entry.tx.hasTimedOut(now, defaultTimeoutSeconds))
+            {
+               if (transactions.remove(entry.xid, entry.tx))
+               {
+                  HornetQServerLogger.LOGGER.unexpectedXid(entry.xid);
+                  timedoutTransactions.add(entry.tx);
+               }
+            }
+            else if (entry.tx.getState() != Transaction.State.PREPARED)
+            {
+               // the timeout was raised after the entry was scheduled.
+               // Prepared transactions never time out so they are simply left out
+               scheduleTimeout(entry.xid, entry.tx);
             }
          }
 
+         timedOutTransactions.addAndGet(timedoutTransactions.size());
+
          for (Transaction failedTransaction : timedoutTransactions)
          {
             try
@@ -249,6 +338,38 @@ public class ResourceManagerImpl implements ResourceManager
 
    }
 
+   private static final class TimeoutEntry implements Comparable<TimeoutEntry>
+   {
+      final long deadline;
+
+      final long sequence;
+
+      final Xid xid;
+
+      final Transaction tx;
+
+      TimeoutEntry(final long deadline, final long sequence, final Xid xid, final Transaction tx)
+      {
+         this.deadline = deadline;
+         this.sequence = sequence;
+         this.xid = xid;
+         this.tx = tx;
+      }
+
+      public int compareTo(final TimeoutEntry other)
+      {
+         if (deadline != other.deadline)
+         {
+            return deadline < other.deadline ? -1 : 1;
+         }
+         if (sequence != other.sequence)
+         {
+            return sequence < other.sequence ? -1 : 1;
+         }
+         return 0;
+      }
+   }
+
    private static final class HeuristicCompletionHolder
    {
       public final boolean isCommit;
@@ -72,7 +72,7 @@ public class TransactionImpl implements Transaction
 
    private volatile boolean containsPersistent;
 
-   private int timeoutSeconds = -1;
+   private volatile int timeoutSeconds = -1;
 
    public TransactionImpl(final StorageManager storageManager, final int timeoutSeconds)
    {
@@ -140,6 +140,11 @@ public class TransactionImpl implements Transaction
       this.timeoutSeconds = timeout;
    }
 
+   public int getTimeout()
+   {
+      return timeoutSeconds;
+   }
+
    public long getID()
    {
       return id;
@@ -154,11 +159,11 @@ public class TransactionImpl implements Transaction
    {
       if(timeoutSeconds == - 1)
       {
-         return getState() != Transaction.State.PREPARED && currentTime > createTime + defaultTimeout * 1000;
+         return getState() != Transaction.State.PREPARED && currentTime > createTime + defaultTimeout * 1000L;
       }
       else
       {
-         return getState() != Transaction.State.PREPARED && currentTime > createTime + timeoutSeconds * 1000;
+         return getState() != Transaction.State.PREPARED && currentTime > createTime + timeoutSeconds * 1000L;
       }
    }
 
@@ -41,5 +41,12 @@ public interface SessionCallback
 
    void removeReadyListener(ReadyListener listener);
 
+   /**
+    * Returns whether the consumer may write to the connection now. A protocol streaming the body
+    * of a large message as one frame holds up the other consumers of the connection until it is
+    * done, and then calls their {@link ReadyListener}s.
+    */
+   boolean isWritable(long consumerID);
+
    void disconnect(long consumerId, String queueName);
 }
@@ -132,6 +132,14 @@ public class DefaultsFileConfigurationTest extends ConfigurationImplTest
 
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultMessageCounterEnabled(), conf.isMessageCounterEnabled());
 
+      Assert.assertEquals(HornetQDefaultConfiguration.isDefaultMetricsEnabled(), conf.isMetricsEnabled());
+
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultMetricsReportPeriod(), conf.getMetricsReportPeriod());
+
+      Assert.assertEquals(0, conf.getMetricsReporterClassNames().size());
+
+      Assert.assertEquals(0, conf.getCompressionCodecClassNames().size());
+
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultTransactionTimeoutScanPeriod(),
                           conf.getTransactionTimeoutScanPeriod());
 
@@ -29,6 +29,7 @@ import org.hornetq.core.config.Configuration;
 import org.hornetq.core.config.DivertConfiguration;
 import org.hornetq.core.security.Role;
 import org.hornetq.core.server.JournalType;
+import org.hornetq.core.server.cluster.LoadBalancingPolicy;
 
 /**
  * @author <a href="ataylor@redhat.com">Andy Taylor</a>
@@ -60,6 +61,14 @@ public class FileConfigurationTest extends ConfigurationImplTest
       Assert.assertEquals(true, conf.isMessageCounterEnabled());
       Assert.assertEquals(5, conf.getMessageCounterMaxDayHistory());
       Assert.assertEquals(123456, conf.getMessageCounterSamplePeriod());
+      Assert.assertEquals(true, conf.isMetricsEnabled());
+      Assert.assertEquals(23456, conf.getMetricsReportPeriod());
+      Assert.assertEquals(1, conf.getMetricsReporterClassNames().size());
+      Assert.assertEquals("org.hornetq.tests.unit.core.config.impl.TestMetricsReporter",
+                          conf.getMetricsReporterClassNames().get(0));
+      Assert.assertEquals(1, conf.getCompressionCodecClassNames().size());
+      Assert.assertEquals("org.hornetq.tests.unit.core.config.impl.TestCompressionCodec",
+                          conf.getCompressionCodecClassNames().get(0));
       Assert.assertEquals(12345, conf.getConnectionTTLOverride());
       Assert.assertEquals(98765, conf.getTransactionTimeout());
       Assert.assertEquals(56789, conf.getTransactionTimeoutScanPeriod());
@@ -216,6 +225,8 @@ public class FileConfigurationTest extends ConfigurationImplTest
             assertEquals("max retry interval", 10002, bc.getMaxRetryInterval());
             Assert.assertEquals(2, bc.getReconnectAttempts());
             Assert.assertEquals(true, bc.isUseDuplicateDetection());
+            Assert.assertEquals(250, bc.getAckBatchSize());
+            Assert.assertEquals(25, bc.getAckBatchDelay());
             Assert.assertEquals("connector1", bc.getStaticConnectors().get(0));
             Assert.assertEquals(null, bc.getDiscoveryGroupName());
          }
@@ -228,6 +239,7 @@ public class FileConfigurationTest extends ConfigurationImplTest
             Assert.assertEquals(null, bc.getTransformerClassName());
             Assert.assertEquals(null, bc.getStaticConnectors());
             Assert.assertEquals("dg1", bc.getDiscoveryGroupName());
+            Assert.assertEquals(1, bc.getAckBatchSize());
          }
       }
 
@@ -252,6 +264,9 @@ public class FileConfigurationTest extends ConfigurationImplTest
             assertEquals("multiplier", 0.25, ccc.getRetryIntervalMultiplier(), 0.00001);
             assertEquals("max retry interval", 10000, ccc.getMaxRetryInterval());
             assertEquals(72, ccc.getReconnectAttempts());
+            Assert.assertEquals(LoadBalancingPolicy.CONSUMER_RATE, ccc.getLoadBalancingPolicy());
+            Assert.assertEquals(500, ccc.getLoadReportInterval());
+            Assert.assertEquals(1000, ccc.getRedistributionThreshold());
             Assert.assertEquals("connector1", ccc.getStaticConnectors().get(0));
             Assert.assertEquals("connector2", ccc.getStaticConnectors().get(1));
             Assert.assertEquals(null, ccc.getDiscoveryGroupName());
@@ -266,6 +281,8 @@ public class FileConfigurationTest extends ConfigurationImplTest
             Assert.assertEquals(false, ccc.isDuplicateDetection());
             Assert.assertEquals(true, ccc.isForwardWhenNoConsumers());
             Assert.assertEquals(2, ccc.getMaxHops());
+            Assert.assertEquals(LoadBalancingPolicy.ROUND_ROBIN, ccc.getLoadBalancingPolicy());
+            Assert.assertEquals(-1, ccc.getRedistributionThreshold());
             Assert.assertEquals(Collections.emptyList(), ccc.getStaticConnectors());
             Assert.assertEquals("dg1", ccc.getDiscoveryGroupName());
          }
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.list;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hornetq.utils.ConcurrentPriorityLinkedListImpl;
+import org.hornetq.utils.LinkedListIterator;
+import org.hornetq.utils.PriorityLinkedList;
+import org.junit.Test;
+
+/**
+ * Runs the tests of {@link PriorityLinkedListTest} on {@link ConcurrentPriorityLinkedListImpl}, and
+ * checks it with producers adding while it is consumed.
+ */
+public class ConcurrentPriorityLinkedListTest extends PriorityLinkedListTest
+{
+   private static final int PRODUCERS = 4;
+
+   private static final int ELEMENTS = 50000;
+
+   @Override
+   protected PriorityLinkedList<Wibble> getList()
+   {
+      return new ConcurrentPriorityLinkedListImpl<Wibble>(10);
+   }
+
+   /**
+    * As {@link PriorityLinkedListTest#testIterator()}, except that removing the last element of a
+    * priority does not move the iterator back to the element before it.
+    */
+   @Override
+   @Test
+   public void testIterator()
+   {
+      Wibble[] wibbles = {a, b, c, d, e, f, g, h, i, j, k, l, m, n, o, p, q, r, s, t, u, v, w, x, y, z};
+      PriorityLinkedList<Wibble> list = getList();
+      for (int index = 0; index < wibbles.length; index++)
+      {
+         // a and b at 9, c and d at 8, then three by priority
+         list.addTail(wibbles[index], index < 4 ? 9 - index / 2 : 7 - (index - 4) / 3);
+      }
+
+      assertNext(list.iterator(), "abcdefghijklmnopqrstuvwxyz");
+      assertEquals(26, list.size());
+
+      LinkedListIterator<Wibble> iter = list.iterator();
+      assertNext(iter, "a");
+      iter.remove();
+      assertEquals(25, list.size());
+      assertNext(iter, "bcd");
+      iter.remove();
+      assertEquals(24, list.size());
+      assertNext(iter, "efghij");
+      iter.remove();
+      assertEquals(23, list.size());
+      assertNext(iter, "klmnopqrstuvwxyz");
+      iter.remove();
+      assertFalse(iter.hasNext());
+      assertEquals(22, list.size());
+
+      assertNext(list.iterator(), "bcefghiklmnopqrstuvwxy");
+   }
+
+   private static void assertNext(final LinkedListIterator<Wibble> iter, final String expected)
+   {
+      for (char ch : expected.toCharArray())
+      {
+         assertTrue(iter.hasNext());
+         assertEquals(String.valueOf(ch), iter.next().toString());
+      }
+   }
+
+   /**
+    * As a consumer with a filter or a group delivers: it skips the elements it doesn't take and
+    * removes the ones after them. Each removal must not look for the predecessor of the element
+    * from the head again.
+    */
+   @Test(timeout = 10000)
+   public void testRemoveRunAfterKeptElements() throws Exception
+   {
+      final int count = 100000;
+      PriorityLinkedList<int[]> list = new ConcurrentPriorityLinkedListImpl<int[]>(10);
+      for (int i = 0; i < 2 * count; i++)
+      {
+         list.addTail(new int[]{i}, 4);
+      }
+
+      LinkedListIterator<int[]> iterator = list.iterator();
+      for (int i = 0; i < count; i++)
+      {
+         assertTrue(iterator.hasNext());
+         assertEquals(i, iterator.next()[0]);
+      }
+      for (int i = count; i < 2 * count; i++)
+      {
+         assertTrue(iterator.hasNext());
+         assertEquals(i, iterator.next()[0]);
+         iterator.remove();
+      }
+      assertFalse(iterator.hasNext());
+      iterator.close();
+
+      assertEquals(count, list.size());
+      iterator = list.iterator();
+      for (int i = 0; i < count; i++)
+      {
+         assertEquals(i, iterator.next()[0]);
+      }
+      assertFalse(iterator.hasNext());
+
+      // elements added after the run are still reached, from the last one kept
+      list.addTail(new int[]{-1}, 4);
+      assertTrue(iterator.hasNext());
+      assertEquals(-1, iterator.next()[0]);
+      iterator.remove();
+      assertEquals(count, list.size());
+   }
+
+   @Test
+   public void testPollWhileAdding() throws Exception
+   {
+      final PriorityLinkedList<int[]> list = new ConcurrentPriorityLinkedListImpl<int[]>(10);
+
+      List<Producer> producers = startProducers(list);
+
+      int[][] lastReceived = newLastReceived();
+      int received = 0;
+      long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(60);
+      while (received < PRODUCERS * ELEMENTS)
+      {
+         int[] element = list.poll();
+         if (element == null)
+         {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.yield();
+            continue;
+         }
+         checkOrder(lastReceived, element);
+         received++;
+      }
+
+      joinProducers(producers);
+      assertNull(list.poll());
+      assertEquals(0, list.size());
+      assertTrue(list.isEmpty());
+   }
+
+   @Test
+   public void testIteratorRemoveWhileAdding() throws Exception
+   {
+      final PriorityLinkedList<int[]> list = new ConcurrentPriorityLinkedListImpl<int[]>(10);
+
+      List<Producer> producers = startProducers(list);
+
+      int received = 0;
+      boolean skip = false;
+      LinkedListIterator<int[]> iterator = list.iterator();
+      long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(60);
+      while (received < PRODUCERS * ELEMENTS)
+      {
+         if (!iterator.hasNext())
+         {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            // starting over finds the elements skipped
+            iterator.close();
+            iterator = list.iterator();
+            Thread.yield();
+            continue;
+         }
+         int[] element = iterator.next();
+         // as a busy consumer, or one with a filter, does
+         skip = !skip;
+         if (skip && element[1] % 3 == 0)
+         {
+            // it comes next, unless an element of a higher priority was added meanwhile
+            iterator.repeat();
+            continue;
+         }
+         if (skip && element[1] % 3 == 1)
+         {
+            // left for the next pass
+            continue;
+         }
+         iterator.remove();
+         received++;
+      }
+      iterator.close();
+
+      joinProducers(producers);
+      assertFalse(list.iterator().hasNext());
+      assertNull(list.poll());
+      assertEquals(0, list.size());
+
+      // what is removed through an iterator is gone for the others
+      for (int i = 0; i < 10; i++)
+      {
+         list.addTail(new int[]{0, i, 0}, i % 3);
+      }
+      LinkedListIterator<int[]> first = list.iterator();
+      LinkedListIterator<int[]> second = list.iterator();
+      while (first.hasNext())
+      {
+         first.next();
+         first.remove();
+      }
+      assertFalse(second.hasNext());
+      assertEquals(0, list.size());
+   }
+
+   private List<Producer> startProducers(final PriorityLinkedList<int[]> list)
+   {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Producer> producers = new ArrayList<Producer>();
+      for (int i = 0; i < PRODUCERS; i++)
+      {
+         Producer producer = new Producer(list, i, start);
+         producers.add(producer);
+         producer.start();
+      }
+      start.countDown();
+      return producers;
+   }
+
+   private static void joinProducers(final List<Producer> producers) throws Exception
+   {
+      for (Producer producer : producers)
+      {
+         producer.join();
+         if (producer.error.get() != null)
+         {
+            throw producer.error.get();
+         }
+      }
+   }
+
+   private static int[][] newLastReceived()
+   {
+      int[][] lastReceived = new int[PRODUCERS][10];
+      for (int[] last : lastReceived)
+      {
+         Arrays.fill(last, -1);
+      }
+      return lastReceived;
+   }
+
+   /**
+    * The elements of a producer with the same priority come in the order they were added.
+    */
+   private static void checkOrder(final int[][] lastReceived, final int[] element)
+   {
+      int producer = element[0];
+      int priority = element[2];
+      assertTrue(lastReceived[producer][priority] < element[1]);
+      lastReceived[producer][priority] = element[1];
+   }
+
+   private static final class Producer extends Thread
+   {
+      private final PriorityLinkedList<int[]> list;
+
+      private final int id;
+
+      private final CountDownLatch start;
+
+      private final AtomicReference<Exception> error = new AtomicReference<Exception>();
+
+      Producer(final PriorityLinkedList<int[]> list, final int id, final CountDownLatch start)
+      {
+         this.list = list;
+         this.id = id;
+         this.start = start;
+      }
+
+      @Override
+      public void run()
+      {
+         try
+         {
+            start.await();
+            for (int i = 0; i < ELEMENTS; i++)
+            {
+               int priority = i % 10;
+               list.addTail(new int[]{id, i, priority}, priority);
+            }
+         }
+         catch (Exception e)
+         {
+            error.set(e);
+         }
+      }
+   }
+}
@@ -20,12 +20,13 @@ import org.junit.Assert;
 
 
 import org.hornetq.utils.LinkedListIterator;
+import org.hornetq.utils.PriorityLinkedList;
 import org.hornetq.utils.PriorityLinkedListImpl;
 
 /**
  * @author <a href="tim.fox@jboss.com>Tim Fox</a>
  */
-public final class PriorityLinkedListTest extends Assert
+public class PriorityLinkedListTest extends Assert
 {
    protected Wibble a;
 
@@ -79,9 +80,9 @@ public final class PriorityLinkedListTest extends Assert
 
    protected Wibble z;
 
-   private PriorityLinkedListImpl<Wibble> list;
+   private PriorityLinkedList<Wibble> list;
 
-   protected PriorityLinkedListImpl<Wibble> getList()
+   protected PriorityLinkedList<Wibble> getList()
    {
       return new PriorityLinkedListImpl<Wibble>(10);
    }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.protocol.core.impl.wireformat;
+
+import java.util.List;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.journal.impl.dataformat.ByteArrayEncoding;
+import org.hornetq.core.protocol.ServerPacketDecoder;
+import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.core.protocol.core.impl.RemotingConnectionImpl;
+import org.hornetq.core.remoting.impl.invm.InVMConnection;
+import org.hornetq.core.replication.ReplicationManager.ADD_OPERATION_TYPE;
+import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Encodes {@link ReplicationBatchMessage}s as they are sent to the backup and decodes them as the
+ * backup does.
+ */
+public class ReplicationBatchMessageTest extends Assert
+{
+   private final RemotingConnection connection = new RemotingConnectionImpl(ServerPacketDecoder.INSTANCE,
+                                                                            new InVMConnection(0, null, null, null),
+                                                                            -1,
+                                                                            -1,
+                                                                            null,
+                                                                            null);
+
+   @Test
+   public void testRoundTrip() throws Exception
+   {
+      ReplicationBatchMessage batch = new ReplicationBatchMessage(16);
+      batch.addPacket(new ReplicationAddMessage((byte)1, ADD_OPERATION_TYPE.ADD, 10, (byte)20, data(new byte[]{1, 2, 3})));
+      batch.addPacket(new ReplicationAddTXMessage((byte)2, ADD_OPERATION_TYPE.UPDATE, 30, 11, (byte)21, data(new byte[]{4})));
+      batch.addPacket(new ReplicationPrepareMessage((byte)2, 30, data(new byte[]{5, 6})));
+      batch.addPacket(new ReplicationCommitMessage((byte)2, false, 30));
+      batch.addPacket(new ReplicationDeleteMessage((byte)1, 10));
+      batch.addPacket(new ReplicationPageEventMessage(new SimpleString("address"), 7, true));
+      batch.addPacket(new ReplicationLargeMessageWriteMessage(12, new byte[]{7, 8, 9, 10}));
+
+      // the initial size is exceeded, the buffer grows
+      assertTrue(batch.getBatchSize() > 16);
+      assertEquals(7, batch.getCount());
+
+      ReplicationBatchMessage decoded = roundTrip(batch);
+      assertEquals(7, decoded.getCount());
+
+      List<Packet> packets = decoded.getPackets();
+      assertEquals(7, packets.size());
+
+      ReplicationAddMessage add = (ReplicationAddMessage)packets.get(0);
+      assertEquals(1, add.getJournalID());
+      assertEquals(ADD_OPERATION_TYPE.ADD, add.getRecord());
+      assertEquals(10, add.getId());
+      assertEquals(20, add.getJournalRecordType());
+      assertArrayEquals(new byte[]{1, 2, 3}, add.getRecordData());
+
+      ReplicationAddTXMessage addTX = (ReplicationAddTXMessage)packets.get(1);
+      assertEquals(2, addTX.getJournalID());
+      assertEquals(ADD_OPERATION_TYPE.UPDATE, addTX.getOperation());
+      assertEquals(30, addTX.getTxId());
+      assertEquals(11, addTX.getId());
+      assertEquals(21, addTX.getRecordType());
+      assertArrayEquals(new byte[]{4}, addTX.getRecordData());
+
+      ReplicationPrepareMessage prepare = (ReplicationPrepareMessage)packets.get(2);
+      assertEquals(30, prepare.getTxId());
+      assertArrayEquals(new byte[]{5, 6}, prepare.getRecordData());
+
+      ReplicationCommitMessage commit = (ReplicationCommitMessage)packets.get(3);
+      assertEquals(2, commit.getJournalID());
+      assertFalse(commit.isRollback());
+      assertEquals(30, commit.getTxId());
+
+      ReplicationDeleteMessage delete = (ReplicationDeleteMessage)packets.get(4);
+      assertEquals(1, delete.getJournalID());
+      assertEquals(10, delete.getId());
+
+      ReplicationPageEventMessage pageEvent = (ReplicationPageEventMessage)packets.get(5);
+      assertEquals(new SimpleString("address"), pageEvent.getStoreName());
+      assertEquals(7, pageEvent.getPageNumber());
+      assertTrue(pageEvent.isDelete());
+
+      ReplicationLargeMessageWriteMessage largeMessageWrite = (ReplicationLargeMessageWriteMessage)packets.get(6);
+      assertEquals(12, largeMessageWrite.getMessageId());
+      assertArrayEquals(new byte[]{7, 8, 9, 10}, largeMessageWrite.getBody());
+   }
+
+   @Test
+   public void testEmptyRecords() throws Exception
+   {
+      ReplicationBatchMessage batch = new ReplicationBatchMessage(16);
+      batch.addPacket(new ReplicationAddMessage((byte)1, ADD_OPERATION_TYPE.ADD, 1, (byte)1, data(new byte[0])));
+      batch.addPacket(new ReplicationAddMessage((byte)1, ADD_OPERATION_TYPE.ADD, 2, (byte)1, data(new byte[0])));
+
+      List<Packet> packets = roundTrip(batch).getPackets();
+      assertEquals(2, packets.size());
+      assertEquals(1, ((ReplicationAddMessage)packets.get(0)).getId());
+      assertEquals(0, ((ReplicationAddMessage)packets.get(0)).getRecordData().length);
+      assertEquals(2, ((ReplicationAddMessage)packets.get(1)).getId());
+   }
+
+   @Test
+   public void testRecordsEncodedWhenAdded() throws Exception
+   {
+      byte[] record = {1, 2, 3};
+      ReplicationBatchMessage batch = new ReplicationBatchMessage(16);
+      batch.addPacket(new ReplicationAddMessage((byte)1, ADD_OPERATION_TYPE.ADD, 1, (byte)1, new ByteArrayEncoding(record)));
+
+      // the journal may reuse the record once the append returned
+      record[0] = 9;
+
+      ReplicationAddMessage add = (ReplicationAddMessage)roundTrip(batch).getPackets().get(0);
+      assertArrayEquals(new byte[]{1, 2, 3}, add.getRecordData());
+   }
+
+   @Test
+   public void testLargeBatch() throws Exception
+   {
+      int count = 1000;
+      ReplicationBatchMessage batch = new ReplicationBatchMessage(16);
+      for (int i = 0; i < count; i++)
+      {
+         batch.addPacket(new ReplicationAddMessage((byte)1, ADD_OPERATION_TYPE.ADD, i, (byte)1, data(new byte[200])));
+      }
+
+      List<Packet> packets = roundTrip(batch).getPackets();
+      assertEquals(count, packets.size());
+      for (int i = 0; i < count; i++)
+      {
+         ReplicationAddMessage add = (ReplicationAddMessage)packets.get(i);
+         assertEquals(i, add.getId());
+         assertEquals(200, add.getRecordData().length);
+      }
+   }
+
+   private ReplicationBatchMessage roundTrip(final ReplicationBatchMessage batch)
+   {
+      HornetQBuffer buffer = batch.encode(connection);
+
+      // the decoder is handed the packet after its length, as the remoting connection does
+      assertEquals(buffer.writerIndex() - 4, buffer.readInt());
+      Packet packet = ServerPacketDecoder.INSTANCE.decode(buffer);
+
+      assertEquals(PacketImpl.REPLICATION_BATCH, packet.getType());
+      assertEquals(0, buffer.readableBytes());
+      return (ReplicationBatchMessage)packet;
+   }
+
+   private static ByteArrayEncoding data(final byte[] bytes)
+   {
+      return new ByteArrayEncoding(bytes);
+   }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.replication;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.journal.IOAsyncTask;
+import org.hornetq.core.journal.impl.dataformat.ByteArrayEncoding;
+import org.hornetq.core.persistence.OperationContext;
+import org.hornetq.core.persistence.impl.journal.OperationContextImpl;
+import org.hornetq.core.protocol.ServerPacketDecoder;
+import org.hornetq.core.protocol.core.Channel;
+import org.hornetq.core.protocol.core.CoreRemotingConnection;
+import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.core.protocol.core.impl.ChannelImpl.CHANNEL_ID;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.core.protocol.core.impl.RemotingConnectionImpl;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationBatchMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationCommitMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationDeleteMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationPageEventMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationResponseMessage;
+import org.hornetq.core.remoting.impl.invm.InVMConnection;
+import org.hornetq.core.replication.ReplicationManager.ADD_OPERATION_TYPE;
+import org.hornetq.utils.ExecutorFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Replicates records to a connection that keeps the packets it is given, with an executor that only
+ * runs the batch flush task when the test says so.
+ */
+public class ReplicationManagerBatchTest extends Assert
+{
+   private static final byte JOURNAL_ID = 1;
+
+   private final List<Packet> sent = new ArrayList<Packet>();
+
+   private final ManualExecutor executor = new ManualExecutor();
+
+   private CoreRemotingConnection connection;
+
+   private ReplicationManager manager;
+
+   private OperationContext context;
+
+   @Before
+   public void setUp() throws Exception
+   {
+      connection = new RemotingConnectionImpl(ServerPacketDecoder.INSTANCE,
+                                              new SentPacketsConnection(),
+                                              -1,
+                                              -1,
+                                              null,
+                                              null);
+
+      manager = new ReplicationManager(connection, new ExecutorFactory()
+      {
+         public Executor getExecutor()
+         {
+            return executor;
+         }
+      });
+      manager.start();
+
+      context = new OperationContextImpl(executor);
+      OperationContextImpl.setContext(context);
+   }
+
+   @After
+   public void tearDown() throws Exception
+   {
+      OperationContextImpl.setContext(null);
+      manager.stop();
+   }
+
+   @Test
+   public void testRecordsBatchedUntilFlushTask() throws Exception
+   {
+      manager.appendUpdateRecord(JOURNAL_ID, ADD_OPERATION_TYPE.ADD, 1, (byte)10, record(10));
+      manager.appendUpdateRecord(JOURNAL_ID, ADD_OPERATION_TYPE.UPDATE, 1, (byte)11, record(10));
+      manager.pageDeleted(new SimpleString("address"), 3);
+      manager.appendCommitRecord(JOURNAL_ID, 7, true, true);
+      manager.appendDeleteRecord(JOURNAL_ID, 1);
+
+      // the flush task is queued once for the whole batch
+      assertEquals(0, sent.size());
+      assertEquals(1, executor.runTasks());
+
+      assertEquals(1, sent.size());
+      List<Packet> packets = batchAt(0).getPackets();
+      assertEquals(5, packets.size());
+
+      ReplicationAddMessage add = (ReplicationAddMessage)packets.get(0);
+      assertEquals(ADD_OPERATION_TYPE.ADD, add.getRecord());
+      assertEquals(10, add.getJournalRecordType());
+      ReplicationAddMessage update = (ReplicationAddMessage)packets.get(1);
+      assertEquals(ADD_OPERATION_TYPE.UPDATE, update.getRecord());
+      assertEquals(11, update.getJournalRecordType());
+      assertEquals(3, ((ReplicationPageEventMessage)packets.get(2)).getPageNumber());
+      assertEquals(7, ((ReplicationCommitMessage)packets.get(3)).getTxId());
+      assertEquals(1, ((ReplicationDeleteMessage)packets.get(4)).getId());
+
+      // the next record starts a new batch, with its own flush task
+      manager.appendDeleteRecord(JOURNAL_ID, 2);
+      assertEquals(1, executor.runTasks());
+      assertEquals(2, sent.size());
+      assertEquals(1, batchAt(1).getCount());
+   }
+
+   @Test
+   public void testFlushOnSize() throws Exception
+   {
+      // 128KiB are reached by the third record
+      for (int i = 0; i < 3; i++)
+      {
+         assertEquals(0, sent.size());
+         manager.appendUpdateRecord(JOURNAL_ID, ADD_OPERATION_TYPE.ADD, i, (byte)1, record(50 * 1024));
+      }
+
+      // sent without the flush task
+      assertEquals(1, sent.size());
+      assertIds(batchAt(0), 0, 1, 2);
+
+      manager.appendUpdateRecord(JOURNAL_ID, ADD_OPERATION_TYPE.ADD, 3, (byte)1, record(10));
+      assertEquals(1, sent.size());
+
+      executor.runTasks();
+      assertEquals(2, sent.size());
+      assertIds(batchAt(1), 3);
+   }
+
+   @Test
+   public void testFlushBeforeSynchronization() throws Exception
+   {
+      manager.appendUpdateRecord(JOURNAL_ID, ADD_OPERATION_TYPE.ADD, 1, (byte)1, record(10));
+      manager.appendUpdateRecord(JOURNAL_ID, ADD_OPERATION_TYPE.ADD, 2, (byte)1, record(10));
+
+      manager.sendSynchronizationDone("node");
+
+      // the pending records are sent ahead of the synchronization packet, which is not batched
+      assertEquals(2, sent.size());
+      assertIds(batchAt(0), 1, 2);
+      assertEquals(PacketImpl.REPLICATION_START_FINISH_SYNC, sent.get(1).getType());
+
+      executor.runTasks();
+      assertEquals(2, sent.size());
+   }
+
+   @Test
+   public void testOneResponsePerBatch() throws Exception
+   {
+      final AtomicInteger done = new AtomicInteger(0);
+      IOAsyncTask countDone = new IOAsyncTask()
+      {
+         public void done()
+         {
+            done.incrementAndGet();
+         }
+
+         public void onError(final int errorCode, final String errorMessage)
+         {
+         }
+      };
+
+      for (int i = 0; i < 3; i++)
+      {
+         manager.appendUpdateRecord(JOURNAL_ID, ADD_OPERATION_TYPE.ADD, i, (byte)1, record(10));
+      }
+      executor.runTasks();
+      context.executeOnCompletion(countDone);
+
+      manager.sendSynchronizationDone("node");
+      context.executeOnCompletion(countDone);
+
+      manager.appendUpdateRecord(JOURNAL_ID, ADD_OPERATION_TYPE.ADD, 3, (byte)1, record(10));
+      manager.appendUpdateRecord(JOURNAL_ID, ADD_OPERATION_TYPE.ADD, 4, (byte)1, record(10));
+      executor.runTasks();
+      context.executeOnCompletion(countDone);
+
+      assertEquals(3, sent.size());
+
+      // each response completes the records of the packet it acknowledges
+      int[] expected = {1, 2, 3};
+      for (int i = 0; i < expected.length; i++)
+      {
+         respond();
+         executor.runTasks();
+         assertEquals(expected[i], done.get());
+      }
+
+      assertTrue(manager.getActiveTokens().isEmpty());
+   }
+
+   @Test
+   public void testStopDropsPendingBatch() throws Exception
+   {
+      manager.appendUpdateRecord(JOURNAL_ID, ADD_OPERATION_TYPE.ADD, 1, (byte)1, record(10));
+
+      final AtomicInteger done = new AtomicInteger(0);
+      context.executeOnCompletion(new IOAsyncTask()
+      {
+         public void done()
+         {
+            done.incrementAndGet();
+         }
+
+         public void onError(final int errorCode, final String errorMessage)
+         {
+         }
+      });
+
+      manager.stop();
+      executor.runTasks();
+
+      // the record is completed, as when the backup is lost, and never sent
+      assertEquals(1, done.get());
+      assertEquals(0, sent.size());
+   }
+
+   private void respond()
+   {
+      Channel channel = connection.getChannel(CHANNEL_ID.REPLICATION.id, -1);
+      channel.getHandler().handlePacket(new ReplicationResponseMessage());
+   }
+
+   private ReplicationBatchMessage batchAt(final int index)
+   {
+      Packet packet = sent.get(index);
+      assertEquals(PacketImpl.REPLICATION_BATCH, packet.getType());
+      return (ReplicationBatchMessage)packet;
+   }
+
+   private static void assertIds(final ReplicationBatchMessage batch, final long... ids)
+   {
+      List<Packet> packets = batch.getPackets();
+      assertEquals(ids.length, packets.size());
+      for (int i = 0; i < ids.length; i++)
+      {
+         assertEquals(ids[i], ((ReplicationAddMessage)packets.get(i)).getId());
+      }
+   }
+
+   private static ByteArrayEncoding record(final int size)
+   {
+      return new ByteArrayEncoding(new byte[size]);
+   }
+
+   /**
+    * Decodes the packets written to it, as the backup would.
+    */
+   private final class SentPacketsConnection extends InVMConnection
+   {
+      SentPacketsConnection()
+      {
+         super(0, null, null, null);
+      }
+
+      @Override
+      public void write(final HornetQBuffer buffer, final boolean flush, final boolean batch)
+      {
+         buffer.readInt();
+         sent.add(ServerPacketDecoder.INSTANCE.decode(buffer));
+      }
+   }
+
+   private static final class ManualExecutor implements Executor
+   {
+      private final Queue<Runnable> tasks = new LinkedList<Runnable>();
+
+      public synchronized void execute(final Runnable command)
+      {
+         tasks.add(command);
+      }
+
+      /**
+       * @return the number of tasks run
+       */
+      int runTasks()
+      {
+         int count = 0;
+         Runnable task;
+         while ((task = poll()) != null)
+         {
+            task.run();
+            count++;
+         }
+         return count;
+      }
+
+      private synchronized Runnable poll()
+      {
+         return tasks.poll();
+      }
+   }
+}
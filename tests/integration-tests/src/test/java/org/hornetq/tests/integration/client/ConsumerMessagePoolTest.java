@@ -0,0 +1,197 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.integration.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.MessageHandler;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.tests.util.ServiceTestBase;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Consumes messages through a small consumer message pool, so that every message is decoded into
+ * a recycled one, and checks that no message shows the body or the properties of another.
+ */
+public class ConsumerMessagePoolTest extends ServiceTestBase
+{
+   private static final SimpleString QUEUE = new SimpleString("ConsumerMessagePoolTestQueue");
+
+   private static final int NUMBER_OF_MESSAGES = 100;
+
+   private HornetQServer server;
+
+   @Before
+   @Override
+   public void setUp() throws Exception
+   {
+      super.setUp();
+
+      server = createServer(false);
+
+      server.start();
+   }
+
+   @Test
+   public void testReceiveAcknowledgedImmediately() throws Exception
+   {
+      ClientSession session = createSession(0);
+      ClientConsumer consumer = session.createConsumer(QUEUE);
+      session.start();
+
+      Set<ClientMessage> instances = Collections.newSetFromMap(new IdentityHashMap<ClientMessage, Boolean>());
+
+      for (int i = 0; i < NUMBER_OF_MESSAGES; i++)
+      {
+         ClientMessage message = consumer.receive(5000);
+         Assert.assertNotNull(message);
+         assertMessage(i, message);
+         message.acknowledge();
+         instances.add(message);
+      }
+
+      Assert.assertNull(consumer.receiveImmediate());
+
+      // the messages were recycled
+      Assert.assertTrue(instances.size() + " instances", instances.size() < NUMBER_OF_MESSAGES);
+   }
+
+   @Test
+   public void testReceiveAcknowledgedInBatches() throws Exception
+   {
+      // the messages are released as the acks are flushed, several at a time
+      ClientSession session = createSession(10 * 1024);
+      ClientConsumer consumer = session.createConsumer(QUEUE);
+      session.start();
+
+      for (int i = 0; i < NUMBER_OF_MESSAGES; i++)
+      {
+         ClientMessage message = consumer.receive(5000);
+         Assert.assertNotNull(message);
+         assertMessage(i, message);
+         message.acknowledge();
+      }
+
+      Assert.assertNull(consumer.receiveImmediate());
+   }
+
+   @Test
+   public void testMessageHandler() throws Exception
+   {
+      ClientSession session = createSession(0);
+      ClientConsumer consumer = session.createConsumer(QUEUE);
+
+      final CountDownLatch latch = new CountDownLatch(NUMBER_OF_MESSAGES);
+      final List<String> errors = new ArrayList<String>();
+
+      consumer.setMessageHandler(new MessageHandler()
+      {
+         private int i;
+
+         public void onMessage(final ClientMessage message)
+         {
+            try
+            {
+               assertMessage(i++, message);
+               message.acknowledge();
+            }
+            catch (Throwable e)
+            {
+               errors.add(e.toString());
+            }
+            latch.countDown();
+         }
+      });
+
+      session.start();
+
+      Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+      Assert.assertEquals(new ArrayList<String>(), errors);
+   }
+
+   /**
+    * Sends messages whose bodies and properties all differ, and every third one without any
+    * property, on a session whose locator pools two messages. The consumer window holds a few
+    * messages only, so that the acknowledged ones are decoded again before the queue is drained.
+    */
+   private ClientSession createSession(final int ackBatchSize) throws Exception
+   {
+      ServerLocator locator = createInVMNonHALocator();
+      locator.setConsumerMessagePoolSize(2);
+      locator.setConsumerWindowSize(1024);
+      locator.setAckBatchSize(ackBatchSize);
+
+      ClientSessionFactory sf = createSessionFactory(locator);
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+      session.createQueue(QUEUE, QUEUE, null, false);
+
+      ClientProducer producer = session.createProducer(QUEUE);
+
+      for (int i = 0; i < NUMBER_OF_MESSAGES; i++)
+      {
+         ClientMessage message = createTextMessage(session, body(i), false);
+         if (i % 3 != 0)
+         {
+            message.putIntProperty("p" + i, i);
+            message.putStringProperty("s" + i, body(i));
+         }
+         producer.send(message);
+      }
+
+      return session;
+   }
+
+   private static String body(final int i)
+   {
+      // bodies of different lengths
+      StringBuilder body = new StringBuilder("m" + i);
+      for (int j = 0; j < i % 7; j++)
+      {
+         body.append('-');
+      }
+      return body.toString();
+   }
+
+   private static void assertMessage(final int i, final ClientMessage message)
+   {
+      Assert.assertEquals(body(i), message.getBodyBuffer().readString());
+      Assert.assertEquals(QUEUE, message.getAddress());
+
+      Set<SimpleString> expected = new HashSet<SimpleString>();
+      if (i % 3 != 0)
+      {
+         expected.add(new SimpleString("p" + i));
+         expected.add(new SimpleString("s" + i));
+         Assert.assertEquals(i, message.getIntProperty("p" + i).intValue());
+         Assert.assertEquals(body(i), message.getStringProperty("s" + i));
+      }
+      Assert.assertEquals(expected, message.getPropertyNames());
+      Assert.assertFalse(message.containsProperty("p" + (i - 1)));
+   }
+}
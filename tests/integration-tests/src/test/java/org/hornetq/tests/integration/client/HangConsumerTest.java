@@ -609,6 +609,12 @@ public class HangConsumerTest extends ServiceTestBase
          targetCallback.removeReadyListener(listener);
       }
 
+      @Override
+      public boolean isWritable(long consumerID)
+      {
+         return targetCallback.isWritable(consumerID);
+      }
+
       @Override
       public void disconnect(long consumerId, String queueName)
       {
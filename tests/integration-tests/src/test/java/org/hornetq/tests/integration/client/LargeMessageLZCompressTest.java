@@ -0,0 +1,73 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.integration.client;
+
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.api.core.Message;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.utils.CompressionCodecs;
+import org.hornetq.utils.LZCompressionCodec;
+import org.junit.Test;
+
+/**
+ * Runs the compressed large message tests with the lz codec instead of zlib.
+ */
+public class LargeMessageLZCompressTest extends LargeMessageCompressTest
+{
+   @Override
+   protected ServerLocator createFactory(final boolean isNetty) throws Exception
+   {
+      ServerLocator locator1 = super.createFactory(isNetty);
+      locator1.setCompressionCodec(CompressionCodecs.LZ);
+      return locator1;
+   }
+
+   @Test
+   public void testUnknownCodecRejected() throws Exception
+   {
+      HornetQServer server = createServer(true, isNetty());
+
+      server.start();
+
+      ClientSessionFactory sf = createSessionFactory(locator);
+
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+
+      session.createTemporaryQueue(ADDRESS, ADDRESS);
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      ClientMessage message = session.createMessage(true);
+
+      // a class the server could load, but codec names are only looked up
+      message.putStringProperty(Message.HDR_LARGE_COMPRESSION_CODEC,
+                                new SimpleString(LZCompressionCodec.class.getName()));
+
+      try
+      {
+         producer.send(message);
+         fail("the message should be rejected");
+      }
+      catch (HornetQException e)
+      {
+      }
+
+      assertEquals(0, getMessageCount(server, ADDRESS.toString()));
+   }
+}
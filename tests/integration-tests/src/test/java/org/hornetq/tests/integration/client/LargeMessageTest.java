@@ -12,7 +12,9 @@
  */
 package org.hornetq.tests.integration.client;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
@@ -548,6 +550,93 @@ public class LargeMessageTest extends LargeMessageTestBase
       validateNoFilesOnLargeDir();
    }
 
+   @Test
+   public void testDLALargeMessageSharesBody() throws Exception
+   {
+      final int messageSize = (int)(3.5 * HornetQClient.DEFAULT_MIN_LARGE_MESSAGE_SIZE);
+
+      HornetQServer server = createServer(true, isNetty());
+
+      server.start();
+
+      ClientSessionFactory sf = addSessionFactory(createSessionFactory(locator));
+
+      ClientSession session = addClientSession(sf.createSession(false, false, false));
+
+      session.createQueue(ADDRESS, ADDRESS, true);
+      session.createQueue(ADDRESS, ADDRESS.concat("-2"), true);
+
+      SimpleString ADDRESS_DLA = ADDRESS.concat("-dla");
+
+      AddressSettings addressSettings = new AddressSettings();
+
+      addressSettings.setDeadLetterAddress(ADDRESS_DLA);
+      addressSettings.setMaxDeliveryAttempts(1);
+
+      server.getAddressSettingsRepository().addMatch("*", addressSettings);
+
+      session.createQueue(ADDRESS_DLA, ADDRESS_DLA, true);
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      producer.send(createLargeClientMessage(session, messageSize, true));
+
+      session.commit();
+
+      session.start();
+
+      ClientConsumer consumerRollback = session.createConsumer(ADDRESS);
+      ClientMessage msg1 = consumerRollback.receive(1000);
+      Assert.assertNotNull(msg1);
+      msg1.acknowledge();
+      session.rollback();
+      consumerRollback.close();
+
+      ClientConsumer consumer = session.createConsumer(ADDRESS_DLA);
+
+      msg1 = consumer.receive(10000);
+
+      Assert.assertNotNull(msg1);
+
+      if (!isCompressedTest)
+      {
+         // the original, still on ADDRESS-2, and its copy on the DLA share a single body
+         File[] files = new File(getLargeMessagesDir()).listFiles();
+         Assert.assertEquals(2, files.length);
+         Assert.assertTrue(Files.isSameFile(files[0].toPath(), files[1].toPath()));
+      }
+
+      for (int i = 0; i < messageSize; i++)
+      {
+         Assert.assertEquals(UnitTestCase.getSamplebyte(i), msg1.getBodyBuffer().readByte());
+      }
+
+      msg1.acknowledge();
+
+      session.commit();
+
+      validateNoFilesOnLargeDir(isCompressedTest ? 0 : 1);
+
+      consumer = session.createConsumer(ADDRESS.concat("-2"));
+
+      msg1 = consumer.receive(10000);
+
+      Assert.assertNotNull(msg1);
+
+      for (int i = 0; i < messageSize; i++)
+      {
+         Assert.assertEquals(UnitTestCase.getSamplebyte(i), msg1.getBodyBuffer().readByte());
+      }
+
+      msg1.acknowledge();
+
+      session.commit();
+
+      session.close();
+
+      validateNoFilesOnLargeDir();
+   }
+
    @Test
    public void testDeliveryCount() throws Exception
    {
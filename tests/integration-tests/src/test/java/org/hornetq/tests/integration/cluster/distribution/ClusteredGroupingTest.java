@@ -15,6 +15,10 @@ import org.junit.After;
 
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -22,6 +26,9 @@ import org.junit.Assert;
 
 import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
 import org.hornetq.api.core.management.ManagementHelper;
 import org.hornetq.api.core.management.NotificationType;
 import org.hornetq.core.server.group.GroupingHandler;
@@ -129,6 +136,81 @@ public class ClusteredGroupingTest extends ClusterTestBase
       verifyReceiveAll(10, 0);
    }
 
+   @Test
+   public void testGroupingGroupTimeoutManyGroups() throws Exception
+   {
+      setupServer(0, isFileStorage(), isNetty());
+      setupServer(1, isFileStorage(), isNetty());
+
+      setupClusterConnection("cluster0", "queues", false, 1, isNetty(), 0, 1);
+
+      setupClusterConnection("cluster1", "queues", false, 1, isNetty(), 1, 0);
+
+      setUpGroupHandler(GroupingHandlerConfiguration.TYPE.LOCAL, 0, -1, 3000, 100);
+      setUpGroupHandler(GroupingHandlerConfiguration.TYPE.REMOTE, 1);
+
+      startServers(0, 1);
+
+      setupSessionFactory(0, isNetty());
+      setupSessionFactory(1, isNetty());
+
+      createQueue(0, "queues.testaddress", "queue0", null, false);
+      createQueue(1, "queues.testaddress", "queue0", null, false);
+
+      addConsumer(0, 0, "queue0", null);
+      addConsumer(1, 1, "queue0", null);
+
+      waitForBindings(0, "queues.testaddress", 1, 1, true);
+      waitForBindings(1, "queues.testaddress", 1, 1, true);
+
+      waitForBindings(0, "queues.testaddress", 1, 1, false);
+      waitForBindings(1, "queues.testaddress", 1, 1, false);
+
+      final int numberOfGroups = 100;
+
+      for (int i = 0; i < numberOfGroups; i++)
+      {
+         sendInRange(i % 2, "queues.testaddress", i, i + 1, false, Message.HDR_GROUP_ID, new SimpleString("group" + i));
+      }
+
+      GroupingHandler handler = getServer(0).getGroupingHandler();
+
+      // nothing has expired yet
+      for (int i = 0; i < numberOfGroups; i++)
+      {
+         assertNotNull(handler.getProposal(new SimpleString("group" + i + ".queue0")));
+      }
+
+      long timeout = System.currentTimeMillis() + 10000;
+      int remaining = numberOfGroups;
+      while (remaining > 0 && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(100);
+         remaining = 0;
+         for (int i = 0; i < numberOfGroups; i++)
+         {
+            if (handler.getProposal(new SimpleString("group" + i + ".queue0")) != null)
+            {
+               remaining++;
+            }
+         }
+      }
+
+      assertEquals(0, remaining);
+
+      int received = 0;
+      for (int consumer = 0; consumer < 2; consumer++)
+      {
+         ClientMessage message;
+         while ((message = getConsumer(consumer).receive(500)) != null)
+         {
+            message.acknowledge();
+            received++;
+         }
+      }
+      assertEquals(numberOfGroups, received);
+   }
+
    @Test
    public void testGroupingGroupTimeoutSendRemote() throws Exception
    {
@@ -493,6 +575,19 @@ public class ClusteredGroupingTest extends ClusterTestBase
             return null;
          }
 
+         public List<Response> receive(final List<Proposal> proposals, final int distance) throws Exception
+         {
+            return null;
+         }
+
+         public void send(final List<Response> responses, final int distance) throws Exception
+         {
+         }
+
+         public void setProposalBatchesSupported(final boolean supported)
+         {
+         }
+
          public void onNotification(final Notification notification)
          {
             System.out.println("ClusteredGroupingTest.onNotification");
@@ -645,6 +740,129 @@ public class ClusteredGroupingTest extends ClusterTestBase
 
    }
 
+   @Test
+   public void testGroupingManyGroupsFromConcurrentProducers() throws Exception
+   {
+      setupServer(0, isFileStorage(), isNetty());
+      setupServer(1, isFileStorage(), isNetty());
+      setupServer(2, isFileStorage(), isNetty());
+
+      setupClusterConnection("cluster0", "queues", false, 1, isNetty(), 0, 1, 2);
+
+      setupClusterConnection("cluster1", "queues", false, 1, isNetty(), 1, 0, 2);
+
+      setupClusterConnection("cluster2", "queues", false, 1, isNetty(), 2, 0, 1);
+
+      setUpGroupHandler(GroupingHandlerConfiguration.TYPE.LOCAL, 0);
+      // a tiny response cache, so most group ids are evicted and proposed again
+      servers[1].getConfiguration()
+                .setGroupingHandlerConfiguration(new GroupingHandlerConfiguration(new SimpleString("grouparbitrator"),
+                                                                                  GroupingHandlerConfiguration.TYPE.REMOTE,
+                                                                                  new SimpleString("queues"),
+                                                                                  5000,
+                                                                                  -1,
+                                                                                  GroupingHandlerConfiguration.DEFAULT_REAPER_PERIOD,
+                                                                                  10));
+      setUpGroupHandler(GroupingHandlerConfiguration.TYPE.REMOTE, 2);
+
+      startServers(0, 1, 2);
+
+      setupSessionFactory(0, isNetty());
+      setupSessionFactory(1, isNetty());
+      setupSessionFactory(2, isNetty());
+
+      createQueue(0, "queues.testaddress", "queue0", null, false);
+      createQueue(1, "queues.testaddress", "queue0", null, false);
+      createQueue(2, "queues.testaddress", "queue0", null, false);
+
+      addConsumer(0, 0, "queue0", null);
+      addConsumer(1, 1, "queue0", null);
+      addConsumer(2, 2, "queue0", null);
+
+      waitForBindings(0, "queues.testaddress", 1, 1, true);
+      waitForBindings(1, "queues.testaddress", 1, 1, true);
+      waitForBindings(2, "queues.testaddress", 1, 1, true);
+
+      waitForBindings(0, "queues.testaddress", 2, 2, false);
+      waitForBindings(1, "queues.testaddress", 2, 2, false);
+      waitForBindings(2, "queues.testaddress", 2, 2, false);
+
+      final int numberOfProducers = 5;
+      final int groupsPerProducer = 20;
+
+      // every group is sent to twice, the second time once its response has been evicted
+      for (int round = 0; round < 2; round++)
+      {
+         final CountDownLatch done = new CountDownLatch(numberOfProducers);
+         final List<Exception> errors = new CopyOnWriteArrayList<Exception>();
+
+         for (int i = 0; i < numberOfProducers; i++)
+         {
+            final int producer = i;
+            new Thread()
+            {
+               @Override
+               public void run()
+               {
+                  try
+                  {
+                     ClientSession session = sfs[1].createSession(false, true, true);
+                     try
+                     {
+                        ClientProducer clientProducer = session.createProducer("queues.testaddress");
+                        for (int j = 0; j < groupsPerProducer; j++)
+                        {
+                           ClientMessage message = session.createMessage(false);
+                           message.putStringProperty(Message.HDR_GROUP_ID,
+                                                     new SimpleString("group-" + producer + "-" + j));
+                           clientProducer.send(message);
+                        }
+                     }
+                     finally
+                     {
+                        session.close();
+                     }
+                  }
+                  catch (Exception e)
+                  {
+                     errors.add(e);
+                  }
+                  finally
+                  {
+                     done.countDown();
+                  }
+               }
+            }.start();
+         }
+
+         Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+         Assert.assertEquals(errors.toString(), 0, errors.size());
+      }
+
+      Map<SimpleString, Integer> groupConsumers = new HashMap<SimpleString, Integer>();
+      int received = 0;
+
+      for (int consumer = 0; consumer < 3; consumer++)
+      {
+         ClientMessage message;
+         while ((message = getConsumer(consumer).receive(500)) != null)
+         {
+            message.acknowledge();
+            received++;
+            Integer previous = groupConsumers.put(message.getSimpleStringProperty(Message.HDR_GROUP_ID), consumer);
+            if (previous != null)
+            {
+               Assert.assertEquals("group " + message.getSimpleStringProperty(Message.HDR_GROUP_ID) + " moved",
+                                   previous.intValue(),
+                                   consumer);
+            }
+         }
+      }
+
+      Assert.assertEquals(2 * numberOfProducers * groupsPerProducer, received);
+      Assert.assertEquals(numberOfProducers * groupsPerProducer, groupConsumers.size());
+   }
+
    @Test
    public void testGroupingSendTo3queuesRemoteArbitrator() throws Exception
    {
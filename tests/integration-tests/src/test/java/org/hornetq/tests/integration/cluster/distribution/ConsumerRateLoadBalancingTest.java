@@ -0,0 +1,249 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.integration.cluster.distribution;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.HornetQClient;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.api.core.management.ManagementHelper;
+import org.hornetq.api.core.management.NotificationType;
+import org.hornetq.core.config.ClusterConnectionConfiguration;
+import org.hornetq.core.postoffice.Binding;
+import org.hornetq.core.postoffice.BindingType;
+import org.hornetq.core.server.Queue;
+import org.hornetq.core.server.cluster.LoadBalancingPolicy;
+import org.hornetq.core.server.cluster.RemoteQueueBinding;
+import org.hornetq.core.server.management.Notification;
+import org.hornetq.core.server.management.NotificationListener;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Two nodes sharing a queue, where the consumer on node 0 stalls while the one on node 1 keeps up.
+ */
+public class ConsumerRateLoadBalancingTest extends ClusterTestBase
+{
+   private static final String ADDRESS = "queues.testaddress";
+
+   private static final String QUEUE = "queue0";
+
+   private static final long LOAD_REPORT_INTERVAL = 100;
+
+   private ClientConsumer stalledConsumer;
+
+   private ClientConsumer fastConsumer;
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+
+      setupServer(0, isFileStorage(), isNetty());
+      setupServer(1, isFileStorage(), isNetty());
+   }
+
+   protected boolean isNetty()
+   {
+      return false;
+   }
+
+   @Test
+   public void testConsumerRatePolicyAvoidsStalledNode() throws Exception
+   {
+      startCluster(LoadBalancingPolicy.CONSUMER_RATE, -1);
+
+      send(0, ADDRESS, 20, false, null);
+
+      int received = receiveAll(fastConsumer, 1000);
+
+      assertTrue(received > 0);
+
+      Queue stalledQueue = getServer(0).locateQueue(new SimpleString(QUEUE));
+
+      long backlog = stalledQueue.getMessageCount();
+
+      assertEquals(20, received + backlog);
+
+      // node 0 is told how fast node 1 drains its queue
+      waitForRemoteConsumeRate(0);
+
+      sendInRange(0, ADDRESS, 20, 120, false, null);
+
+      assertEquals(100, receiveAll(fastConsumer, 1000));
+
+      assertEquals(backlog, stalledQueue.getMessageCount());
+
+      assertEquals(backlog, receiveAll(stalledConsumer, 1000));
+   }
+
+   @Test
+   public void testBacklogRedistributedOverThreshold() throws Exception
+   {
+      startCluster(LoadBalancingPolicy.ROUND_ROBIN, 10);
+
+      send(0, ADDRESS, 100, false, null);
+
+      int received = 0;
+
+      long timeout = System.currentTimeMillis() + 10000;
+
+      while (received < 85 && System.currentTimeMillis() < timeout)
+      {
+         ClientMessage message = fastConsumer.receive(100);
+
+         if (message != null)
+         {
+            message.acknowledge();
+
+            received++;
+         }
+      }
+
+      assertTrue("only " + received + " messages moved to the node keeping up", received >= 85);
+
+      received += receiveAll(fastConsumer, 500);
+
+      received += receiveAll(stalledConsumer, 500);
+
+      assertEquals(100, received);
+   }
+
+   private void startCluster(final LoadBalancingPolicy policy, final long redistributionThreshold) throws Exception
+   {
+      setupClusterConnection("cluster0", "queues", false, 1, isNetty(), 0, 1);
+      setupClusterConnection("cluster1", "queues", false, 1, isNetty(), 1, 0);
+
+      for (int node = 0; node < 2; node++)
+      {
+         ClusterConnectionConfiguration config = getServer(node).getConfiguration().getClusterConfigurations().get(0);
+         config.setLoadBalancingPolicy(policy);
+         config.setLoadReportInterval(LOAD_REPORT_INTERVAL);
+         config.setRedistributionThreshold(redistributionThreshold);
+      }
+
+      startServers(0, 1);
+
+      final CountDownLatch[] loadReported = new CountDownLatch[2];
+
+      for (int node = 0; node < 2; node++)
+      {
+         final CountDownLatch latch = new CountDownLatch(1);
+         loadReported[node] = latch;
+         getServer(node).getManagementService().addNotificationListener(new NotificationListener()
+         {
+            public void onNotification(final Notification notification)
+            {
+               // the loads received from the other node are reported again, as remote queues
+               if (notification.getType() == NotificationType.QUEUE_LOAD &&
+                  notification.getProperties().getIntProperty(ManagementHelper.HDR_BINDING_TYPE) == BindingType.LOCAL_QUEUE.toInt())
+               {
+                  latch.countDown();
+               }
+            }
+         });
+      }
+
+      setupSessionFactory(0, isNetty());
+      setupSessionFactory(1, isNetty());
+
+      createQueue(0, ADDRESS, QUEUE, null, false);
+      createQueue(1, ADDRESS, QUEUE, null, false);
+
+      // a consumer with no window only gets messages when it asks for them
+      stalledConsumer = createConsumer(0, 0);
+      fastConsumer = createConsumer(1, HornetQClient.DEFAULT_CONSUMER_WINDOW_SIZE);
+
+      waitForBindings(0, ADDRESS, 1, 1, true);
+      waitForBindings(1, ADDRESS, 1, 1, true);
+
+      waitForBindings(0, ADDRESS, 1, 1, false);
+      waitForBindings(1, ADDRESS, 1, 1, false);
+
+      // consume rates are measured from the first load samples on
+      for (int node = 0; node < 2; node++)
+      {
+         assertTrue("no load reported by node " + node, loadReported[node].await(10, TimeUnit.SECONDS));
+      }
+   }
+
+   private void waitForRemoteConsumeRate(final int node) throws Exception
+   {
+      RemoteQueueBinding binding = getRemoteBinding(node);
+
+      long timeout = System.currentTimeMillis() + 10000;
+
+      while (binding.getConsumeRate() == 0 && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(10);
+      }
+
+      assertTrue("no consume rate reported to node " + node, binding.getConsumeRate() > 0);
+   }
+
+   private RemoteQueueBinding getRemoteBinding(final int node) throws Exception
+   {
+      for (Binding binding : getServer(node).getPostOffice()
+                                            .getBindingsForAddress(new SimpleString(ADDRESS))
+                                            .getBindings())
+      {
+         if (binding instanceof RemoteQueueBinding)
+         {
+            return (RemoteQueueBinding)binding;
+         }
+      }
+
+      fail("no remote binding on node " + node);
+
+      return null;
+   }
+
+   private ClientConsumer createConsumer(final int node, final int windowSize) throws Exception
+   {
+      ServerLocator locator = addServerLocator(HornetQClient.createServerLocatorWithoutHA(createTransportConfiguration(isNetty(),
+                                                                                                                       false,
+                                                                                                                       generateParams(node,
+                                                                                                                                      isNetty()))));
+      locator.setConsumerWindowSize(windowSize);
+      // acknowledgements reach the server straight away, so its consume rate is visible
+      locator.setAckBatchSize(0);
+      ClientSessionFactory sf = addSessionFactory(locator.createSessionFactory());
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+      ClientConsumer consumer = addClientConsumer(session.createConsumer(QUEUE));
+      session.start();
+      return consumer;
+   }
+
+   private static int receiveAll(final ClientConsumer consumer, final long timeout) throws Exception
+   {
+      int received = 0;
+
+      ClientMessage message;
+
+      while ((message = consumer.receive(timeout)) != null)
+      {
+         message.acknowledge();
+
+         received++;
+      }
+
+      return received;
+   }
+}
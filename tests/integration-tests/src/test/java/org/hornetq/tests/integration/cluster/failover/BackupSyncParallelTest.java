@@ -0,0 +1,329 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.integration.cluster.failover;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.api.core.Interceptor;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.core.client.impl.ClientSessionFactoryInternal;
+import org.hornetq.core.client.impl.ServerLocatorInternal;
+import org.hornetq.core.config.Configuration;
+import org.hornetq.core.paging.PagingStore;
+import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.NodeManager;
+import org.hornetq.core.server.impl.HornetQServerImpl;
+import org.hornetq.core.settings.impl.AddressFullMessagePolicy;
+import org.hornetq.core.settings.impl.AddressSettings;
+import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.tests.util.TransportConfigurationUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Synchronizes a backup with a live holding many journal and page files, sending them with several
+ * threads at once.
+ */
+public class BackupSyncParallelTest extends FailoverTestBase
+{
+   private static final int PARALLELISM = 3;
+
+   /**
+    * Chunks the live sends before the backup has to acknowledge them, see
+    * {@code ReplicationManager.MAX_PENDING_SYNC_CHUNKS}.
+    */
+   private static final int MAX_PENDING_SYNC_CHUNKS = 64;
+
+   private static final String SYNC_THREAD_GROUP = "(HornetQ-replication-sync-";
+
+   private static final int ROUNDS = 40;
+
+   private static final int MESSAGES_PER_ROUND = 10;
+
+   /**
+    * Not paged, each large message is synchronized as a file of its own.
+    */
+   private static final SimpleString LARGE_MESSAGE_ADDRESS = ADDRESS.concat(".large");
+
+   private ClientSessionFactoryInternal sessionFactory;
+
+   private ClientSession session;
+
+   private ClientProducer producer;
+
+   private ClientProducer largeMessageProducer;
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      startBackupServer = false;
+      super.setUp();
+      ServerLocatorInternal locator = getServerLocator();
+      locator.setBlockOnNonDurableSend(true);
+      locator.setBlockOnDurableSend(true);
+      locator.setReconnectAttempts(-1);
+      locator.setMinLargeMessageSize(MIN_LARGE_MESSAGE);
+      sessionFactory = createSessionFactoryAndWaitForTopology(locator, 1);
+
+      session = addClientSession(sessionFactory.createSession(true, true));
+      session.createQueue(ADDRESS, ADDRESS, null, true);
+      session.createQueue(LARGE_MESSAGE_ADDRESS, LARGE_MESSAGE_ADDRESS, null, true);
+      producer = addClientProducer(session.createProducer(ADDRESS));
+      largeMessageProducer = addClientProducer(session.createProducer(LARGE_MESSAGE_ADDRESS));
+
+      // each round goes to new journal and page files, and adds a large message file
+      PagingStore store = liveServer.getServer().getPagingManager().getPageStore(ADDRESS);
+      for (int i = 0; i < ROUNDS; i++)
+      {
+         sendMessages(session, producer, MESSAGES_PER_ROUND);
+         ClientMessage message = session.createMessage(true);
+         message.putIntProperty("counter", i);
+         setLargeMessageBody(i, message);
+         largeMessageProducer.send(message);
+         BackupSyncJournalTest.getMessageJournalFromServer(liveServer).forceMoveNextFile();
+         store.forceAnotherPage();
+      }
+      assertTrue("paging", store.isPaging());
+      assertTrue(store.getNumberOfPages() > 1);
+   }
+
+   @Test
+   public void testBackupContentsComplete() throws Exception
+   {
+      SyncFileInterceptor interceptor = new SyncFileInterceptor(false);
+      liveServer.getServer().getRemotingService().addOutgoingInterceptor(interceptor);
+
+      backupServer.start();
+      waitForRemoteBackup(sessionFactory, BackupSyncJournalTest.BACKUP_WAIT_TIME, true, backupServer.getServer());
+
+      // every thread of the pool took at least one file
+      assertEquals(interceptor.getSenders().toString(), PARALLELISM, interceptor.getSenders().size());
+      assertTrue(interceptor.getCount() > 2 * ROUNDS);
+      assertSyncThreadsStopped();
+
+      crash(session);
+      assertTrue("backup initialized", backupServer.getServer().waitForActivation(5, TimeUnit.SECONDS));
+
+      // read from the files the backup was sent
+      for (int i = 0; i < ROUNDS; i++)
+      {
+         receiveMessages(ADDRESS);
+      }
+      assertNoMoreMessages(ADDRESS);
+      receiveLargeMessages();
+      assertNoMoreMessages(LARGE_MESSAGE_ADDRESS);
+   }
+
+   @Test
+   public void testSyncThreadsStopWhenBackupFails() throws Exception
+   {
+      startBlockedSync();
+
+      backupServer.stop();
+
+      assertSyncThreadsStopped();
+
+      // the live carries on without a backup
+      assertTrue(liveServer.getServer().isActive());
+      sendMessages(session, producer, MESSAGES_PER_ROUND);
+      for (int i = 0; i < ROUNDS + 1; i++)
+      {
+         receiveMessages(ADDRESS);
+      }
+      assertNoMoreMessages(ADDRESS);
+      receiveLargeMessages();
+      assertNoMoreMessages(LARGE_MESSAGE_ADDRESS);
+   }
+
+   @Test
+   public void testSyncThreadsStopWhenLiveStops() throws Exception
+   {
+      startBlockedSync();
+
+      liveServer.stop();
+
+      assertSyncThreadsStopped();
+   }
+
+   /**
+    * Starts the backup, dropping the file chunks sent to it so that the backup never acknowledges
+    * them, and waits until every sending thread is waiting for acknowledgements.
+    */
+   private void startBlockedSync() throws Exception
+   {
+      SyncFileInterceptor interceptor = new SyncFileInterceptor(true);
+      liveServer.getServer().getRemotingService().addOutgoingInterceptor(interceptor);
+
+      backupServer.start();
+
+      long timeout = System.currentTimeMillis() + 10000;
+      while (interceptor.getCount() < MAX_PENDING_SYNC_CHUNKS && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(10);
+      }
+      assertEquals(MAX_PENDING_SYNC_CHUNKS, interceptor.getCount());
+
+      // no more chunks are sent and the threads are still there
+      Thread.sleep(100);
+      assertEquals(MAX_PENDING_SYNC_CHUNKS, interceptor.getCount());
+      assertEquals(PARALLELISM, getSyncThreads().size());
+      assertFalse(((HornetQServerImpl)backupServer.getServer()).isRemoteBackupUpToDate());
+   }
+
+   private void receiveMessages(final SimpleString address) throws HornetQException
+   {
+      session.start();
+      ClientConsumer consumer = addClientConsumer(session.createConsumer(address));
+      receiveMessages(consumer, 0, MESSAGES_PER_ROUND, true);
+      consumer.close();
+      session.commit();
+   }
+
+   private void receiveLargeMessages() throws HornetQException
+   {
+      ClientConsumer consumer = addClientConsumer(session.createConsumer(LARGE_MESSAGE_ADDRESS));
+      for (int i = 0; i < ROUNDS; i++)
+      {
+         ClientMessage message = consumer.receive(1000);
+         assertNotNull("Expecting a message " + i, message);
+         assertEquals(i, message.getIntProperty("counter").intValue());
+         assertLargeMessageBody(i, message);
+         message.acknowledge();
+      }
+      consumer.close();
+      session.commit();
+   }
+
+   private void assertNoMoreMessages(final SimpleString address) throws HornetQException
+   {
+      ClientConsumer consumer = session.createConsumer(address);
+      ClientMessage msg = consumer.receiveImmediate();
+      assertNull("there should be no more messages to receive! " + msg, msg);
+      consumer.close();
+   }
+
+   private static void assertSyncThreadsStopped() throws InterruptedException
+   {
+      long timeout = System.currentTimeMillis() + 10000;
+      while (!getSyncThreads().isEmpty() && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(10);
+      }
+      assertEquals(new ArrayList<String>(), getSyncThreads());
+   }
+
+   private static List<String> getSyncThreads()
+   {
+      List<String> threads = new ArrayList<String>();
+      for (Thread thread : Thread.getAllStackTraces().keySet())
+      {
+         if (thread.isAlive() && thread.getName().contains(SYNC_THREAD_GROUP))
+         {
+            threads.add(thread.getName());
+         }
+      }
+      return threads;
+   }
+
+   /**
+    * Counts the file chunks the live sends to the backup, and the threads sending them.
+    */
+   private static final class SyncFileInterceptor implements Interceptor
+   {
+      private final boolean drop;
+
+      private final AtomicInteger count = new AtomicInteger(0);
+
+      private final Set<String> senders = new HashSet<String>();
+
+      SyncFileInterceptor(final boolean drop)
+      {
+         this.drop = drop;
+      }
+
+      public boolean intercept(final Packet packet, final RemotingConnection connection) throws HornetQException
+      {
+         if (packet.getType() != PacketImpl.REPLICATION_SYNC_FILE)
+         {
+            return true;
+         }
+         count.incrementAndGet();
+         synchronized (senders)
+         {
+            senders.add(Thread.currentThread().getName());
+         }
+         return !drop;
+      }
+
+      int getCount()
+      {
+         return count.get();
+      }
+
+      Set<String> getSenders()
+      {
+         synchronized (senders)
+         {
+            return new HashSet<String>(senders);
+         }
+      }
+   }
+
+   @Override
+   protected void createConfigs() throws Exception
+   {
+      createReplicatedConfigs();
+      liveConfig.setReplicationSyncParallelism(PARALLELISM);
+   }
+
+   @Override
+   protected HornetQServer createInVMFailoverServer(final boolean realFiles, final Configuration configuration,
+                                                    final NodeManager nodeManager, int id)
+   {
+      Map<String, AddressSettings> conf = new HashMap<String, AddressSettings>();
+      AddressSettings as = new AddressSettings();
+      as.setMaxSizeBytes(PAGE_MAX);
+      as.setPageSizeBytes(PAGE_SIZE);
+      as.setAddressFullMessagePolicy(AddressFullMessagePolicy.PAGE);
+      conf.put(ADDRESS.toString(), as);
+      return createInVMFailoverServer(realFiles, configuration, PAGE_SIZE, PAGE_MAX, conf, nodeManager, id);
+   }
+
+   @Override
+   protected TransportConfiguration getAcceptorTransportConfiguration(boolean live)
+   {
+      return TransportConfigurationUtils.getInVMAcceptor(live);
+   }
+
+   @Override
+   protected TransportConfiguration getConnectorTransportConfiguration(boolean live)
+   {
+      return TransportConfigurationUtils.getInVMConnector(live);
+   }
+}
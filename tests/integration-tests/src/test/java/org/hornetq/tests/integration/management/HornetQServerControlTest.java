@@ -954,6 +954,57 @@ public class HornetQServerControlTest extends ManagementTestBase
 
       System.out.println("HornetQServerControlTest.testCommitPreparedTransactions");
    }
+
+   @Test
+   public void testListMetrics() throws Exception
+   {
+      SimpleString queue = RandomUtil.randomSimpleString();
+
+      HornetQServerControl serverControl = createManagementControl();
+
+      Assert.assertTrue(serverControl.isMetricsEnabled());
+
+      ServerLocator locator = HornetQClient.createServerLocatorWithoutHA(new TransportConfiguration(UnitTestCase.INVM_CONNECTOR_FACTORY));
+      ClientSessionFactory csf = createSessionFactory(locator);
+      ClientSession session = csf.createSession(false, true, true);
+      session.createQueue(queue, queue, null, true);
+      ClientProducer producer = session.createProducer(queue);
+      for (int i = 0; i < 10; i++)
+      {
+         producer.send(session.createMessage(true));
+      }
+
+      ClientConsumer consumer = session.createConsumer(queue);
+      session.start();
+      for (int i = 0; i < 10; i++)
+      {
+         ClientMessage message = consumer.receive(5000);
+         Assert.assertNotNull(message);
+         message.acknowledge();
+      }
+      // flushes the acknowledgements
+      consumer.close();
+
+      JSONObject histograms = new JSONObject(serverControl.listMetricsAsJSON()).getJSONObject("histograms");
+
+      Assert.assertEquals(10, histograms.getJSONObject("queue." + queue + ".enqueue-to-deliver").getLong("count"));
+      Assert.assertEquals(10, histograms.getJSONObject("queue." + queue + ".deliver-to-acknowledge").getLong("count"));
+      Assert.assertTrue(histograms.getJSONObject("journal.append").getLong("count") > 0);
+      Assert.assertTrue(histograms.getJSONObject("journal.sync").getLong("count") > 0);
+
+      serverControl.resetMetrics();
+
+      histograms = new JSONObject(serverControl.listMetricsAsJSON()).getJSONObject("histograms");
+      Assert.assertEquals(0, histograms.getJSONObject("queue." + queue + ".enqueue-to-deliver").getLong("count"));
+
+      session.deleteQueue(queue);
+
+      histograms = new JSONObject(serverControl.listMetricsAsJSON()).getJSONObject("histograms");
+      Assert.assertFalse(histograms.has("queue." + queue + ".enqueue-to-deliver"));
+
+      session.close();
+      locator.close();
+   }
    // Package protected ---------------------------------------------
 
    // Protected -----------------------------------------------------
@@ -973,6 +1024,7 @@ public class HornetQServerControlTest extends ManagementTestBase
       conf = createDefaultConfig(false);
       conf.setSecurityEnabled(false);
       conf.setJMXManagementEnabled(true);
+      conf.setMetricsEnabled(true);
       conf.getAcceptorConfigurations().clear();
       conf.getAcceptorConfigurations().add(new TransportConfiguration(InVMAcceptorFactory.class.getName()));
       server = HornetQServers.newHornetQServer(conf, mbeanServer, true);
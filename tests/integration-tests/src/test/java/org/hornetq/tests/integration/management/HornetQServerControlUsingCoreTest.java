@@ -168,6 +168,16 @@ public class HornetQServerControlUsingCoreTest extends HornetQServerControlTest
             return (Integer)proxy.retrieveAttributeValue("connectionCount");
          }
 
+         public int getXATransactionCount()
+         {
+            return (Integer)proxy.retrieveAttributeValue("XATransactionCount");
+         }
+
+         public long getTimedOutXATransactionCount()
+         {
+            return (Long)proxy.retrieveAttributeValue("timedOutXATransactionCount", Long.class);
+         }
+
          public long getConnectionTTLOverride()
          {
             return (Long)proxy.retrieveAttributeValue("connectionTTLOverride", Long.class);
@@ -438,6 +448,21 @@ public class HornetQServerControlUsingCoreTest extends HornetQServerControlTest
             proxy.invokeOperation("resetAllMessageCounters");
          }
 
+         public boolean isMetricsEnabled()
+         {
+            return (Boolean)proxy.retrieveAttributeValue("metricsEnabled");
+         }
+
+         public String listMetricsAsJSON() throws Exception
+         {
+            return (String)proxy.invokeOperation("listMetricsAsJSON");
+         }
+
+         public void resetMetrics() throws Exception
+         {
+            proxy.invokeOperation("resetMetrics");
+         }
+
          public boolean rollbackPreparedTransaction(final String transactionAsBase64) throws Exception
          {
             return (Boolean)proxy.invokeOperation("rollbackPreparedTransaction", transactionAsBase64);
@@ -47,6 +47,7 @@ import org.hornetq.core.server.HornetQServers;
 import org.hornetq.core.settings.impl.AddressSettings;
 import org.hornetq.tests.util.RandomUtil;
 import org.hornetq.utils.json.JSONArray;
+import org.hornetq.utils.json.JSONObject;
 
 /**
  * A QueueControlTest
@@ -659,6 +660,98 @@ public class QueueControlTest extends ManagementTestBase
       session.deleteQueue(queue);
    }
 
+   @Test
+   public void testBrowse() throws Exception
+   {
+      SimpleString key = new SimpleString("key");
+      SimpleString address = RandomUtil.randomSimpleString();
+      SimpleString queue = RandomUtil.randomSimpleString();
+
+      session.createQueue(address, queue, null, false);
+      QueueControl queueControl = createManagementControl(address, queue);
+
+      ClientProducer producer = session.createProducer(address);
+      for (int i = 0; i < 10; i++)
+      {
+         ClientMessage message = session.createMessage(false);
+         message.putIntProperty(key, i);
+         producer.send(message);
+      }
+
+      // pages of 4 messages out of the 5 matching the filter
+      JSONObject page = new JSONObject(queueControl.browse(key + " >= 5", -1, 4));
+      JSONArray messages = page.getJSONArray("messages");
+      Assert.assertEquals(4, messages.length());
+      for (int i = 0; i < 4; i++)
+      {
+         Assert.assertEquals(5 + i, messages.getJSONObject(i).get("key"));
+      }
+      long next = page.getLong("next");
+      Assert.assertEquals(messages.getJSONObject(3).getLong("messageID"), next);
+
+      page = new JSONObject(queueControl.browse(key + " >= 5", next, 4));
+      messages = page.getJSONArray("messages");
+      Assert.assertEquals(1, messages.length());
+      Assert.assertEquals(9, messages.getJSONObject(0).get("key"));
+      Assert.assertEquals(-1, page.getLong("next"));
+
+      // a full last page has no next page either
+      page = new JSONObject(queueControl.browse(null, -1, 10));
+      Assert.assertEquals(10, page.getJSONArray("messages").length());
+      Assert.assertEquals(-1, page.getLong("next"));
+
+      ManagementTestBase.consumeMessages(10, session, queue);
+
+      page = new JSONObject(queueControl.browse(null, -1, 10));
+      Assert.assertEquals(0, page.getJSONArray("messages").length());
+      Assert.assertEquals(-1, page.getLong("next"));
+
+      session.deleteQueue(queue);
+   }
+
+   @Test
+   public void testBrowseInMessageIDOrder() throws Exception
+   {
+      SimpleString address = RandomUtil.randomSimpleString();
+      SimpleString queue = RandomUtil.randomSimpleString();
+
+      session.createQueue(address, queue, null, false);
+      QueueControl queueControl = createManagementControl(address, queue);
+
+      // the queue delivers higher priorities first, the pages still follow the message IDs
+      ClientProducer producer = session.createProducer(address);
+      for (int i = 0; i < 20; i++)
+      {
+         ClientMessage message = session.createMessage(false);
+         message.setPriority((byte)(i % 10));
+         producer.send(message);
+      }
+
+      long previous = -1;
+      long next = -1;
+      int browsed = 0;
+      do
+      {
+         JSONObject page = new JSONObject(queueControl.browse(null, next, 3));
+         JSONArray messages = page.getJSONArray("messages");
+         for (int i = 0; i < messages.length(); i++)
+         {
+            long messageID = messages.getJSONObject(i).getLong("messageID");
+            Assert.assertTrue(messageID > previous);
+            previous = messageID;
+            browsed++;
+         }
+         next = page.getLong("next");
+      }
+      while (next != -1);
+
+      Assert.assertEquals(20, browsed);
+
+      ManagementTestBase.consumeMessages(20, session, queue);
+
+      session.deleteQueue(queue);
+   }
+
    @Test
    public void testListMessagesWithNullFilter() throws Exception
    {
@@ -1113,6 +1206,124 @@ public class QueueControlTest extends ManagementTestBase
       session.deleteQueue(queue);
    }
 
+   @Test
+   public void testRemoveMessagesInBackground() throws Exception
+   {
+      SimpleString key = new SimpleString("key");
+      long matchingValue = RandomUtil.randomLong();
+      long unmatchingValue = matchingValue + 1;
+
+      SimpleString address = RandomUtil.randomSimpleString();
+      SimpleString queue = RandomUtil.randomSimpleString();
+
+      session.createQueue(address, queue, null, false);
+      ClientProducer producer = session.createProducer(address);
+
+      for (int i = 0; i < 50; i++)
+      {
+         ClientMessage matchingMessage = session.createMessage(false);
+         matchingMessage.putLongProperty(key, matchingValue);
+         producer.send(matchingMessage);
+         ClientMessage unmatchingMessage = session.createMessage(false);
+         unmatchingMessage.putLongProperty(key, unmatchingValue);
+         producer.send(unmatchingMessage);
+      }
+
+      QueueControl queueControl = createManagementControl(address, queue);
+      Assert.assertEquals(100, queueControl.getMessageCount());
+
+      long id = queueControl.removeMessagesInBackground(7, key + " =" + matchingValue);
+
+      JSONObject operation = waitForBulkOperation(queueControl, id);
+      Assert.assertEquals("remove", operation.getString("type"));
+      Assert.assertEquals(key + " =" + matchingValue, operation.getString("filter"));
+      Assert.assertEquals(50, operation.getInt("count"));
+      Assert.assertFalse(operation.getBoolean("cancelled"));
+      Assert.assertFalse(operation.has("error"));
+      Assert.assertEquals(50, queueControl.getMessageCount());
+
+      // a finished operation can't be cancelled
+      Assert.assertFalse(queueControl.cancelBulkOperation(id));
+      Assert.assertFalse(queueControl.cancelBulkOperation(id + 1));
+
+      id = queueControl.changeMessagesPriorityInBackground(7, null, 9);
+      Assert.assertEquals(50, waitForBulkOperation(queueControl, id).getInt("count"));
+
+      Assert.assertEquals(2, new JSONArray(queueControl.listBulkOperationsAsJSON()).length());
+
+      ClientConsumer consumer = session.createConsumer(queue);
+      session.start();
+      for (int i = 0; i < 50; i++)
+      {
+         ClientMessage m = consumer.receive(500);
+         Assert.assertNotNull(m);
+         Assert.assertEquals(unmatchingValue, m.getObjectProperty(key));
+         Assert.assertEquals(9, m.getPriority());
+         m.acknowledge();
+      }
+      Assert.assertNull(consumer.receiveImmediate());
+
+      consumer.close();
+      session.deleteQueue(queue);
+   }
+
+   @Test
+   public void testMoveMessagesInBackground() throws Exception
+   {
+      SimpleString address = RandomUtil.randomSimpleString();
+      SimpleString queue = RandomUtil.randomSimpleString();
+      SimpleString otherAddress = RandomUtil.randomSimpleString();
+      SimpleString otherQueue = RandomUtil.randomSimpleString();
+
+      session.createQueue(address, queue, null, false);
+      session.createQueue(otherAddress, otherQueue, null, false);
+      ClientProducer producer = session.createProducer(address);
+
+      for (int i = 0; i < 100; i++)
+      {
+         producer.send(session.createMessage(false));
+      }
+
+      QueueControl queueControl = createManagementControl(address, queue);
+      QueueControl otherQueueControl = createManagementControl(otherAddress, otherQueue);
+
+      long id = queueControl.moveMessagesInBackground(10, null, otherQueue.toString(), false);
+
+      JSONObject operation = waitForBulkOperation(queueControl, id);
+      Assert.assertEquals("move", operation.getString("type"));
+      Assert.assertEquals(100, operation.getInt("count"));
+      Assert.assertEquals(0, queueControl.getMessageCount());
+      Assert.assertEquals(100, otherQueueControl.getMessageCount());
+
+      // moving messages back to the same address doesn't move them again
+      id = otherQueueControl.moveMessagesInBackground(10, null, otherQueue.toString(), false);
+      Assert.assertEquals(100, waitForBulkOperation(otherQueueControl, id).getInt("count"));
+      Assert.assertEquals(100, otherQueueControl.getMessageCount());
+
+      session.deleteQueue(queue);
+      session.deleteQueue(otherQueue);
+   }
+
+   private JSONObject waitForBulkOperation(final QueueControl queueControl, final long id) throws Exception
+   {
+      long timeout = System.currentTimeMillis() + 5000;
+      while (System.currentTimeMillis() < timeout)
+      {
+         JSONArray operations = new JSONArray(queueControl.listBulkOperationsAsJSON());
+         for (int i = 0; i < operations.length(); i++)
+         {
+            JSONObject operation = operations.getJSONObject(i);
+            if (operation.getLong("id") == id && operation.getBoolean("done"))
+            {
+               return operation;
+            }
+         }
+         Thread.sleep(10);
+      }
+      Assert.fail("bulk operation " + id + " did not finish");
+      return null;
+   }
+
    @Test
    public void testRemoveMessage() throws Exception
    {
@@ -1226,6 +1437,71 @@ public class QueueControlTest extends ManagementTestBase
       session.deleteQueue(queue);
    }
 
+   @Test
+   public void testCountingFilter() throws Exception
+   {
+      SimpleString key = new SimpleString("key");
+      long matchingValue = RandomUtil.randomLong();
+      long unmatchingValue = matchingValue + 1;
+      String filter = key + " =" + matchingValue;
+
+      SimpleString address = RandomUtil.randomSimpleString();
+      SimpleString queue = RandomUtil.randomSimpleString();
+
+      session.createQueue(address, queue, null, false);
+      ClientProducer producer = session.createProducer(address);
+
+      ClientMessage matchingMessage = session.createMessage(false);
+      matchingMessage.putLongProperty(key, matchingValue);
+      ClientMessage unmatchingMessage = session.createMessage(false);
+      unmatchingMessage.putLongProperty(key, unmatchingValue);
+      producer.send(matchingMessage);
+      producer.send(unmatchingMessage);
+      producer.send(matchingMessage);
+
+      QueueControl queueControl = createManagementControl(address, queue);
+
+      // the messages already in the queue are counted when the filter is registered
+      Assert.assertTrue(queueControl.addCountingFilter(filter));
+      Assert.assertFalse(queueControl.addCountingFilter(filter));
+      Assert.assertEquals(1, queueControl.listCountingFilters().length);
+      Assert.assertEquals(filter, queueControl.listCountingFilters()[0]);
+      Assert.assertEquals(2, queueControl.countMessages(filter));
+
+      producer.send(matchingMessage);
+      producer.send(unmatchingMessage);
+      Assert.assertEquals(3, queueControl.countMessages(filter));
+
+      ClientConsumer consumer = session.createConsumer(queue, new SimpleString(filter));
+      session.start();
+      ClientMessage message = consumer.receive(500);
+      Assert.assertNotNull(message);
+
+      // a message being delivered is still in the queue
+      Assert.assertEquals(3, queueControl.countMessages(filter));
+
+      message.acknowledge();
+      session.commit();
+      consumer.close();
+
+      Assert.assertEquals(2, queueControl.countMessages(filter));
+
+      // the message counter reports the kept counts too
+      MessageCounterInfo info = MessageCounterInfo.fromJSON(queueControl.listMessageCounter());
+      Assert.assertEquals(1, info.getCountingFilterCounts().size());
+      Assert.assertEquals(Long.valueOf(2), info.getCountingFilterCounts().get(filter));
+
+      Assert.assertTrue(queueControl.removeCountingFilter(filter));
+      Assert.assertFalse(queueControl.removeCountingFilter(filter));
+      Assert.assertEquals(0, queueControl.listCountingFilters().length);
+      Assert.assertEquals(2, queueControl.countMessages(filter));
+
+      info = MessageCounterInfo.fromJSON(queueControl.listMessageCounter());
+      Assert.assertTrue(info.getCountingFilterCounts().isEmpty());
+
+      session.deleteQueue(queue);
+   }
+
    @Test
    public void testCountMessagesWithInvalidFilter() throws Exception
    {
@@ -1442,6 +1718,58 @@ public class QueueControlTest extends ManagementTestBase
       session.deleteQueue(queue);
    }
 
+   @Test
+   public void testChangeMessagePriorityKeepsCounts() throws Exception
+   {
+      SimpleString key = new SimpleString("key");
+      long matchingValue = RandomUtil.randomLong();
+      String filter = key + " =" + matchingValue;
+
+      SimpleString address = RandomUtil.randomSimpleString();
+      SimpleString queue = RandomUtil.randomSimpleString();
+
+      session.createQueue(address, queue, null, false);
+      ClientProducer producer = session.createProducer(address);
+
+      for (int i = 0; i < 3; i++)
+      {
+         ClientMessage message = session.createMessage(false);
+         message.putLongProperty(key, matchingValue);
+         message.setPriority((byte)1);
+         producer.send(message);
+      }
+
+      QueueControl queueControl = createManagementControl(address, queue);
+      Assert.assertTrue(queueControl.addCountingFilter(filter));
+      Assert.assertEquals(3, queueControl.countMessages(filter));
+      Assert.assertEquals(3, queueControl.getMessagesAdded());
+
+      // the messages are moved within the queue, they are not added again
+      long messageID = (Long)queueControl.listMessages(null)[0].get("messageID");
+      Assert.assertTrue(queueControl.changeMessagePriority(messageID, 5));
+      Assert.assertEquals(3, queueControl.changeMessagesPriority(null, 8));
+
+      Assert.assertEquals(3, queueControl.getMessageCount());
+      Assert.assertEquals(3, queueControl.countMessages(filter));
+      Assert.assertEquals(3, queueControl.getMessagesAdded());
+
+      ClientConsumer consumer = session.createConsumer(queue);
+      session.start();
+      for (int i = 0; i < 3; i++)
+      {
+         ClientMessage m = consumer.receive(500);
+         Assert.assertNotNull(m);
+         Assert.assertEquals(8, m.getPriority());
+         m.acknowledge();
+      }
+      session.commit();
+      consumer.close();
+
+      Assert.assertEquals(0, queueControl.countMessages(filter));
+
+      session.deleteQueue(queue);
+   }
+
    @Test
    public void testChangeMessagePriorityWithInvalidValue() throws Exception
    {
@@ -184,6 +184,60 @@ public class QueueControlUsingCoreTest extends QueueControlTest
             return (String)proxy.invokeOperation("listMessagesAsJSON", filter);
          }
 
+         public String browse(final String filter, final long fromMessageID, final int limit) throws Exception
+         {
+            return (String)proxy.invokeOperation("browse", filter, fromMessageID, limit);
+         }
+
+         public String[] listCountingFilters() throws Exception
+         {
+            Object[] res = (Object[])proxy.invokeOperation("listCountingFilters");
+            String[] filters = new String[res.length];
+            System.arraycopy(res, 0, filters, 0, res.length);
+            return filters;
+         }
+
+         public boolean addCountingFilter(final String filter) throws Exception
+         {
+            return (Boolean)proxy.invokeOperation("addCountingFilter", filter);
+         }
+
+         public boolean removeCountingFilter(final String filter) throws Exception
+         {
+            return (Boolean)proxy.invokeOperation("removeCountingFilter", filter);
+         }
+
+         public long removeMessagesInBackground(final int flushLimit, final String filter) throws Exception
+         {
+            return ((Number)proxy.invokeOperation("removeMessagesInBackground", flushLimit, filter)).longValue();
+         }
+
+         public long expireMessagesInBackground(final int flushLimit, final String filter) throws Exception
+         {
+            return ((Number)proxy.invokeOperation("expireMessagesInBackground", flushLimit, filter)).longValue();
+         }
+
+         public long moveMessagesInBackground(final int flushLimit, final String filter, final String otherQueueName,
+                                              final boolean rejectDuplicates) throws Exception
+         {
+            return ((Number)proxy.invokeOperation("moveMessagesInBackground", flushLimit, filter, otherQueueName, rejectDuplicates)).longValue();
+         }
+
+         public long changeMessagesPriorityInBackground(final int flushLimit, final String filter, final int newPriority) throws Exception
+         {
+            return ((Number)proxy.invokeOperation("changeMessagesPriorityInBackground", flushLimit, filter, newPriority)).longValue();
+         }
+
+         public String listBulkOperationsAsJSON() throws Exception
+         {
+            return (String)proxy.invokeOperation("listBulkOperationsAsJSON");
+         }
+
+         public boolean cancelBulkOperation(final long operationID) throws Exception
+         {
+            return (Boolean)proxy.invokeOperation("cancelBulkOperation", operationID);
+         }
+
          public Map<String, Object>[] listScheduledMessages() throws Exception
          {
             Object[] res = (Object[])proxy.invokeOperation("listScheduledMessages");
@@ -16,6 +16,8 @@ import org.apache.qpid.amqp_1_0.jms.impl.ConnectionFactoryImpl;
 import org.apache.qpid.amqp_1_0.jms.impl.QueueImpl;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.api.jms.HornetQJMSClient;
+import org.hornetq.api.jms.JMSFactoryType;
 import org.hornetq.core.remoting.impl.netty.TransportConstants;
 import org.hornetq.core.server.HornetQServer;
 import org.hornetq.core.server.Queue;
@@ -24,7 +26,9 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
 import javax.jms.ExceptionListener;
 import javax.jms.JMSException;
 import javax.jms.Message;
@@ -377,6 +381,48 @@ public class ProtonTest extends ServiceTestBase
       connection.close();
    }
 
+   @Test
+   public void testSendAMQPReceiveJMS() throws Exception
+   {
+      String jmsAddress = "jms.queue." + address;
+      server.createQueue(new SimpleString(jmsAddress), new SimpleString(jmsAddress), null, false, false);
+
+      Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+      MessageProducer p = session.createProducer(new QueueImpl(jmsAddress));
+      TextMessage message = session.createTextMessage();
+      message.setText("msg:0");
+      message.setStringProperty("color", "RED");
+      p.send(message);
+      BytesMessage bytesMessage = session.createBytesMessage();
+      bytesMessage.writeBytes(new byte[]{1, 2, 3});
+      p.send(bytesMessage);
+
+      ConnectionFactory factory = HornetQJMSClient.createConnectionFactoryWithoutHA(JMSFactoryType.CF,
+                                                                                    new TransportConfiguration(INVM_CONNECTOR_FACTORY));
+      Connection jmsConnection = factory.createConnection();
+      try
+      {
+         Session jmsSession = jmsConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+         MessageConsumer consumer = jmsSession.createConsumer(HornetQJMSClient.createQueue(address));
+         jmsConnection.start();
+
+         Message m = consumer.receive(5000);
+         assertTrue("" + m, m instanceof TextMessage);
+         assertEquals("msg:0", ((TextMessage) m).getText());
+         assertEquals("RED", m.getStringProperty("color"));
+
+         m = consumer.receive(5000);
+         assertTrue("" + m, m instanceof BytesMessage);
+         byte[] bytes = new byte[3];
+         assertEquals(3, ((BytesMessage) m).readBytes(bytes));
+         assertEqualsByteArrays(new byte[]{1, 2, 3}, bytes);
+      }
+      finally
+      {
+         jmsConnection.close();
+      }
+   }
+
    private javax.jms.Connection createConnection() throws JMSException
    {
       final ConnectionFactoryImpl factory = new ConnectionFactoryImpl("localhost", 5672, "guest", "guest");
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.integration.proton;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.UnsignedByte;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.DeliveryAnnotations;
+import org.apache.qpid.proton.amqp.messaging.Footer;
+import org.apache.qpid.proton.amqp.messaging.Header;
+import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
+import org.apache.qpid.proton.amqp.messaging.Properties;
+import org.apache.qpid.proton.amqp.messaging.Section;
+import org.apache.qpid.proton.jms.EncodedMessage;
+import org.apache.qpid.proton.message.impl.MessageImpl;
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.api.core.Message;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.protocol.proton.ProtonUtils;
+import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.tests.util.UnitTestCase;
+import org.junit.Test;
+
+/**
+ * Converts AMQP messages as the server does when they are sent, stored and delivered, checking
+ * what AMQP consumers and consumers of other protocols receive.
+ */
+public class ProtonUtilsTest extends UnitTestCase
+{
+   private static final SimpleString MESSAGE_TYPE = new SimpleString("HORNETQ_PROTON_MESSAGE_TYPE");
+
+   @Test
+   public void testAMQPToAMQP() throws Exception
+   {
+      ServerMessageImpl stored = send(new AmqpValue("hello"));
+
+      MessageImpl received = deliver(stored, 3);
+
+      Header header = received.getHeader();
+      assertEquals(Boolean.TRUE, header.getDurable());
+      assertEquals(7, header.getPriority().intValue());
+      assertEquals(3, header.getDeliveryCount().intValue());
+
+      // they concern the hop to the server only
+      assertNull(received.getDeliveryAnnotations());
+
+      assertEquals("bar", received.getMessageAnnotations().getValue().get(Symbol.valueOf("x-opt-foo")));
+      assertEquals("id-1", received.getProperties().getMessageId());
+      assertEquals("exampleQueue", received.getProperties().getTo());
+      assertEquals("subject", received.getProperties().getSubject());
+      assertEquals("group", received.getProperties().getGroupId());
+      assertEquals("red", received.getApplicationProperties().getValue().get("colour"));
+      assertEquals(3, received.getApplicationProperties().getValue().get("count"));
+      assertEquals("hello", ((AmqpValue) received.getBody()).getValue());
+      assertEquals("value", received.getFooter().getValue().get(Symbol.valueOf("footer")));
+   }
+
+   @Test
+   public void testRedelivered() throws Exception
+   {
+      ServerMessageImpl stored = send(new AmqpValue("hello"));
+
+      // the stored bytes are read without moving the indexes of the message buffers, so that the
+      // message can be delivered again
+      for (int i = 1; i <= 3; i++)
+      {
+         MessageImpl received = deliver(stored, i);
+         assertEquals(i, received.getHeader().getDeliveryCount().intValue());
+         assertEquals("hello", ((AmqpValue) received.getBody()).getValue());
+      }
+   }
+
+   @Test
+   public void testAMQPToCore() throws Exception
+   {
+      ServerMessageImpl stored = send(new AmqpValue("hello"));
+
+      // the header and the properties are decoded for routing and selectors
+      assertEquals(new SimpleString("exampleQueue"), stored.getAddress());
+      assertTrue(stored.isDurable());
+      assertEquals(7, stored.getPriority());
+      assertEquals("red", stored.getStringProperty("colour"));
+      assertEquals(3, stored.getIntProperty("count").intValue());
+      assertEquals("subject", stored.getStringProperty("HORNETQ_PROTON_SUBJECT"));
+      assertEquals("group", stored.getStringProperty("HORNETQ_PROTON_GROUP_ID"));
+      assertEquals("bar", stored.getStringProperty("HORNETQ_PROTON_MESSAGE_ANNOTATIONS_x-opt-foo"));
+      assertEquals(Message.TEXT_TYPE, stored.getIntProperty(MESSAGE_TYPE).intValue());
+      assertEquals("value", stored.getStringProperty("HORNETQ_PROTON_FOOTER_VALUESfooter"));
+
+      // a string value is the body of a text message
+      assertEquals(Message.TEXT_TYPE, stored.getType());
+      assertEquals("hello", stored.getBodyBuffer().readNullableSimpleString().toString());
+   }
+
+   @Test
+   public void testDataToCore() throws Exception
+   {
+      ServerMessageImpl stored = send(new Data(new Binary(new byte[]{1, 2, 3})));
+
+      assertEquals(Message.BYTES_TYPE, stored.getType());
+      HornetQBuffer body = stored.getBodyBuffer();
+      byte[] bytes = new byte[body.readableBytes()];
+      body.readBytes(bytes);
+      assertEqualsByteArrays(new byte[]{1, 2, 3}, bytes);
+
+      MessageImpl received = deliver(stored);
+      assertEquals(new Binary(new byte[]{1, 2, 3}), ((Data) received.getBody()).getValue());
+      assertEquals("subject", received.getProperties().getSubject());
+      assertEquals("value", received.getFooter().getValue().get(Symbol.valueOf("footer")));
+   }
+
+   @Test
+   public void testBinaryValueToAMQP() throws Exception
+   {
+      ServerMessageImpl stored = send(new AmqpValue(new Binary(new byte[]{4, 5})));
+
+      assertEquals(Message.BYTES_TYPE, stored.getType());
+
+      MessageImpl received = deliver(stored);
+      assertEquals(new Binary(new byte[]{4, 5}), ((AmqpValue) received.getBody()).getValue());
+   }
+
+   @Test
+   public void testMapToAMQP() throws Exception
+   {
+      Map<String, Object> map = new HashMap<String, Object>();
+      map.put("key", "value");
+
+      ServerMessageImpl stored = send(new AmqpValue(map));
+
+      // the other protocols have no body for it, it is kept as it was sent
+      assertEquals(Message.DEFAULT_TYPE, stored.getType());
+      assertEquals("value", stored.getStringProperty("HORNETQ_PROTON_FOOTER_VALUESfooter"));
+
+      MessageImpl received = deliver(stored);
+      assertEquals(map, ((AmqpValue) received.getBody()).getValue());
+      assertEquals("red", received.getApplicationProperties().getValue().get("colour"));
+      assertEquals("value", received.getFooter().getValue().get(Symbol.valueOf("footer")));
+   }
+
+   @Test
+   public void testMessageType() throws Exception
+   {
+      Map<String, Object> map = new HashMap<String, Object>();
+      map.put("key", "value");
+
+      assertMessageType(Message.TEXT_TYPE, new AmqpValue("text"));
+      assertMessageType(Message.MAP_TYPE, new AmqpValue(map));
+      assertMessageType(Message.OBJECT_TYPE, new AmqpValue(new Binary(new byte[]{1, 2, 3})));
+      assertMessageType(Message.OBJECT_TYPE, new AmqpValue(42));
+      assertMessageType(Message.DEFAULT_TYPE, new Data(new Binary(new byte[]{1, 2, 3})));
+      assertMessageType(Message.DEFAULT_TYPE, null);
+   }
+
+   private static void assertMessageType(int type, Section body) throws Exception
+   {
+      assertEquals(type, send(body).getIntProperty(MESSAGE_TYPE).intValue());
+   }
+
+   /**
+    * Returns the message stored by the server for an AMQP message with the body given.
+    */
+   private static ServerMessageImpl send(Section body) throws Exception
+   {
+      return store(ProtonUtils.INBOUND.transform(new ServerMessageImpl(1, 512), encode(createMessage(body))));
+   }
+
+   private static MessageImpl deliver(ServerMessageImpl stored)
+   {
+      return deliver(stored, 1);
+   }
+
+   /**
+    * Returns the message an AMQP consumer receives for the message stored.
+    */
+   private static MessageImpl deliver(ServerMessageImpl stored, int deliveryCount)
+   {
+      EncodedMessage delivered = ProtonUtils.OUTBOUND.transform(stored, deliveryCount);
+      MessageImpl received = new MessageImpl();
+      received.decode(delivered.getArray(), delivered.getArrayOffset(), delivered.getLength());
+      return received;
+   }
+
+   private static MessageImpl createMessage(Section body)
+   {
+      Header header = new Header();
+      header.setDurable(true);
+      header.setPriority(UnsignedByte.valueOf((byte) 7));
+
+      Map<Symbol, Object> deliveryAnnotations = new HashMap<Symbol, Object>();
+      deliveryAnnotations.put(Symbol.valueOf("x-opt-hop"), "first");
+
+      Map<Symbol, Object> messageAnnotations = new HashMap<Symbol, Object>();
+      messageAnnotations.put(Symbol.valueOf("x-opt-foo"), "bar");
+
+      Properties properties = new Properties();
+      properties.setMessageId("id-1");
+      properties.setTo("exampleQueue");
+      properties.setSubject("subject");
+      properties.setGroupId("group");
+
+      Map<String, Object> applicationProperties = new HashMap<String, Object>();
+      applicationProperties.put("colour", "red");
+      applicationProperties.put("count", 3);
+
+      Map<Symbol, Object> footer = new HashMap<Symbol, Object>();
+      footer.put(Symbol.valueOf("footer"), "value");
+
+      return new MessageImpl(header,
+                             new DeliveryAnnotations(deliveryAnnotations),
+                             new MessageAnnotations(messageAnnotations),
+                             properties,
+                             new ApplicationProperties(applicationProperties),
+                             body,
+                             new Footer(footer));
+   }
+
+   private static EncodedMessage encode(MessageImpl message)
+   {
+      byte[] bytes = new byte[4096];
+      int length = message.encode(bytes, 0, bytes.length);
+      return new EncodedMessage(0, bytes, 0, length);
+   }
+
+   /**
+    * Returns the message as read back from the journal.
+    */
+   private static ServerMessageImpl store(ServerMessageImpl message)
+   {
+      HornetQBuffer buffer = HornetQBuffers.fixedBuffer(message.getEncodeSize());
+      message.encode(buffer);
+      ServerMessageImpl stored = new ServerMessageImpl(1, 50);
+      stored.decode(buffer);
+      return stored;
+   }
+}
@@ -18,6 +18,8 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
@@ -58,6 +60,8 @@ import org.hornetq.core.journal.RecordInfo;
 import org.hornetq.core.journal.SequentialFileFactory;
 import org.hornetq.core.journal.TransactionFailureCallback;
 import org.hornetq.core.journal.impl.JournalFile;
+import org.hornetq.core.journal.impl.JournalImpl;
+import org.hornetq.core.journal.impl.NIOSequentialFileFactory;
 import org.hornetq.core.paging.PagedMessage;
 import org.hornetq.core.paging.PagingManager;
 import org.hornetq.core.paging.PagingStore;
@@ -69,6 +73,8 @@ import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager;
 import org.hornetq.core.persistence.impl.journal.OperationContextImpl;
 import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationBatchMessage;
 import org.hornetq.core.replication.ReplicatedJournal;
 import org.hornetq.core.replication.ReplicationManager;
 import org.hornetq.core.server.HornetQComponent;
@@ -279,6 +285,119 @@ public final class ReplicationTest extends ServiceTestBase
       Assert.assertEquals(0, store.getNumberOfPages());
    }
 
+   /**
+    * Sends a stream of records that travel in {@link ReplicationBatchMessage}s, and reads back the
+    * journal the backup wrote from them.
+    */
+   @Test
+   public void testSendBatchedRecordStream() throws Exception
+   {
+      final int numberOfRecords = 1000;
+      final long firstID = 1000;
+      final long txID = 5000;
+      setupServer(true);
+
+      StorageManager storage = getStorage();
+
+      manager = liveServer.getReplicationManager();
+      waitForComponent(manager);
+
+      // the backup connected to the live, which sends the records on that connection
+      BatchInterceptor interceptor = new BatchInterceptor();
+      liveServer.getRemotingService().addOutgoingInterceptor(interceptor);
+
+      Journal replicatedJournal = new ReplicatedJournal((byte)1, new FakeJournal(), manager);
+
+      int sentRecords = 0;
+      for (int i = 0; i < numberOfRecords; i++)
+      {
+         replicatedJournal.appendAddRecord(firstID + i, (byte)1, recordData(i), false);
+         sentRecords++;
+         if (i % 3 == 0)
+         {
+            replicatedJournal.appendUpdateRecord(firstID + i, (byte)2, recordData(-i), false);
+            sentRecords++;
+         }
+         if (i % 2 == 0)
+         {
+            replicatedJournal.appendDeleteRecord(firstID + i, false);
+            sentRecords++;
+         }
+      }
+
+      replicatedJournal.appendAddRecordTransactional(txID, txID + 1, (byte)1, recordData(1));
+      replicatedJournal.appendAddRecordTransactional(txID, txID + 2, (byte)1, recordData(2));
+      replicatedJournal.appendCommitRecord(txID, true);
+      sentRecords += 3;
+
+      blockOnReplication(storage, manager);
+
+      Assert.assertEquals("records sent on their own", 0, interceptor.unbatchedRecords.get());
+      Assert.assertEquals(sentRecords, interceptor.batchedRecords.get());
+      Assert.assertTrue(interceptor.batches.get() > 0);
+
+      // the journal is complete once the backup stopped
+      Configuration backupConfig = backupServer.getConfiguration();
+      stopComponent(backupServer);
+
+      Map<Long, byte[]> records = loadJournal(backupConfig);
+
+      for (int i = 0; i < numberOfRecords; i++)
+      {
+         byte[] data = records.get(firstID + i);
+         if (i % 2 == 0)
+         {
+            Assert.assertNull("record " + i + " was deleted", data);
+         }
+         else
+         {
+            Assert.assertNotNull("record " + i, data);
+            assertEqualsByteArrays(recordData(i % 3 == 0 ? -i : i), data);
+         }
+      }
+      assertEqualsByteArrays(recordData(1), records.get(txID + 1));
+      assertEqualsByteArrays(recordData(2), records.get(txID + 2));
+   }
+
+   private static byte[] recordData(final int value)
+   {
+      HornetQBuffer buffer = HornetQBuffers.fixedBuffer(4);
+      buffer.writeInt(value);
+      return buffer.toByteBuffer().array();
+   }
+
+   /**
+    * @return the data of the living records of the message journal, with the last update of each
+    */
+   private static Map<Long, byte[]> loadJournal(final Configuration config) throws Exception
+   {
+      JournalImpl journal = new JournalImpl(config.getJournalFileSize(),
+                                            config.getJournalMinFiles(),
+                                            0,
+                                            0,
+                                            new NIOSequentialFileFactory(config.getJournalDirectory(), null),
+                                            "hornetq-data",
+                                            "hq",
+                                            1);
+      List<RecordInfo> committedRecords = new LinkedList<RecordInfo>();
+      journal.start();
+      try
+      {
+         journal.load(committedRecords, new LinkedList<PreparedTransactionInfo>(), null, false);
+      }
+      finally
+      {
+         journal.stop();
+      }
+
+      Map<Long, byte[]> records = new HashMap<Long, byte[]>();
+      for (RecordInfo info : committedRecords)
+      {
+         records.put(info.id, info.data);
+      }
+      return records;
+   }
+
    @Test
    public void testSendPacketsWithFailure() throws Exception
    {
@@ -617,6 +736,35 @@ public final class ReplicationTest extends ServiceTestBase
 
    };
 
+   /**
+    * Counts the records sent to the backup, and whether they were sent in a batch.
+    */
+   private static final class BatchInterceptor implements Interceptor
+   {
+      final AtomicInteger batches = new AtomicInteger();
+
+      final AtomicInteger batchedRecords = new AtomicInteger();
+
+      final AtomicInteger unbatchedRecords = new AtomicInteger();
+
+      public boolean intercept(final Packet packet, final RemotingConnection connection) throws HornetQException
+      {
+         byte type = packet.getType();
+         if (type == PacketImpl.REPLICATION_BATCH)
+         {
+            batches.incrementAndGet();
+            batchedRecords.addAndGet(((ReplicationBatchMessage)packet).getCount());
+         }
+         else if (type == PacketImpl.REPLICATION_APPEND || type == PacketImpl.REPLICATION_APPEND_TX ||
+            type == PacketImpl.REPLICATION_DELETE ||
+            type == PacketImpl.REPLICATION_COMMIT_ROLLBACK)
+         {
+            unbatchedRecords.incrementAndGet();
+         }
+         return true;
+      }
+   }
+
    static final class FakeJournal implements Journal
    {
 
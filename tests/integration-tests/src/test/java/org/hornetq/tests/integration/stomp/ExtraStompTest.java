@@ -273,6 +273,81 @@ public class ExtraStompTest extends StompTestBase
       }
    }
 
+   //core sender -> large -> two stomp subscriptions streamed on the same connection
+   @Test
+   public void testReceiveLargePersistentMessagesOnTwoSubscriptions() throws Exception
+   {
+      try
+      {
+         server = createPersistentServerWithStompMinLargeSize(2048);
+         server.start();
+
+         setUpAfterServer();
+
+         int msgSize = 3 * HornetQClient.DEFAULT_MIN_LARGE_MESSAGE_SIZE;
+         char[] contents = new char[msgSize];
+         for (int i = 0; i < msgSize; i++)
+         {
+            contents[i] = 'B';
+         }
+         String msg = new String(contents);
+
+         String frame = "CONNECT\n" + "login: brianm\n"
+               + "passcode: wombats\n\n" + Stomp.NULL;
+         sendFrame(frame);
+         frame = receiveFrame(10000);
+
+         Assert.assertTrue(frame.startsWith("CONNECTED"));
+
+         frame = "SUBSCRIBE\n" + "destination:" + getQueuePrefix() + getQueueName() + "\n" + "id:queue-sub\n" + "ack:auto\n\n" + Stomp.NULL;
+         sendFrame(frame);
+         frame = "SUBSCRIBE\n" + "destination:" + getTopicPrefix() + getTopicName() + "\n" + "id:topic-sub\n" + "receipt:123\n" + "ack:auto\n\n" + Stomp.NULL;
+         sendFrame(frame);
+         waitForReceipt();
+
+         int count = 10;
+         for (int i = 0; i < count; i++)
+         {
+            this.sendMessage(msg);
+            this.sendMessage(msg, topic);
+         }
+
+         int queueMessages = 0;
+         int topicMessages = 0;
+         for (int i = 0; i < 2 * count; i++)
+         {
+            frame = receiveFrame(60000);
+            Assert.assertNotNull(frame);
+            Assert.assertTrue(frame.startsWith("MESSAGE"));
+            int index = frame.indexOf("BBBB");
+            assertEquals(msgSize, (frame.length() - index));
+            if (frame.indexOf("subscription:queue-sub") > 0)
+            {
+               queueMessages++;
+            }
+            else if (frame.indexOf("subscription:topic-sub") > 0)
+            {
+               topicMessages++;
+            }
+         }
+         assertEquals(count, queueMessages);
+         assertEquals(count, topicMessages);
+
+         frame = "DISCONNECT\n" + "\n\n" + Stomp.NULL;
+         sendFrame(frame);
+      }
+      catch (Exception ex)
+      {
+         ex.printStackTrace();
+         throw ex;
+      }
+      finally
+      {
+         cleanUp();
+         server.stop();
+      }
+   }
+
    //stomp v12 sender -> large -> stomp v12 receiver
    @Test
    public void testSendReceiveLargePersistentMessagesV12() throws Exception
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.integration.stomp;
+
+import java.nio.charset.Charset;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.core.protocol.stomp.Stomp;
+import org.hornetq.core.protocol.stomp.StompFrame;
+import org.hornetq.core.protocol.stomp.v10.StompFrameV10;
+import org.hornetq.core.protocol.stomp.v11.StompFrameV11;
+import org.hornetq.core.protocol.stomp.v12.StompFrameV12;
+import org.hornetq.tests.util.UnitTestCase;
+import org.junit.Test;
+
+/**
+ * Checks the bytes written by {@link StompFrame#encode(HornetQBuffer)} against the UTF-8 encoding
+ * of the expected frame text, and that {@link StompFrame#getEncodedSize()} counts them exactly.
+ */
+public class StompFrameEncodingTest extends UnitTestCase
+{
+   private static final Charset UTF8 = Charset.forName("UTF-8");
+
+   @Test
+   public void testFrameV10() throws Exception
+   {
+      StompFrame frame = new StompFrameV10(Stomp.Responses.MESSAGE);
+      frame.addHeader(Stomp.Headers.Message.DESTINATION, "jms.queue.orders");
+      frame.addHeader("colour", "a:b\\c");
+      frame.setByteBody("hello".getBytes(UTF8));
+
+      // 1.0 does not escape headers
+      assertEncoded("MESSAGE\ndestination:jms.queue.orders\ncolour:a:b\\c\n\nhello\u0000\n", frame);
+   }
+
+   @Test
+   public void testFrameV11Escaping() throws Exception
+   {
+      StompFrame frame = new StompFrameV11(Stomp.Responses.MESSAGE);
+      frame.addHeader("key:with\\colon", "line\nbreak:colon\\backslash\rreturn");
+
+      // a colon is written as a backslash and a colon as it always was, and 1.1 does not escape carriage returns
+      assertEncoded("MESSAGE\nkey\\:with\\\\colon:line\\nbreak\\:colon\\\\backslash\rreturn\n\n\u0000\n", frame);
+   }
+
+   @Test
+   public void testFrameV11RepeatedHeaders() throws Exception
+   {
+      StompFrame frame = new StompFrameV11(Stomp.Responses.MESSAGE);
+      frame.addHeader("foo", "1");
+      frame.addHeader("foo", "2");
+
+      assertEncoded("MESSAGE\nfoo:1\nfoo:2\n\n\u0000\n", frame);
+   }
+
+   @Test
+   public void testFrameV12() throws Exception
+   {
+      StompFrame frame = new StompFrameV12(Stomp.Responses.MESSAGE);
+      frame.addHeader(Stomp.Headers.Message.SUBSCRIPTION, "sub-0");
+      frame.addHeader("key", "carriage\rreturn");
+      frame.setByteBody(new byte[]{1, 0, 2});
+
+      // 1.2 escapes carriage returns and adds the content length of the body
+      String expected = "MESSAGE\nsubscription:sub-0\nkey:carriage\\rreturn\ncontent-length:3\n\n\u0001\u0000\u0002\u0000\n";
+      assertEncoded(expected, frame);
+   }
+
+   @Test
+   public void testMultiByteCharacters() throws Exception
+   {
+      // two, three and four (surrogate pair) bytes in UTF-8
+      String value = "caf\u00e9 \u20ac \ud83d\ude00";
+      StompFrame frame = new StompFrameV11(Stomp.Responses.MESSAGE);
+      frame.addHeader("\u00fcber", value);
+      frame.setByteBody(value.getBytes(UTF8));
+
+      assertEncoded("MESSAGE\n\u00fcber:" + value + "\n\n" + value + "\u0000\n", frame);
+   }
+
+   @Test
+   public void testLoneSurrogate() throws Exception
+   {
+      StompFrame frame = new StompFrameV11(Stomp.Responses.MESSAGE);
+      frame.addHeader("key", "a\ud83db");
+
+      // replaced as String.getBytes does
+      assertEncoded("MESSAGE\nkey:a?b\n\n\u0000\n", frame);
+   }
+
+   @Test
+   public void testHeadersNamedLikeCommands() throws Exception
+   {
+      // message properties become headers, whatever their names
+      String[] names = {Stomp.Responses.ERROR, Stomp.Commands.SEND, Stomp.Responses.MESSAGE, Stomp.Commands.COMMIT};
+      for (StompFrame frame : new StompFrame[]{new StompFrameV10(Stomp.Responses.MESSAGE),
+         new StompFrameV11(Stomp.Responses.MESSAGE)})
+      {
+         StringBuilder expected = new StringBuilder("MESSAGE\n");
+         for (String name : names)
+         {
+            frame.addHeader(name, "value");
+            expected.append(name).append(":value\n");
+         }
+         assertEncoded(expected.append("\n\u0000\n").toString(), frame);
+      }
+   }
+
+   @Test
+   public void testPing() throws Exception
+   {
+      StompFrame frame = new StompFrameV11(Stomp.Commands.STOMP);
+      frame.setPing(true);
+
+      assertEncoded("\n", frame);
+   }
+
+   private static void assertEncoded(String expected, StompFrame frame) throws Exception
+   {
+      byte[] bytes = expected.getBytes(UTF8);
+      assertEquals(bytes.length, frame.getEncodedSize());
+
+      HornetQBuffer buffer = HornetQBuffers.fixedBuffer(bytes.length);
+      frame.encode(buffer);
+      assertEquals(bytes.length, buffer.writerIndex());
+
+      byte[] encoded = new byte[bytes.length];
+      buffer.readBytes(encoded);
+      assertEqualsByteArrays(bytes, encoded);
+   }
+}
@@ -625,6 +625,36 @@ public class XaTimeoutTest extends UnitTestCase
       Assert.assertNull(m);
    }
 
+   @Test
+   public void testShortenedTimeoutOnActiveTransaction() throws Exception
+   {
+      Xid xid = new XidImpl("xa1".getBytes(), 1, UUIDGenerator.getInstance().generateStringUUID().getBytes());
+
+      clientSession.setTransactionTimeout(5000);
+      clientSession.start(xid, XAResource.TMNOFLAGS);
+      CountDownLatch latch = new CountDownLatch(1);
+      messagingService.getResourceManager().getTransaction(xid).addOperation(new RollbackCompleteOperation(latch));
+      clientProducer.send(createTextMessage(clientSession, "m1"));
+      Assert.assertEquals(1, messagingService.getHornetQServerControl().getXATransactionCount());
+
+      // picked up by the transaction already started
+      clientSession.setTransactionTimeout(1);
+      clientSession.end(xid, XAResource.TMSUCCESS);
+
+      Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+      Assert.assertEquals(0, messagingService.getHornetQServerControl().getXATransactionCount());
+      Assert.assertEquals(1, messagingService.getHornetQServerControl().getTimedOutXATransactionCount());
+      try
+      {
+         clientSession.commit(xid, true);
+         Assert.fail("the transaction should have timed out");
+      }
+      catch (XAException e)
+      {
+         Assert.assertTrue(e.errorCode == XAException.XAER_NOTA);
+      }
+   }
+
    @Test
    public void testMultipleTransactionsTimedOut() throws Exception
    {
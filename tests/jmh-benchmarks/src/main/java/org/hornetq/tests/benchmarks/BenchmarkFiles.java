@@ -0,0 +1,48 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.benchmarks;
+
+import java.io.File;
+
+/**
+ * The directories of the benchmarks writing files, created under the temporary directory.
+ */
+public final class BenchmarkFiles
+{
+   private BenchmarkFiles()
+   {
+   }
+
+   public static File createDirectory(final String name)
+   {
+      File directory = new File(System.getProperty("java.io.tmpdir"), "hornetq-jmh-" + name + "-" + System.nanoTime());
+      if (!directory.mkdirs())
+      {
+         throw new IllegalStateException("Could not create " + directory);
+      }
+      return directory;
+   }
+
+   public static void delete(final File file)
+   {
+      File[] children = file.listFiles();
+      if (children != null)
+      {
+         for (File child : children)
+         {
+            delete(child);
+         }
+      }
+      file.delete();
+   }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.benchmarks;
+
+import java.io.File;
+
+import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.core.config.Configuration;
+import org.hornetq.core.config.impl.ConfigurationImpl;
+import org.hornetq.core.remoting.impl.invm.InVMAcceptorFactory;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.HornetQServers;
+
+/**
+ * A non persistent server without security nor management, accepting in-VM connections.
+ */
+public final class BenchmarkServer
+{
+   private final File directory;
+
+   private final HornetQServer server;
+
+   public BenchmarkServer() throws Exception
+   {
+      directory = BenchmarkFiles.createDirectory("server");
+
+      Configuration configuration = new ConfigurationImpl();
+      configuration.setPersistenceEnabled(false);
+      configuration.setSecurityEnabled(false);
+      configuration.setJMXManagementEnabled(false);
+      configuration.setBindingsDirectory(new File(directory, "bindings").getPath());
+      configuration.setJournalDirectory(new File(directory, "journal").getPath());
+      configuration.setPagingDirectory(new File(directory, "paging").getPath());
+      configuration.setLargeMessagesDirectory(new File(directory, "large-messages").getPath());
+      configuration.getAcceptorConfigurations().add(new TransportConfiguration(InVMAcceptorFactory.class.getName()));
+
+      server = HornetQServers.newHornetQServer(configuration, false);
+      server.start();
+   }
+
+   public HornetQServer getServer()
+   {
+      return server;
+   }
+
+   public void stop() throws Exception
+   {
+      server.stop();
+      BenchmarkFiles.delete(directory);
+   }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected on the command line, as the JMH main class does, but writes the
+ * results as JSON to {@code jmh-result.json} unless another format or file is given, so that
+ * the runs of two releases can be compared by tools.
+ */
+public final class Benchmarks
+{
+   public static final String RESULT_FILE = "jmh-result.json";
+
+   private Benchmarks()
+   {
+   }
+
+   public static void main(final String[] args) throws Exception
+   {
+      CommandLineOptions commandLine = new CommandLineOptions(args);
+      if (commandLine.shouldHelp())
+      {
+         commandLine.showHelp();
+         return;
+      }
+      if (commandLine.shouldList())
+      {
+         new Runner(commandLine).list();
+         return;
+      }
+
+      ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+      if (!commandLine.getResultFormat().hasValue())
+      {
+         options.resultFormat(ResultFormatType.JSON);
+      }
+      if (!commandLine.getResult().hasValue())
+      {
+         options.result(RESULT_FILE);
+      }
+      new Runner(options.build()).run();
+   }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.benchmarks.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.HornetQClient;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.remoting.impl.invm.InVMConnectorFactory;
+import org.hornetq.tests.benchmarks.BenchmarkServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sends a non durable message with the core client over an in-VM connection and receives it back,
+ * so that the whole path through the client and the server is measured without a network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InVMRoundTripBenchmark
+{
+   private static final SimpleString ADDRESS = new SimpleString("benchmark.client");
+
+   @Param({"1024"})
+   public int bodySize;
+
+   private BenchmarkServer server;
+
+   private ServerLocator locator;
+
+   private ClientSessionFactory factory;
+
+   private ClientSession session;
+
+   private ClientProducer producer;
+
+   private ClientConsumer consumer;
+
+   private byte[] body;
+
+   @Setup
+   public void setUp() throws Exception
+   {
+      server = new BenchmarkServer();
+      server.getServer().createQueue(ADDRESS, ADDRESS, null, false, false);
+
+      locator = HornetQClient.createServerLocatorWithoutHA(new TransportConfiguration(InVMConnectorFactory.class.getName()));
+      factory = locator.createSessionFactory();
+      session = factory.createSession(true, true);
+      producer = session.createProducer(ADDRESS);
+      consumer = session.createConsumer(ADDRESS);
+      session.start();
+
+      body = new byte[bodySize];
+   }
+
+   @TearDown
+   public void tearDown() throws Exception
+   {
+      session.close();
+      factory.close();
+      locator.close();
+      server.stop();
+   }
+
+   @Benchmark
+   public ClientMessage sendAndReceive() throws Exception
+   {
+      ClientMessage message = session.createMessage(false);
+      message.getBodyBuffer().writeBytes(body);
+      producer.send(message);
+
+      ClientMessage received = consumer.receive(5000);
+      if (received == null)
+      {
+         throw new IllegalStateException("The message was not received");
+      }
+      received.acknowledge();
+      return received;
+   }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.benchmarks.journal;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.core.journal.RecordInfo;
+import org.hornetq.core.journal.SequentialFileFactory;
+import org.hornetq.core.journal.impl.AIOSequentialFileFactory;
+import org.hornetq.core.journal.impl.JournalImpl;
+import org.hornetq.core.journal.impl.NIOSequentialFileFactory;
+import org.hornetq.tests.benchmarks.BenchmarkFiles;
+import org.hornetq.tests.unit.core.journal.impl.fakes.FakeSequentialFileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Appends a record to the journal and deletes it, so that the files are reclaimed and a long run
+ * does not fill the disk. AIO needs libaio, the benchmark fails on the platforms without it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JournalAppendBenchmark
+{
+   @Param({"FAKE", "NIO", "AIO"})
+   public String fileFactory;
+
+   @Param({"false", "true"})
+   public boolean sync;
+
+   @Param({"1024"})
+   public int recordSize;
+
+   private File directory;
+
+   private JournalImpl journal;
+
+   private byte[] record;
+
+   private long id;
+
+   @Setup
+   public void setUp() throws Exception
+   {
+      directory = BenchmarkFiles.createDirectory("journal");
+
+      SequentialFileFactory factory;
+      if ("NIO".equals(fileFactory))
+      {
+         factory = new NIOSequentialFileFactory(directory.getPath(), true);
+      }
+      else if ("AIO".equals(fileFactory))
+      {
+         if (!AIOSequentialFileFactory.isSupported())
+         {
+            throw new IllegalStateException("AIO is not supported on this platform");
+         }
+         factory = new AIOSequentialFileFactory(directory.getPath());
+      }
+      else
+      {
+         factory = new FakeSequentialFileFactory();
+      }
+
+      journal = new JournalImpl(10 * 1024 * 1024, 10, 0, 0, factory, "hornetq-data", "hq", 500);
+      journal.start();
+      journal.load(new ArrayList<RecordInfo>(), null, null);
+
+      record = new byte[recordSize];
+   }
+
+   @TearDown
+   public void tearDown() throws Exception
+   {
+      journal.stop();
+      BenchmarkFiles.delete(directory);
+   }
+
+   @Benchmark
+   public void appendAddAndDelete() throws Exception
+   {
+      long recordID = id++;
+      journal.appendAddRecord(recordID, (byte)1, record, sync);
+      journal.appendDeleteRecord(recordID, sync);
+   }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.benchmarks.journal;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.journal.EncodingSupport;
+import org.hornetq.core.journal.IOAsyncTask;
+import org.hornetq.core.journal.impl.TimedBuffer;
+import org.hornetq.core.journal.impl.TimedBufferObserver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adds records to a {@link TimedBuffer} flushing to an observer which writes nothing, so that
+ * only the buffering is measured: {@link #add()} fills the buffer without syncing, and
+ * {@link #addAndWaitSync()} waits for the flush of its record, as a sync append of the journal
+ * does. Run the latter with several threads to see their syncs batched.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TimedBufferBenchmark
+{
+   // the default journal buffer size, 490 KiB
+   @Param({"501760"})
+   public int bufferSize;
+
+   // the default AIO buffer timeout, in nanoseconds
+   @Param({"500000"})
+   public int timeout;
+
+   @Param({"1024"})
+   public int recordSize;
+
+   private TimedBuffer timedBuffer;
+
+   private Record record;
+
+   @Setup
+   public void setUp()
+   {
+      timedBuffer = new TimedBuffer(bufferSize, timeout, false);
+      timedBuffer.start();
+      timedBuffer.setObserver(new DiscardingObserver(bufferSize));
+      record = new Record(new byte[recordSize]);
+   }
+
+   @TearDown
+   public void tearDown()
+   {
+      timedBuffer.stop();
+   }
+
+   @Benchmark
+   public void add()
+   {
+      timedBuffer.checkSize(record.getEncodeSize());
+      timedBuffer.addBytes(record, false, NoCallback.INSTANCE);
+   }
+
+   @Benchmark
+   public void addAndWaitSync() throws InterruptedException
+   {
+      LatchCallback callback = new LatchCallback();
+      timedBuffer.checkSize(record.getEncodeSize());
+      timedBuffer.addBytes(record, true, callback);
+      callback.latch.await();
+   }
+
+   private static final class Record implements EncodingSupport
+   {
+      private final byte[] data;
+
+      Record(final byte[] data)
+      {
+         this.data = data;
+      }
+
+      public int getEncodeSize()
+      {
+         return data.length;
+      }
+
+      public void encode(final HornetQBuffer buffer)
+      {
+         buffer.writeBytes(data);
+      }
+
+      public void decode(final HornetQBuffer buffer)
+      {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   private static final class DiscardingObserver implements TimedBufferObserver
+   {
+      private final ByteBuffer buffer;
+
+      DiscardingObserver(final int size)
+      {
+         buffer = ByteBuffer.allocate(size);
+      }
+
+      public void flushBuffer(final ByteBuffer flushed, final boolean syncRequested, final List<IOAsyncTask> callbacks)
+      {
+         for (IOAsyncTask callback : callbacks)
+         {
+            callback.done();
+         }
+      }
+
+      public int getRemainingBytes()
+      {
+         return Integer.MAX_VALUE;
+      }
+
+      public ByteBuffer newBuffer(final int size, final int limit)
+      {
+         // the buffer is flushed before another one is asked for
+         buffer.clear();
+         buffer.limit(limit);
+         return buffer;
+      }
+   }
+
+   private static final class NoCallback implements IOAsyncTask
+   {
+      static final NoCallback INSTANCE = new NoCallback();
+
+      public void done()
+      {
+      }
+
+      public void onError(final int errorCode, final String errorMessage)
+      {
+      }
+   }
+
+   private static final class LatchCallback implements IOAsyncTask
+   {
+      final CountDownLatch latch = new CountDownLatch(1);
+
+      public void done()
+      {
+         latch.countDown();
+      }
+
+      public void onError(final int errorCode, final String errorMessage)
+      {
+         latch.countDown();
+      }
+   }
+}
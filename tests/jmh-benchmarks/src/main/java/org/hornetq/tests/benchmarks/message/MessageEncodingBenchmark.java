@@ -0,0 +1,108 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.benchmarks.message;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.utils.TypedProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encodes a message as the journal and the paging store do, decodes it as they do on load, and
+ * copies it as the broker does for a diverted or expired message.
+ * <p>
+ * A message keeps its encoding until it changes, so {@link #encode()} changes a property first,
+ * as the broker does when it routes a message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MessageEncodingBenchmark
+{
+   private static final SimpleString ADDRESS = new SimpleString("jms.queue.benchmark");
+
+   private static final SimpleString CHANGED_KEY = new SimpleString("_HQ_BENCHMARK");
+
+   @Param({"1024"})
+   public int bodySize;
+
+   @Param({"5"})
+   public int propertyCount;
+
+   private ServerMessage message;
+
+   private HornetQBuffer encoded;
+
+   private HornetQBuffer buffer;
+
+   private long counter;
+
+   @Setup
+   public void setUp() throws Exception
+   {
+      message = new ServerMessageImpl(1, bodySize + 256);
+      message.setAddress(ADDRESS);
+      message.getBodyBuffer().writeBytes(new byte[bodySize]);
+      TypedProperties properties = TypedPropertiesBenchmark.createProperties(propertyCount);
+      for (SimpleString key : properties.getPropertyNames())
+      {
+         message.putObjectProperty(key, properties.getProperty(key));
+      }
+
+      encoded = HornetQBuffers.fixedBuffer(message.getEncodeSize());
+      message.encode(encoded);
+      buffer = HornetQBuffers.fixedBuffer(message.getEncodeSize() + 64);
+   }
+
+   @Benchmark
+   public HornetQBuffer encode()
+   {
+      message.putLongProperty(CHANGED_KEY, counter++);
+      buffer.clear();
+      message.encode(buffer);
+      return buffer;
+   }
+
+   @Benchmark
+   public ServerMessage decode()
+   {
+      encoded.readerIndex(0);
+      ServerMessage decoded = new ServerMessageImpl(1, 50);
+      decoded.decode(encoded);
+      return decoded;
+   }
+
+   @Benchmark
+   public ServerMessage copy()
+   {
+      return message.copy();
+   }
+}
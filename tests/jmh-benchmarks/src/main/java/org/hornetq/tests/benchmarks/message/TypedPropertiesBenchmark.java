@@ -0,0 +1,121 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.benchmarks.message;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.utils.TypedProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encodes and decodes {@link TypedProperties} holding strings, ints, longs and booleans. The
+ * decoded properties are read, or changed, as a broker would on routing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TypedPropertiesBenchmark
+{
+   @Param({"5", "20"})
+   public int count;
+
+   private TypedProperties properties;
+
+   private SimpleString lastKey;
+
+   private HornetQBuffer encoded;
+
+   private HornetQBuffer buffer;
+
+   @Setup
+   public void setUp()
+   {
+      properties = createProperties(count);
+      lastKey = new SimpleString("property" + (count - 1));
+
+      encoded = HornetQBuffers.fixedBuffer(properties.getEncodeSize());
+      properties.encode(encoded);
+      buffer = HornetQBuffers.fixedBuffer(properties.getEncodeSize());
+   }
+
+   @Benchmark
+   public HornetQBuffer encode()
+   {
+      buffer.clear();
+      properties.encode(buffer);
+      return buffer;
+   }
+
+   @Benchmark
+   public TypedProperties decode()
+   {
+      encoded.readerIndex(0);
+      TypedProperties decoded = new TypedProperties();
+      decoded.decode(encoded);
+      return decoded;
+   }
+
+   @Benchmark
+   public Object decodeAndGet()
+   {
+      return decode().getProperty(lastKey);
+   }
+
+   @Benchmark
+   public TypedProperties decodeAndPut()
+   {
+      TypedProperties decoded = decode();
+      decoded.putLongProperty(lastKey, 1L);
+      return decoded;
+   }
+
+   static TypedProperties createProperties(final int count)
+   {
+      TypedProperties properties = new TypedProperties();
+      for (int i = 0; i < count; i++)
+      {
+         SimpleString key = new SimpleString("property" + i);
+         switch (i % 4)
+         {
+            case 0:
+               properties.putSimpleStringProperty(key, new SimpleString("value" + i));
+               break;
+            case 1:
+               properties.putIntProperty(key, i);
+               break;
+            case 2:
+               properties.putLongProperty(key, System.currentTimeMillis());
+               break;
+            default:
+               properties.putBooleanProperty(key, true);
+         }
+      }
+      return properties;
+   }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.benchmarks.server;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.server.Consumer;
+import org.hornetq.core.server.HandleStatus;
+import org.hornetq.core.server.MessageReference;
+
+/**
+ * A consumer acknowledging each message it is given, and giving back a credit for it so that
+ * the benchmark sending the messages does not get ahead of the deliveries.
+ */
+final class AcknowledgingConsumer implements Consumer
+{
+   private final Semaphore credits;
+
+   AcknowledgingConsumer(final Semaphore credits)
+   {
+      this.credits = credits;
+   }
+
+   public HandleStatus handle(final MessageReference reference)
+   {
+      return HandleStatus.HANDLED;
+   }
+
+   public void proceedDeliver(final MessageReference reference) throws Exception
+   {
+      reference.getQueue().acknowledge(reference);
+      credits.release();
+   }
+
+   public Filter getFilter()
+   {
+      return null;
+   }
+
+   public List<MessageReference> getDeliveringMessages()
+   {
+      return Collections.emptyList();
+   }
+
+   public String debug()
+   {
+      return toString();
+   }
+
+   public String toManagementString()
+   {
+      return toString();
+   }
+
+   public void disconnect()
+   {
+   }
+}
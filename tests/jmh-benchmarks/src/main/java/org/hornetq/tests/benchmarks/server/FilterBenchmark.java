@@ -0,0 +1,73 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.benchmarks.server;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.filter.impl.FilterImpl;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matches a message against a filter, as a queue does for each message routed to it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FilterBenchmark
+{
+   @Param({"color = 'red'",
+           "color = 'red' AND weight > 10",
+           "color IN ('blue', 'green', 'red') OR weight BETWEEN 1 AND 5",
+           "region LIKE 'eu-%' AND HQPriority > 3"})
+   public String filter;
+
+   private Filter compiled;
+
+   private ServerMessage message;
+
+   @Setup
+   public void setUp() throws Exception
+   {
+      compiled = FilterImpl.createFilter(filter);
+
+      message = new ServerMessageImpl(1, 100);
+      message.setAddress(new SimpleString("benchmark.filter"));
+      message.setPriority((byte)4);
+      message.putStringProperty(new SimpleString("color"), new SimpleString("red"));
+      message.putIntProperty(new SimpleString("weight"), 42);
+      message.putStringProperty(new SimpleString("region"), new SimpleString("eu-west"));
+   }
+
+   @Benchmark
+   public boolean match()
+   {
+      return compiled.match(message);
+   }
+}
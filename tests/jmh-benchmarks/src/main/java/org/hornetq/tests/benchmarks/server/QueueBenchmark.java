@@ -0,0 +1,92 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.benchmarks.server;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.Queue;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.tests.benchmarks.BenchmarkServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adds messages to a queue which delivers them to a consumer acknowledging them, directly on
+ * the adding thread or from the queue executor. At most {@code window} messages are in the queue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class QueueBenchmark
+{
+   private static final SimpleString ADDRESS = new SimpleString("benchmark.queue");
+
+   @Param({"true", "false"})
+   public boolean direct;
+
+   @Param({"1000"})
+   public int window;
+
+   private BenchmarkServer server;
+
+   private Queue queue;
+
+   private Semaphore credits;
+
+   @Setup
+   public void setUp() throws Exception
+   {
+      server = new BenchmarkServer();
+      queue = server.getServer().createQueue(ADDRESS, ADDRESS, null, false, false);
+      credits = new Semaphore(window);
+      queue.addConsumer(new AcknowledgingConsumer(credits));
+   }
+
+   @TearDown
+   public void tearDown() throws Exception
+   {
+      server.stop();
+   }
+
+   @Benchmark
+   public void addAndDeliver() throws Exception
+   {
+      HornetQServer hornetQServer = server.getServer();
+      ServerMessage message = new ServerMessageImpl(hornetQServer.getStorageManager().generateUniqueID(), 100);
+      message.setAddress(ADDRESS);
+
+      credits.acquire();
+      queue.addTail(message.createReference(queue), direct);
+      if (!direct)
+      {
+         queue.deliverAsync();
+      }
+   }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.benchmarks.server;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.Queue;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.tests.benchmarks.BenchmarkServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Routes non durable messages through the post office to an address bound to {@code bindings}
+ * queues, each one with a consumer acknowledging the messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RouteBenchmark
+{
+   private static final SimpleString ADDRESS = new SimpleString("benchmark.route");
+
+   private static final int WINDOW = 1000;
+
+   @Param({"1", "10", "100"})
+   public int bindings;
+
+   private BenchmarkServer server;
+
+   private Semaphore credits;
+
+   @Setup
+   public void setUp() throws Exception
+   {
+      server = new BenchmarkServer();
+      credits = new Semaphore(WINDOW * bindings);
+      for (int i = 0; i < bindings; i++)
+      {
+         SimpleString name = ADDRESS.concat("." + i);
+         Queue queue = server.getServer().createQueue(ADDRESS, name, null, false, false);
+         queue.addConsumer(new AcknowledgingConsumer(credits));
+      }
+   }
+
+   @TearDown
+   public void tearDown() throws Exception
+   {
+      server.stop();
+   }
+
+   @Benchmark
+   public void route() throws Exception
+   {
+      HornetQServer hornetQServer = server.getServer();
+      ServerMessage message = new ServerMessageImpl(hornetQServer.getStorageManager().generateUniqueID(), 100);
+      message.setAddress(ADDRESS);
+
+      credits.acquire(bindings);
+      hornetQServer.getPostOffice().route(message, true);
+   }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.benchmarks.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.utils.ConcurrentPriorityLinkedListImpl;
+import org.hornetq.utils.LinkedListIterator;
+import org.hornetq.utils.PriorityLinkedList;
+import org.hornetq.utils.PriorityLinkedListImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adds to and polls from a priority list holding {@code backlog} elements, with the ten priorities
+ * of the messages, as a queue does with its message references, for both implementations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PriorityLinkedListBenchmark
+{
+   private static final int PRIORITIES = 10;
+
+   @Param({"0", "10000"})
+   public int backlog;
+
+   @Param({"concurrent", "locked"})
+   public String implementation;
+
+   private PriorityLinkedList<Object> list;
+
+   private final Object element = new Object();
+
+   private int priority;
+
+   @Setup
+   public void setUp()
+   {
+      if ("concurrent".equals(implementation))
+      {
+         list = new ConcurrentPriorityLinkedListImpl<Object>(PRIORITIES);
+      }
+      else
+      {
+         list = new PriorityLinkedListImpl<Object>(PRIORITIES);
+      }
+      for (int i = 0; i < backlog; i++)
+      {
+         list.addTail(element, i % PRIORITIES);
+      }
+   }
+
+   @Benchmark
+   public Object addAndPoll()
+   {
+      list.addTail(element, priority);
+      priority = (priority + 1) % PRIORITIES;
+      return list.poll();
+   }
+
+   @Benchmark
+   public int iterate()
+   {
+      int count = 0;
+      LinkedListIterator<Object> iterator = list.iterator();
+      while (iterator.hasNext())
+      {
+         iterator.next();
+         count++;
+      }
+      iterator.close();
+      return count;
+   }
+}
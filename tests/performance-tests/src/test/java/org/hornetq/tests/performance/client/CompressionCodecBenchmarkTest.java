@@ -0,0 +1,118 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.performance.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hornetq.tests.util.UnitTestCase;
+import org.hornetq.utils.CompressionCodec;
+import org.hornetq.utils.CompressionCodecs;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Compares the CPU time spent by each large message compression codec against the bytes it saves,
+ * on a text like body and on a body which doesn't compress.
+ */
+public class CompressionCodecBenchmarkTest extends UnitTestCase
+{
+   private static final int BODY_SIZE = 10 * 1024 * 1024;
+
+   private static final int ITERATIONS = 10;
+
+   private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+   @Test
+   public void testCodecs() throws Exception
+   {
+      Random random = new Random(1);
+
+      byte[] text = new byte[BODY_SIZE];
+      String[] words = {"hornetq ", "message ", "queue ", "large ", "body ", "compression ", "journal ", "\n"};
+      int position = 0;
+      while (position < BODY_SIZE)
+      {
+         byte[] word = words[random.nextInt(words.length)].getBytes();
+         int n = Math.min(word.length, BODY_SIZE - position);
+         System.arraycopy(word, 0, text, position, n);
+         position += n;
+      }
+
+      byte[] noise = new byte[BODY_SIZE];
+      random.nextBytes(noise);
+
+      for (String name : new String[]{CompressionCodecs.ZLIB, CompressionCodecs.LZ})
+      {
+         CompressionCodec codec = CompressionCodecs.getCodec(name);
+
+         // warm up
+         measure(codec, text, 2);
+
+         System.out.println(name + " text:  " + measure(codec, text, ITERATIONS));
+         System.out.println(name + " noise: " + measure(codec, noise, ITERATIONS));
+      }
+   }
+
+   private String measure(final CompressionCodec codec, final byte[] body, final int iterations) throws Exception
+   {
+      byte[] buffer = new byte[100 * 1024];
+      long compressedSize = 0;
+      long compressTime = 0;
+      long decompressTime = 0;
+
+      for (int i = 0; i < iterations; i++)
+      {
+         long start = threadBean.getCurrentThreadCpuTime();
+
+         ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length);
+         InputStream reader = codec.compressingReader(new ByteArrayInputStream(body), new AtomicLong());
+         int n;
+         while ((n = reader.read(buffer)) != -1)
+         {
+            compressed.write(buffer, 0, n);
+         }
+
+         long middle = threadBean.getCurrentThreadCpuTime();
+
+         byte[] compressedBody = compressed.toByteArray();
+         ByteArrayOutputStream decompressed = new ByteArrayOutputStream(body.length);
+         OutputStream writer = codec.decompressingWriter(decompressed);
+         for (int offset = 0; offset < compressedBody.length; offset += buffer.length)
+         {
+            writer.write(compressedBody, offset, Math.min(buffer.length, compressedBody.length - offset));
+         }
+         writer.close();
+
+         long end = threadBean.getCurrentThreadCpuTime();
+
+         Assert.assertEquals(body.length, decompressed.size());
+
+         compressedSize = compressedBody.length;
+         compressTime += middle - start;
+         decompressTime += end - middle;
+      }
+
+      long megabytes = (long)body.length * iterations / (1024 * 1024);
+
+      return "ratio " + (compressedSize * 100 / body.length) + "%, compress " +
+         (megabytes * 1000000000L / Math.max(1, compressTime)) + " MiB/s, decompress " +
+         (megabytes * 1000000000L / Math.max(1, decompressTime)) + " MiB/s of CPU time";
+   }
+}
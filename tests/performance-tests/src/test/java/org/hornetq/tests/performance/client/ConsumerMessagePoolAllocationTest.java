@@ -0,0 +1,201 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.performance.client;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.client.impl.ClientMessagePool;
+import org.hornetq.core.protocol.ClientPacketDecoder;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveMessage;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.tests.unit.UnitTestLogger;
+import org.hornetq.tests.util.ServiceTestBase;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Measures the bytes allocated per consumed message, with and without the consumer message pool.
+ * <p>
+ * The decoding of the messages, which the pool changes, is measured on a single thread and the
+ * pooled decoding has to allocate clearly less. The consumption through an in-vm server is measured
+ * across every thread of the VM (client and server), and only reported.
+ */
+public class ConsumerMessagePoolAllocationTest extends ServiceTestBase
+{
+   private static final UnitTestLogger log = UnitTestLogger.LOGGER;
+
+   private static final SimpleString ADDRESS = new SimpleString("pool-adr");
+
+   private static final int NUMBER_OF_MESSAGES = 200000;
+
+   private static final int SIZE_OF_MESSAGE = 256;
+
+   @Test
+   public void testDecodeAllocationPerMessage() throws Exception
+   {
+      // allocations can only be measured on HotSpot
+      Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+
+      ServerMessageImpl message = new ServerMessageImpl(1, 1024);
+      message.setAddress(ADDRESS);
+      message.putStringProperty("key", "value");
+      message.getBodyBuffer().writeBytes(new byte[SIZE_OF_MESSAGE]);
+
+      // SessionReceiveMessage does not use the connection to encode
+      HornetQBuffer encoded = new SessionReceiveMessage(1, message, 1).encode(null);
+
+      // warm up both paths before measuring
+      measureDecode(new ClientPacketDecoder(), encoded, NUMBER_OF_MESSAGES / 10);
+      measureDecode(new ClientPacketDecoder(new ClientMessagePool(10)), encoded, NUMBER_OF_MESSAGES / 10);
+
+      long unpooled = measureDecode(new ClientPacketDecoder(), encoded, NUMBER_OF_MESSAGES);
+      long pooled = measureDecode(new ClientPacketDecoder(new ClientMessagePool(10)), encoded, NUMBER_OF_MESSAGES);
+
+      log.info("Bytes allocated per decoded message, unpooled = " + unpooled + ", pooled = " + pooled);
+
+      // the pool saves the message and its properties, the packet is still allocated
+      Assert.assertTrue("unpooled = " + unpooled + ", pooled = " + pooled, pooled * 2 < unpooled);
+   }
+
+   @Test
+   public void testAllocationPerMessage() throws Exception
+   {
+      HornetQServer server = createServer(false);
+      server.start();
+
+      try
+      {
+         // warm up both paths before measuring
+         measure(server, 0, NUMBER_OF_MESSAGES / 10);
+         measure(server, 1000, NUMBER_OF_MESSAGES / 10);
+
+         long unpooled = measure(server, 0, NUMBER_OF_MESSAGES);
+         long pooled = measure(server, 1000, NUMBER_OF_MESSAGES);
+
+         log.info("Bytes allocated per consumed message, unpooled = " + unpooled + ", pooled = " + pooled);
+      }
+      finally
+      {
+         server.stop();
+      }
+   }
+
+   /**
+    * Returns the bytes allocated by the current thread per message decoded and released, as a
+    * consumer does once it acknowledged the message.
+    */
+   private static long measureDecode(final ClientPacketDecoder decoder,
+                                     final HornetQBuffer encoded,
+                                     final int numberOfMessages)
+   {
+      // the decoding moves the writer index to the end of the body
+      int size = encoded.getInt(0) + 4;
+
+      long allocatedBefore = currentThreadAllocatedBytes();
+
+      for (int i = 0; i < numberOfMessages; i++)
+      {
+         // past the length, as the remoting layer hands the packets to the decoder
+         encoded.setIndex(4, size);
+         SessionReceiveMessage packet = (SessionReceiveMessage)decoder.decode(encoded);
+         ((ClientMessage)packet.getMessage()).release();
+      }
+
+      return (currentThreadAllocatedBytes() - allocatedBefore) / numberOfMessages;
+   }
+
+   private long measure(final HornetQServer server, final int poolSize, final int numberOfMessages) throws Exception
+   {
+      ServerLocator locator = createInVMNonHALocator();
+      locator.setConsumerMessagePoolSize(poolSize);
+      locator.setBlockOnNonDurableSend(false);
+
+      ClientSessionFactory factory = createSessionFactory(locator);
+      ClientSession session = factory.createSession(false, true, true);
+      session.createQueue(ADDRESS, ADDRESS, false);
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+      ClientMessage msg = session.createMessage(false);
+      msg.getBodyBuffer().writeBytes(new byte[SIZE_OF_MESSAGE]);
+
+      for (int i = 0; i < numberOfMessages; i++)
+      {
+         producer.send(msg);
+      }
+
+      ClientConsumer consumer = session.createConsumer(ADDRESS);
+      session.start();
+
+      long allocatedBefore = totalAllocatedBytes();
+      long start = System.currentTimeMillis();
+
+      for (int i = 0; i < numberOfMessages; i++)
+      {
+         ClientMessage received = consumer.receive(5000);
+         Assert.assertNotNull(received);
+         received.acknowledge();
+      }
+
+      long end = System.currentTimeMillis();
+      long allocated = totalAllocatedBytes() - allocatedBefore;
+
+      log.info("poolSize = " + poolSize + " consumed " + numberOfMessages + " messages in " +
+               (end - start) + " milliseconds");
+
+      session.close();
+      server.destroyQueue(ADDRESS);
+      locator.close();
+
+      return allocated / numberOfMessages;
+   }
+
+   private static long currentThreadAllocatedBytes()
+   {
+      com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+      return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+   }
+
+   private static long totalAllocatedBytes()
+   {
+      ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+      if (!(threadBean instanceof com.sun.management.ThreadMXBean))
+      {
+         return 0;
+      }
+
+      com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean)threadBean;
+
+      long total = 0;
+      for (long allocated : sunBean.getThreadAllocatedBytes(sunBean.getAllThreadIds()))
+      {
+         if (allocated > 0)
+         {
+            total += allocated;
+         }
+      }
+      return total;
+   }
+}
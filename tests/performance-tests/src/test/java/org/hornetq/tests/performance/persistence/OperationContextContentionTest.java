@@ -0,0 +1,154 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.performance.persistence;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.core.journal.IOAsyncTask;
+import org.hornetq.core.persistence.impl.journal.OperationContextImpl;
+import org.hornetq.tests.util.UnitTestCase;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Measures the cost of lining up and completing operations on a single {@link OperationContextImpl}
+ * when many threads schedule tasks and several callback threads complete them at the same time,
+ * as happens with the journal and replication callbacks of a busy server.
+ */
+public class OperationContextContentionTest extends UnitTestCase
+{
+   private static final int NUMBER_OF_SCHEDULERS = 8;
+
+   private static final int NUMBER_OF_CALLBACK_THREADS = 4;
+
+   private static final int OPERATIONS_PER_SCHEDULER = 200000;
+
+   private ExecutorService executor;
+
+   private ExecutorService callbacks;
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+      executor = Executors.newSingleThreadExecutor();
+      callbacks = Executors.newFixedThreadPool(NUMBER_OF_CALLBACK_THREADS);
+   }
+
+   @Override
+   @After
+   public void tearDown() throws Exception
+   {
+      callbacks.shutdown();
+      executor.shutdown();
+      callbacks.awaitTermination(10, TimeUnit.SECONDS);
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+      super.tearDown();
+   }
+
+   @Test
+   public void testContention() throws Exception
+   {
+      // warm up
+      run(OPERATIONS_PER_SCHEDULER / 10);
+
+      long time = run(OPERATIONS_PER_SCHEDULER);
+      long operations = (long)NUMBER_OF_SCHEDULERS * OPERATIONS_PER_SCHEDULER;
+
+      System.out.println(operations + " operations completed in " + time + " milliseconds, " +
+                         (operations * 1000 / Math.max(1, time)) + " operations/second");
+   }
+
+   private long run(final int operationsPerScheduler) throws Exception
+   {
+      final OperationContextImpl context = new OperationContextImpl(executor);
+      final CountDownLatch done = new CountDownLatch(NUMBER_OF_SCHEDULERS * operationsPerScheduler);
+      final CountDownLatch start = new CountDownLatch(1);
+
+      final IOAsyncTask task = new IOAsyncTask()
+      {
+         public void onError(int errorCode, String errorMessage)
+         {
+         }
+
+         public void done()
+         {
+            done.countDown();
+         }
+      };
+
+      final Runnable storeDone = new Runnable()
+      {
+         public void run()
+         {
+            context.done();
+         }
+      };
+
+      final Runnable replicationDone = new Runnable()
+      {
+         public void run()
+         {
+            context.replicationDone();
+         }
+      };
+
+      Thread[] schedulers = new Thread[NUMBER_OF_SCHEDULERS];
+      for (int i = 0; i < schedulers.length; i++)
+      {
+         schedulers[i] = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  start.await();
+               }
+               catch (InterruptedException e)
+               {
+                  return;
+               }
+
+               for (int j = 0; j < operationsPerScheduler; j++)
+               {
+                  context.storeLineUp();
+                  context.replicationLineUp();
+                  context.executeOnCompletion(task);
+                  callbacks.execute(storeDone);
+                  callbacks.execute(replicationDone);
+               }
+            }
+         };
+         schedulers[i].start();
+      }
+
+      long begin = System.currentTimeMillis();
+      start.countDown();
+
+      for (Thread scheduler : schedulers)
+      {
+         scheduler.join();
+      }
+
+      Assert.assertTrue(done.await(60, TimeUnit.SECONDS));
+
+      return System.currentTimeMillis() - begin;
+   }
+}
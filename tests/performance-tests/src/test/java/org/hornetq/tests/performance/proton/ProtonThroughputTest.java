@@ -0,0 +1,293 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.performance.proton;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.Source;
+import org.apache.qpid.proton.amqp.messaging.Target;
+import org.apache.qpid.proton.engine.Receiver;
+import org.apache.qpid.proton.engine.Sender;
+import org.apache.qpid.proton.engine.Session;
+import org.apache.qpid.proton.engine.impl.ConnectionImpl;
+import org.apache.qpid.proton.engine.impl.DeliveryImpl;
+import org.apache.qpid.proton.engine.impl.TransportImpl;
+import org.apache.qpid.proton.message.impl.MessageImpl;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.core.remoting.impl.netty.TransportConstants;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.tests.util.ServiceTestBase;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Measures the AMQP throughput of the server with several connections, each one sending to and
+ * receiving from its own queue at the same time.
+ * <p>
+ * The client is a bare proton engine driven over a socket in this JVM, so the numbers are not
+ * skewed by a JMS client.
+ */
+public class ProtonThroughputTest extends ServiceTestBase
+{
+   private static final int PORT = 5672;
+
+   private static final int CONNECTIONS = 4;
+
+   private static final int MESSAGES = 20000;
+
+   private static final int WARMUP_MESSAGES = 2000;
+
+   private static final int CREDIT = 1000;
+
+   private static final String ADDRESS = "amqpThroughput";
+
+   private HornetQServer server;
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+      server = createServer(false, true);
+      HashMap<String, Object> params = new HashMap<String, Object>();
+      params.put(TransportConstants.PORT_PROP_NAME, "" + PORT);
+      params.put(TransportConstants.PROTOCOL_PROP_NAME, "AMQP");
+      server.getConfiguration().getAcceptorConfigurations().add(new TransportConfiguration(NETTY_ACCEPTOR_FACTORY, params));
+      server.start();
+      for (int i = 0; i < CONNECTIONS; i++)
+      {
+         server.createQueue(new SimpleString(ADDRESS + i), new SimpleString(ADDRESS + i), null, false, false);
+      }
+   }
+
+   @Test
+   public void testThroughput() throws Exception
+   {
+      run(WARMUP_MESSAGES);
+
+      long time = run(MESSAGES);
+
+      long total = (long) CONNECTIONS * MESSAGES;
+      System.out.println(CONNECTIONS + " connections, " + total + " messages sent and received in " + time + " ms, " +
+                         (total * 1000 / Math.max(1, time)) + " msg/s");
+   }
+
+   private long run(final int messages) throws Exception
+   {
+      final CountDownLatch done = new CountDownLatch(CONNECTIONS);
+      final List<Client> clients = new ArrayList<Client>();
+      for (int i = 0; i < CONNECTIONS; i++)
+      {
+         clients.add(new Client(ADDRESS + i, messages, done));
+      }
+
+      long start = System.currentTimeMillis();
+      for (Client client : clients)
+      {
+         client.start();
+      }
+      Assert.assertTrue("clients did not finish", done.await(5, TimeUnit.MINUTES));
+      long time = System.currentTimeMillis() - start;
+
+      for (Client client : clients)
+      {
+         client.join();
+         if (client.error != null)
+         {
+            throw client.error;
+         }
+         Assert.assertEquals(messages, client.received);
+      }
+      return time;
+   }
+
+   /**
+    * One connection with a sender and a receiver on the same queue, pumping the transport itself.
+    */
+   private static final class Client extends Thread
+   {
+      private final String address;
+
+      private final int messages;
+
+      private final CountDownLatch done;
+
+      private final TransportImpl transport = new TransportImpl();
+
+      private final ConnectionImpl connection = new ConnectionImpl();
+
+      private final byte[] readBuffer = new byte[64 * 1024];
+
+      private final byte[] messageBuffer = new byte[1024];
+
+      private final byte[] writeBuffer = new byte[64 * 1024];
+
+      private final byte[] body;
+
+      private int sent;
+
+      private int received;
+
+      private Exception error;
+
+      Client(final String address, final int messages, final CountDownLatch done)
+      {
+         super("proton-client-" + address);
+         this.address = address;
+         this.messages = messages;
+         this.done = done;
+
+         MessageImpl message = new MessageImpl();
+         message.setAddress(address);
+         message.setBody(new AmqpValue("a message of about a hundred bytes for the proton throughput benchmark of HornetQ"));
+         byte[] encoded = new byte[1024];
+         int length = message.encode(encoded, 0, encoded.length);
+         body = new byte[length];
+         System.arraycopy(encoded, 0, body, 0, length);
+      }
+
+      @Override
+      public void run()
+      {
+         try
+         {
+            Socket socket = new Socket("localhost", PORT);
+            try
+            {
+               socket.setTcpNoDelay(true);
+               socket.setSoTimeout(1);
+               pump(socket.getInputStream(), socket.getOutputStream());
+            }
+            finally
+            {
+               socket.close();
+            }
+         }
+         catch (Exception e)
+         {
+            error = e;
+         }
+         finally
+         {
+            done.countDown();
+         }
+      }
+
+      private void pump(final InputStream input, final OutputStream output) throws Exception
+      {
+         transport.bind(connection);
+         connection.setContainer(getName());
+         connection.open();
+
+         Session session = connection.session();
+         session.open();
+
+         Sender sender = session.sender("sender");
+         Target target = new Target();
+         target.setAddress(address);
+         sender.setTarget(target);
+         sender.setSource(new Source());
+         sender.open();
+
+         Receiver receiver = session.receiver("receiver");
+         Source source = new Source();
+         source.setAddress(address);
+         receiver.setSource(source);
+         receiver.setTarget(new Target());
+         receiver.open();
+         receiver.flow(CREDIT);
+
+         while (received < messages)
+         {
+            while (sent < messages && sender.getCredit() > 0)
+            {
+               byte[] tag = Integer.toString(sent++).getBytes();
+               sender.delivery(tag);
+               sender.send(body, 0, body.length);
+               sender.advance();
+            }
+
+            Iterator<DeliveryImpl> deliveries = connection.getWorkSequence();
+            while (deliveries.hasNext())
+            {
+               DeliveryImpl delivery = deliveries.next();
+               if (delivery.getLink() == receiver)
+               {
+                  if (delivery.isReadable() && !delivery.isPartial())
+                  {
+                     while (receiver.recv(messageBuffer, 0, messageBuffer.length) > 0)
+                     {
+                        // the content is not checked, only its transfer is measured
+                     }
+                     receiver.advance();
+                     delivery.disposition(Accepted.getInstance());
+                     delivery.settle();
+                     receiver.flow(1);
+                     received++;
+                  }
+               }
+               else if (delivery.remotelySettled())
+               {
+                  delivery.settle();
+               }
+            }
+
+            int count;
+            while ((count = transport.output(writeBuffer, 0, writeBuffer.length)) > 0)
+            {
+               output.write(writeBuffer, 0, count);
+            }
+            output.flush();
+
+            try
+            {
+               count = input.read(readBuffer);
+            }
+            catch (SocketTimeoutException e)
+            {
+               count = 0;
+            }
+            if (count < 0)
+            {
+               throw new IllegalStateException("connection closed by the server");
+            }
+            int offset = 0;
+            while (offset < count)
+            {
+               offset += transport.input(readBuffer, offset, count - offset);
+            }
+         }
+
+         connection.close();
+         int count;
+         while ((count = transport.output(writeBuffer, 0, writeBuffer.length)) > 0)
+         {
+            output.write(writeBuffer, 0, count);
+         }
+         output.flush();
+      }
+   }
+}
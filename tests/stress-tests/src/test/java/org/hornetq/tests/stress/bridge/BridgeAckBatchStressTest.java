@@ -0,0 +1,206 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.stress.bridge;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hornetq.api.config.HornetQDefaultConfiguration;
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.api.core.Interceptor;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.HornetQClient;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.config.BridgeConfiguration;
+import org.hornetq.core.config.CoreQueueConfiguration;
+import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.Queue;
+import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.tests.integration.cluster.bridge.BridgeTestBase;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Compares the throughput of a core bridge acknowledging each forwarded message on its own against
+ * one acknowledging them in batches, over a target that delays its send confirmations as a high
+ * latency link would.
+ */
+public class BridgeAckBatchStressTest extends BridgeTestBase
+{
+   private static final String SOURCE_ADDRESS = "source";
+
+   private static final String SOURCE_QUEUE = "sourceQueue";
+
+   private static final String TARGET_ADDRESS = "target";
+
+   private static final String TARGET_QUEUE = "targetQueue";
+
+   private static final int NUMBER_OF_MESSAGES = 20000;
+
+   private static final int MESSAGE_SIZE = 512;
+
+   private static final int CONFIRMATION_WINDOW_SIZE = 64 * 1024;
+
+   /** Delay added to every confirmation sent back by the target */
+   private static final long LINK_LATENCY = 20;
+
+   @Test
+   public void testAckBatchThroughput() throws Exception
+   {
+      long unbatched = run(1);
+      long batched = run(500);
+
+      System.out.println("Bridge throughput, ack-batch-size=1: " + unbatched + " msgs/s, ack-batch-size=500: " +
+                         batched + " msgs/s");
+   }
+
+   private long run(final int ackBatchSize) throws Exception
+   {
+      Map<String, Object> server0Params = new HashMap<String, Object>();
+      HornetQServer server0 = createHornetQServer(0, false, server0Params);
+
+      Map<String, Object> server1Params = new HashMap<String, Object>();
+      HornetQServer server1 = createHornetQServer(1, false, server1Params);
+
+      TransportConfiguration server0tc = new TransportConfiguration(INVM_CONNECTOR_FACTORY, server0Params);
+      TransportConfiguration server1tc = new TransportConfiguration(INVM_CONNECTOR_FACTORY, server1Params);
+
+      HashMap<String, TransportConfiguration> connectors = new HashMap<String, TransportConfiguration>();
+      connectors.put(server1tc.getName(), server1tc);
+      server0.getConfiguration().setConnectorConfigurations(connectors);
+
+      ArrayList<String> staticConnectors = new ArrayList<String>();
+      staticConnectors.add(server1tc.getName());
+
+      BridgeConfiguration bridgeConfiguration = new BridgeConfiguration("bridge",
+                                                                        SOURCE_QUEUE,
+                                                                        TARGET_ADDRESS,
+                                                                        null,
+                                                                        null,
+                                                                        HornetQClient.DEFAULT_MIN_LARGE_MESSAGE_SIZE,
+                                                                        HornetQClient.DEFAULT_CLIENT_FAILURE_CHECK_PERIOD,
+                                                                        HornetQClient.DEFAULT_CONNECTION_TTL,
+                                                                        1000,
+                                                                        HornetQClient.DEFAULT_MAX_RETRY_INTERVAL,
+                                                                        1d,
+                                                                        -1,
+                                                                        -1,
+                                                                        -1,
+                                                                        true,
+                                                                        CONFIRMATION_WINDOW_SIZE,
+                                                                        staticConnectors,
+                                                                        false,
+                                                                        HornetQDefaultConfiguration.getDefaultClusterUser(),
+                                                                        HornetQDefaultConfiguration.getDefaultClusterPassword());
+      bridgeConfiguration.setAckBatchSize(ackBatchSize);
+
+      List<BridgeConfiguration> bridgeConfigs = new ArrayList<BridgeConfiguration>();
+      bridgeConfigs.add(bridgeConfiguration);
+      server0.getConfiguration().setBridgeConfigurations(bridgeConfigs);
+
+      List<CoreQueueConfiguration> queueConfigs0 = new ArrayList<CoreQueueConfiguration>();
+      queueConfigs0.add(new CoreQueueConfiguration(SOURCE_ADDRESS, SOURCE_QUEUE, null, true));
+      server0.getConfiguration().setQueueConfigurations(queueConfigs0);
+
+      List<CoreQueueConfiguration> queueConfigs1 = new ArrayList<CoreQueueConfiguration>();
+      queueConfigs1.add(new CoreQueueConfiguration(TARGET_ADDRESS, TARGET_QUEUE, null, true));
+      server1.getConfiguration().setQueueConfigurations(queueConfigs1);
+
+      server1.start();
+      server1.getRemotingService().addOutgoingInterceptor(new DelayConfirmationInterceptor());
+      server0.start();
+
+      ServerLocator locator = addServerLocator(HornetQClient.createServerLocatorWithoutHA(server0tc, server1tc));
+      locator.setBlockOnDurableSend(false);
+      try
+      {
+         ClientSessionFactory sf0 = addSessionFactory(locator.createSessionFactory(server0tc));
+         ClientSessionFactory sf1 = addSessionFactory(locator.createSessionFactory(server1tc));
+
+         ClientSession session0 = sf0.createSession(false, true, true);
+         ClientSession session1 = sf1.createSession(false, true, true);
+
+         ClientProducer producer = session0.createProducer(SOURCE_ADDRESS);
+         ClientConsumer consumer = session1.createConsumer(TARGET_QUEUE);
+         session1.start();
+
+         long start = System.currentTimeMillis();
+
+         for (int i = 0; i < NUMBER_OF_MESSAGES; i++)
+         {
+            ClientMessage message = session0.createMessage(true);
+            message.getBodyBuffer().writeBytes(new byte[MESSAGE_SIZE]);
+            producer.send(message);
+         }
+
+         for (int i = 0; i < NUMBER_OF_MESSAGES; i++)
+         {
+            ClientMessage message = consumer.receive(30000);
+            Assert.assertNotNull("message " + i + " not received", message);
+            message.acknowledge();
+         }
+
+         Queue sourceQueue = (Queue)server0.getPostOffice().getBinding(new SimpleString(SOURCE_QUEUE)).getBindable();
+         waitForMessages(sourceQueue, 0, 30000);
+
+         long time = System.currentTimeMillis() - start;
+
+         return NUMBER_OF_MESSAGES * 1000L / Math.max(1, time);
+      }
+      finally
+      {
+         locator.close();
+         server0.stop();
+         server1.stop();
+      }
+   }
+
+   private static void waitForMessages(final Queue queue, final long expected, final long timeout) throws Exception
+   {
+      long timeLimit = System.currentTimeMillis() + timeout;
+      while (queue.getMessageCount() != expected && System.currentTimeMillis() < timeLimit)
+      {
+         Thread.sleep(10);
+      }
+      Assert.assertEquals(expected, queue.getMessageCount());
+   }
+
+   private static final class DelayConfirmationInterceptor implements Interceptor
+   {
+      public boolean intercept(final Packet packet, final RemotingConnection connection) throws HornetQException
+      {
+         if (packet.getType() == PacketImpl.PACKETS_CONFIRMED)
+         {
+            try
+            {
+               Thread.sleep(LINK_LATENCY);
+            }
+            catch (InterruptedException e)
+            {
+               Thread.currentThread().interrupt();
+            }
+         }
+         return true;
+      }
+   }
+}
@@ -237,6 +237,67 @@ public class OperationContextUnitTest extends UnitTestCase
       Assert.assertEquals(0, operations.get());
    }
 
+   @Test
+   public void testConcurrentCompletionsKeepOrder() throws Exception
+   {
+      final int numberOfTasks = 10000;
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      ExecutorService completions = Executors.newFixedThreadPool(4);
+      try
+      {
+         final OperationContextImpl context = new OperationContextImpl(executor);
+         final CountDownLatch latch = new CountDownLatch(numberOfTasks);
+         final AtomicInteger lastExecuted = new AtomicInteger(-1);
+         final AtomicInteger outOfOrder = new AtomicInteger(0);
+
+         for (int i = 0; i < numberOfTasks; i++)
+         {
+            context.storeLineUp();
+            context.replicationLineUp();
+
+            final int taskNumber = i;
+            context.executeOnCompletion(new IOAsyncTask()
+            {
+               public void onError(int errorCode, String errorMessage)
+               {
+               }
+
+               public void done()
+               {
+                  if (lastExecuted.getAndSet(taskNumber) != taskNumber - 1)
+                  {
+                     outOfOrder.incrementAndGet();
+                  }
+                  latch.countDown();
+               }
+            });
+
+            completions.execute(new Runnable()
+            {
+               public void run()
+               {
+                  context.done();
+               }
+            });
+            completions.execute(new Runnable()
+            {
+               public void run()
+               {
+                  context.replicationDone();
+               }
+            });
+         }
+
+         assertTrue(latch.await(10, TimeUnit.SECONDS));
+         assertEquals(0, outOfOrder.get());
+      }
+      finally
+      {
+         completions.shutdown();
+         executor.shutdown();
+      }
+   }
+
    // Package protected ---------------------------------------------
 
    // Protected -----------------------------------------------------
@@ -245,6 +245,11 @@ public class BindingsImplTest extends UnitTestCase
 
       }
 
+      public int getTimeout()
+      {
+         return -1;
+      }
+
       public List<TransactionOperation> getAllOperations()
       {
          return null;
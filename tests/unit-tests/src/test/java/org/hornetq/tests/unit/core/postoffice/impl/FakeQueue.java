@@ -20,12 +20,14 @@ import java.util.concurrent.Executor;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.filter.Filter;
 import org.hornetq.core.paging.cursor.PageSubscription;
+import org.hornetq.core.server.BulkOperation;
 import org.hornetq.core.server.Consumer;
 import org.hornetq.core.server.HornetQServer;
 import org.hornetq.core.server.MessageReference;
 import org.hornetq.core.server.Queue;
 import org.hornetq.core.server.RoutingContext;
 import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.metrics.QueueMetrics;
 import org.hornetq.core.transaction.Transaction;
 import org.hornetq.utils.LinkedListIterator;
 import org.hornetq.utils.ReferenceCounter;
@@ -196,6 +198,11 @@ public class FakeQueue implements Queue
 
    }
 
+   public void redistributeBacklog(final int messages)
+   {
+      // no-op
+   }
+
    @Override
    public boolean changeReferencePriority(final long messageID, final byte newPriority) throws Exception
    {
@@ -543,6 +550,36 @@ public class FakeQueue implements Queue
       return 0;
    }
 
+   @Override
+   public BulkOperation deleteMatchingReferencesInBackground(int flushLimit, Filter filter) throws Exception
+   {
+      return null;
+   }
+
+   @Override
+   public BulkOperation expireReferencesInBackground(int flushLimit, Filter filter) throws Exception
+   {
+      return null;
+   }
+
+   @Override
+   public BulkOperation moveReferencesInBackground(int flushLimit, Filter filter, SimpleString toAddress, boolean rejectDuplicates) throws Exception
+   {
+      return null;
+   }
+
+   @Override
+   public BulkOperation changeReferencesPriorityInBackground(int flushLimit, Filter filter, byte newPriority) throws Exception
+   {
+      return null;
+   }
+
+   @Override
+   public List<BulkOperation> getBulkOperations()
+   {
+      return null;
+   }
+
    @Override
    public void forceDelivery()
    {
@@ -570,6 +607,47 @@ public class FakeQueue implements Queue
       return 0;
    }
 
+   @Override
+   public boolean addCountingFilter(Filter filter)
+   {
+      // no-op
+      return false;
+   }
+
+   @Override
+   public boolean removeCountingFilter(SimpleString filterString)
+   {
+      // no-op
+      return false;
+   }
+
+   @Override
+   public long getCountingFilterCount(SimpleString filterString)
+   {
+      // no-op
+      return -1;
+   }
+
+   @Override
+   public SimpleString[] getCountingFilters()
+   {
+      // no-op
+      return new SimpleString[0];
+   }
+
+   @Override
+   public QueueMetrics getMetrics()
+   {
+      return null;
+   }
+
+   @Override
+   public long getMessagesAcknowledged()
+   {
+      // no-op
+      return 0;
+   }
+
    /* (non-Javadoc)
    * @see org.hornetq.core.server.Queue#destroyPaging()
    */
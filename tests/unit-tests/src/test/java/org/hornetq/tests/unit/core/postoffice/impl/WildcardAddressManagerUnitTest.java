@@ -28,6 +28,7 @@ import org.hornetq.core.server.Bindable;
 import org.hornetq.core.server.Queue;
 import org.hornetq.core.server.RoutingContext;
 import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.cluster.LoadBalancingPolicy;
 import org.hornetq.tests.util.UnitTestCase;
 
 
@@ -214,6 +215,12 @@ public class WildcardAddressManagerUnitTest extends UnitTestCase
 
       }
 
+      @Override
+      public void setLoadBalancingPolicy(LoadBalancingPolicy policy)
+      {
+
+      }
+
       @Override
       public boolean redistribute(ServerMessage message, Queue originatingQueue, RoutingContext context) throws Exception
       {
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.unit.core.server.group.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.server.group.impl.Proposal;
+import org.hornetq.core.server.group.impl.Response;
+import org.hornetq.tests.util.UnitTestCase;
+import org.junit.Test;
+
+public class ProposalBatchTest extends UnitTestCase
+{
+   @Test
+   public void testEncodeDecodeProposals() throws Exception
+   {
+      List<Proposal> proposals = new ArrayList<Proposal>();
+      for (int i = 0; i < 100; i++)
+      {
+         proposals.add(new Proposal(new SimpleString("group" + i), i % 10 == 0 ? null : new SimpleString("queue" + i)));
+      }
+
+      List<Proposal> decoded = Proposal.decode(Proposal.encode(proposals));
+
+      assertEquals(proposals.size(), decoded.size());
+      for (int i = 0; i < proposals.size(); i++)
+      {
+         assertEquals(proposals.get(i).getGroupId(), decoded.get(i).getGroupId());
+         assertEquals(proposals.get(i).getClusterName(), decoded.get(i).getClusterName());
+      }
+   }
+
+   @Test
+   public void testEncodeDecodeResponses() throws Exception
+   {
+      List<Response> responses = new ArrayList<Response>();
+      for (int i = 0; i < 100; i++)
+      {
+         responses.add(new Response(new SimpleString("group" + i),
+                                    new SimpleString("queue" + i),
+                                    i % 2 == 0 ? null : new SimpleString("alt" + i)));
+      }
+
+      List<Response> decoded = Response.decode(Response.encode(responses));
+
+      assertEquals(responses.size(), decoded.size());
+      for (int i = 0; i < responses.size(); i++)
+      {
+         assertEquals(responses.get(i).getGroupId(), decoded.get(i).getGroupId());
+         assertEquals(responses.get(i).getClusterName(), decoded.get(i).getClusterName());
+         assertEquals(responses.get(i).getAlternativeClusterName(), decoded.get(i).getAlternativeClusterName());
+         assertEquals(responses.get(i).isAccepted(), decoded.get(i).isAccepted());
+      }
+   }
+}
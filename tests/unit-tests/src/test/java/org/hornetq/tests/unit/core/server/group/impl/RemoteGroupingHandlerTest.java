@@ -0,0 +1,218 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.unit.core.server.group.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.management.ManagementHelper;
+import org.hornetq.core.server.group.impl.Proposal;
+import org.hornetq.core.server.group.impl.RemoteGroupingHandler;
+import org.hornetq.core.server.group.impl.Response;
+import org.hornetq.core.server.management.ManagementService;
+import org.hornetq.core.server.management.Notification;
+import org.hornetq.tests.util.UnitTestCase;
+import org.junit.Test;
+
+/**
+ * Proposes group ids from several threads while the first proposal is being sent, and checks how
+ * the proposals made meanwhile reach the local handler.
+ */
+public class RemoteGroupingHandlerTest extends UnitTestCase
+{
+   private static final SimpleString QUEUE = new SimpleString("queue0");
+
+   private final List<Notification> sent = new CopyOnWriteArrayList<Notification>();
+
+   private final CountDownLatch firstSending = new CountDownLatch(1);
+
+   private final CountDownLatch releaseFirst = new CountDownLatch(1);
+
+   private final ManagementService managementService =
+      (ManagementService)Proxy.newProxyInstance(ManagementService.class.getClassLoader(),
+                                                new Class[]{ManagementService.class},
+                                                new InvocationHandler()
+                                                {
+                                                   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+                                                   {
+                                                      if (method.getName().equals("sendNotification"))
+                                                      {
+                                                         sent.add((Notification)args[0]);
+                                                         if (sent.size() == 1)
+                                                         {
+                                                            firstSending.countDown();
+                                                            releaseFirst.await();
+                                                         }
+                                                      }
+                                                      return null;
+                                                   }
+                                                });
+
+   @Test
+   public void testProposalsSentOneByOneToOlderHandler() throws Exception
+   {
+      RemoteGroupingHandler handler = createHandler();
+
+      proposeWhileSendingFirst(handler, 3);
+
+      // each proposal is in the plain headers of its own notification
+      assertEquals(3, sent.size());
+      for (int i = 0; i < 3; i++)
+      {
+         assertFalse(sent.get(i).getProperties().containsProperty(ManagementHelper.HDR_PROPOSAL_BATCH));
+         assertEquals(groupId(i),
+                      sent.get(i).getProperties().getSimpleStringProperty(ManagementHelper.HDR_PROPOSAL_GROUP_ID));
+      }
+   }
+
+   @Test
+   public void testProposalsSentTogetherOnceSupported() throws Exception
+   {
+      RemoteGroupingHandler handler = createHandler();
+      handler.setProposalBatchesSupported(true);
+
+      proposeWhileSendingFirst(handler, 3);
+
+      // the proposals made while the first was sent go together
+      assertEquals(2, sent.size());
+      assertFalse(sent.get(0).getProperties().containsProperty(ManagementHelper.HDR_PROPOSAL_BATCH));
+      List<Proposal> batch = Proposal.decode(sent.get(1)
+                                                 .getProperties()
+                                                 .getBytesProperty(ManagementHelper.HDR_PROPOSAL_BATCH));
+      assertEquals(2, batch.size());
+      assertEquals(groupId(1), batch.get(0).getGroupId());
+      assertEquals(groupId(2), batch.get(1).getGroupId());
+   }
+
+   @Test
+   public void testProposalsSentOneByOneAfterOlderHandlerAnswers() throws Exception
+   {
+      RemoteGroupingHandler handler = createHandler();
+      handler.setProposalBatchesSupported(true);
+      // the local handler was replaced by an older one
+      handler.setProposalBatchesSupported(false);
+
+      proposeWhileSendingFirst(handler, 3);
+
+      assertEquals(3, sent.size());
+   }
+
+   @Test
+   public void testResponseProposedAgainCachedOnce() throws Exception
+   {
+      RemoteGroupingHandler handler =
+         new RemoteGroupingHandler(managementService, new SimpleString("remote"), new SimpleString("queues"), 5000, 2);
+
+      handler.proposed(new Response(groupId(0), QUEUE));
+      handler.proposed(new Response(groupId(0), QUEUE));
+      handler.proposed(new Response(groupId(1), QUEUE));
+
+      // the second response for group0 doesn't count against the cache
+      assertNotNull(handler.getProposal(groupId(0)));
+      assertNotNull(handler.getProposal(groupId(1)));
+
+      handler.proposed(new Response(groupId(2), QUEUE));
+
+      assertNull(handler.getProposal(groupId(0)));
+      assertNotNull(handler.getProposal(groupId(1)));
+      assertNotNull(handler.getProposal(groupId(2)));
+   }
+
+   private RemoteGroupingHandler createHandler() throws Exception
+   {
+      RemoteGroupingHandler handler =
+         new RemoteGroupingHandler(managementService, new SimpleString("remote"), new SimpleString("queues"), 5000);
+      handler.start();
+      return handler;
+   }
+
+   /**
+    * Makes one proposal per thread, the first thread being held while it sends, and answers all of
+    * them once every proposal is made.
+    */
+   private void proposeWhileSendingFirst(final RemoteGroupingHandler handler, final int count) throws Exception
+   {
+      final List<Response> responses = new CopyOnWriteArrayList<Response>();
+      List<Thread> proposers = new ArrayList<Thread>();
+
+      for (int i = 0; i < count; i++)
+      {
+         final SimpleString groupId = groupId(i);
+         Thread proposer = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  responses.add(handler.propose(new Proposal(groupId, QUEUE)));
+               }
+               catch (Exception e)
+               {
+                  e.printStackTrace();
+               }
+            }
+         };
+         proposers.add(proposer);
+         proposer.start();
+
+         if (i == 0)
+         {
+            assertTrue(firstSending.await(5, TimeUnit.SECONDS));
+         }
+         else
+         {
+            // queued, and waiting for its response
+            waitForResponseWait(proposer);
+         }
+      }
+
+      releaseFirst.countDown();
+
+      // the first thread sends what was queued meanwhile before waiting for its own response
+      waitForResponseWait(proposers.get(0));
+
+      for (int i = 0; i < count; i++)
+      {
+         handler.proposed(new Response(groupId(i), QUEUE));
+      }
+
+      for (Thread proposer : proposers)
+      {
+         proposer.join(5000);
+      }
+      assertEquals(count, responses.size());
+   }
+
+   private static void waitForResponseWait(final Thread proposer) throws InterruptedException
+   {
+      long timeout = System.currentTimeMillis() + 5000;
+      while (proposer.getState() != Thread.State.TIMED_WAITING && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(10);
+      }
+      assertEquals(Thread.State.TIMED_WAITING, proposer.getState());
+   }
+
+   private static SimpleString groupId(final int i)
+   {
+      return new SimpleString("group" + i);
+   }
+}